@@ -46,6 +46,10 @@ dependencies {
   testCompileOnly("org.immutables:serial")
   testCompileOnly("javax.annotation:javax.annotation-api")
 
+  // Benchmarks in the test sources
+  testImplementation("org.openjdk.jmh:jmh-core:1.22")
+  testAnnotationProcessor("org.openjdk.jmh:jmh-generator-annprocess:1.22")
+
   // !! Update dependencies in pom.xml as well
 }
 
@@ -0,0 +1,156 @@
+package mb.nabl2.solver.solvers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import mb.nabl2.constraints.Constraints;
+import mb.nabl2.constraints.IConstraint;
+import mb.nabl2.constraints.base.IBaseConstraint;
+import mb.nabl2.terms.ITermVar;
+import mb.nabl2.terms.unification.u.IUnifier;
+
+/**
+ * Partitioning of constraints into groups that can be solved independently.
+ *
+ * Constraints are in the same group if they share a variable, after applying the unifier. Constraints that use the
+ * scope graph, name resolution, relations, sets, AST properties, or symbolic constraints can interact through the
+ * solver state, and are always in the shared group, together with all constraints that share variables with them. The
+ * remaining groups only contain base and equality constraints, and only affect the unifier, on variables that no other
+ * group uses.
+ */
+final class ConstraintPartitions {
+
+    private final List<IConstraint> shared;
+    private final List<List<IConstraint>> independent;
+
+    private ConstraintPartitions(List<IConstraint> shared, List<List<IConstraint>> independent) {
+        this.shared = shared;
+        this.independent = independent;
+    }
+
+    /**
+     * Constraints that must be solved together with the solver state.
+     */
+    public List<IConstraint> shared() {
+        return shared;
+    }
+
+    /**
+     * Groups of constraints that can be solved independently of each other and of the shared constraints.
+     */
+    public List<List<IConstraint>> independent() {
+        return independent;
+    }
+
+    public static ConstraintPartitions of(Iterable<? extends IConstraint> constraints, IUnifier unifier) {
+        final List<Partition> partitions = new ArrayList<>();
+        final Map<ITermVar, Partition> varPartitions = new HashMap<>();
+        for(IConstraint constraint : constraints) {
+            Partition partition = new Partition(!isLocal(constraint));
+            partition.constraints.add(constraint);
+            partitions.add(partition);
+            for(ITermVar var : vars(constraint, unifier)) {
+                final Partition varPartition = varPartitions.get(var);
+                if(varPartition == null) {
+                    partition.vars.add(var);
+                    varPartitions.put(var, partition);
+                } else if(varPartition != partition) {
+                    partition = merge(partition, varPartition, varPartitions);
+                }
+            }
+        }
+
+        final List<IConstraint> shared = new ArrayList<>();
+        final List<List<IConstraint>> independent = new ArrayList<>();
+        for(Partition partition : partitions) {
+            if(partition.merged) {
+                continue;
+            }
+            if(partition.shared) {
+                shared.addAll(partition.constraints);
+            } else {
+                independent.add(Collections.unmodifiableList(partition.constraints));
+            }
+        }
+        return new ConstraintPartitions(shared, independent);
+    }
+
+    /**
+     * Merge the smaller partition into the larger one, and return the remaining partition.
+     */
+    private static Partition merge(Partition left, Partition right, Map<ITermVar, Partition> varPartitions) {
+        final Partition into;
+        final Partition from;
+        if(left.size() >= right.size()) {
+            into = left;
+            from = right;
+        } else {
+            into = right;
+            from = left;
+        }
+        into.constraints.addAll(from.constraints);
+        into.shared |= from.shared;
+        for(ITermVar var : from.vars) {
+            into.vars.add(var);
+            varPartitions.put(var, into);
+        }
+        from.merged = true;
+        return into;
+    }
+
+    /**
+     * Test whether the constraint, and all constraints it may produce, only affect the unifier.
+     */
+    private static boolean isLocal(IConstraint constraint) {
+        // @formatter:off
+        return constraint.match(IConstraint.Cases.<Boolean>of(
+            ast -> false,
+            base -> base.match(IBaseConstraint.Cases.<Boolean>of(
+                t -> true,
+                f -> true,
+                conj -> isLocal(conj.getLeft()) && isLocal(conj.getRight()),
+                exists -> isLocal(exists.getConstraint()),
+                n -> true
+            )),
+            equality -> true,
+            scopeGraph -> false,
+            nameResolution -> false,
+            relation -> false,
+            set -> false,
+            sym -> false
+        ));
+        // @formatter:on
+    }
+
+    private static Set<ITermVar> vars(IConstraint constraint, IUnifier unifier) {
+        final Set<ITermVar> vars = new HashSet<>();
+        Constraints.transform(constraint, term -> {
+            vars.addAll(unifier.getVars(term));
+            return term;
+        });
+        return vars;
+    }
+
+    private static class Partition {
+
+        private final List<IConstraint> constraints = new ArrayList<>();
+        private final Set<ITermVar> vars = new HashSet<>();
+        private boolean shared;
+        private boolean merged = false;
+
+        private Partition(boolean shared) {
+            this.shared = shared;
+        }
+
+        private int size() {
+            return constraints.size() + vars.size();
+        }
+
+    }
+
+}
@@ -1,20 +1,33 @@
 package mb.nabl2.solver.solvers;
 
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nullable;
 
 import org.metaborg.util.Ref;
 import org.metaborg.util.functions.Function1;
 import org.metaborg.util.functions.Predicate1;
+import org.metaborg.util.functions.Predicate2;
 import org.metaborg.util.task.ICancel;
 import org.metaborg.util.task.IProgress;
+import org.metaborg.util.task.NullProgress;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
 import io.usethesource.capsule.Set;
 import mb.nabl2.config.NaBL2DebugConfig;
 import mb.nabl2.constraints.IConstraint;
+import mb.nabl2.constraints.base.IBaseConstraint;
 import mb.nabl2.constraints.messages.IMessageInfo;
+import mb.nabl2.constraints.scopegraph.IScopeGraphConstraint;
 import mb.nabl2.relations.variants.IVariantRelation;
 import mb.nabl2.relations.variants.VariantRelations;
 import mb.nabl2.solver.ISolution;
@@ -42,7 +55,10 @@ import mb.nabl2.terms.ITermVar;
 import mb.nabl2.terms.stratego.TermIndex;
 import mb.nabl2.terms.unification.u.IUnifier;
 import mb.nabl2.util.collections.IProperties;
+import mb.scopegraph.pepm16.CriticalEdgeException;
+import mb.scopegraph.pepm16.IResolutionParameters.Strategy;
 import mb.scopegraph.pepm16.ScopeGraphReducer;
+import mb.scopegraph.pepm16.StuckException;
 import mb.scopegraph.pepm16.esop15.CriticalEdge;
 import mb.scopegraph.pepm16.esop15.IEsopNameResolution;
 import mb.scopegraph.pepm16.esop15.IEsopScopeGraph;
@@ -52,13 +68,49 @@ import mb.scopegraph.pepm16.terms.Scope;
 
 public class SemiIncrementalMultiFileSolver extends BaseMultiFileSolver {
 
+    /**
+     * Number of threads used to solve independent constraints and resolve references in the final phase, or 0 to solve
+     * all constraints on the calling thread.
+     */
+    private static final int FINAL_PHASE_PARALLELISM = Integer.getInteger("nabl2.finalPhaseParallelism", 0);
+
+    /**
+     * Threads that solve independent constraints and resolve references in the final phase, shared by all solvers.
+     * Created on first use. Idle threads are discarded after a while.
+     */
+    private static volatile @Nullable ExecutorService finalPhaseExecutor;
+
+    private final int finalPhaseParallelism;
+
     public SemiIncrementalMultiFileSolver(NaBL2DebugConfig nabl2Debug, CallExternal callExternal) {
+        this(nabl2Debug, callExternal, FINAL_PHASE_PARALLELISM);
+    }
+
+    /**
+     * @param finalPhaseParallelism
+     *            Number of threads used to solve independent constraints and resolve references in the final phase,
+     *            or 0 to solve all constraints on the calling thread.
+     */
+    public SemiIncrementalMultiFileSolver(NaBL2DebugConfig nabl2Debug, CallExternal callExternal,
+            int finalPhaseParallelism) {
         super(nabl2Debug, callExternal);
+        this.finalPhaseParallelism = finalPhaseParallelism;
     }
 
     public ISolution solveInter(ISolution initial, Iterable<? extends ISolution> unitSolutions, IMessageInfo message,
             Function1<String, String> fresh, ICancel cancel, IProgress progress)
             throws SolverException, InterruptedException {
+        return solveInter(initial, unitSolutions, null, message, fresh, cancel, progress);
+    }
+
+    /**
+     * @param previous
+     *            Final solution of a previous run, or null. Name resolution results of the previous solution that are
+     *            still valid in the current scope graph are reused.
+     */
+    public ISolution solveInter(ISolution initial, Iterable<? extends ISolution> unitSolutions,
+            @Nullable ISolution previous, IMessageInfo message, Function1<String, String> fresh, ICancel cancel,
+            IProgress progress) throws SolverException, InterruptedException {
         final SolverConfig config = initial.config();
 
         // shared
@@ -132,9 +184,22 @@ public class SemiIncrementalMultiFileSolver extends BaseMultiFileSolver {
             }
 
             // solve constraints
+            final java.util.Set<IConstraint> remainingConstraints =
+                    solveIndependent(config, constraints, unifier, equalitySolver, message, fresh, messages, cancel,
+                            progress);
             scopeGraphReducer.updateAll();
-            hasRelationBuildConstraints.addAll(constraints);
-            SolveResult solveResult = solver.solve(constraints, unifier);
+            if(previous != null && previous.config().getResolutionParams().equals(config.getResolutionParams())) {
+                final Optional<java.util.Set<Scope>> pendingScopes =
+                        pendingScopes(remainingConstraints, scopeGraph, unifier.get());
+                if(pendingScopes.isPresent()) {
+                    final Predicate2<Scope, Label> isEdgeClosed = (s, l) -> !pendingScopes.get().contains(s);
+                    nameResolution.addCached(previous.nameResolutionCache().retainValid(previous.scopeGraph(),
+                            scopeGraph, config.getResolutionParams(), isEdgeClosed));
+                }
+            }
+            resolveIndependent(config, scopeGraph, nameResolution, cancel);
+            hasRelationBuildConstraints.addAll(remainingConstraints);
+            SolveResult solveResult = solver.solve(remainingConstraints, unifier);
             messages.addAll(solveResult.messages());
 
             // build result
@@ -154,4 +219,243 @@ public class SemiIncrementalMultiFileSolver extends BaseMultiFileSolver {
         }
     }
 
+    /**
+     * Scopes that the remaining scope graph constraints may still add declarations, references, or edges to, including
+     * constraints nested in conjunctions and existentials. Returns empty if these scopes are not known, because the
+     * scope of a constraint is not ground.
+     */
+    static Optional<java.util.Set<Scope>> pendingScopes(Iterable<IConstraint> constraints,
+            IEsopScopeGraph<Scope, Label, Occurrence, ITerm> scopeGraph, IUnifier unifier) {
+        final java.util.Set<Scope> pendingScopes = Sets.newHashSet();
+        for(IConstraint constraint : constraints) {
+            if(!addPendingScopes(constraint, pendingScopes, scopeGraph, unifier)) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(pendingScopes);
+    }
+
+    private static boolean addPendingScopes(IConstraint constraint, java.util.Set<Scope> pendingScopes,
+            IEsopScopeGraph<Scope, Label, Occurrence, ITerm> scopeGraph, IUnifier unifier) {
+        // @formatter:off
+        return constraint.match(IConstraint.Cases.<Boolean>of(
+            ast -> true,
+            base -> base.match(IBaseConstraint.Cases.<Boolean>of(
+                t -> true,
+                f -> true,
+                conj -> addPendingScopes(conj.getLeft(), pendingScopes, scopeGraph, unifier)
+                            && addPendingScopes(conj.getRight(), pendingScopes, scopeGraph, unifier),
+                exists -> addPendingScopes(exists.getConstraint(), pendingScopes, scopeGraph, unifier),
+                n -> true
+            )),
+            equality -> true,
+            scopeGraphConstraint -> {
+                final Optional<Scope> scope =
+                        scopeGraphConstraint.match(IScopeGraphConstraint.Cases.<Optional<Scope>>of(
+                            decl -> Scope.matcher().match(decl.getScope(), unifier),
+                            ref -> Scope.matcher().match(ref.getScope(), unifier),
+                            edge -> Scope.matcher().match(edge.getSourceScope(), unifier),
+                            exp -> Occurrence.matcher().match(exp.getDeclaration(), unifier)
+                                        .flatMap(decl -> scopeGraph.getDecls().get(decl)),
+                            imp -> Scope.matcher().match(imp.getScope(), unifier)
+                        ));
+                scope.ifPresent(pendingScopes::add);
+                return scope.isPresent();
+            },
+            nameResolution -> true,
+            relation -> true,
+            set -> true,
+            sym -> true
+        ));
+        // @formatter:on
+    }
+
+    /**
+     * Solve groups of constraints that only affect the unifier, and are independent of the other constraints, in
+     * parallel. The unifier changes are merged into the shared unifier afterwards. Returns the constraints that still
+     * need to be solved, which are the shared constraints, and the independent constraints that could not be solved.
+     */
+    private java.util.Set<IConstraint> solveIndependent(SolverConfig config, java.util.Set<IConstraint> constraints,
+            Ref<IUnifier.Immutable> unifier, EqualityComponent equalitySolver, IMessageInfo message,
+            Function1<String, String> fresh, IMessages.Transient messages, ICancel cancel, IProgress progress)
+            throws InterruptedException {
+        if(finalPhaseParallelism <= 0) {
+            return constraints;
+        }
+        final ConstraintPartitions partitions = ConstraintPartitions.of(constraints, unifier.get());
+        if(partitions.independent().isEmpty()) {
+            return constraints;
+        }
+        final List<List<IConstraint>> batches = batches(partitions.independent(), finalPhaseParallelism);
+
+        final IUnifier.Immutable initialUnifier = unifier.get();
+        final Function1<String, String> sharedFresh = base -> {
+            synchronized(fresh) {
+                return fresh.apply(base);
+            }
+        };
+        final ExecutorService executor = finalPhaseExecutor();
+        final List<Future<BatchResult>> futures = Lists.newArrayList();
+        try {
+            for(List<IConstraint> batch : batches) {
+                futures.add(executor.submit(() -> solveBatch(config, batch, initialUnifier, sharedFresh, cancel)));
+            }
+            final java.util.Set<IConstraint> remainingConstraints = Sets.newHashSet(partitions.shared());
+            for(Future<BatchResult> future : futures) {
+                final BatchResult result = getResult(future);
+                for(IUnifier.Immutable unifierDiff : result.unifierDiffs) {
+                    seed(equalitySolver.seed(unifierDiff, message), messages, remainingConstraints);
+                }
+                messages.addAll(result.solveResult.messages());
+                remainingConstraints.addAll(result.solveResult.constraints());
+                progress.work(result.solvedCount);
+            }
+            return remainingConstraints;
+        } finally {
+            for(Future<BatchResult> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Resolve the references of the scope graph in parallel, before solving the remaining constraints. Every batch of
+     * references is resolved by its own name resolution, against the shared scope graph, which is not changed while the
+     * batches run. References whose resolution depends on incomplete edges are left to the solver. The other results
+     * are added to the name resolution of the solver. This is sound, because the scope graph only changes in the final
+     * phase by completing incomplete edges, which does not change resolutions that did not depend on them.
+     */
+    private void resolveIndependent(SolverConfig config, IEsopScopeGraph<Scope, Label, Occurrence, ITerm> scopeGraph,
+            IEsopNameResolution<Scope, Label, Occurrence> nameResolution, ICancel cancel)
+            throws InterruptedException {
+        if(finalPhaseParallelism <= 0 || !config.getResolutionParams().getStrategy().equals(Strategy.SEARCH)) {
+            return;
+        }
+        final List<Occurrence> refs =
+                Lists.newArrayList(Sets.difference(scopeGraph.getAllRefs(), nameResolution.getResolvedRefs()));
+        if(refs.isEmpty()) {
+            return;
+        }
+        final int batchSize = (refs.size() + finalPhaseParallelism - 1) / finalPhaseParallelism;
+
+        final ExecutorService executor = finalPhaseExecutor();
+        final List<Future<IEsopNameResolution.IResolutionCache<Scope, Label, Occurrence>>> futures =
+                Lists.newArrayList();
+        try {
+            for(List<Occurrence> batch : Lists.partition(refs, batchSize)) {
+                futures.add(executor.submit(() -> resolveBatch(config, scopeGraph, batch, cancel)));
+            }
+            for(Future<IEsopNameResolution.IResolutionCache<Scope, Label, Occurrence>> future : futures) {
+                nameResolution.addCached(getResult(future));
+            }
+        } finally {
+            for(Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private static IEsopNameResolution.IResolutionCache<Scope, Label, Occurrence> resolveBatch(SolverConfig config,
+            IEsopScopeGraph<Scope, Label, Occurrence, ITerm> scopeGraph, List<Occurrence> refs, ICancel cancel)
+            throws InterruptedException {
+        final IEsopNameResolution<Scope, Label, Occurrence> nameResolution =
+                IEsopNameResolution.of(config.getResolutionParams(), scopeGraph, (s, l) -> true);
+        for(Occurrence ref : refs) {
+            try {
+                nameResolution.resolve(ref, cancel, new NullProgress());
+            } catch(CriticalEdgeException | StuckException ex) {
+                // resolved by the solver, after the incomplete edges are completed
+            }
+        }
+        return nameResolution.toCache();
+    }
+
+    private static ExecutorService finalPhaseExecutor() {
+        ExecutorService executor = finalPhaseExecutor;
+        if(executor == null) {
+            synchronized(SemiIncrementalMultiFileSolver.class) {
+                if((executor = finalPhaseExecutor) == null) {
+                    executor = Executors.newCachedThreadPool(r -> {
+                        final Thread thread = new Thread(r, "NaBL2FinalPhase");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    finalPhaseExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Distribute the groups over batches of roughly equal size, largest groups first.
+     */
+    private static List<List<IConstraint>> batches(List<List<IConstraint>> groups, int parallelism) {
+        final List<List<IConstraint>> sortedGroups = Lists.newArrayList(groups);
+        sortedGroups.sort(Comparator.<List<IConstraint>>comparingInt(List::size).reversed());
+        final List<List<IConstraint>> batches = Lists.newArrayList();
+        for(List<IConstraint> group : sortedGroups) {
+            if(batches.size() < parallelism) {
+                batches.add(Lists.newArrayList(group));
+            } else {
+                batches.stream().min(Comparator.comparingInt(List::size)).get().addAll(group);
+            }
+        }
+        return batches;
+    }
+
+    private BatchResult solveBatch(SolverConfig config, List<IConstraint> constraints,
+            IUnifier.Immutable initialUnifier, Function1<String, String> fresh, ICancel cancel)
+            throws InterruptedException {
+        final Ref<IUnifier.Immutable> unifier = new Ref<>(initialUnifier);
+        final SolverCore core = new SolverCore(config, unifier, fresh, callExternal, cancel, new NullProgress());
+        final BaseComponent baseSolver = new BaseComponent(core);
+        final EqualityComponent equalitySolver = new EqualityComponent(core, unifier);
+
+        // @formatter:off
+        final ISolver component = c -> c.matchOrThrow(IConstraint.CheckedCases.<SolveResult, DelayException>builder()
+            .onBase(baseSolver::solve)
+            .onEquality(equalitySolver::solve)
+            .otherwise(ISolver.defer())
+        );
+        // @formatter:on
+        final FixedPointSolver solver = new FixedPointSolver(cancel, new NullProgress(), component);
+
+        final BatchResult result = new BatchResult();
+        solver.step().subscribe(r -> {
+            final IUnifier.Immutable unifierDiff = r.result.unifierDiff();
+            if(!unifierDiff.isEmpty()) {
+                result.unifierDiffs.add(unifierDiff);
+            }
+            result.solvedCount += 1;
+        });
+        result.solveResult = solver.solve(constraints, unifier);
+        return result;
+    }
+
+    private static <T> T getResult(Future<T> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch(ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if(cause instanceof InterruptedException) {
+                throw (InterruptedException) cause;
+            } else if(cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if(cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new IllegalStateException(cause);
+            }
+        }
+    }
+
+    private static class BatchResult {
+
+        private final List<IUnifier.Immutable> unifierDiffs = Lists.newArrayList();
+        private int solvedCount = 0;
+        private SolveResult solveResult;
+
+    }
+
 }
@@ -8,6 +8,8 @@ import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import javax.annotation.Nullable;
+
 import org.metaborg.util.functions.Function1;
 import org.metaborg.util.log.ILogger;
 import org.metaborg.util.log.LoggerUtils;
@@ -40,7 +42,7 @@ public class SG_solve_multi_final_constraint extends ScopeGraphMultiFileAnalysis
             LoggerUtils.logger(SG_solve_multi_final_constraint.class);
 
     public SG_solve_multi_final_constraint() {
-        super(SG_solve_multi_final_constraint.class.getSimpleName(), 0);
+        super(SG_solve_multi_final_constraint.class.getSimpleName(), 1);
     }
 
     @Override protected Optional<? extends ITerm> call(ITerm currentTerm, List<ITerm> argTerms,
@@ -52,6 +54,8 @@ public class SG_solve_multi_final_constraint extends ScopeGraphMultiFileAnalysis
                 .orElseThrow(() -> new InterpreterException("Current term is not (InitialResult, [UnitResult])."));
         final MultiInitialResult initialResult = input._1();
         final List<MultiUnitResult> unitResults = input._2();
+        final @Nullable ISolution previousSolution = M.blobValue(MultiFinalResult.class).match(argTerms.get(0))
+                .map(MultiFinalResult::solution).orElse(null);
 
         final Fresh.Transient globalFresh = initialResult.fresh().melt();
         final ISolution initialSolution = initialResult.solution();
@@ -64,7 +68,8 @@ public class SG_solve_multi_final_constraint extends ScopeGraphMultiFileAnalysis
             final IMessageInfo defaultMessage =
                     MessageInfo.of(MessageKind.ERROR, MessageContent.of(), Actions.sourceTerm(""));
             ISolution preSolution =
-                    solver.solveInter(initialSolution, unitSolutions, defaultMessage, fresh, cancel, progress);
+                    solver.solveInter(initialSolution, unitSolutions, previousSolution, defaultMessage, fresh,
+                            cancel, progress);
             solution = preSolution;
         } catch(InterruptedException | SolverException ex) {
             throw new InterpreterException(ex);
@@ -22,6 +22,18 @@ public interface IEsopNameResolution<S extends IScope, L extends ILabel, O exten
 
     interface IResolutionCache<S extends IScope, L extends ILabel, O extends IOccurrence> {
 
+        /**
+         * Restrict a cache that was computed for a previous scope graph to the entries that are still valid in the
+         * current scope graph. Entries that depend on a scope that may still change, because it has incomplete edges,
+         * or an edge that is not closed according to isEdgeClosed, are discarded as well. Caches that cannot be
+         * validated are discarded completely.
+         */
+        default IResolutionCache<S, L, O> retainValid(IEsopScopeGraph<S, L, O, ?> previousScopeGraph,
+                IEsopScopeGraph<S, L, O, ?> scopeGraph, IResolutionParameters<L> params,
+                Predicate2<S, L> isEdgeClosed) {
+            return empty();
+        }
+
         static <S extends IScope, L extends ILabel, O extends IOccurrence> IResolutionCache<S, L, O> empty() {
             return new IResolutionCache<S, L, O>() {};
         }
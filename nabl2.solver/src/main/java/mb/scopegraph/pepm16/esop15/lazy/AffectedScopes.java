@@ -0,0 +1,153 @@
+package mb.scopegraph.pepm16.esop15.lazy;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.Set;
+
+import org.metaborg.util.functions.Predicate2;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+
+import mb.scopegraph.pepm16.ILabel;
+import mb.scopegraph.pepm16.IOccurrence;
+import mb.scopegraph.pepm16.IResolutionParameters;
+import mb.scopegraph.pepm16.IScope;
+import mb.scopegraph.pepm16.esop15.IEsopScopeGraph;
+import mb.scopegraph.pepm16.path.IResolutionPath;
+
+/**
+ * Scopes of a previous scope graph for which cached resolution results may be different in the current scope graph.
+ *
+ * A scope is changed if its declarations, references, edges, or the associated scopes of its declarations are different
+ * in the current scope graph. A scope is open if it has incomplete edges in either graph, or if any of its edges is not
+ * closed in the current scope graph, because it may still get declarations, references, or edges. Open scopes are
+ * treated as changed. A scope is affected if resolution from it can reach a changed scope in the previous scope graph.
+ * Resolution follows direct edges, and import edges to the scope of the import reference, and to the associated scopes
+ * of the declarations that reference resolved to. If an import reference has no cached resolution, the scope of the
+ * import edge is treated as changed.
+ */
+final class AffectedScopes<S extends IScope, L extends ILabel, O extends IOccurrence> {
+
+    private final IEsopScopeGraph<S, L, O, ?> previousScopeGraph;
+    private final IEsopScopeGraph<S, L, O, ?> scopeGraph;
+    private final Map<O, Collection<IResolutionPath<S, L, O>>> resolution;
+    private final Set<L> labels;
+    private final Predicate2<S, L> isEdgeClosed;
+
+    private AffectedScopes(IEsopScopeGraph<S, L, O, ?> previousScopeGraph, IEsopScopeGraph<S, L, O, ?> scopeGraph,
+            Map<O, Collection<IResolutionPath<S, L, O>>> resolution, Set<L> labels, Predicate2<S, L> isEdgeClosed) {
+        this.previousScopeGraph = previousScopeGraph;
+        this.scopeGraph = scopeGraph;
+        this.resolution = resolution;
+        this.labels = labels;
+        this.isEdgeClosed = isEdgeClosed;
+    }
+
+    static <S extends IScope, L extends ILabel, O extends IOccurrence> Set<S> of(
+            IEsopScopeGraph<S, L, O, ?> previousScopeGraph, IEsopScopeGraph<S, L, O, ?> scopeGraph,
+            Map<O, Collection<IResolutionPath<S, L, O>>> resolution, IResolutionParameters<L> params,
+            Predicate2<S, L> isEdgeClosed) {
+        final Set<L> labels = Sets.newHashSet(params.getLabels());
+        labels.add(params.getLabelD());
+        labels.add(params.getLabelR());
+        return new AffectedScopes<>(previousScopeGraph, scopeGraph, resolution, labels, isEdgeClosed).compute();
+    }
+
+    private Set<S> compute() {
+        final Set<S> openScopes = Sets.newHashSet();
+        addOpenScopes(previousScopeGraph, openScopes);
+        addOpenScopes(scopeGraph, openScopes);
+
+        final Set<S> affected = Sets.newHashSet();
+        final Deque<S> worklist = new ArrayDeque<>();
+        final Multimap<S, S> dependents = HashMultimap.create();
+        for(S scope : previousScopeGraph.getAllScopes()) {
+            if(openScopes.contains(scope) || !isClosed(scope) || isChanged(scope)
+                    || !addDependencies(scope, dependents)) {
+                if(affected.add(scope)) {
+                    worklist.add(scope);
+                }
+            }
+        }
+
+        while(!worklist.isEmpty()) {
+            final S scope = worklist.remove();
+            for(S dependent : dependents.get(scope)) {
+                if(affected.add(dependent)) {
+                    worklist.add(dependent);
+                }
+            }
+        }
+        return affected;
+    }
+
+    private void addOpenScopes(IEsopScopeGraph<S, L, O, ?> scopeGraph, Set<S> openScopes) {
+        scopeGraph.incompleteDirectEdges().forEach(e -> openScopes.add(e.getKey()._1()));
+        scopeGraph.incompleteImportEdges().forEach(e -> openScopes.add(e.getKey()._1()));
+    }
+
+    private boolean isClosed(S scope) {
+        for(L label : labels) {
+            if(!isEdgeClosed.test(scope, label)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isChanged(S scope) {
+        if(!scopeGraph.getAllScopes().contains(scope)) {
+            return true;
+        }
+        final Set<O> decls = ImmutableSet.copyOf(previousScopeGraph.getDecls().inverse().get(scope));
+        if(!decls.equals(ImmutableSet.copyOf(scopeGraph.getDecls().inverse().get(scope)))) {
+            return true;
+        }
+        for(O decl : decls) {
+            if(!ImmutableSet.copyOf(previousScopeGraph.getExportEdges().get(decl))
+                    .equals(ImmutableSet.copyOf(scopeGraph.getExportEdges().get(decl)))) {
+                return true;
+            }
+        }
+        // @formatter:off
+        return !ImmutableSet.copyOf(previousScopeGraph.getRefs().inverse().get(scope))
+                    .equals(ImmutableSet.copyOf(scopeGraph.getRefs().inverse().get(scope)))
+            || !ImmutableSet.copyOf(previousScopeGraph.getDirectEdges().get(scope))
+                    .equals(ImmutableSet.copyOf(scopeGraph.getDirectEdges().get(scope)))
+            || !ImmutableSet.copyOf(previousScopeGraph.getImportEdges().get(scope))
+                    .equals(ImmutableSet.copyOf(scopeGraph.getImportEdges().get(scope)));
+        // @formatter:on
+    }
+
+    /**
+     * Record the scopes that resolution from the given scope depends on, or return false if they are not known.
+     */
+    private boolean addDependencies(S scope, Multimap<S, S> dependents) {
+        for(Entry<L, S> edge : previousScopeGraph.getDirectEdges().get(scope)) {
+            dependents.put(edge.getValue(), scope);
+        }
+        for(Entry<L, O> edge : previousScopeGraph.getImportEdges().get(scope)) {
+            final O ref = edge.getValue();
+            final Optional<S> refScope = previousScopeGraph.getRefs().get(ref);
+            final Collection<IResolutionPath<S, L, O>> paths = resolution.get(ref);
+            if(!refScope.isPresent() || paths == null) {
+                return false;
+            }
+            dependents.put(refScope.get(), scope);
+            for(IResolutionPath<S, L, O> path : paths) {
+                for(Entry<L, S> assoc : previousScopeGraph.getExportEdges().get(path.getDeclaration())) {
+                    dependents.put(assoc.getValue(), scope);
+                }
+            }
+        }
+        return true;
+    }
+
+}
@@ -8,10 +8,12 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.metaborg.util.functions.Function1;
+import org.metaborg.util.functions.Predicate1;
 import org.metaborg.util.functions.Predicate2;
 import org.metaborg.util.task.ICancel;
 import org.metaborg.util.task.IProgress;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
@@ -384,6 +386,86 @@ public class EsopNameResolution<S extends IScope, L extends ILabel, O extends IO
             return reachabilityCache;
         }
 
+        @Override public ResolutionCache<S, L, O> retainValid(IEsopScopeGraph<S, L, O, ?> previousScopeGraph,
+                IEsopScopeGraph<S, L, O, ?> scopeGraph, IResolutionParameters<L> params,
+                Predicate2<S, L> isEdgeClosed) {
+            final Set<S> affected =
+                    AffectedScopes.of(previousScopeGraph, scopeGraph, resolutionCache, params, isEdgeClosed);
+            final Predicate1<S> isValid = s -> previousScopeGraph.getAllScopes().contains(s) && !affected.contains(s);
+
+            final Map.Transient<O, Collection<IResolutionPath<S, L, O>>> resolution = Map.Transient.of();
+            resolutionCache.forEach((ref, paths) -> {
+                if(previousScopeGraph.getRefs().get(ref).map(isValid::test).orElse(false)) {
+                    resolution.__put(ref, paths);
+                }
+            });
+            return new ResolutionCache<>(resolution.freeze(), retainValidEntries(visibilityCache, isValid),
+                    retainValidEntries(reachabilityCache, isValid));
+        }
+
+        private static <K, V> Map.Immutable<K, Collection<V>> retainValidEntries(
+                Map.Immutable<K, Collection<V>> entries, Predicate1<K> isValid) {
+            final Map.Transient<K, Collection<V>> validEntries = Map.Transient.of();
+            entries.forEach((scope, decls) -> {
+                if(isValid.test(scope)) {
+                    validEntries.__put(scope, decls);
+                }
+            });
+            return validEntries.freeze();
+        }
+
+        /**
+         * Serialize the cache as flat arrays of entries, instead of the internal structure of the maps.
+         */
+        private Object writeReplace() {
+            return new SerializedResolutionCache<>(this);
+        }
+
+    }
+
+    private static class SerializedResolutionCache<S extends IScope, L extends ILabel, O extends IOccurrence>
+            implements Serializable {
+
+        private static final long serialVersionUID = 42L;
+
+        private final Object[] refs;
+        private final Object[][] paths;
+        private final Object[] visibleScopes;
+        private final Object[][] visibleDecls;
+        private final Object[] reachableScopes;
+        private final Object[][] reachableDecls;
+
+        private SerializedResolutionCache(ResolutionCache<S, L, O> cache) {
+            this.refs = cache.resolutionCache.keySet().toArray();
+            this.paths = values(refs, cache.resolutionCache);
+            this.visibleScopes = cache.visibilityCache.keySet().toArray();
+            this.visibleDecls = values(visibleScopes, cache.visibilityCache);
+            this.reachableScopes = cache.reachabilityCache.keySet().toArray();
+            this.reachableDecls = values(reachableScopes, cache.reachabilityCache);
+        }
+
+        private static Object[][] values(Object[] keys, java.util.Map<?, ? extends Collection<?>> entries) {
+            final Object[][] values = new Object[keys.length][];
+            for(int i = 0; i < keys.length; i++) {
+                values[i] = entries.get(keys[i]).toArray();
+            }
+            return values;
+        }
+
+        @SuppressWarnings("unchecked") private static <K, V> Map.Immutable<K, Collection<V>> entries(Object[] keys,
+                Object[][] values) {
+            final Map.Transient<K, Collection<V>> entries = Map.Transient.of();
+            for(int i = 0; i < keys.length; i++) {
+                entries.__put((K) keys[i], (Collection<V>) (Collection<?>) ImmutableList.copyOf(values[i]));
+            }
+            return entries.freeze();
+        }
+
+        private Object readResolve() {
+            return new ResolutionCache<S, L, O>(entries(refs, paths), entries(visibleScopes, visibleDecls),
+                    entries(reachableScopes, reachableDecls));
+        }
+
     }
 
 }
\ No newline at end of file
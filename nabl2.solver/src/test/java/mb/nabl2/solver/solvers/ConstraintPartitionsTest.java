@@ -0,0 +1,105 @@
+package mb.nabl2.solver.solvers;
+
+import static mb.nabl2.terms.build.TermBuild.B;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+import mb.nabl2.constraints.IConstraint;
+import mb.nabl2.constraints.ast.CAstProperty;
+import mb.nabl2.constraints.base.CConj;
+import mb.nabl2.constraints.base.CExists;
+import mb.nabl2.constraints.equality.CEqual;
+import mb.nabl2.constraints.messages.MessageInfo;
+import mb.nabl2.constraints.scopegraph.CGDecl;
+import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.ITermVar;
+import mb.nabl2.terms.stratego.TermIndex;
+import mb.nabl2.terms.unification.u.IUnifier;
+import mb.nabl2.terms.unification.u.PersistentUnifier;
+
+public class ConstraintPartitionsTest {
+
+    private final ITermVar a = B.newVar("", "a");
+    private final ITermVar b = B.newVar("", "b");
+    private final ITermVar c = B.newVar("", "c");
+    private final ITermVar d = B.newVar("", "d");
+    private final ITermVar x = B.newVar("", "x");
+
+    private final ITerm INT = B.newAppl("Int");
+    private final ITerm BOOL = B.newAppl("Bool");
+
+    private final IUnifier.Immutable empty = PersistentUnifier.Immutable.of();
+
+    @Test public void testLocalConstraintsAreIndependent() {
+        final IConstraint c1 = eq(a, INT);
+        final IConstraint c2 = eq(b, BOOL);
+        final ConstraintPartitions partitions = ConstraintPartitions.of(Arrays.asList(c1, c2), empty);
+        assertTrue(partitions.shared().isEmpty());
+        assertGroups(partitions.independent(), ImmutableSet.of(c1), ImmutableSet.of(c2));
+    }
+
+    @Test public void testSharedVariablesMergeGroups() {
+        final IConstraint c1 = eq(a, b);
+        final IConstraint c2 = eq(c, INT);
+        final IConstraint c3 = eq(b, c);
+        final IConstraint c4 = eq(d, BOOL);
+        final ConstraintPartitions partitions = ConstraintPartitions.of(Arrays.asList(c1, c2, c3, c4), empty);
+        assertTrue(partitions.shared().isEmpty());
+        assertGroups(partitions.independent(), ImmutableSet.of(c1, c2, c3), ImmutableSet.of(c4));
+    }
+
+    @Test public void testUnifierMergesGroups() throws Exception {
+        final IUnifier.Immutable unifier = empty.unify(a, B.newAppl("List", b)).get().unifier();
+        final IConstraint c1 = eq(a, B.newAppl("List", INT));
+        final IConstraint c2 = eq(b, INT);
+        final IConstraint c3 = eq(c, INT);
+        final ConstraintPartitions partitions = ConstraintPartitions.of(Arrays.asList(c1, c2, c3), unifier);
+        assertTrue(partitions.shared().isEmpty());
+        assertGroups(partitions.independent(), ImmutableSet.of(c1, c2), ImmutableSet.of(c3));
+    }
+
+    @Test public void testSharedConstraintPullsInGroup() {
+        final IConstraint c1 = CAstProperty.of(TermIndex.of("a.src", 1), B.newAppl("Type"), a, MessageInfo.empty());
+        final IConstraint c2 = eq(a, b);
+        final IConstraint c3 = eq(b, INT);
+        final IConstraint c4 = eq(c, INT);
+        final ConstraintPartitions partitions = ConstraintPartitions.of(Arrays.asList(c2, c1, c3, c4), empty);
+        assertEquals(ImmutableSet.of(c1, c2, c3), ImmutableSet.copyOf(partitions.shared()));
+        assertGroups(partitions.independent(), ImmutableSet.of(c4));
+    }
+
+    @Test public void testNestedConstraints() {
+        final IConstraint local = CExists.of(ImmutableSet.of(x),
+                CConj.of(eq(x, a), CConj.of(eq(a, INT), eq(x, INT), MessageInfo.empty()), MessageInfo.empty()),
+                MessageInfo.empty());
+        final IConstraint shared = CExists.of(ImmutableSet.of(d),
+                CConj.of(eq(d, b), CGDecl.of(d, c, MessageInfo.empty()), MessageInfo.empty()), MessageInfo.empty());
+        final IConstraint c1 = eq(b, BOOL);
+        final ConstraintPartitions partitions = ConstraintPartitions.of(Arrays.asList(local, shared, c1), empty);
+        assertEquals(ImmutableSet.of(shared, c1), ImmutableSet.copyOf(partitions.shared()));
+        assertGroups(partitions.independent(), ImmutableSet.of(local));
+    }
+
+    private static IConstraint eq(ITerm left, ITerm right) {
+        return CEqual.of(left, right, MessageInfo.empty());
+    }
+
+    @SafeVarargs private static void assertGroups(List<List<IConstraint>> actual,
+            ImmutableSet<IConstraint>... expected) {
+        assertEquals(expected.length, actual.size());
+        final ImmutableSet.Builder<ImmutableSet<IConstraint>> groups = ImmutableSet.builder();
+        for(List<IConstraint> group : actual) {
+            assertEquals(group.size(), ImmutableSet.copyOf(group).size());
+            groups.add(ImmutableSet.copyOf(group));
+        }
+        assertEquals(ImmutableSet.copyOf(expected), groups.build());
+    }
+
+}
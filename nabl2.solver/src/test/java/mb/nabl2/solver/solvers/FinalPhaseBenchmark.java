@@ -0,0 +1,147 @@
+package mb.nabl2.solver.solvers;
+
+import static mb.nabl2.terms.build.TermBuild.B;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.metaborg.util.task.NullCancel;
+import org.metaborg.util.task.NullProgress;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import mb.nabl2.config.NaBL2DebugConfig;
+import mb.nabl2.constraints.IConstraint;
+import mb.nabl2.constraints.equality.CEqual;
+import mb.nabl2.constraints.equality.CInequal;
+import mb.nabl2.constraints.messages.MessageInfo;
+import mb.nabl2.constraints.nameresolution.CResolve;
+import mb.nabl2.solver.Fresh;
+import mb.nabl2.solver.ISolution;
+import mb.nabl2.solver.Solution;
+import mb.nabl2.solver.SolverConfig;
+import mb.nabl2.solver.exceptions.SolverException;
+import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.ITermVar;
+import mb.nabl2.terms.stratego.TermIndex;
+import mb.scopegraph.pepm16.esop15.IEsopScopeGraph;
+import mb.scopegraph.pepm16.terms.Label;
+import mb.scopegraph.pepm16.terms.Namespace;
+import mb.scopegraph.pepm16.terms.Occurrence;
+import mb.scopegraph.pepm16.terms.OccurrenceIndex;
+import mb.scopegraph.pepm16.terms.ResolutionParameters;
+import mb.scopegraph.pepm16.terms.Scope;
+
+/**
+ * Final phase of the NaBL2 multi-file solver, with and without solving independent constraints and resolving references
+ * in parallel. For the equality workload, every unit contributes a chain of equalities between its own variables, which
+ * ends in a type, and an inequality that can only be checked when the chain is solved. For the resolution workload,
+ * every unit contributes a chain of scopes below a shared root scope, with a reference in every scope to the
+ * declaration of another unit in the root scope, and a resolve constraint for every reference.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime) @OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1) @Measurement(iterations = 5, time = 1) @Fork(1)
+public class FinalPhaseBenchmark {
+
+    @Param({ "0", "2", "4" }) public int parallelism;
+    @Param({ "10", "100" }) public int units;
+    @Param({ "10", "100" }) public int size;
+    @Param({ "EQUALITY", "RESOLUTION" }) public Workload workload;
+
+    public enum Workload {
+        EQUALITY, RESOLUTION
+    }
+
+    private SemiIncrementalMultiFileSolver solver;
+    private ISolution initial;
+    private List<ISolution> unitSolutions;
+
+    @Setup public void setup() {
+        final SolverConfig config =
+                SolverConfig.of(ResolutionParameters.getDefault(), Collections.emptyMap(), Collections.emptyMap());
+        solver = new SemiIncrementalMultiFileSolver(NaBL2DebugConfig.NONE, CallExternal.never(), parallelism);
+        initial = Solution.of(config);
+        unitSolutions = Lists.newArrayList();
+        for(int unit = 0; unit < units; unit++) {
+            switch(workload) {
+                case EQUALITY:
+                    unitSolutions.add(Solution.of(config).withConstraints(equalities("unit" + unit)));
+                    break;
+                case RESOLUTION:
+                    unitSolutions.add(resolutions(Solution.of(config), unit));
+                    break;
+            }
+        }
+    }
+
+    private Set<IConstraint> equalities(String resource) {
+        final Set<IConstraint> constraints = Sets.newHashSet();
+        final List<ITermVar> vars = Lists.newArrayList();
+        for(int i = 0; i <= size; i++) {
+            vars.add(B.newVar(resource, "v" + i));
+        }
+        for(int i = 0; i < size; i++) {
+            constraints.add(CEqual.of(vars.get(i), vars.get(i + 1), MessageInfo.empty()));
+        }
+        final ITerm type = B.newAppl("Fun", B.newAppl("Int"), B.newAppl("Int"));
+        constraints.add(CEqual.of(vars.get(size), type, MessageInfo.empty()));
+        constraints.add(CInequal.of(vars.get(0), B.newAppl("Int"), MessageInfo.empty()));
+        return constraints;
+    }
+
+    private ISolution resolutions(ISolution solution, int unit) {
+        final String resource = "unit" + unit;
+        final IEsopScopeGraph.Transient<Scope, Label, Occurrence, ITerm> scopeGraph = IEsopScopeGraph.builder();
+        final Set<IConstraint> constraints = Sets.newHashSet();
+        final Scope root = Scope.of("", "root");
+        scopeGraph.addDecl(root, occurrence("x" + unit, resource, 0));
+        Scope parent = root;
+        for(int i = 1; i <= size; i++) {
+            final Scope scope = Scope.of(resource, "s" + i);
+            scopeGraph.addDirectEdge(scope, Label.P, parent);
+            final Occurrence ref = occurrence("x" + ((unit + i) % units), resource, i);
+            scopeGraph.addRef(ref, scope);
+            constraints.add(CResolve.of(ref, B.newVar(resource, "d" + i), MessageInfo.empty()));
+            parent = scope;
+        }
+        return solution.withScopeGraph(scopeGraph.freeze()).withConstraints(constraints);
+    }
+
+    private static Occurrence occurrence(String name, String resource, int index) {
+        return Occurrence.of(Namespace.of(""), B.newString(name), OccurrenceIndex.of(TermIndex.of(resource, index)));
+    }
+
+    /**
+     * Run the benchmark from the test classpath. Accepts the usual JMH options, such as {@code -p parallelism=0,4}.
+     */
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        new Runner(new OptionsBuilder().parent(new CommandLineOptions(args))
+                .include(FinalPhaseBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    @Benchmark public ISolution solveInter() throws SolverException, InterruptedException {
+        final Fresh.Transient fresh = Fresh.Transient.of();
+        return solver.solveInter(initial, unitSolutions, MessageInfo.empty(), fresh::fresh, new NullCancel(),
+                new NullProgress());
+    }
+
+}
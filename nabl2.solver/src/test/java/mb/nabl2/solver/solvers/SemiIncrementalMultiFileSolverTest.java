@@ -0,0 +1,195 @@
+package mb.nabl2.solver.solvers;
+
+import static mb.nabl2.terms.build.TermBuild.B;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.Test;
+import org.metaborg.util.task.NullCancel;
+import org.metaborg.util.task.NullProgress;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import mb.nabl2.config.NaBL2DebugConfig;
+import mb.nabl2.constraints.IConstraint;
+import mb.nabl2.constraints.base.CConj;
+import mb.nabl2.constraints.base.CExists;
+import mb.nabl2.constraints.equality.CEqual;
+import mb.nabl2.constraints.equality.CInequal;
+import mb.nabl2.constraints.messages.MessageInfo;
+import mb.nabl2.constraints.nameresolution.CResolve;
+import mb.nabl2.constraints.scopegraph.CGDecl;
+import mb.nabl2.constraints.scopegraph.CGDirectEdge;
+import mb.nabl2.solver.Fresh;
+import mb.nabl2.solver.ISolution;
+import mb.nabl2.solver.Solution;
+import mb.nabl2.solver.SolverConfig;
+import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.ITermVar;
+import mb.nabl2.terms.stratego.TermIndex;
+import mb.nabl2.terms.unification.u.IUnifier;
+import mb.nabl2.terms.unification.u.PersistentUnifier;
+import mb.scopegraph.pepm16.esop15.IEsopScopeGraph;
+import mb.scopegraph.pepm16.terms.Label;
+import mb.scopegraph.pepm16.terms.Namespace;
+import mb.scopegraph.pepm16.terms.Occurrence;
+import mb.scopegraph.pepm16.terms.OccurrenceIndex;
+import mb.scopegraph.pepm16.terms.ResolutionParameters;
+import mb.scopegraph.pepm16.terms.Scope;
+
+public class SemiIncrementalMultiFileSolverTest {
+
+    private static final ITerm INT = B.newAppl("Int");
+    private static final ITerm BOOL = B.newAppl("Bool");
+
+    private final SolverConfig config =
+            SolverConfig.of(ResolutionParameters.getDefault(), Collections.emptyMap(), Collections.emptyMap());
+
+    @Test(timeout = 10000) public void testParallelFinalPhase() throws Exception {
+        final List<ITermVar> vars = Lists.newArrayList();
+        final List<ISolution> unitSolutions = Lists.newArrayList();
+        for(int unit = 0; unit < 4; unit++) {
+            final String resource = "unit" + unit;
+            final ITermVar a = B.newVar(resource, "a");
+            final ITermVar b = B.newVar(resource, "b");
+            final ITermVar c = B.newVar(resource, "c");
+            final ITermVar d = B.newVar(resource, "d");
+            final ITermVar e = B.newVar(resource, "e");
+            final ITermVar x = B.newVar(resource, "x");
+            vars.addAll(Lists.newArrayList(a, b, c, d, e));
+            final Set<IConstraint> constraints = Sets.newHashSet();
+            // an equality chain, solved through an existential
+            constraints.add(eq(a, b));
+            constraints.add(CExists.of(ImmutableSet.of(x),
+                    CConj.of(eq(b, B.newAppl("List", x)), eq(x, INT), MessageInfo.empty()), MessageInfo.empty()));
+            // an inequality that is delayed until the chain is solved
+            constraints.add(CInequal.of(a, B.newAppl("List", BOOL), MessageInfo.empty()));
+            // a failing equality
+            constraints.add(eq(B.newAppl("List", c), INT));
+            // an inequality that is never solved
+            constraints.add(CInequal.of(d, e, MessageInfo.empty()));
+            unitSolutions.add(Solution.of(config).withConstraints(constraints));
+        }
+
+        final ISolution sequential = solve(0, unitSolutions);
+        final ISolution parallel = solve(2, unitSolutions);
+
+        assertFalse(sequential.messages().getErrors().isEmpty());
+        assertEquals(ImmutableSet.copyOf(sequential.messages().getAll()),
+                ImmutableSet.copyOf(parallel.messages().getAll()));
+        assertEquals(sequential.constraints(), parallel.constraints());
+        for(ITermVar var : vars) {
+            assertEquals(sequential.unifier().findRecursive(var), parallel.unifier().findRecursive(var));
+        }
+    }
+
+    @Test(timeout = 10000) public void testParallelResolution() throws Exception {
+        final Scope root = Scope.of("", "root");
+        final List<ITermVar> vars = Lists.newArrayList();
+        final List<ISolution> unitSolutions = Lists.newArrayList();
+        for(int unit = 0; unit < 4; unit++) {
+            final String resource = "unit" + unit;
+            final Scope s = Scope.of(resource, "s");
+            final ITermVar d1 = B.newVar(resource, "d1");
+            final ITermVar d2 = B.newVar(resource, "d2");
+            vars.addAll(Lists.newArrayList(d1, d2));
+            final IEsopScopeGraph.Transient<Scope, Label, Occurrence, ITerm> scopeGraph = IEsopScopeGraph.builder();
+            final Set<IConstraint> constraints = Sets.newHashSet();
+            scopeGraph.addDecl(root, occurrence("x" + unit, resource, 1));
+            if(unit == 0) {
+                // an edge that is only completed in the final phase
+                final ITermVar p = B.newVar(resource, "p");
+                scopeGraph.addIncompleteDirectEdge(s, Label.P, p, Collections::singleton);
+                constraints.add(eq(p, root));
+            } else {
+                scopeGraph.addDirectEdge(s, Label.P, root);
+            }
+            // a reference to the declaration of another unit, and a reference that does not resolve
+            final Occurrence x = occurrence("x" + ((unit + 1) % 4), resource, 2);
+            final Occurrence y = occurrence("y", resource, 3);
+            scopeGraph.addRef(x, s);
+            scopeGraph.addRef(y, s);
+            constraints.add(CResolve.of(x, d1, MessageInfo.empty()));
+            constraints.add(CResolve.of(y, d2, MessageInfo.empty()));
+            unitSolutions.add(Solution.of(config).withScopeGraph(scopeGraph.freeze()).withConstraints(constraints));
+        }
+
+        final ISolution sequential = solve(0, unitSolutions);
+        final ISolution parallel = solve(2, unitSolutions);
+
+        assertEquals(occurrence("x1", "unit1", 1), sequential.unifier().findRecursive(vars.get(0)));
+        assertEquals(ImmutableSet.copyOf(sequential.messages().getAll()),
+                ImmutableSet.copyOf(parallel.messages().getAll()));
+        assertEquals(sequential.constraints(), parallel.constraints());
+        for(ITermVar var : vars) {
+            assertEquals(sequential.unifier().findRecursive(var), parallel.unifier().findRecursive(var));
+        }
+    }
+
+    @Test public void testPendingScopes() throws Exception {
+        final Scope s1 = Scope.of("", "s1");
+        final Scope s2 = Scope.of("", "s2");
+        final Occurrence x = Occurrence.of(Namespace.of(""), B.newString("x"), OccurrenceIndex.of(TermIndex.of("", 1)));
+        final ITermVar v = B.newVar("", "v");
+        final ITermVar w = B.newVar("", "w");
+        final IUnifier.Immutable unifier = PersistentUnifier.Immutable.of().unify(v, s2).get().unifier();
+        final IEsopScopeGraph.Transient<Scope, Label, Occurrence, ITerm> scopeGraph = IEsopScopeGraph.builder();
+
+        // edges with an unknown target, and declarations in a scope that is known through the unifier
+        final Set<IConstraint> constraints = Sets.newHashSet();
+        constraints.add(CGDirectEdge.of(s1, Label.P, w, MessageInfo.empty()));
+        constraints.add(CGDecl.of(v, x, MessageInfo.empty()));
+        constraints.add(eq(w, INT));
+        assertEquals(Optional.of(ImmutableSet.of(s1, s2)),
+                SemiIncrementalMultiFileSolver.pendingScopes(constraints, scopeGraph, unifier));
+
+        // an edge from an unknown scope
+        constraints.add(CGDirectEdge.of(w, Label.P, s1, MessageInfo.empty()));
+        assertEquals(Optional.empty(), SemiIncrementalMultiFileSolver.pendingScopes(constraints, scopeGraph, unifier));
+    }
+
+    @Test public void testNestedPendingScopes() throws Exception {
+        final Scope s1 = Scope.of("", "s1");
+        final Scope s2 = Scope.of("", "s2");
+        final Occurrence x = Occurrence.of(Namespace.of(""), B.newString("x"), OccurrenceIndex.of(TermIndex.of("", 1)));
+        final ITermVar v = B.newVar("", "v");
+        final ITermVar w = B.newVar("", "w");
+        final IUnifier.Immutable unifier = PersistentUnifier.Immutable.of();
+        final IEsopScopeGraph.Transient<Scope, Label, Occurrence, ITerm> scopeGraph = IEsopScopeGraph.builder();
+
+        // declarations nested in an existential and a conjunction
+        final Set<IConstraint> constraints = Sets.newHashSet();
+        constraints.add(CExists.of(ImmutableSet.of(v), CGDecl.of(s1, x, MessageInfo.empty()), MessageInfo.empty()));
+        constraints.add(CConj.of(eq(v, INT), CGDecl.of(s2, x, MessageInfo.empty()), MessageInfo.empty()));
+        assertEquals(Optional.of(ImmutableSet.of(s1, s2)),
+                SemiIncrementalMultiFileSolver.pendingScopes(constraints, scopeGraph, unifier));
+
+        // a nested declaration in an unknown scope
+        constraints.add(CExists.of(ImmutableSet.of(w), CGDecl.of(w, x, MessageInfo.empty()), MessageInfo.empty()));
+        assertEquals(Optional.empty(), SemiIncrementalMultiFileSolver.pendingScopes(constraints, scopeGraph, unifier));
+    }
+
+    private ISolution solve(int parallelism, List<ISolution> unitSolutions) throws Exception {
+        final SemiIncrementalMultiFileSolver solver =
+                new SemiIncrementalMultiFileSolver(NaBL2DebugConfig.NONE, CallExternal.never(), parallelism);
+        final Fresh.Transient fresh = Fresh.Transient.of();
+        return solver.solveInter(Solution.of(config), unitSolutions, MessageInfo.empty(), fresh::fresh,
+                new NullCancel(), new NullProgress());
+    }
+
+    private static Occurrence occurrence(String name, String resource, int index) {
+        return Occurrence.of(Namespace.of(""), B.newString(name), OccurrenceIndex.of(TermIndex.of(resource, index)));
+    }
+
+    private static IConstraint eq(ITerm left, ITerm right) {
+        return CEqual.of(left, right, MessageInfo.empty());
+    }
+
+}
@@ -0,0 +1,190 @@
+package mb.scopegraph.pepm16.esop15.lazy;
+
+import static mb.nabl2.terms.build.TermBuild.B;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.junit.Test;
+import org.metaborg.util.functions.Predicate2;
+import org.metaborg.util.task.NullCancel;
+import org.metaborg.util.task.NullProgress;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+
+import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.ITermVar;
+import mb.nabl2.terms.stratego.TermIndex;
+import mb.scopegraph.pepm16.esop15.IEsopNameResolution;
+import mb.scopegraph.pepm16.esop15.IEsopNameResolution.IResolutionCache;
+import mb.scopegraph.pepm16.esop15.IEsopScopeGraph;
+import mb.scopegraph.pepm16.path.IResolutionPath;
+import mb.scopegraph.pepm16.terms.Label;
+import mb.scopegraph.pepm16.terms.Namespace;
+import mb.scopegraph.pepm16.terms.Occurrence;
+import mb.scopegraph.pepm16.terms.OccurrenceIndex;
+import mb.scopegraph.pepm16.terms.ResolutionParameters;
+import mb.scopegraph.pepm16.terms.Scope;
+
+public class ResolutionCacheTest {
+
+    private final ResolutionParameters params = ResolutionParameters.getDefault();
+
+    private final Scope s1 = Scope.of("", "s1");
+    private final Scope s2 = Scope.of("", "s2");
+    private final Scope sm = Scope.of("", "sm");
+
+    private final Occurrence x1 = occurrence("x", 1);
+    private final Occurrence x2 = occurrence("x", 2);
+    private final Occurrence m1 = occurrence("M", 3);
+    private final Occurrence m2 = occurrence("M", 4);
+    private final Occurrence y1 = occurrence("y", 5);
+    private final Occurrence y2 = occurrence("y", 6);
+    private final Occurrence y3 = occurrence("y", 7);
+
+    @Test(timeout = 3000) public void testUnchangedGraph() throws Exception {
+        final IEsopNameResolution<Scope, Label, Occurrence> previous = resolve();
+        final IEsopScopeGraph.Transient<Scope, Label, Occurrence, ITerm> scopeGraph = scopeGraph();
+
+        assertEquals(Collections.emptySet(), affected(previous, scopeGraph, (s, l) -> true));
+        assertEquals(ImmutableSet.of(x2, m2, y2), retainedRefs(previous, scopeGraph, (s, l) -> true));
+    }
+
+    @Test(timeout = 3000) public void testChangedImportedScope() throws Exception {
+        final IEsopNameResolution<Scope, Label, Occurrence> previous = resolve();
+        final IEsopScopeGraph.Transient<Scope, Label, Occurrence, ITerm> scopeGraph = scopeGraph();
+        scopeGraph.addDecl(sm, y3);
+
+        // s2 imports sm through the resolution of m2
+        assertEquals(ImmutableSet.of(sm, s2), affected(previous, scopeGraph, (s, l) -> true));
+        assertEquals(ImmutableSet.of(x2), retainedRefs(previous, scopeGraph, (s, l) -> true));
+    }
+
+    @Test(timeout = 3000) public void testIncompleteEdge() throws Exception {
+        final IEsopNameResolution<Scope, Label, Occurrence> previous = resolve();
+        final IEsopScopeGraph.Transient<Scope, Label, Occurrence, ITerm> scopeGraph = scopeGraph();
+        final ITermVar v = B.newVar("", "v");
+        scopeGraph.addIncompleteDirectEdge(sm, Label.P, v, Collections::singleton);
+
+        assertEquals(ImmutableSet.of(sm, s2), affected(previous, scopeGraph, (s, l) -> true));
+        assertEquals(ImmutableSet.of(x2), retainedRefs(previous, scopeGraph, (s, l) -> true));
+    }
+
+    @Test(timeout = 3000) public void testEdgeNotClosed() throws Exception {
+        final IEsopNameResolution<Scope, Label, Occurrence> previous = resolve();
+        final IEsopScopeGraph.Transient<Scope, Label, Occurrence, ITerm> scopeGraph = scopeGraph();
+
+        // s1 may still get declarations, references, or edges, for example from constraints solved in the final phase
+        assertEquals(ImmutableSet.of(s1, s2), affected(previous, scopeGraph, (s, l) -> !s.equals(s1)));
+        assertEquals(Collections.emptySet(), retainedRefs(previous, scopeGraph, (s, l) -> !s.equals(s1)));
+    }
+
+    @Test(timeout = 3000) public void testSerializationRoundTrip() throws Exception {
+        final IEsopScopeGraph.Transient<Scope, Label, Occurrence, ITerm> scopeGraph = scopeGraph();
+        final IEsopNameResolution<Scope, Label, Occurrence> nameResolution =
+                EsopNameResolution.of(params, scopeGraph, (s, l) -> true);
+        nameResolution.resolve(y2, new NullCancel(), new NullProgress());
+        nameResolution.resolve(x2, new NullCancel(), new NullProgress());
+        nameResolution.visible(s2, new NullCancel(), new NullProgress());
+        nameResolution.reachable(s2, new NullCancel(), new NullProgress());
+
+        final IResolutionCache<Scope, Label, Occurrence> cache = roundTrip(nameResolution.toCache());
+        final IEsopNameResolution<Scope, Label, Occurrence> cachedNameResolution =
+                EsopNameResolution.of(params, scopeGraph(), (s, l) -> false, cache);
+        assertEquals(nameResolution.getResolvedRefs(), cachedNameResolution.getResolvedRefs());
+        for(Occurrence ref : nameResolution.getResolvedRefs()) {
+            assertEquals(ImmutableSet.copyOf(nameResolution.resolve(ref, new NullCancel(), new NullProgress())),
+                    ImmutableSet.copyOf(cachedNameResolution.resolve(ref, new NullCancel(), new NullProgress())));
+        }
+        // cached entries are returned, even though no edge is closed
+        assertEquals(ImmutableSet.copyOf(nameResolution.visible(s2, new NullCancel(), new NullProgress())),
+                ImmutableSet.copyOf(cachedNameResolution.visible(s2, new NullCancel(), new NullProgress())));
+        assertEquals(ImmutableSet.copyOf(nameResolution.reachable(s2, new NullCancel(), new NullProgress())),
+                ImmutableSet.copyOf(cachedNameResolution.reachable(s2, new NullCancel(), new NullProgress())));
+        assertTrue(cachedNameResolution.getResolvedRefs().contains(y2));
+    }
+
+    /**
+     * Scope graph with s2 -P-> s1, where s1 declares x1 and m1, and references x2, m1 is associated with sm, and sm
+     * declares y1. Scope s2 references y2, and imports m2.
+     */
+    private IEsopScopeGraph.Transient<Scope, Label, Occurrence, ITerm> scopeGraph() {
+        final IEsopScopeGraph.Transient<Scope, Label, Occurrence, ITerm> scopeGraph = IEsopScopeGraph.builder();
+        scopeGraph.addDecl(s1, x1);
+        scopeGraph.addDecl(s1, m1);
+        scopeGraph.addExportEdge(m1, Label.I, sm);
+        scopeGraph.addDecl(sm, y1);
+        scopeGraph.addDirectEdge(s2, Label.P, s1);
+        scopeGraph.addRef(x2, s1);
+        scopeGraph.addRef(m2, s2);
+        scopeGraph.addImportEdge(s2, Label.I, m2);
+        scopeGraph.addRef(y2, s2);
+        return scopeGraph;
+    }
+
+    /**
+     * Resolve all references in the scope graph, as the previous run.
+     */
+    private IEsopNameResolution<Scope, Label, Occurrence> resolve() throws Exception {
+        final IEsopNameResolution<Scope, Label, Occurrence> nameResolution =
+                EsopNameResolution.of(params, scopeGraph(), (s, l) -> true);
+        assertEquals(ImmutableSet.of(y1), decls(nameResolution, y2));
+        assertEquals(ImmutableSet.of(m1), decls(nameResolution, m2));
+        assertEquals(ImmutableSet.of(x1), decls(nameResolution, x2));
+        return nameResolution;
+    }
+
+    private Set<Occurrence> decls(IEsopNameResolution<Scope, Label, Occurrence> nameResolution, Occurrence ref)
+            throws Exception {
+        final ImmutableSet.Builder<Occurrence> decls = ImmutableSet.builder();
+        for(IResolutionPath<Scope, Label, Occurrence> path : nameResolution.resolve(ref, new NullCancel(),
+                new NullProgress())) {
+            decls.add(path.getDeclaration());
+        }
+        return decls.build();
+    }
+
+    private Set<Scope> affected(IEsopNameResolution<Scope, Label, Occurrence> previous,
+            IEsopScopeGraph<Scope, Label, Occurrence, ITerm> scopeGraph, Predicate2<Scope, Label> isEdgeClosed) {
+        final Map<Occurrence, Collection<IResolutionPath<Scope, Label, Occurrence>>> resolution = Maps.newHashMap();
+        for(Entry<Occurrence, ? extends Collection<IResolutionPath<Scope, Label, Occurrence>>> entry : previous
+                .resolutionEntries()) {
+            resolution.put(entry.getKey(), entry.getValue());
+        }
+        return AffectedScopes.of(scopeGraph(), scopeGraph, resolution, params, isEdgeClosed);
+    }
+
+    private Set<Occurrence> retainedRefs(IEsopNameResolution<Scope, Label, Occurrence> previous,
+            IEsopScopeGraph<Scope, Label, Occurrence, ITerm> scopeGraph, Predicate2<Scope, Label> isEdgeClosed) {
+        final IResolutionCache<Scope, Label, Occurrence> retained =
+                previous.toCache().retainValid(scopeGraph(), scopeGraph, params, isEdgeClosed);
+        return ImmutableSet
+                .copyOf(EsopNameResolution.of(params, scopeGraph, isEdgeClosed, retained).getResolvedRefs());
+    }
+
+    @SuppressWarnings("unchecked") private static IResolutionCache<Scope, Label, Occurrence>
+            roundTrip(IResolutionCache<Scope, Label, Occurrence> cache) throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(cache);
+        }
+        try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (IResolutionCache<Scope, Label, Occurrence>) in.readObject();
+        }
+    }
+
+    private static Occurrence occurrence(String name, int index) {
+        return Occurrence.of(Namespace.of(""), B.newString(name), OccurrenceIndex.of(TermIndex.of("", index)));
+    }
+
+}
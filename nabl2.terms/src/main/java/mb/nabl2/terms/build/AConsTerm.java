@@ -32,13 +32,20 @@ abstract class AConsTerm extends AbstractTerm implements IConsTerm {
         return getHead().isGround() && getTail().isGround();
     }
 
+    private volatile Set.Immutable<ITermVar> vars;
+
     @Override public Set.Immutable<ITermVar> getVars() {
         if(isGround()) {
             return CapsuleUtil.immutableSet();
         }
-        final Set.Transient<ITermVar> vars = CapsuleUtil.transientSet();
-        visitVars(vars::__insert);
-        return vars.freeze();
+        Set.Immutable<ITermVar> result = vars;
+        if(result == null) {
+            final Set.Transient<ITermVar> resultVars = CapsuleUtil.transientSet();
+            visitVars(resultVars::__insert);
+            result = resultVars.freeze();
+            vars = result;
+        }
+        return result;
     }
 
     @Override public void visitVars(Action1<ITermVar> onVar) {
@@ -66,8 +73,15 @@ abstract class AConsTerm extends AbstractTerm implements IConsTerm {
     }
 
 
+    private volatile int hashCode;
+
     @Override public int hashCode() {
-        return Objects.hash(getHead(), getTail());
+        int result = hashCode;
+        if(result == 0) {
+            result = Objects.hash(getHead(), getTail());
+            hashCode = result;
+        }
+        return result;
     }
 
     @Override public boolean equals(Object other) {
@@ -75,6 +89,8 @@ abstract class AConsTerm extends AbstractTerm implements IConsTerm {
             return true;
         if(!(other instanceof IConsTerm))
             return false;
+        if(distinctInterned(this, other))
+            return false;
         IConsTerm that = (IConsTerm) other;
         if(this.hashCode() != that.hashCode())
             return false;
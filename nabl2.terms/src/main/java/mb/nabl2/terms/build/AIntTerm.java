@@ -46,6 +46,8 @@ abstract class AIntTerm extends AbstractTerm implements IIntTerm {
             return true;
         if(!(other instanceof IIntTerm))
             return false;
+        if(distinctInterned(this, other))
+            return false;
         IIntTerm that = (IIntTerm) other;
         if(this.hashCode() != that.hashCode())
             return false;
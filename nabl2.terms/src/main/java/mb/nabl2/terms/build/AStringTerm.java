@@ -47,6 +47,8 @@ abstract class AStringTerm extends AbstractTerm implements IStringTerm {
             return true;
         if(!(other instanceof IStringTerm))
             return false;
+        if(distinctInterned(this, other))
+            return false;
         IStringTerm that = (IStringTerm) other;
         if(this.hashCode() != that.hashCode())
             return false;
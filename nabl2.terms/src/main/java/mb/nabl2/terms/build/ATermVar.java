@@ -68,6 +68,8 @@ public abstract class ATermVar extends AbstractTerm implements ITermVar {
             return true;
         if(!(other instanceof ITermVar))
             return false;
+        if(distinctInterned(this, other))
+            return false;
         ITermVar that = (ITermVar) other;
         if(this.hashCode() != that.hashCode())
             return false;
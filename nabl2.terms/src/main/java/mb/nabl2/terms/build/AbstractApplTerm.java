@@ -44,13 +44,20 @@ public abstract class AbstractApplTerm extends AbstractTerm implements IApplTerm
     }
 
 
+    private volatile Set.Immutable<ITermVar> vars;
+
     @Override public Set.Immutable<ITermVar> getVars() {
         if(isGround()) {
             return CapsuleUtil.immutableSet();
         }
-        final Set.Transient<ITermVar> vars = CapsuleUtil.transientSet();
-        visitVars(vars::__insert);
-        return vars.freeze();
+        Set.Immutable<ITermVar> result = vars;
+        if(result == null) {
+            final Set.Transient<ITermVar> resultVars = CapsuleUtil.transientSet();
+            visitVars(resultVars::__insert);
+            result = resultVars.freeze();
+            vars = result;
+        }
+        return result;
     }
 
     @Override public void visitVars(Action1<ITermVar> onVar) {
@@ -71,8 +78,15 @@ public abstract class AbstractApplTerm extends AbstractTerm implements IApplTerm
     }
 
 
+    private volatile int hashCode;
+
     @Override public int hashCode() {
-        return Objects.hash(getOp(), getArgs());
+        int result = hashCode;
+        if(result == 0) {
+            result = Objects.hash(getOp(), getArgs());
+            hashCode = result;
+        }
+        return result;
     }
 
     @Override public boolean equals(Object other) {
@@ -80,6 +94,8 @@ public abstract class AbstractApplTerm extends AbstractTerm implements IApplTerm
             return true;
         if(!(other instanceof IApplTerm))
             return false;
+        if(distinctInterned(this, other))
+            return false;
         IApplTerm that = (IApplTerm) other;
         if(this.hashCode() != that.hashCode())
             return false;
@@ -1,14 +1,39 @@
 package mb.nabl2.terms.build;
 
+import java.io.ObjectStreamException;
 import java.util.Objects;
 
 import org.immutables.value.Value;
 
 import mb.nabl2.terms.IAttachments;
 import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.serialization.SerializedTerm;
 
 public abstract class AbstractTerm implements ITerm {
 
+    // Set by TermBuild when this instance is the canonical instance in the intern table. Not an attribute, so copies
+    // created by the generated with* methods, builders, or deserialization are never marked.
+    private boolean interned = false;
+
+    final boolean isInterned() {
+        return interned;
+    }
+
+    final void setInterned() {
+        this.interned = true;
+    }
+
+    /**
+     * Interned terms are unique up to equality, so two different instances that are both interned cannot be equal.
+     * Callers must have checked for reference equality already.
+     */
+    static boolean distinctInterned(Object left, Object right) {
+        // @formatter:off
+        return left instanceof AbstractTerm && ((AbstractTerm) left).interned
+            && right instanceof AbstractTerm && ((AbstractTerm) right).interned;
+        // @formatter:on
+    }
+
     @Override @Value.Auxiliary @Value.Default public IAttachments getAttachments() {
         return Attachments.empty();
     }
@@ -28,4 +53,12 @@ public abstract class AbstractTerm implements ITerm {
         // @formatter:on
     }
 
-}
\ No newline at end of file
+    /**
+     * Terms created by the builder are serialized in the compact format of {@link SerializedTerm}. Other subclasses
+     * keep the default serialization, which preserves their class.
+     */
+    protected Object writeReplace() throws ObjectStreamException {
+        return TermBuild.isBuiltin(this) ? new SerializedTerm(this) : this;
+    }
+
+}
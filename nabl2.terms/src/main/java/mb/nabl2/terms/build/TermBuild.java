@@ -5,6 +5,7 @@ import java.util.List;
 import javax.annotation.Nullable;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 
 import mb.nabl2.terms.IApplTerm;
 import mb.nabl2.terms.IAttachments;
@@ -20,17 +21,77 @@ import mb.nabl2.util.collections.ConcurrentWeakCache;
 
 public class TermBuild {
 
-    public static final B B = new B();
+    public static final B B = new B(Boolean.getBoolean("hashConsTerms"));
+
+    private static final ImmutableSet<Class<?>> BUILTIN = ImmutableSet.of(Appl0Term.class, Appl1Term.class,
+            Appl2Term.class, Appl3Term.class, Appl4Term.class, ApplTerm.class, ConsTerm.class, NilTerm.class,
+            StringTerm.class, IntTerm.class, BlobTerm.class, TermVar.class);
+
+    /**
+     * Returns whether the term is one of the generic term implementations created by the builder. Terms of other
+     * classes, such as specialized application terms, cannot be rebuilt from their constructor and arguments alone.
+     */
+    public static boolean isBuiltin(ITerm term) {
+        return BUILTIN.contains(term.getClass());
+    }
 
     public static class B implements ITermBuild {
 
-        private static final INilTerm NIL = NilTerm.builder().build();
+        private static final INilTerm NIL;
+        static {
+            final NilTerm nil = NilTerm.builder().build();
+            nil.setInterned();
+            NIL = nil;
+        }
+
+        /**
+         * Intern table shared by all builders, used if hash-consing is enabled. Terms are only shared if they have no
+         * attachments. Nullary constructors, strings, ints, and variables are always shared. Applications and cons
+         * cells are shared if all their subterms are interned themselves (because their subterms may have
+         * attachments, even if the outer term does not).
+         */
+        private static final ConcurrentWeakCache<ITerm, ITerm> cache = new ConcurrentWeakCache<>();
+
+        private final boolean hashCons;
+
+        public B() {
+            this(false);
+        }
+
+        public B(boolean hashCons) {
+            this.hashCons = hashCons;
+        }
+
+        public boolean isHashConsing() {
+            return hashCons;
+        }
+
+        /**
+         * Return the canonical instance for the given term. The term is only marked as interned if it becomes the
+         * canonical instance, because equality between interned terms is decided by identity, and the cache lookup
+         * itself relies on equality.
+         */
+        @SuppressWarnings("unchecked") private static <T extends AbstractTerm> T intern(T term) {
+            final T canonical = (T) cache.getOrPut(term, term);
+            canonical.setInterned();
+            return canonical;
+        }
+
+        private boolean internable(Iterable<? extends ITerm> args) {
+            if(!hashCons) {
+                return false;
+            }
+            for(ITerm arg : args) {
+                if(!isInterned(arg)) {
+                    return false;
+                }
+            }
+            return true;
+        }
 
-        // FIXME Use hash-consing to improve sharing between simple terms. Terms could be shared if:
-        // 1. They have no attachments.
-        // 2. The have no subterms (because their subterms may have attachments, even if the outer term does not).
-        // In practice this means mostly nil, strings, ints, and variables are shared.
-        final ConcurrentWeakCache<ITerm, ITerm> cache = new ConcurrentWeakCache<>();
+        private static boolean isInterned(ITerm term) {
+            return term instanceof AbstractTerm && ((AbstractTerm) term).isInterned();
+        }
 
         @Override public IApplTerm newAppl(String op, Iterable<? extends ITerm> args,
                 @Nullable IAttachments attachments) {
@@ -38,22 +99,24 @@ public class TermBuild {
             switch(argList.size()) {
                 case 0: {
                     if((attachments == null || attachments.isEmpty())) {
-                        final ITerm term = Appl0Term.of(op);
-                        return (IApplTerm) cache.getOrPut(term, term);
+                        final Appl0Term term = Appl0Term.of(op);
+                        return hashCons ? intern(term) : term;
                     } else {
                         return Appl0Term.builder().op(op).attachments(attachments).build();
                     }
                 }
                 case 1: {
                     if((attachments == null || attachments.isEmpty())) {
-                        return Appl1Term.of(op, argList.get(0));
+                        final Appl1Term term = Appl1Term.of(op, argList.get(0));
+                        return internable(argList) ? intern(term) : term;
                     } else {
                         return Appl1Term.builder().op(op).arg0(argList.get(0)).attachments(attachments).build();
                     }
                 }
                 case 2: {
                     if((attachments == null || attachments.isEmpty())) {
-                        return Appl2Term.of(op, argList.get(0), argList.get(1));
+                        final Appl2Term term = Appl2Term.of(op, argList.get(0), argList.get(1));
+                        return internable(argList) ? intern(term) : term;
                     } else {
                         return Appl2Term.builder().op(op).arg0(argList.get(0)).arg1(argList.get(1))
                                 .attachments(attachments).build();
@@ -61,7 +124,8 @@ public class TermBuild {
                 }
                 case 3: {
                     if((attachments == null || attachments.isEmpty())) {
-                        return Appl3Term.of(op, argList.get(0), argList.get(1), argList.get(2));
+                        final Appl3Term term = Appl3Term.of(op, argList.get(0), argList.get(1), argList.get(2));
+                        return internable(argList) ? intern(term) : term;
                     } else {
                         return Appl3Term.builder().op(op).arg0(argList.get(0)).arg1(argList.get(1)).arg2(argList.get(2))
                                 .attachments(attachments).build();
@@ -69,7 +133,9 @@ public class TermBuild {
                 }
                 case 4: {
                     if((attachments == null || attachments.isEmpty())) {
-                        return Appl4Term.of(op, argList.get(0), argList.get(1), argList.get(2), argList.get(3));
+                        final Appl4Term term =
+                                Appl4Term.of(op, argList.get(0), argList.get(1), argList.get(2), argList.get(3));
+                        return internable(argList) ? intern(term) : term;
                     } else {
                         return Appl4Term.builder().op(op).arg0(argList.get(0)).arg1(argList.get(1)).arg2(argList.get(2))
                                 .arg3(argList.get(3)).attachments(attachments).build();
@@ -77,7 +143,8 @@ public class TermBuild {
                 }
                 default: {
                     if((attachments == null || attachments.isEmpty())) {
-                        return ApplTerm.of(op, args);
+                        final ApplTerm term = ApplTerm.of(op, argList);
+                        return internable(argList) ? intern(term) : term;
                     } else {
                         return ApplTerm.builder().op(op).args(args).attachments(attachments).build();
                     }
@@ -95,7 +162,8 @@ public class TermBuild {
 
         @Override public IConsTerm newCons(ITerm head, IListTerm tail, @Nullable IAttachments attachments) {
             if(attachments == null || attachments.isEmpty()) {
-                return ConsTerm.of(head, tail);
+                final ConsTerm term = ConsTerm.of(head, tail);
+                return hashCons && isInterned(head) && isInterned(tail) ? intern(term) : term;
             } else {
                 return ConsTerm.builder().head(head).tail(tail).attachments(attachments).build();
             }
@@ -103,8 +171,8 @@ public class TermBuild {
 
         @Override public IStringTerm newString(String value, @Nullable IAttachments attachments) {
             if((attachments == null || attachments.isEmpty())) {
-                final IStringTerm term = StringTerm.of(value);
-                return (IStringTerm) cache.getOrPut(term, term);
+                final StringTerm term = StringTerm.of(value);
+                return hashCons ? intern(term) : term;
             } else {
                 return StringTerm.builder().value(value).attachments(attachments).build();
             }
@@ -112,8 +180,8 @@ public class TermBuild {
 
         @Override public IIntTerm newInt(int value, @Nullable IAttachments attachments) {
             if((attachments == null || attachments.isEmpty())) {
-                final IIntTerm term = IntTerm.of(value);
-                return (IIntTerm) cache.getOrPut(term, term);
+                final IntTerm term = IntTerm.of(value);
+                return hashCons ? intern(term) : term;
             } else {
                 return IntTerm.builder().value(value).attachments(attachments).build();
             }
@@ -129,8 +197,8 @@ public class TermBuild {
 
         @Override public ITermVar newVar(String resource, String name, @Nullable IAttachments attachments) {
             if((attachments == null || attachments.isEmpty())) {
-                final ITermVar term = TermVar.of(resource, name);
-                return (ITermVar) cache.getOrPut(term, term);
+                final TermVar term = TermVar.of(resource, name);
+                return hashCons ? intern(term) : term;
             } else {
                 return TermVar.builder().resource(resource).name(name).attachments(attachments).build();
             }
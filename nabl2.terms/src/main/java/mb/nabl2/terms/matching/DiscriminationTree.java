@@ -0,0 +1,251 @@
+package mb.nabl2.terms.matching;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import org.metaborg.util.functions.Function1;
+
+import com.google.common.collect.ImmutableList;
+
+import mb.nabl2.terms.IApplTerm;
+import mb.nabl2.terms.IConsTerm;
+import mb.nabl2.terms.IIntTerm;
+import mb.nabl2.terms.INilTerm;
+import mb.nabl2.terms.IStringTerm;
+import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.ITermVar;
+import mb.nabl2.terms.unification.u.IUnifier;
+
+/**
+ * An index of values by lists of patterns, that selects the values whose patterns may match a list of terms in a
+ * single traversal of the terms.
+ *
+ * The patterns of every value are flattened in pre-order into a path in the tree, where every constructor, literal, or
+ * variable is an edge. Retrieving follows the edges that match the terms, and the variable edges. Unbound variables in
+ * the terms may be instantiated to anything, so all edges are followed for those.
+ *
+ * The index over-approximates: it never drops a value whose patterns match, but returned values may still fail to
+ * match, for example because of non-linear pattern variables. Values are returned in the order they were given, so an
+ * ordered list of candidates can be retrieved and matched in its original order.
+ */
+public final class DiscriminationTree<T> {
+
+    private final List<T> values;
+    private final Node root;
+
+    private DiscriminationTree(List<T> values, Node root) {
+        this.values = values;
+        this.root = root;
+    }
+
+    /**
+     * Returns the values whose patterns may match the given terms, in the order of the original values.
+     */
+    public List<T> get(List<? extends ITerm> terms, IUnifier.Immutable unifier) {
+        if(values.isEmpty()) {
+            return values;
+        }
+        Pending pending = null;
+        for(int i = terms.size() - 1; i >= 0; i--) {
+            pending = new Pending(terms.get(i), pending);
+        }
+        final BitSet matches = new BitSet(values.size());
+        retrieve(root, pending, unifier, matches);
+        if(matches.cardinality() == values.size()) {
+            return values;
+        }
+        final List<T> result = new ArrayList<>(matches.cardinality());
+        for(int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            result.add(values.get(i));
+        }
+        return result;
+    }
+
+    private static void retrieve(Node node, @Nullable Pending pending, IUnifier.Immutable unifier, BitSet matches) {
+        if(pending == null) {
+            matches.or(node.values);
+            return;
+        }
+        final ITerm term = unifier.findTerm(pending.term);
+        final Pending rest = pending.next;
+        if(term instanceof ITermVar) {
+            skip(node, 1, rest, unifier, matches);
+            return;
+        }
+        if(node.any != null) {
+            retrieve(node.any, rest, unifier, matches);
+        }
+        if(term instanceof IApplTerm) {
+            final IApplTerm appl = (IApplTerm) term;
+            final Node[] byArity = node.appls.get(appl.getOp());
+            final int arity = appl.getArity();
+            if(byArity != null && arity < byArity.length && byArity[arity] != null) {
+                final List<ITerm> args = appl.getArgs();
+                Pending next = rest;
+                for(int i = arity - 1; i >= 0; i--) {
+                    next = new Pending(args.get(i), next);
+                }
+                retrieve(byArity[arity], next, unifier, matches);
+            }
+        } else if(term instanceof IConsTerm) {
+            if(node.cons != null) {
+                final IConsTerm cons = (IConsTerm) term;
+                retrieve(node.cons, new Pending(cons.getHead(), new Pending(cons.getTail(), rest)), unifier, matches);
+            }
+        } else if(term instanceof INilTerm) {
+            if(node.nil != null) {
+                retrieve(node.nil, rest, unifier, matches);
+            }
+        } else if(term instanceof IStringTerm) {
+            final Node child = node.strings.get(((IStringTerm) term).getValue());
+            if(child != null) {
+                retrieve(child, rest, unifier, matches);
+            }
+        } else if(term instanceof IIntTerm) {
+            final Node child = node.ints.get(((IIntTerm) term).getValue());
+            if(child != null) {
+                retrieve(child, rest, unifier, matches);
+            }
+        }
+    }
+
+    /**
+     * Skip the given number of complete patterns from the given node, without consuming any terms.
+     */
+    private static void skip(Node node, int count, @Nullable Pending pending, IUnifier.Immutable unifier,
+            BitSet matches) {
+        if(count == 0) {
+            retrieve(node, pending, unifier, matches);
+            return;
+        }
+        if(node.any != null) {
+            skip(node.any, count - 1, pending, unifier, matches);
+        }
+        for(Node[] byArity : node.appls.values()) {
+            for(int arity = 0; arity < byArity.length; arity++) {
+                if(byArity[arity] != null) {
+                    skip(byArity[arity], count - 1 + arity, pending, unifier, matches);
+                }
+            }
+        }
+        if(node.cons != null) {
+            skip(node.cons, count + 1, pending, unifier, matches);
+        }
+        if(node.nil != null) {
+            skip(node.nil, count - 1, pending, unifier, matches);
+        }
+        for(Node child : node.strings.values()) {
+            skip(child, count - 1, pending, unifier, matches);
+        }
+        for(Node child : node.ints.values()) {
+            skip(child, count - 1, pending, unifier, matches);
+        }
+    }
+
+    /**
+     * Create an index for the given values, using the given function to get the patterns of every value.
+     */
+    public static <T> DiscriminationTree<T> of(Iterable<? extends T> values,
+            Function1<? super T, ? extends List<Pattern>> patterns) {
+        final ImmutableList<T> valueList = ImmutableList.copyOf(values);
+        final Node root = new Node();
+        for(int i = 0; i < valueList.size(); i++) {
+            insert(root, patterns.apply(valueList.get(i)), i);
+        }
+        return new DiscriminationTree<>(valueList, root);
+    }
+
+    private static void insert(Node root, List<Pattern> patterns, int index) {
+        final Deque<Pattern> pending = new ArrayDeque<>();
+        for(int i = patterns.size() - 1; i >= 0; i--) {
+            pending.push(patterns.get(i));
+        }
+        Node node = root;
+        while(!pending.isEmpty()) {
+            Pattern pattern = pending.pop();
+            while(pattern instanceof PatternAs) {
+                pattern = ((PatternAs) pattern).getPattern();
+            }
+            if(pattern instanceof ApplPattern) {
+                final ApplPattern appl = (ApplPattern) pattern;
+                final List<Pattern> args = appl.getArgs();
+                node = node.appl(appl.getOp(), args.size());
+                for(int i = args.size() - 1; i >= 0; i--) {
+                    pending.push(args.get(i));
+                }
+            } else if(pattern instanceof ConsPattern) {
+                final ConsPattern cons = (ConsPattern) pattern;
+                if(node.cons == null) {
+                    node.cons = new Node();
+                }
+                node = node.cons;
+                pending.push(cons.getTail());
+                pending.push(cons.getHead());
+            } else if(pattern instanceof NilPattern) {
+                if(node.nil == null) {
+                    node.nil = new Node();
+                }
+                node = node.nil;
+            } else if(pattern instanceof StringPattern) {
+                node = node.strings.computeIfAbsent(((StringPattern) pattern).getValue(), v -> new Node());
+            } else if(pattern instanceof IntPattern) {
+                node = node.ints.computeIfAbsent(((IntPattern) pattern).getValue(), v -> new Node());
+            } else {
+                // variables, and any pattern we cannot discriminate on
+                if(node.any == null) {
+                    node.any = new Node();
+                }
+                node = node.any;
+            }
+        }
+        node.values.set(index);
+    }
+
+    private static final class Node {
+
+        private final Map<String, Node[]> appls = new HashMap<>();
+        private @Nullable Node cons;
+        private @Nullable Node nil;
+        private final Map<String, Node> strings = new HashMap<>();
+        private final Map<Integer, Node> ints = new HashMap<>();
+        private @Nullable Node any;
+        private final BitSet values = new BitSet();
+
+        private Node appl(String op, int arity) {
+            Node[] byArity = appls.get(op);
+            if(byArity == null || byArity.length <= arity) {
+                final Node[] newByArity = new Node[arity + 1];
+                if(byArity != null) {
+                    System.arraycopy(byArity, 0, newByArity, 0, byArity.length);
+                }
+                byArity = newByArity;
+                appls.put(op, byArity);
+            }
+            if(byArity[arity] == null) {
+                byArity[arity] = new Node();
+            }
+            return byArity[arity];
+        }
+
+    }
+
+    private static final class Pending {
+
+        private final ITerm term;
+        private final @Nullable Pending next;
+
+        private Pending(ITerm term, @Nullable Pending next) {
+            this.term = term;
+            this.next = next;
+        }
+
+    }
+
+}
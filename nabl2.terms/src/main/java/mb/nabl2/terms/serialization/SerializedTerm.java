@@ -0,0 +1,47 @@
+package mb.nabl2.terms.serialization;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.ObjectStreamException;
+
+import mb.nabl2.terms.ITerm;
+
+/**
+ * Serialized form of terms built by {@link mb.nabl2.terms.build.TermBuild}. The term is written in the format of
+ * {@link TermWriter}, instead of as a graph of Java objects.
+ */
+public final class SerializedTerm implements Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    private ITerm term;
+
+    /**
+     * Used by Java serialization only.
+     */
+    public SerializedTerm() {
+    }
+
+    public SerializedTerm(ITerm term) {
+        this.term = term;
+    }
+
+    @Override public void writeExternal(ObjectOutput out) throws IOException {
+        final TermWriter writer = new TermWriter(out);
+        writer.writeHeader();
+        writer.writeTerm(term);
+    }
+
+    @Override public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        final TermReader reader = new TermReader(in);
+        reader.readHeader();
+        term = reader.readTerm();
+    }
+
+    private Object readResolve() throws ObjectStreamException {
+        return term;
+    }
+
+}
@@ -0,0 +1,42 @@
+package mb.nabl2.terms.serialization;
+
+/**
+ * Constants of the binary term format. Every term starts with a header, which combines the kind of the term with a
+ * number whose meaning depends on the kind: the index for references, the arity for applications, and the number of
+ * cons cells for lists.
+ */
+final class TermFormat {
+
+    /**
+     * Increment when the format changes in an incompatible way.
+     */
+    static final int VERSION = 1;
+
+    static final int REF = 0;
+    static final int APPL = 1;
+    static final int LIST = 2;
+    static final int STRING = 3;
+    static final int INT = 4;
+    static final int BLOB = 5;
+    static final int VAR = 6;
+    static final int OBJECT = 7;
+
+    private static final int KIND_BITS = 3;
+    private static final int KIND_MASK = (1 << KIND_BITS) - 1;
+
+    private TermFormat() {
+    }
+
+    static int header(int kind, int value) {
+        return (value << KIND_BITS) | kind;
+    }
+
+    static int kind(int header) {
+        return header & KIND_MASK;
+    }
+
+    static int value(int header) {
+        return header >>> KIND_BITS;
+    }
+
+}
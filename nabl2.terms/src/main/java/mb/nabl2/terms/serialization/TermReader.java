@@ -0,0 +1,182 @@
+package mb.nabl2.terms.serialization;
+
+import static mb.nabl2.terms.build.TermBuild.B;
+
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInput;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import mb.nabl2.terms.IAttachments;
+import mb.nabl2.terms.IListTerm;
+import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.build.Attachments;
+
+/**
+ * Reads terms in the binary format written by a {@link TermWriter}.
+ *
+ * Terms are constructed with {@link mb.nabl2.terms.build.TermBuild#B}, so deserialized terms are interned in the same
+ * way as freshly built terms. A reader is not thread-safe.
+ */
+public class TermReader {
+
+    private final ObjectInput in;
+
+    private final List<String> strings = new ArrayList<>();
+    private final List<ITerm> terms = new ArrayList<>();
+    private final List<IAttachments> attachments = new ArrayList<>();
+
+    public TermReader(ObjectInput in) {
+        this.in = in;
+    }
+
+    /**
+     * Read the format version, and fail if it is not supported.
+     */
+    public void readHeader() throws IOException {
+        final int version = readVarInt();
+        if(version != TermFormat.VERSION) {
+            throw new InvalidClassException(TermReader.class.getName(),
+                    "Unsupported term format version " + version + ", expected " + TermFormat.VERSION);
+        }
+    }
+
+    public int readVarInt() throws IOException {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if(shift > 28) {
+                throw new StreamCorruptedException("Variable-length integer is too long");
+            }
+            b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while((b & 0x80) != 0);
+        return value;
+    }
+
+    public int readSignedVarInt() throws IOException {
+        final int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public String readString() throws IOException {
+        final int ref = readVarInt();
+        if(ref > 0) {
+            return get(strings, ref - 1, "string");
+        }
+        final int length = readVarInt();
+        final char[] chars = new char[length];
+        for(int i = 0; i < length; i++) {
+            chars[i] = (char) readVarInt();
+        }
+        final String value = new String(chars);
+        strings.add(value);
+        return value;
+    }
+
+    public ITerm readTerm() throws IOException, ClassNotFoundException {
+        final int header = readVarInt();
+        final int value = TermFormat.value(header);
+        final ITerm term;
+        switch(TermFormat.kind(header)) {
+            case TermFormat.REF:
+                return get(terms, value, "term");
+            case TermFormat.OBJECT:
+                term = (ITerm) in.readObject();
+                break;
+            case TermFormat.APPL: {
+                final String op = readString();
+                final ITerm[] args = new ITerm[value];
+                for(int i = 0; i < value; i++) {
+                    args[i] = readTerm();
+                }
+                term = B.newAppl(op, Arrays.asList(args), readAttachments());
+                break;
+            }
+            case TermFormat.LIST:
+                term = readList(value);
+                break;
+            case TermFormat.STRING: {
+                final String string = readString();
+                term = B.newString(string, readAttachments());
+                break;
+            }
+            case TermFormat.INT: {
+                final int integer = readSignedVarInt();
+                term = B.newInt(integer, readAttachments());
+                break;
+            }
+            case TermFormat.BLOB: {
+                final Object blob = in.readObject();
+                term = B.newBlob(blob, readAttachments());
+                break;
+            }
+            case TermFormat.VAR: {
+                final String resource = readString();
+                final String name = readString();
+                term = B.newVar(resource, name, readAttachments());
+                break;
+            }
+            default:
+                throw new StreamCorruptedException("Unknown term kind " + TermFormat.kind(header));
+        }
+        terms.add(term);
+        return term;
+    }
+
+    private IListTerm readList(int length) throws IOException, ClassNotFoundException {
+        if(length == 0) {
+            return B.newNil(readAttachments());
+        }
+        final ITerm[] heads = new ITerm[length];
+        final IAttachments[] cellAttachments = new IAttachments[length];
+        for(int i = 0; i < length; i++) {
+            heads[i] = readTerm();
+            cellAttachments[i] = readAttachments();
+        }
+        final ITerm tail = readTerm();
+        if(!(tail instanceof IListTerm)) {
+            throw new StreamCorruptedException("Expected list tail, got " + tail);
+        }
+        IListTerm list = (IListTerm) tail;
+        for(int i = length - 1; i >= 0; i--) {
+            list = B.newCons(heads[i], list, cellAttachments[i]);
+        }
+        return list;
+    }
+
+    private IAttachments readAttachments() throws IOException, ClassNotFoundException {
+        final int ref = readVarInt();
+        switch(ref) {
+            case 0:
+                return Attachments.empty();
+            case 1: {
+                final IAttachments value = (IAttachments) in.readObject();
+                attachments.add(value);
+                return value;
+            }
+            default:
+                return get(attachments, ref - 2, "attachments");
+        }
+    }
+
+    /**
+     * Read an arbitrary object using Java serialization.
+     */
+    public Object readObject() throws IOException, ClassNotFoundException {
+        return in.readObject();
+    }
+
+    private static <T> T get(List<T> table, int index, String kind) throws StreamCorruptedException {
+        if(index < 0 || index >= table.size()) {
+            throw new StreamCorruptedException("Unknown " + kind + " reference " + index);
+        }
+        return table.get(index);
+    }
+
+}
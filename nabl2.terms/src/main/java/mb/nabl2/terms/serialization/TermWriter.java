@@ -0,0 +1,174 @@
+package mb.nabl2.terms.serialization;
+
+import java.io.IOException;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import mb.nabl2.terms.IApplTerm;
+import mb.nabl2.terms.IAttachments;
+import mb.nabl2.terms.IBlobTerm;
+import mb.nabl2.terms.IConsTerm;
+import mb.nabl2.terms.IIntTerm;
+import mb.nabl2.terms.IListTerm;
+import mb.nabl2.terms.INilTerm;
+import mb.nabl2.terms.IStringTerm;
+import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.ITermVar;
+import mb.nabl2.terms.build.TermBuild;
+
+/**
+ * Writes terms in a compact binary format, to be read back by a {@link TermReader}.
+ *
+ * Strings and terms are written once, and referred to by their index afterwards. Terms are shared by identity, which
+ * preserves the sharing of the in-memory representation. Numbers are written as variable-length integers. Terms that
+ * are not built by {@link TermBuild}, blob values, and attachments are written with Java serialization to the
+ * underlying stream.
+ *
+ * A writer is not thread-safe. All values must be read back in the order they were written.
+ */
+public class TermWriter {
+
+    private final ObjectOutput out;
+
+    private final Map<String, Integer> strings = new HashMap<>();
+    private final Map<ITerm, Integer> terms = new IdentityHashMap<>();
+    private final Map<IAttachments, Integer> attachments = new HashMap<>();
+
+    public TermWriter(ObjectOutput out) {
+        this.out = out;
+    }
+
+    /**
+     * Write the format version. Readers use this to reject data written in a format they do not understand.
+     */
+    public void writeHeader() throws IOException {
+        writeVarInt(TermFormat.VERSION);
+    }
+
+    /**
+     * Write a non-negative integer, using one byte for every seven bits.
+     */
+    public void writeVarInt(int value) throws IOException {
+        while((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Write an integer, using fewer bytes for values closer to zero.
+     */
+    public void writeSignedVarInt(int value) throws IOException {
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    public void writeString(String value) throws IOException {
+        final Integer ref = strings.get(value);
+        if(ref != null) {
+            writeVarInt(ref + 1);
+            return;
+        }
+        writeVarInt(0);
+        final int length = value.length();
+        writeVarInt(length);
+        for(int i = 0; i < length; i++) {
+            writeVarInt(value.charAt(i));
+        }
+        strings.put(value, strings.size());
+    }
+
+    public void writeTerm(ITerm term) throws IOException {
+        final Integer ref = terms.get(term);
+        if(ref != null) {
+            writeVarInt(TermFormat.header(TermFormat.REF, ref));
+            return;
+        }
+        if(!TermBuild.isBuiltin(term)) {
+            writeVarInt(TermFormat.header(TermFormat.OBJECT, 0));
+            out.writeObject(term);
+        } else if(term instanceof IApplTerm) {
+            final IApplTerm appl = (IApplTerm) term;
+            writeVarInt(TermFormat.header(TermFormat.APPL, appl.getArity()));
+            writeString(appl.getOp());
+            for(ITerm arg : appl.getArgs()) {
+                writeTerm(arg);
+            }
+            writeAttachments(appl.getAttachments());
+        } else if(term instanceof IConsTerm || term instanceof INilTerm) {
+            writeList((IListTerm) term);
+        } else if(term instanceof IStringTerm) {
+            writeVarInt(TermFormat.header(TermFormat.STRING, 0));
+            writeString(((IStringTerm) term).getValue());
+            writeAttachments(term.getAttachments());
+        } else if(term instanceof IIntTerm) {
+            writeVarInt(TermFormat.header(TermFormat.INT, 0));
+            writeSignedVarInt(((IIntTerm) term).getValue());
+            writeAttachments(term.getAttachments());
+        } else if(term instanceof IBlobTerm) {
+            writeVarInt(TermFormat.header(TermFormat.BLOB, 0));
+            out.writeObject(((IBlobTerm) term).getValue());
+            writeAttachments(term.getAttachments());
+        } else if(term instanceof ITermVar) {
+            final ITermVar var = (ITermVar) term;
+            writeVarInt(TermFormat.header(TermFormat.VAR, 0));
+            writeString(var.getResource());
+            writeString(var.getName());
+            writeAttachments(var.getAttachments());
+        } else {
+            throw new IllegalArgumentException("Unsupported term " + term);
+        }
+        terms.put(term, terms.size());
+    }
+
+    /**
+     * Write the cons cells of a list iteratively, so that long lists do not exhaust the stack when they are read back.
+     * The cells are written up to the first tail that is shared, or that is not a cons cell.
+     */
+    private void writeList(IListTerm list) throws IOException {
+        final List<IConsTerm> cells = new ArrayList<>();
+        IListTerm tail = list;
+        while(tail instanceof IConsTerm && TermBuild.isBuiltin(tail) && (tail == list || !terms.containsKey(tail))) {
+            final IConsTerm cons = (IConsTerm) tail;
+            cells.add(cons);
+            tail = cons.getTail();
+        }
+        writeVarInt(TermFormat.header(TermFormat.LIST, cells.size()));
+        if(cells.isEmpty()) {
+            writeAttachments(list.getAttachments());
+            return;
+        }
+        for(IConsTerm cons : cells) {
+            writeTerm(cons.getHead());
+            writeAttachments(cons.getAttachments());
+        }
+        writeTerm(tail);
+    }
+
+    private void writeAttachments(IAttachments value) throws IOException {
+        if(value.isEmpty()) {
+            writeVarInt(0);
+            return;
+        }
+        final Integer ref = attachments.get(value);
+        if(ref != null) {
+            writeVarInt(ref + 2);
+            return;
+        }
+        writeVarInt(1);
+        out.writeObject(value);
+        attachments.put(value, attachments.size());
+    }
+
+    /**
+     * Write an arbitrary object using Java serialization.
+     */
+    public void writeObject(Object value) throws IOException {
+        out.writeObject(value);
+    }
+
+}
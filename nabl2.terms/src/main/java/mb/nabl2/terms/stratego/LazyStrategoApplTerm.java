@@ -0,0 +1,125 @@
+package mb.nabl2.terms.stratego;
+
+import static mb.nabl2.terms.build.TermBuild.B;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.Nullable;
+
+import org.metaborg.util.collection.CapsuleUtil;
+import org.metaborg.util.functions.Action1;
+import org.spoofax.interpreter.terms.IStrategoTerm;
+
+import io.usethesource.capsule.Set;
+import mb.nabl2.terms.IApplTerm;
+import mb.nabl2.terms.IAttachments;
+import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.ITermVar;
+import mb.nabl2.terms.build.AbstractApplTerm;
+
+/**
+ * Application term that is a view of a Stratego application or tuple. The arguments and attachments are converted when
+ * they are first accessed, instead of when the view is created.
+ *
+ * Stratego terms do not contain variables, so views are always ground. Views are created by
+ * {@link StrategoTerms#fromStrategoLazy(IStrategoTerm)}, and {@link StrategoTerms#toStratego(ITerm)} converts them back
+ * to the Stratego term they are a view of, without copying. Views are serialized as regular terms.
+ */
+final class LazyStrategoApplTerm extends AbstractApplTerm implements IApplTerm, Serializable {
+
+    private static final long serialVersionUID = 42L;
+
+    private final IStrategoTerm term;
+    private final String op;
+    private final IStrategoTerm[] subTerms;
+    private final AtomicReferenceArray<ITerm> args;
+    private final List<ITerm> argList;
+    private volatile @Nullable IAttachments attachments;
+
+    LazyStrategoApplTerm(IStrategoTerm term, String op) {
+        this.term = term;
+        this.op = op;
+        this.subTerms = term.getAllSubterms();
+        this.args = new AtomicReferenceArray<>(subTerms.length);
+        this.argList = new Args();
+    }
+
+    IStrategoTerm strategoTerm() {
+        return term;
+    }
+
+    @Override protected IApplTerm check() {
+        return this;
+    }
+
+    @Override public String getOp() {
+        return op;
+    }
+
+    @Override public int getArity() {
+        return subTerms.length;
+    }
+
+    @Override public List<ITerm> getArgs() {
+        return argList;
+    }
+
+    private ITerm getArg(int index) {
+        ITerm arg = args.get(index);
+        if(arg == null) {
+            // publish a single instance, even if multiple threads convert the same argument
+            args.compareAndSet(index, null, StrategoTerms.fromStrategoLazy(subTerms[index]));
+            arg = args.get(index);
+        }
+        return arg;
+    }
+
+    @Override public IAttachments getAttachments() {
+        IAttachments result = attachments;
+        if(result == null) {
+            result = StrategoTerms.getAttachments(term);
+            attachments = result;
+        }
+        return result;
+    }
+
+    @Override public IApplTerm withAttachments(IAttachments value) {
+        return B.newAppl(op, argList, value);
+    }
+
+    @Override public boolean isGround() {
+        return true;
+    }
+
+    @Override public Set.Immutable<ITermVar> getVars() {
+        return CapsuleUtil.immutableSet();
+    }
+
+    @Override public void visitVars(@SuppressWarnings("unused") Action1<ITermVar> onVar) {
+    }
+
+    @Override protected Object writeReplace() throws ObjectStreamException {
+        return B.newAppl(op, argList, getAttachments());
+    }
+
+    private final class Args extends AbstractList<ITerm> implements RandomAccess {
+
+        @Override public ITerm get(int index) {
+            if(index < 0 || index >= subTerms.length) {
+                throw new IndexOutOfBoundsException(Integer.toString(index));
+            }
+            return getArg(index);
+        }
+
+        @Override public int size() {
+            return subTerms.length;
+        }
+
+    }
+
+}
@@ -45,6 +45,10 @@ public class StrategoTerms {
     }
 
     public IStrategoTerm toStratego(ITerm term, boolean varsToPlhdrs) {
+        if(term instanceof LazyStrategoApplTerm) {
+            // views are ground, and have the attachments of the term they are a view of
+            return ((LazyStrategoApplTerm) term).strategoTerm();
+        }
         // @formatter:off
         IStrategoTerm strategoTerm = term.match(Terms.cases(
             appl -> {
@@ -185,6 +189,50 @@ public class StrategoTerms {
         return B.newList(terms, attachments);
     }
 
+    /**
+     * Convert a Stratego term to a term, without copying applications and tuples. The returned term is a view that
+     * converts the arguments of an application or tuple when they are first accessed. Lists are converted eagerly, but
+     * their elements are views. Placeholders are not supported.
+     *
+     * Converting a view back with {@link #toStratego(ITerm)} returns the original Stratego term.
+     */
+    public static ITerm fromStrategoLazy(IStrategoTerm sterm) {
+        // @formatter:off
+        return match(sterm, StrategoTerms.cases(
+            appl -> {
+                if(appl.getSubtermCount() == 0) {
+                    return B.newAppl(appl.getConstructor().getName(), ImmutableList.of(), getAttachments(appl));
+                }
+                return new LazyStrategoApplTerm(appl, appl.getConstructor().getName());
+            },
+            tuple -> {
+                if(tuple.getSubtermCount() == 1) {
+                    return B.newTuple(ImmutableList.of(fromStrategoLazy(tuple.getSubterm(0))), getAttachments(tuple));
+                }
+                return new LazyStrategoApplTerm(tuple, Terms.TUPLE_OP);
+            },
+            list -> fromStrategoListLazy(list),
+            integer -> B.newInt(integer.intValue(), getAttachments(integer)),
+            real -> { throw new IllegalArgumentException("Real values are not supported."); },
+            string -> B.newString(string.stringValue(), getAttachments(string)),
+            blob -> B.newBlob(blob.value()),
+            plhdr -> { throw new IllegalArgumentException("Placeholders are not supported."); }
+        ));
+        // @formatter:on
+    }
+
+    private static IListTerm fromStrategoListLazy(IStrategoList list) {
+        final LinkedList<ITerm> terms = Lists.newLinkedList();
+        final LinkedList<IAttachments> attachments = Lists.newLinkedList();
+        while(!list.isEmpty()) {
+            terms.add(fromStrategoLazy(list.head()));
+            attachments.push(getAttachments(list));
+            list = list.tail();
+        }
+        attachments.add(getAttachments(list));
+        return B.newList(terms, attachments);
+    }
+
     public static IAttachments getAttachments(IStrategoTerm term) {
         final Attachments.Builder b = Attachments.Builder.of();
 
@@ -188,6 +188,9 @@ public abstract class BaseUnifier implements IUnifier, Serializable {
     ///////////////////////////////////////////
 
     @Override public boolean isCyclic(final ITerm term) {
+        if(term.isGround()) {
+            return false;
+        }
         return isCyclic(term.getVars(), Sets.newHashSet(), Maps.newHashMap());
     }
 
@@ -229,6 +232,9 @@ public abstract class BaseUnifier implements IUnifier, Serializable {
     ///////////////////////////////////////////
 
     @Override public boolean isGround(final ITerm term) {
+        if(term.isGround()) {
+            return true;
+        }
         return isGround(term.getVars(), Sets.newHashSet(), Maps.newHashMap());
     }
 
@@ -261,6 +267,9 @@ public abstract class BaseUnifier implements IUnifier, Serializable {
     ///////////////////////////////////////////
 
     @Override public Set.Immutable<ITermVar> getVars(final ITerm term) {
+        if(term.isGround()) {
+            return CapsuleUtil.immutableSet();
+        }
         final Set.Transient<ITermVar> vars = CapsuleUtil.transientSet();
         getVars(term.getVars(), Lists.newLinkedList(), Sets.newHashSet(), vars);
         return vars.freeze();
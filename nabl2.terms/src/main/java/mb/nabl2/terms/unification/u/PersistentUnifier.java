@@ -1,6 +1,12 @@
 package mb.nabl2.terms.unification.u;
 
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.ObjectStreamException;
 import java.io.Serializable;
+import java.io.StreamCorruptedException;
 import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Deque;
@@ -9,6 +15,8 @@ import java.util.List;
 import java.util.Map.Entry;
 import java.util.Optional;
 
+import javax.annotation.Nullable;
+
 import org.metaborg.util.Ref;
 import org.metaborg.util.collection.CapsuleUtil;
 import org.metaborg.util.collection.MultiSet;
@@ -27,6 +35,8 @@ import mb.nabl2.terms.ITerm;
 import mb.nabl2.terms.ITermVar;
 import mb.nabl2.terms.ListTerms;
 import mb.nabl2.terms.Terms;
+import mb.nabl2.terms.serialization.TermReader;
+import mb.nabl2.terms.serialization.TermWriter;
 import mb.nabl2.terms.substitution.IRenaming;
 import mb.nabl2.terms.substitution.IReplacement;
 import mb.nabl2.terms.substitution.ISubstitution;
@@ -97,7 +107,18 @@ public abstract class PersistentUnifier extends BaseUnifier implements IUnifier,
         }
 
         @Override public ITermVar findRep(ITermVar var) {
-            final Map.Transient<ITermVar, ITermVar> reps = this.reps.get().asTransient();
+            // Most lookups are for variables that are representatives themselves, or that point directly to their
+            // representative. Those do not need path compression, and are answered without allocating.
+            final Map.Immutable<ITermVar, ITermVar> currentReps = this.reps.get();
+            final ITermVar rep1 = currentReps.get(var);
+            if(rep1 == null) {
+                return var;
+            }
+            final ITermVar rep2 = currentReps.get(rep1);
+            if(rep2 == null) {
+                return rep1;
+            }
+            final Map.Transient<ITermVar, ITermVar> reps = currentReps.asTransient();
             final MultiSet.Transient<ITermVar> repAndTermVarsCache = this.repAndTermVarsCache.get().melt();
             final ITermVar rep = findRep(var, reps, repAndTermVarsCache);
             this.reps.set(reps.freeze());
@@ -339,8 +360,8 @@ public abstract class PersistentUnifier extends BaseUnifier implements IUnifier,
                 final boolean rightRigid = isRigid.test(rightRep);
                 final ITerm leftTerm = getTerm(leftRep);
                 final ITerm rightTerm = getTerm(rightRep);
-                final int leftRank = Optional.ofNullable(ranks.__remove(leftRep)).orElse(1);
-                final int rightRank = Optional.ofNullable(ranks.__remove(rightRep)).orElse(1);
+                final int leftRank = rank(ranks.__remove(leftRep));
+                final int rightRank = rank(ranks.__remove(rightRep));
                 final ITermVar var; // the eliminated variable
                 final ITermVar rep; // the new representative
                 if(leftRigid && rightRigid && leftTerm == null && rightTerm == null) {
@@ -360,7 +381,9 @@ public abstract class PersistentUnifier extends BaseUnifier implements IUnifier,
                     var = swap ? rightRep : leftRep; // the eliminated variable
                     rep = swap ? leftRep : rightRep; // the new representative
                 }
-                ranks.__put(rep, leftRank + rightRank);
+                // union by rank keeps ranks logarithmic in the size of the class, so they stay in the range of
+                // cached Integer instances and updating them does not allocate
+                ranks.__put(rep, leftRank == rightRank ? leftRank + 1 : Math.max(leftRank, rightRank));
                 final ITerm varTerm = removeTerm(var); // term for the eliminated var
                 putRep(var, rep);
                 if(varTerm != null) {
@@ -593,6 +616,10 @@ public abstract class PersistentUnifier extends BaseUnifier implements IUnifier,
             return new BaseUnifier.Transient(this);
         }
 
+        private Object writeReplace() throws ObjectStreamException {
+            return new SerialForm(this);
+        }
+
         public static PersistentUnifier.Immutable of() {
             return FINITE_EMPTY;
         }
@@ -637,6 +664,81 @@ public abstract class PersistentUnifier extends BaseUnifier implements IUnifier,
 
     }
 
+    /**
+     * Serialized form of an immutable unifier. The bindings are written with a {@link TermWriter}, so that terms that
+     * occur in several bindings are only written once. The caches are recomputed on deserialization.
+     */
+    static final class SerialForm implements Externalizable {
+
+        private static final long serialVersionUID = 1L;
+
+        private PersistentUnifier.Immutable unifier;
+
+        /**
+         * Used by Java serialization only.
+         */
+        public SerialForm() {
+        }
+
+        SerialForm(PersistentUnifier.Immutable unifier) {
+            this.unifier = unifier;
+        }
+
+        @Override public void writeExternal(ObjectOutput out) throws IOException {
+            final TermWriter writer = new TermWriter(out);
+            writer.writeHeader();
+            out.writeBoolean(unifier.finite);
+            final Map.Immutable<ITermVar, ITermVar> reps = unifier.reps();
+            writer.writeVarInt(reps.size());
+            for(Entry<ITermVar, ITermVar> e : reps.entrySet()) {
+                writer.writeTerm(e.getKey());
+                writer.writeTerm(e.getValue());
+            }
+            writer.writeVarInt(unifier.ranks.size());
+            for(Entry<ITermVar, Integer> e : unifier.ranks.entrySet()) {
+                writer.writeTerm(e.getKey());
+                writer.writeVarInt(e.getValue());
+            }
+            writer.writeVarInt(unifier.terms.size());
+            for(Entry<ITermVar, ITerm> e : unifier.terms.entrySet()) {
+                writer.writeTerm(e.getKey());
+                writer.writeTerm(e.getValue());
+            }
+        }
+
+        @Override public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+            final TermReader reader = new TermReader(in);
+            reader.readHeader();
+            final boolean finite = in.readBoolean();
+            final Map.Transient<ITermVar, ITermVar> reps = Map.Transient.of();
+            for(int i = reader.readVarInt(); i > 0; i--) {
+                reps.__put(readVar(reader), readVar(reader));
+            }
+            final Map.Transient<ITermVar, Integer> ranks = Map.Transient.of();
+            for(int i = reader.readVarInt(); i > 0; i--) {
+                ranks.__put(readVar(reader), reader.readVarInt());
+            }
+            final Map.Transient<ITermVar, ITerm> terms = Map.Transient.of();
+            for(int i = reader.readVarInt(); i > 0; i--) {
+                terms.__put(readVar(reader), reader.readTerm());
+            }
+            unifier = PersistentUnifier.Immutable.of(finite, reps.freeze(), ranks.freeze(), terms.freeze());
+        }
+
+        private static ITermVar readVar(TermReader reader) throws IOException, ClassNotFoundException {
+            final ITerm term = reader.readTerm();
+            if(!(term instanceof ITermVar)) {
+                throw new StreamCorruptedException("Expected variable, got " + term);
+            }
+            return (ITermVar) term;
+        }
+
+        private Object readResolve() throws ObjectStreamException {
+            return unifier;
+        }
+
+    }
+
     ///////////////////////////////////////////
     // class Transient
     ///////////////////////////////////////////
@@ -844,6 +946,10 @@ public abstract class PersistentUnifier extends BaseUnifier implements IUnifier,
     // utils
     ///////////////////////////////////////////
 
+    private static int rank(@Nullable Integer rank) {
+        return rank != null ? rank : 1;
+    }
+
     protected static ITermVar findRep(ITermVar var, Map.Transient<ITermVar, ITermVar> reps,
             MultiSet.Transient<ITermVar> repAndTermVarsCache) {
         final ITermVar rep = reps.get(var);
@@ -1,27 +1,97 @@
 package mb.nabl2.util.collections;
 
+import java.lang.ref.WeakReference;
 import java.util.Map;
 import java.util.WeakHashMap;
 
+/**
+ * Weak cache that can be used concurrently. Entries are distributed over independently locked segments, so that
+ * threads only contend if their keys hash to the same segment. Both keys and values are weakly referenced, which makes
+ * it suitable as an intern table, where keys and values are the same object.
+ */
 public class ConcurrentWeakCache<K, V> {
 
-    private final Map<K, V> entries = new WeakHashMap<>();
+    private final Segment<K, V>[] segments;
+    private final int segmentMask;
 
-    public synchronized int size() {
-        return entries.size();
+    public ConcurrentWeakCache() {
+        this(4 * Runtime.getRuntime().availableProcessors());
     }
 
-    public synchronized boolean isEmpty() {
-        return entries.isEmpty();
+    @SuppressWarnings("unchecked") public ConcurrentWeakCache(int concurrencyLevel) {
+        int segmentCount = 1;
+        while(segmentCount < concurrencyLevel) {
+            segmentCount <<= 1;
+        }
+        this.segments = new Segment[segmentCount];
+        for(int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>();
+        }
+        this.segmentMask = segmentCount - 1;
     }
 
-    public synchronized V getOrPut(K key, V value) {
-        V oldValue = entries.putIfAbsent(key, value);
-        return oldValue != null ? oldValue : value;
+    public int size() {
+        int size = 0;
+        for(Segment<K, V> segment : segments) {
+            size += segment.size();
+        }
+        return size;
     }
 
-    public synchronized void clear() {
-        entries.clear();
+    public boolean isEmpty() {
+        for(Segment<K, V> segment : segments) {
+            if(!segment.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
     }
 
-}
\ No newline at end of file
+    /**
+     * Return the value cached for the given key, or cache and return the given value if no live value exists.
+     */
+    public V getOrPut(K key, V value) {
+        return segmentFor(key).getOrPut(key, value);
+    }
+
+    public void clear() {
+        for(Segment<K, V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & segmentMask];
+    }
+
+    private static class Segment<K, V> {
+
+        private final Map<K, WeakReference<V>> entries = new WeakHashMap<>();
+
+        synchronized int size() {
+            return entries.size();
+        }
+
+        synchronized boolean isEmpty() {
+            return entries.isEmpty();
+        }
+
+        synchronized V getOrPut(K key, V value) {
+            final WeakReference<V> ref = entries.get(key);
+            final V oldValue;
+            if(ref != null && (oldValue = ref.get()) != null) {
+                return oldValue;
+            }
+            entries.put(key, new WeakReference<>(value));
+            return value;
+        }
+
+        synchronized void clear() {
+            entries.clear();
+        }
+
+    }
+
+}
@@ -0,0 +1,76 @@
+package mb.nabl2.terms.build;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.build.TermBuild.B;
+
+public class HashConsingTest {
+
+    private static final B HB = new B(true);
+    private static final B NB = new B(false);
+
+    @Test public void testSharedAppl() {
+        ITerm t1 = HB.newAppl("Ctor", HB.newString("x"), HB.newList(HB.newInt(1), HB.newVar("", "v")));
+        ITerm t2 = HB.newAppl("Ctor", HB.newString("x"), HB.newList(HB.newInt(1), HB.newVar("", "v")));
+        assertSame(t1, t2);
+    }
+
+    @Test public void testSharedLeaves() {
+        assertSame(HB.newString("x"), HB.newString("x"));
+        assertSame(HB.newInt(1), HB.newInt(1));
+        assertSame(HB.newVar("", "v"), HB.newVar("", "v"));
+        assertSame(HB.newAppl("Ctor"), HB.newAppl("Ctor"));
+    }
+
+    @Test public void testEqualWithoutHashConsing() {
+        // @formatter:off
+        final List<Supplier<ITerm>> builders = Arrays.asList(
+            () -> NB.newString("x"),
+            () -> NB.newInt(1),
+            () -> NB.newVar("", "v"),
+            () -> NB.newAppl("Ctor"),
+            () -> NB.newAppl("Ctor", NB.newString("x"), NB.newList(NB.newInt(1), NB.newVar("", "v")))
+        );
+        // @formatter:on
+        for(Supplier<ITerm> builder : builders) {
+            final ITerm t1 = builder.get();
+            final ITerm t2 = builder.get();
+            assertNotSame(t1, t2);
+            assertEquals(t1, t2);
+            assertEquals(t1.hashCode(), t2.hashCode());
+        }
+    }
+
+    @Test public void testDistinctInternedUnequal() {
+        ITerm t1 = HB.newAppl("Ctor", HB.newString("x"));
+        ITerm t2 = HB.newAppl("Ctor", HB.newString("y"));
+        assertFalse(t1.equals(t2));
+    }
+
+    @Test public void testNotSharedWithAttachments() {
+        ITerm arg = HB.newString("x", Attachments.of(String.class, "attachment"));
+        ITerm t1 = HB.newAppl("Ctor", arg);
+        ITerm t2 = HB.newAppl("Ctor", arg);
+        assertNotSame(t1, t2);
+        assertEquals(t1, t2);
+    }
+
+    @Test public void testInternedEqualsNotInterned() {
+        ITerm t1 = HB.newAppl("Ctor", HB.newString("x"));
+        ITerm t2 = NB.newAppl("Ctor", NB.newString("x"));
+        assertNotSame(t1, t2);
+        assertEquals(t1, t2);
+        assertEquals(t2, t1);
+    }
+
+}
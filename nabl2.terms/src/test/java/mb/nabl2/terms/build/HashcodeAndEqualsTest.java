@@ -149,6 +149,21 @@ public class HashcodeAndEqualsTest {
         assertTrue(Arrays.equals(b1, b2));
     }
 
+    @Test public void testSerializeIgnoresCachedHashAndVars() throws Exception {
+        ITerm t = B.newAppl("Ctor", B.newList(B.newVar("", "x")), B.newInt(42));
+        byte[] b1 = serialize(t);
+        t.hashCode();
+        t.getVars();
+        byte[] b2 = serialize(t);
+        assertTrue(Arrays.equals(b1, b2));
+    }
+
+    @Test public void testCachedVars() {
+        ITerm t = B.newAppl("Ctor", B.newList(B.newVar("", "x")), B.newVar("", "y"));
+        assertEquals(2, t.getVars().size());
+        assertTrue(t.getVars() == t.getVars());
+    }
+
 
     private static byte[] serialize(Object obj) throws IOException {
         try(final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
@@ -0,0 +1,65 @@
+package mb.nabl2.terms.matching;
+
+import static mb.nabl2.terms.build.TermBuild.B;
+import static mb.nabl2.terms.matching.TermPattern.P;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.ITermVar;
+import mb.nabl2.terms.unification.u.IUnifier;
+import mb.nabl2.terms.unification.u.PersistentUnifier;
+
+public class DiscriminationTreeTest {
+
+    private final ITermVar a = B.newVar("", "a");
+    private final ITermVar b = B.newVar("", "b");
+
+    private final List<Pattern> fx = Arrays.asList(P.newAppl("f", P.newString("x")), P.newWld());
+    private final List<Pattern> fy = Arrays.asList(P.newAppl("f", P.newString("y")), P.newInt(1));
+    private final List<Pattern> fv = Arrays.asList(P.newAppl("f", P.newVar(a)), P.newVar(b));
+    private final List<Pattern> g = Arrays.asList(P.newAs(a, P.newAppl("g")), P.newWld());
+    private final List<Pattern> list = Arrays.asList(P.newList(Arrays.asList(P.newWld())), P.newWld());
+    private final List<Pattern> any = Arrays.asList(P.newVar(a), P.newVar(a));
+
+    private final DiscriminationTree<List<Pattern>> index =
+            DiscriminationTree.of(ImmutableList.of(fx, fy, fv, g, list, any), ps -> ps);
+
+    private final IUnifier.Immutable empty = PersistentUnifier.Immutable.of();
+
+    @Test public void testConstructors() {
+        assertEquals(ImmutableList.of(fx, fv, any), index.get(args(B.newAppl("f", B.newString("x")), B.newInt(1)), empty));
+        assertEquals(ImmutableList.of(fy, fv, any), index.get(args(B.newAppl("f", B.newString("y")), B.newInt(1)), empty));
+        assertEquals(ImmutableList.of(fv, any), index.get(args(B.newAppl("f", B.newString("y")), B.newInt(2)), empty));
+        assertEquals(ImmutableList.of(g, any), index.get(args(B.newAppl("g"), B.newInt(2)), empty));
+        assertEquals(ImmutableList.of(any), index.get(args(B.newAppl("g", B.newInt(1)), B.newInt(2)), empty));
+    }
+
+    @Test public void testLists() {
+        assertEquals(ImmutableList.of(list, any), index.get(args(B.newList(B.newInt(1)), B.newInt(2)), empty));
+        assertEquals(ImmutableList.of(any), index.get(args(B.newList(), B.newInt(2)), empty));
+        assertEquals(ImmutableList.of(list, any),
+                index.get(args(B.newListTail(Arrays.asList(B.newInt(1)), B.newVar("", "t")), B.newInt(2)), empty));
+    }
+
+    @Test public void testVariables() throws Exception {
+        final ITermVar x = B.newVar("", "x");
+        final ITermVar y = B.newVar("", "y");
+        assertEquals(ImmutableList.of(fx, fy, fv, g, list, any), index.get(args(x, y), empty));
+        assertEquals(ImmutableList.of(fx, fv, any), index.get(args(B.newAppl("f", x), B.newString("z")), empty));
+
+        final IUnifier.Immutable unifier = empty.unify(x, B.newAppl("f", y)).get().unifier();
+        assertEquals(ImmutableList.of(fx, fy, fv, any), index.get(args(x, B.newInt(1)), unifier));
+    }
+
+    private static List<ITerm> args(ITerm... args) {
+        return Arrays.asList(args);
+    }
+
+}
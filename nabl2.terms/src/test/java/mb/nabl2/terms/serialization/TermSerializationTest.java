@@ -0,0 +1,114 @@
+package mb.nabl2.terms.serialization;
+
+import static mb.nabl2.terms.build.TermBuild.B;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import mb.nabl2.terms.IApplTerm;
+import mb.nabl2.terms.IConsTerm;
+import mb.nabl2.terms.IListTerm;
+import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.ITermVar;
+import mb.nabl2.terms.build.Attachments;
+import mb.nabl2.terms.stratego.TermIndex;
+import mb.nabl2.terms.unification.u.IUnifier;
+import mb.nabl2.terms.unification.u.PersistentUnifier;
+
+public class TermSerializationTest {
+
+    @Test public void testRoundTrip() throws Exception {
+        final ITerm term = B.newAppl("Ctor", B.newString("xé中"), B.newInt(-42), B.newInt(Integer.MAX_VALUE),
+                B.newList(B.newInt(1), B.newVar("r", "v")), B.newTuple(), B.newBlob("blob"));
+        assertEquals(term, roundTrip(term));
+    }
+
+    @Test public void testListWithVarTail() throws Exception {
+        final IListTerm list = B.newListTail(Lists.newArrayList(B.newInt(1), B.newInt(2)), B.newVar("", "tail"));
+        assertEquals(list, roundTrip(list));
+    }
+
+    @Test public void testLongList() throws Exception {
+        final List<ITerm> elems = Lists.newArrayList();
+        for(int i = 0; i < 100_000; i++) {
+            elems.add(B.newInt(i));
+        }
+        final IListTerm list = B.newList(elems);
+        assertEquals(list, roundTrip(list));
+    }
+
+    @Test public void testAttachments() throws Exception {
+        final TermIndex index = TermIndex.of("resource", 7);
+        final ITerm term = B.newAppl("Ctor", B.newString("x", Attachments.of(TermIndex.class, index)));
+        final IApplTerm result = (IApplTerm) roundTrip(term);
+        assertEquals(index, result.getArgs().get(0).getAttachments().get(TermIndex.class));
+    }
+
+    @Test public void testSpecializedTerm() throws Exception {
+        final ITerm term = B.newList(TermIndex.of("resource", 1), TermIndex.of("resource", 2));
+        final IListTerm result = (IListTerm) roundTrip(term);
+        assertEquals(term, result);
+        assertTrue(((IConsTerm) result).getHead() instanceof TermIndex);
+    }
+
+    @Test public void testSharing() throws Exception {
+        final ITerm shared = B.newAppl("Shared", B.newString("x", Attachments.of(String.class, "attachment")));
+        final IApplTerm term = (IApplTerm) roundTrip(B.newTuple(shared, shared));
+        assertSame(term.getArgs().get(0), term.getArgs().get(1));
+    }
+
+    @Test public void testSharingIsCompact() throws Exception {
+        ITerm term = B.newString("leaf");
+        for(int i = 0; i < 64; i++) {
+            // without sharing the size of the term doubles at every level
+            term = B.newAppl("Pair", term, term);
+        }
+        assertTrue(serialize(term).length < 1024);
+        final IApplTerm result = (IApplTerm) roundTrip(term);
+        assertSame(result.getArgs().get(0), result.getArgs().get(1));
+    }
+
+    @Test public void testUnifier() throws Exception {
+        final ITermVar x = B.newVar("", "x");
+        final ITermVar y = B.newVar("", "y");
+        final ITermVar z = B.newVar("", "z");
+        IUnifier.Immutable unifier = PersistentUnifier.Immutable.of();
+        unifier = unifier.unify(x, y).get().unifier();
+        unifier = unifier.unify(y, B.newAppl("Ctor", z, B.newInt(1))).get().unifier();
+        final IUnifier.Immutable result = roundTrip(unifier);
+        assertEquals(unifier.domainSet(), result.domainSet());
+        assertEquals(unifier.findRecursive(x), result.findRecursive(x));
+        assertEquals(unifier.findRep(y), result.findRep(y));
+        assertTrue(result.isFinite());
+    }
+
+    @Test public void testEmptyUnifier() throws Exception {
+        assertSame(PersistentUnifier.Immutable.of(), roundTrip(PersistentUnifier.Immutable.of()));
+    }
+
+    private static byte[] serialize(Object object) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(final ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked") private static <T> T roundTrip(T object) throws Exception {
+        try(final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialize(object)))) {
+            return (T) in.readObject();
+        }
+    }
+
+}
@@ -0,0 +1,81 @@
+package mb.nabl2.terms.stratego;
+
+import static mb.nabl2.terms.build.TermBuild.B;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Test;
+import org.spoofax.interpreter.terms.IStrategoTerm;
+import org.spoofax.interpreter.terms.ITermFactory;
+import org.spoofax.terms.TermFactory;
+
+import mb.nabl2.terms.IApplTerm;
+import mb.nabl2.terms.ITerm;
+
+public class LazyStrategoTermsTest {
+
+    private final ITermFactory factory = new TermFactory();
+    private final StrategoTerms strategoTerms = new StrategoTerms(factory);
+
+    private IStrategoTerm program() {
+        // @formatter:off
+        return factory.makeAppl("Program",
+            factory.makeList(
+                factory.makeAppl("Var", factory.makeString("x")),
+                factory.makeTuple(factory.makeInt(1), factory.makeString("y"))
+            ),
+            factory.makeAppl("None")
+        );
+        // @formatter:on
+    }
+
+    @Test public void testEqualToEagerConversion() {
+        final IStrategoTerm sterm = program();
+        final ITerm lazy = StrategoTerms.fromStrategoLazy(sterm);
+        final ITerm eager = strategoTerms.fromStratego(sterm);
+        assertEquals(eager, lazy);
+        assertEquals(lazy, eager);
+        assertEquals(eager.hashCode(), lazy.hashCode());
+        assertTrue(lazy.isGround());
+    }
+
+    @Test public void testArgumentsConvertedOnce() {
+        final IApplTerm lazy = (IApplTerm) StrategoTerms.fromStrategoLazy(program());
+        assertSame(lazy.getArgs().get(1), lazy.getArgs().get(1));
+        assertEquals(B.newAppl("None"), lazy.getArgs().get(1));
+    }
+
+    @Test public void testToStrategoReturnsOriginal() {
+        final IStrategoTerm sterm = program();
+        assertSame(sterm, strategoTerms.toStratego(StrategoTerms.fromStrategoLazy(sterm)));
+    }
+
+    @Test public void testSerializeAsRegularTerm() throws Exception {
+        final IStrategoTerm sterm = program();
+        final ITerm lazy = StrategoTerms.fromStrategoLazy(sterm);
+        final ITerm copy = deserialize(serialize(lazy));
+        assertEquals(strategoTerms.fromStratego(sterm), copy);
+    }
+
+    private static byte[] serialize(Object obj) throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try(final ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+            oos.writeObject(obj);
+        }
+        return bos.toByteArray();
+    }
+
+    private static ITerm deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try(final ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (ITerm) ois.readObject();
+        }
+    }
+
+}
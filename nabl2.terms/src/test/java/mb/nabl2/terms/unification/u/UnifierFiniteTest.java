@@ -396,4 +396,15 @@ public class UnifierFiniteTest {
         assertEquals("`f`(g(`f`(?c)))", phi.toString(a, stf));
     }
 
+    @Test(timeout = 10000) public void testFindRepCompressesChain() throws OccursException {
+        IUnifier.Immutable phi = PersistentUnifier.Immutable.of(true, Map.Immutable.of(a, b, b, c),
+                Map.Immutable.of(), Map.Immutable.of(c, x));
+        assertEquals(c, phi.findRep(a));
+        assertEquals(c, phi.findRep(a));
+        assertEquals(c, phi.findRep(b));
+        assertEquals(c, phi.findRep(c));
+        assertEquals(x, phi.findTerm(a));
+        assertEquals(CapsuleUtil.immutableSet(a, b, c), phi.domainSet());
+    }
+
 }
@@ -45,6 +45,43 @@ dependencies {
   // !! Update dependencies in pom.xml as well
 }
 
+// Classes that require Java 21, such as the virtual thread scheduler, are compiled into the versioned part of a
+// multi-release jar, replacing their Java 8 fallbacks. They are only built when building with Java 21 or later. Tests
+// run against the class directories, which do not contain the versioned classes, so the tests that use them run a
+// second time with the versioned classes first on the classpath.
+if(JavaVersion.current().isCompatibleWith(JavaVersion.VERSION_21)) {
+  val java21 by sourceSets.creating {
+    java.srcDir("src/main/java21")
+    compileClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath
+  }
+  tasks.named<JavaCompile>(java21.compileJavaTaskName) {
+    options.release.set(21)
+  }
+  val testJava21 = tasks.register<Test>("testJava21") {
+    description = "Runs the virtual thread tests against the Java 21 classes."
+    group = "verification"
+    useJUnitPlatform()
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = java21.output + sourceSets.test.get().runtimeClasspath
+    filter {
+      includeTestsMatching("mb.p_raffrayi.actors.VirtualThreadSchedulerTest")
+      includeTestsMatching("mb.p_raffrayi.PRaffrayiTest")
+    }
+    systemProperty("p_raffrayi.requireVirtualThreads", "true")
+  }
+  tasks.check {
+    dependsOn(testJava21)
+  }
+  tasks.jar {
+    into("META-INF/versions/21") {
+      from(java21.output)
+    }
+    manifest {
+      attributes("Multi-Release" to "true")
+    }
+  }
+}
+
 // Copy test resources into classes directory, to make them accessible as classloader resources at runtime.
 val copyTestResourcesTask = tasks.create<Copy>("copyTestResources") {
   from("$projectDir/src/test/resources")
@@ -13,6 +13,36 @@ public abstract class APRaffrayiSettings {
 
     @Value.Parameter public abstract boolean confirmation();
 
+    /**
+     * How units take part in deadlock detection.
+     */
+    @Value.Default public DeadlockDetection deadlockDetection() {
+        return DeadlockDetection.IMMEDIATE;
+    }
+
+    /**
+     * Time a unit must stay idle before it starts a deadlock detection round. Only used for
+     * {@link DeadlockDetection#BATCHED} detection.
+     */
+    @Value.Default public long deadlockGracePeriodMillis() {
+        return 20;
+    }
+
+    /**
+     * Whether units cache the answers to queries they receive from other units, and reuse them for equal queries that
+     * only differ in the path leading up to the queried scope.
+     */
+    @Value.Default public boolean cacheQueryAnswers() {
+        return false;
+    }
+
+    /**
+     * Scheduler that runs the units.
+     */
+    @Value.Default public Scheduler scheduler() {
+        return Scheduler.WORK_STEALING;
+    }
+
     public boolean isIncremental() {
         return incrementalDeadlock() || scopeGraphDiff();
     }
@@ -29,4 +59,33 @@ public abstract class APRaffrayiSettings {
         return PRaffrayiSettings.of(true, true, true, true);
     }
 
+    public enum Scheduler {
+        /**
+         * Run every unit activation as a separate task in a fork-join pool.
+         */
+        WORK_STEALING,
+        /**
+         * Keep a run queue per worker, queue units on the worker that ran them last, and limit the number of messages a
+         * unit processes before giving way to other units.
+         */
+        AFFINITY,
+        /**
+         * Run every unit activation on a virtual thread. Requires Java 21 or later, and falls back to
+         * {@link #WORK_STEALING} on older Java versions.
+         */
+        VIRTUAL_THREADS
+    }
+
+    public enum DeadlockDetection {
+        /**
+         * Start a detection round as soon as a unit becomes idle, and send every probe as a separate message.
+         */
+        IMMEDIATE,
+        /**
+         * Start a detection round only after a unit stayed idle for the grace period, and send the probes of a unit
+         * activation in one message per receiving unit.
+         */
+        BATCHED
+    }
+
 }
@@ -2,9 +2,11 @@ package mb.p_raffrayi;
 
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 import javax.annotation.Nullable;
 
+import org.metaborg.util.future.CompletableFuture;
 import org.metaborg.util.future.IFuture;
 import org.metaborg.util.unit.Unit;
 
@@ -115,6 +117,21 @@ public interface ITypeCheckerContext<S, L, D> {
             DataWf<S, L, D> dataWF, DataLeq<S, L, D> dataEquiv, DataWf<S, L, D> dataWfInternal,
             DataLeq<S, L, D> dataEquivInternal);
 
+    /**
+     * Run a computation in parallel with the type checker. The result is delivered on the thread of the type checker,
+     * so continuations of the returned future may use the context as usual.
+     *
+     * The computation itself runs on another thread, and must not use the context, or refer to mutable state of the
+     * type checker. The default implementation runs the computation immediately.
+     */
+    default <T> IFuture<T> compute(Callable<? extends T> computation) {
+        try {
+            return CompletableFuture.completedFuture(computation.call());
+        } catch(Exception ex) {
+            return CompletableFuture.completedExceptionally(ex);
+        }
+    }
+
     default ITypeCheckerContext<S, L, D> subContext(String subId) {
         final ITypeCheckerContext<S, L, D> outer = this;
         return new ITypeCheckerContext<S, L, D>() {
@@ -176,6 +193,10 @@ public interface ITypeCheckerContext<S, L, D> {
                 return outer.query(scope, labelWF, labelOrder, dataWF, dataEquiv, null, null);
             }
 
+            @Override public <T> IFuture<T> compute(Callable<? extends T> computation) {
+                return outer.compute(computation);
+            }
+
         };
     }
 
@@ -0,0 +1,41 @@
+package mb.p_raffrayi.actors;
+
+/**
+ * Receives measurements from the actors in an actor system. Measurements are reported on the thread of the actor they
+ * are about, so calls for the same actor are never concurrent, but calls for different actors are. Implementations run
+ * as part of message processing, and should be cheap.
+ */
+public interface IActorMetricsSink {
+
+    /**
+     * Actor processed a message.
+     * 
+     * @param actor
+     *            Id of the receiving actor.
+     * @param method
+     *            Method of the message, or the name of an internal message, such as {@code _return}.
+     * @param queueDepth
+     *            Number of messages that were pending when the message was received.
+     * @param queueNanos
+     *            Time between receiving the message and starting to process it.
+     * @param processNanos
+     *            Time spent processing the message.
+     */
+    void processed(String actor, String method, int queueDepth, long queueNanos, long processNanos);
+
+    /**
+     * Actor suspended, because it had no more messages to process.
+     */
+    void suspended(String actor);
+
+    /**
+     * Actor resumed after it was suspended.
+     */
+    void resumed(String actor);
+
+    /**
+     * Actor was activated by a different scheduler worker than the one that scheduled it.
+     */
+    void stolen(String actor);
+
+}
@@ -0,0 +1,23 @@
+package mb.p_raffrayi.actors;
+
+import org.metaborg.util.functions.Action1;
+import org.metaborg.util.functions.Function1;
+import org.metaborg.util.future.IFuture;
+
+/**
+ * Interface through which an async stub sends messages to the underlying actor. Stubs implement the actor interface by
+ * passing every call as an invocation on the actor implementation, which is executed on the actor thread.
+ */
+public interface IAsyncInvoker<T> {
+
+    /**
+     * Send a message without a result.
+     */
+    void send(String method, Action1<T> invocation);
+
+    /**
+     * Send a message, and get a future for the result, which is completed on the thread of the sender.
+     */
+    <R> IFuture<R> ask(String method, Function1<T, IFuture<R>> invocation);
+
+}
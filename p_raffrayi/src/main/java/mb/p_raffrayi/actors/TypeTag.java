@@ -1,19 +1,36 @@
 package mb.p_raffrayi.actors;
 
+import javax.annotation.Nullable;
+
+import org.metaborg.util.functions.Function1;
+
 public class TypeTag<T> {
 
     private final Class<? super T> type;
+    private final @Nullable Function1<IAsyncInvoker<T>, ? extends T> stubFactory;
 
-    private TypeTag(Class<? super T> type) {
+    private TypeTag(Class<? super T> type, @Nullable Function1<IAsyncInvoker<T>, ? extends T> stubFactory) {
         this.type = type;
+        this.stubFactory = stubFactory;
     }
 
     public Class<?> type() {
         return type;
     }
 
+    /**
+     * Factory for async stubs of the actor interface. If absent, async interfaces are created reflectively.
+     */
+    public @Nullable Function1<IAsyncInvoker<T>, ? extends T> stubFactory() {
+        return stubFactory;
+    }
+
     public static <T> TypeTag<T> of(Class<? super T> type) {
-        return new TypeTag<>(type);
+        return new TypeTag<>(type, null);
+    }
+
+    public static <T> TypeTag<T> of(Class<? super T> type, Function1<IAsyncInvoker<T>, ? extends T> stubFactory) {
+        return new TypeTag<>(type, stubFactory);
     }
 
-}
\ No newline at end of file
+}
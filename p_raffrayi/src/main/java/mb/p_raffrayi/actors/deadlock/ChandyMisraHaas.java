@@ -50,6 +50,10 @@ public class ChandyMisraHaas<P> {
         this.wait = SetMultimap.Transient.of();
     }
 
+    public boolean isIdle() {
+        return state.equals(State.IDLE);
+    }
+
     /**
      * Initiate query computation on becoming idle.
      */
@@ -0,0 +1,76 @@
+package mb.p_raffrayi.actors.deadlock;
+
+import java.util.Set;
+
+/**
+ * A query or reply message of {@link ChandyMisraHaas}, so that several probes can be sent to a host at once.
+ */
+public abstract class DeadlockProbe<P> {
+
+    private DeadlockProbe() {
+    }
+
+    /**
+     * Deliver this probe to the given receiving host.
+     */
+    public abstract void dispatch(ChandyMisraHaas<P> cmh);
+
+    /**
+     * Query for idle host P_i, with sequence number m, sent by host P_j.
+     */
+    public static <P> DeadlockProbe<P> query(P i, int m, P j) {
+        return new Query<>(i, m, j);
+    }
+
+    /**
+     * Reply for idle host P_i, with sequence number m, and replying hosts R.
+     */
+    public static <P> DeadlockProbe<P> reply(P i, int m, Set<P> R) {
+        return new Reply<>(i, m, R);
+    }
+
+    private static final class Query<P> extends DeadlockProbe<P> {
+
+        private final P i;
+        private final int m;
+        private final P j;
+
+        private Query(P i, int m, P j) {
+            this.i = i;
+            this.m = m;
+            this.j = j;
+        }
+
+        @Override public void dispatch(ChandyMisraHaas<P> cmh) {
+            cmh.query(i, m, j);
+        }
+
+        @Override public String toString() {
+            return "query(" + i + ", " + m + ", " + j + ")";
+        }
+
+    }
+
+    private static final class Reply<P> extends DeadlockProbe<P> {
+
+        private final P i;
+        private final int m;
+        private final Set<P> R;
+
+        private Reply(P i, int m, Set<P> R) {
+            this.i = i;
+            this.m = m;
+            this.R = R;
+        }
+
+        @Override public void dispatch(ChandyMisraHaas<P> cmh) {
+            cmh.reply(i, m, R);
+        }
+
+        @Override public String toString() {
+            return "reply(" + i + ", " + m + ", " + R + ")";
+        }
+
+    }
+
+}
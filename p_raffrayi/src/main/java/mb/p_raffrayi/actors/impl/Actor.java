@@ -7,12 +7,14 @@ import java.util.Deque;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import javax.annotation.Nullable;
 
+import org.metaborg.util.functions.Action1;
 import org.metaborg.util.functions.Action2;
 import org.metaborg.util.functions.Function0;
 import org.metaborg.util.functions.Function1;
@@ -26,9 +28,11 @@ import org.metaborg.util.log.LoggerUtils;
 import com.google.common.collect.ImmutableList;
 
 import mb.p_raffrayi.actors.IActor;
+import mb.p_raffrayi.actors.IActorMetricsSink;
 import mb.p_raffrayi.actors.IActorMonitor;
 import mb.p_raffrayi.actors.IActorRef;
 import mb.p_raffrayi.actors.IActorStats;
+import mb.p_raffrayi.actors.IAsyncInvoker;
 import mb.p_raffrayi.actors.TypeTag;
 
 class Actor<T> implements IActorImpl<T>, Runnable {
@@ -67,6 +71,10 @@ class Actor<T> implements IActorImpl<T>, Runnable {
 
     private Stats stats = new Stats();
 
+    private final @Nullable IActorMetricsSink metrics;
+    private volatile @Nullable Thread scheduledBy = null;
+    private volatile int lastWorker = -1;
+
     Actor(IActorContext context, IActorInternal<?> parent, String id, TypeTag<T> type) {
         this.context = context;
         this.id = id;
@@ -80,12 +88,25 @@ class Actor<T> implements IActorImpl<T>, Runnable {
         this.state = ActorState.INITIAL;
         this.priority = new AtomicInteger(0);
         this.messages = new ConcurrentLinkedDeque<>();
+
+        this.metrics = context.metrics();
     }
 
     @Override public String id() {
         return id;
     }
 
+    /**
+     * Index of the scheduler worker that ran this actor last, or -1 if unknown. Used by schedulers with affinity.
+     */
+    int lastWorker() {
+        return lastWorker;
+    }
+
+    void setLastWorker(int worker) {
+        this.lastWorker = worker;
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // Run -- main loop
     ///////////////////////////////////////////////////////////////////////////
@@ -96,6 +117,13 @@ class Actor<T> implements IActorImpl<T>, Runnable {
 
             scheduledTask.set(null);
 
+            if(metrics != null) {
+                final Thread scheduler = scheduledBy;
+                if(scheduler instanceof ForkJoinWorkerThread && scheduler != Thread.currentThread()) {
+                    metrics.stolen(id);
+                }
+            }
+
             int startPriority = this.priority.get();
             stats.maxPendingMessagesOnActivate = Math.max(stats.maxPendingMessagesOnActivate, startPriority);
 
@@ -115,7 +143,7 @@ class Actor<T> implements IActorImpl<T>, Runnable {
 
                     if(!messages.isEmpty() && context.scheduler().preempt(priority.get())) {
                         finalizeThread();
-                        context.scheduler().schedule(this, priority.get(), scheduledTask);
+                        schedule();
                         return;
                     }
 
@@ -124,6 +152,9 @@ class Actor<T> implements IActorImpl<T>, Runnable {
                     if(state.equals(ActorState.RUNNING)) {
                         logger.debug("suspend");
                         stats.suspended += 1;
+                        if(metrics != null) {
+                            metrics.suspended(id);
+                        }
 
                         state = ActorState.WAITING;
                         try {
@@ -170,10 +201,17 @@ class Actor<T> implements IActorImpl<T>, Runnable {
         thread = null;
     }
 
+    private void schedule() {
+        if(metrics != null) {
+            scheduledBy = Thread.currentThread();
+        }
+        context.scheduler().schedule(this, priority.get(), scheduledTask);
+    }
+
     private void scheduleIfNotRunning() {
         if(running.compareAndSet(false, true)) {
             logger.debug("resume {}", this);
-            context.scheduler().schedule(this, priority.get(), scheduledTask);
+            schedule();
         } else {
             final Runnable oldTask = scheduledTask.getAndSet(null);
             if(oldTask != null) {
@@ -202,9 +240,37 @@ class Actor<T> implements IActorImpl<T>, Runnable {
 
     }
 
-    private void put(Message message) {
-        priority.incrementAndGet();
-        messages.add(message);
+    /**
+     * Message that reports its queueing and processing time to the metrics sink.
+     */
+    private class MeasuredMessage implements Message {
+
+        private final String method;
+        private final Message message;
+        private final int queueDepth;
+        private final long receivedNanos;
+
+        private MeasuredMessage(String method, Message message, int queueDepth) {
+            this.method = method;
+            this.message = message;
+            this.queueDepth = queueDepth;
+            this.receivedNanos = System.nanoTime();
+        }
+
+        @Override public void dispatch() throws ActorException {
+            final long startNanos = System.nanoTime();
+            try {
+                message.dispatch();
+            } finally {
+                metrics.processed(id, method, queueDepth, startNanos - receivedNanos, System.nanoTime() - startNanos);
+            }
+        }
+
+    }
+
+    private void put(String method, Message message) {
+        final int queueDepth = priority.getAndIncrement();
+        messages.add(metrics != null ? new MeasuredMessage(method, message, queueDepth) : message);
         scheduleIfNotRunning();
     }
 
@@ -213,7 +279,7 @@ class Actor<T> implements IActorImpl<T>, Runnable {
     ///////////////////////////////////////////////////////////////////////////
 
     @Override public void _start(IActorInternal<?> sender, Function1<IActor<T>, ? extends T> supplier) {
-        put(() -> doStart(sender, supplier));
+        put("_start", () -> doStart(sender, supplier));
     }
 
     private volatile T dynamicAsync;
@@ -232,6 +298,10 @@ class Actor<T> implements IActorImpl<T>, Runnable {
     }
 
     @SuppressWarnings({ "unchecked" }) private T newAsync(Function0<IActorInternal<?>> senderGetter) {
+        final Function1<IAsyncInvoker<T>, ? extends T> stubFactory = type.stubFactory();
+        if(stubFactory != null) {
+            return stubFactory.apply(new AsyncInvoker(senderGetter));
+        }
         return (T) Proxy.newProxyInstance(this.type.type().getClassLoader(), new Class[] { this.type.type() },
                 (proxy, method, args) -> {
                     // WARNING This runs on the sender's thread!
@@ -253,7 +323,7 @@ class Actor<T> implements IActorImpl<T>, Runnable {
                     if(Void.TYPE.isAssignableFrom(returnType)) {
                         final Method method1 = method;
                         final Object[] args1 = args;
-                        put(() -> {
+                        put(method1.getName(), () -> {
                             doInvoke(sender, method1, args1, (Action2<Object, Throwable>) null);
                         });
                         returnValue = null;
@@ -262,9 +332,8 @@ class Actor<T> implements IActorImpl<T>, Runnable {
                         final Method method1 = method;
                         final Object[] args1 = args;
                         final Action2<Object, Throwable> _return =
-                                (r, ex) -> sender._return(this, method, result, r, ex);
-                        ;
-                        put(() -> {
+                                (r, ex) -> sender._return(this, method1.getName(), result, r, ex);
+                        put(method1.getName(), () -> {
                             doInvoke((IActorInternal<?>) sender, method1, args1, _return);
                         });
                         returnValue = result;
@@ -277,19 +346,47 @@ class Actor<T> implements IActorImpl<T>, Runnable {
                 });
     }
 
-    @Override public void _return(IActorInternal<?> sender, Method method,
+    private class AsyncInvoker implements IAsyncInvoker<T> {
+
+        private final Function0<IActorInternal<?>> senderGetter;
+
+        private AsyncInvoker(Function0<IActorInternal<?>> senderGetter) {
+            this.senderGetter = senderGetter;
+        }
+
+        // WARNING These run on the sender's thread!
+
+        @Override public void send(String method, Action1<T> invocation) {
+            final IActorInternal<?> sender = senderGetter.apply();
+            put(method, () -> doSend(sender, method, invocation));
+        }
+
+        @Override public <R> IFuture<R> ask(String method, Function1<T, IFuture<R>> invocation) {
+            final IActorInternal<?> sender = senderGetter.apply();
+            final ICompletableFuture<R> result = new CompletableFuture<>();
+            put(method, () -> doAsk(sender, method, invocation, result));
+            return result;
+        }
+
+        @Override public String toString() {
+            return Actor.this.toString();
+        }
+
+    }
+
+    @Override public void _return(IActorInternal<?> sender, String method,
             @SuppressWarnings("rawtypes") ICompletable result, Object value, Throwable ex) {
-        put(() -> doReturn(sender, method, result, value, ex));
+        put(metrics != null ? "_return:" + method : method, () -> doReturn(sender, method, result, value, ex));
     }
 
     @Override public void _stop(IActorInternal<?> sender, Throwable ex) {
         logger.debug("{} recieved _stop from {}", this, sender);
-        put(() -> doStop(ex));
+        put("_stop", () -> doStop(ex));
     }
 
     @Override public void _childStopped(IActorInternal<?> sender, Throwable ex) {
         logger.debug("{} recieved _childStopped from {}", this, sender);
-        put(() -> doChildStopped(sender, ex));
+        put("_childStopped", () -> doChildStopped(sender, ex));
     }
 
 
@@ -357,13 +454,59 @@ class Actor<T> implements IActorImpl<T>, Runnable {
         }
     }
 
-    @SuppressWarnings({ "rawtypes", "unchecked" }) private void doReturn(final IActorInternal<?> sender, Method method,
+    private void doSend(final IActorInternal<?> sender, final String method, Action1<T> invocation)
+            throws ActorException {
+        assertOnActorThread();
+
+        updateStateOnReceive(sender);
+
+        logger.debug("{} invoke {} from {}", this, method, sender);
+
+        try {
+            try {
+                Actor.sender.set(sender);
+                invocation.apply(impl);
+            } finally {
+                Actor.sender.remove();
+            }
+        } catch(Throwable ex) {
+            throw new ActorException("Dispatch failed.", ex);
+        }
+    }
+
+    private <R> void doAsk(final IActorInternal<?> sender, final String method,
+            Function1<T, IFuture<R>> invocation, ICompletable<R> result) throws ActorException {
+        assertOnActorThread();
+
+        updateStateOnReceive(sender);
+
+        logger.debug("{} invoke {} from {}", this, method, sender);
+
+        try {
+            final IFuture<R> returnValue;
+            try {
+                Actor.sender.set(sender);
+                returnValue = invocation.apply(impl);
+            } finally {
+                Actor.sender.remove();
+            }
+            if(returnValue == null) {
+                sender._return(this, method, result, null, new NullPointerException());
+            } else {
+                returnValue.whenComplete((r, ex) -> sender._return(this, method, result, r, ex));
+            }
+        } catch(Throwable ex) {
+            throw new ActorException("Dispatch failed.", ex);
+        }
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" }) private void doReturn(final IActorInternal<?> sender, String method,
             ICompletable completable, Object value, Throwable ex) throws ActorException {
         assertOnActorThread();
 
         updateStateOnReceive(sender);
 
-        logger.debug("{} return {} from {}", this, method.getName(), sender);
+        logger.debug("{} return {} from {}", this, method, sender);
 
         try {
             try {
@@ -385,6 +528,9 @@ class Actor<T> implements IActorImpl<T>, Runnable {
                 break;
             case WAITING:
                 state = ActorState.RUNNING;
+                if(metrics != null) {
+                    metrics.resumed(id);
+                }
                 try {
                     if(monitor != null) {
                         monitor.resumed();
@@ -512,12 +658,12 @@ class Actor<T> implements IActorImpl<T>, Runnable {
 
     @Override public <U> IFuture<U> schedule(IFuture<U> future) {
         final ICompletableFuture<U> scheduled = new CompletableFuture<>();
-        future.whenComplete((r, ex) -> put(() -> scheduled.complete(r, ex)));
+        future.whenComplete((r, ex) -> put("_schedule", () -> scheduled.complete(r, ex)));
         return scheduled;
     }
 
     @Override public <U> void complete(ICompletable<U> completable, U result, Throwable ex) {
-        put(() -> completable.complete(result, ex));
+        put("_complete", () -> completable.complete(result, ex));
     }
 
     @Override public IActorRef<?> sender() {
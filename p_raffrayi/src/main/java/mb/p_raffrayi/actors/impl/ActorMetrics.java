@@ -0,0 +1,230 @@
+package mb.p_raffrayi.actors.impl;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import mb.p_raffrayi.actors.IActorMetricsSink;
+
+/**
+ * Metrics sink that aggregates measurements per actor and per message method, and can write them as CSV or JSON.
+ *
+ * Every actor only updates its own entries, so updates do not need synchronization. Dumps taken while the actor system
+ * is running may therefore be slightly out of date, but dumps taken after the system stopped are exact.
+ */
+public class ActorMetrics implements IActorMetricsSink {
+
+    /**
+     * Queue depths are counted in power-of-two buckets: bucket 0 counts depth 0, and bucket {@code i > 0} counts depths
+     * in {@code [2^(i-1), 2^i)}. The last bucket counts all larger depths.
+     */
+    public static final int QUEUE_DEPTH_BUCKETS = 16;
+
+    private static final String ALL_METHODS = "*";
+
+    private final Map<String, ActorEntry> actors = new ConcurrentHashMap<>();
+
+    private ActorEntry actor(String actor) {
+        return actors.computeIfAbsent(actor, id -> new ActorEntry());
+    }
+
+    @Override public void processed(String actor, String method, int queueDepth, long queueNanos, long processNanos) {
+        final ActorEntry entry = actor(actor);
+        entry.all.add(queueDepth, queueNanos, processNanos);
+        entry.methods.computeIfAbsent(method, m -> new MethodEntry()).add(queueDepth, queueNanos, processNanos);
+    }
+
+    @Override public void suspended(String actor) {
+        actor(actor).suspended += 1;
+    }
+
+    @Override public void resumed(String actor) {
+        actor(actor).resumed += 1;
+    }
+
+    @Override public void stolen(String actor) {
+        actor(actor).stolen += 1;
+    }
+
+    public void clear() {
+        actors.clear();
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Output
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Write metrics as CSV, with a row per actor and method. The row with method {@code *} contains the totals for the
+     * actor, and is the only row with suspend, resume, and steal counts.
+     */
+    public void writeCsv(PrintStream out) {
+        final StringBuilder header = new StringBuilder(
+                "actor,method,messages,processNanos,maxProcessNanos,queueNanos,maxQueueNanos,suspended,resumed,stolen");
+        for(int i = 0; i < QUEUE_DEPTH_BUCKETS; i++) {
+            header.append(",queueDepth").append(bucketLowerBound(i));
+        }
+        out.println(header);
+        for(Entry<String, ActorEntry> actor : sorted(actors).entrySet()) {
+            final ActorEntry entry = actor.getValue();
+            writeCsvRow(out, actor.getKey(), ALL_METHODS, entry.all,
+                    entry.suspended + "," + entry.resumed + "," + entry.stolen);
+            for(Entry<String, MethodEntry> method : sorted(entry.methods).entrySet()) {
+                writeCsvRow(out, actor.getKey(), method.getKey(), method.getValue(), ",,");
+            }
+        }
+    }
+
+    private static void writeCsvRow(PrintStream out, String actor, String method, MethodEntry entry,
+            String actorColumns) {
+        final StringBuilder row = new StringBuilder();
+        row.append(csvCell(actor)).append(',').append(csvCell(method));
+        row.append(',').append(entry.messages);
+        row.append(',').append(entry.processNanos).append(',').append(entry.maxProcessNanos);
+        row.append(',').append(entry.queueNanos).append(',').append(entry.maxQueueNanos);
+        row.append(',').append(actorColumns);
+        for(long count : entry.queueDepths) {
+            row.append(',').append(count);
+        }
+        out.println(row);
+    }
+
+    private static String csvCell(String value) {
+        if(value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Write metrics as a JSON object, with an entry per actor, each containing the totals and the entries per method.
+     */
+    public void writeJson(PrintStream out) {
+        final StringBuilder json = new StringBuilder();
+        json.append("{\"queueDepthBuckets\":[");
+        for(int i = 0; i < QUEUE_DEPTH_BUCKETS; i++) {
+            json.append(i > 0 ? "," : "").append(bucketLowerBound(i));
+        }
+        json.append("],\"actors\":[");
+        boolean firstActor = true;
+        for(Entry<String, ActorEntry> actor : sorted(actors).entrySet()) {
+            final ActorEntry entry = actor.getValue();
+            json.append(firstActor ? "" : ",");
+            firstActor = false;
+            json.append("{\"id\":").append(jsonString(actor.getKey()));
+            json.append(",\"suspended\":").append(entry.suspended);
+            json.append(",\"resumed\":").append(entry.resumed);
+            json.append(",\"stolen\":").append(entry.stolen);
+            json.append(",\"total\":");
+            writeJsonMethod(json, entry.all);
+            json.append(",\"methods\":{");
+            boolean firstMethod = true;
+            for(Entry<String, MethodEntry> method : sorted(entry.methods).entrySet()) {
+                json.append(firstMethod ? "" : ",");
+                firstMethod = false;
+                json.append(jsonString(method.getKey())).append(':');
+                writeJsonMethod(json, method.getValue());
+            }
+            json.append("}}");
+        }
+        json.append("]}");
+        out.println(json);
+    }
+
+    private static void writeJsonMethod(StringBuilder json, MethodEntry entry) {
+        json.append("{\"messages\":").append(entry.messages);
+        json.append(",\"processNanos\":").append(entry.processNanos);
+        json.append(",\"maxProcessNanos\":").append(entry.maxProcessNanos);
+        json.append(",\"queueNanos\":").append(entry.queueNanos);
+        json.append(",\"maxQueueNanos\":").append(entry.maxQueueNanos);
+        json.append(",\"queueDepths\":[");
+        for(int i = 0; i < entry.queueDepths.length; i++) {
+            json.append(i > 0 ? "," : "").append(entry.queueDepths[i]);
+        }
+        json.append("]}");
+    }
+
+    private static String jsonString(String value) {
+        final StringBuilder sb = new StringBuilder("\"");
+        for(int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch(c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if(c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static <V> Map<String, V> sorted(Map<String, V> map) {
+        return new TreeMap<>(map);
+    }
+
+    static int bucket(int queueDepth) {
+        if(queueDepth <= 0) {
+            return 0;
+        }
+        return Math.min(32 - Integer.numberOfLeadingZeros(queueDepth), QUEUE_DEPTH_BUCKETS - 1);
+    }
+
+    private static int bucketLowerBound(int bucket) {
+        return bucket == 0 ? 0 : 1 << (bucket - 1);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Entries
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static class ActorEntry {
+
+        private final MethodEntry all = new MethodEntry();
+        private final Map<String, MethodEntry> methods = new ConcurrentHashMap<>();
+
+        private long suspended = 0;
+        private long resumed = 0;
+        private long stolen = 0;
+
+    }
+
+    private static class MethodEntry {
+
+        private long messages = 0;
+        private long processNanos = 0;
+        private long maxProcessNanos = 0;
+        private long queueNanos = 0;
+        private long maxQueueNanos = 0;
+        private final long[] queueDepths = new long[QUEUE_DEPTH_BUCKETS];
+
+        private void add(int queueDepth, long queueNanos, long processNanos) {
+            this.messages += 1;
+            this.processNanos += processNanos;
+            this.maxProcessNanos = Math.max(this.maxProcessNanos, processNanos);
+            this.queueNanos += queueNanos;
+            this.maxQueueNanos = Math.max(this.maxQueueNanos, queueNanos);
+            this.queueDepths[bucket(queueDepth)] += 1;
+        }
+
+    }
+
+}
@@ -1,10 +1,11 @@
 package mb.p_raffrayi.actors.impl;
 
-import java.lang.reflect.Method;
 import java.text.CharacterIterator;
 import java.text.StringCharacterIterator;
 import java.util.Set;
 
+import javax.annotation.Nullable;
+
 import org.metaborg.util.functions.Function1;
 import org.metaborg.util.future.CompletableFuture;
 import org.metaborg.util.future.ICompletable;
@@ -17,6 +18,7 @@ import org.metaborg.util.unit.Unit;
 import com.google.common.collect.Sets;
 
 import mb.p_raffrayi.actors.IActor;
+import mb.p_raffrayi.actors.IActorMetricsSink;
 import mb.p_raffrayi.actors.IActorRef;
 import mb.p_raffrayi.actors.IActorSystem;
 import mb.p_raffrayi.actors.TypeTag;
@@ -32,6 +34,7 @@ public class ActorSystem implements IActorSystem, IActorInternal<Void> {
     private final IActorScheduler scheduler;
     private volatile ActorSystemState state;
     private final IActorContext context;
+    private final @Nullable IActorMetricsSink metrics;
 
     private final ICompletableFuture<Unit> done;
 
@@ -45,10 +48,19 @@ public class ActorSystem implements IActorSystem, IActorInternal<Void> {
     }
 
     public ActorSystem(IActorScheduler scheduler) {
+        this(scheduler, null);
+    }
+
+    /**
+     * Create an actor system that reports measurements of its actors to the given metrics sink. Without a sink, no
+     * measurements are taken.
+     */
+    public ActorSystem(IActorScheduler scheduler, @Nullable IActorMetricsSink metrics) {
         this.children = Sets.newHashSet();
         this.scheduler = scheduler;
         this.state = ActorSystemState.RUNNING;
         this.context = new ActorContext();
+        this.metrics = metrics;
         this.done = new CompletableFuture<>();
 
         done.whenComplete((r, ex) -> {
@@ -109,6 +121,10 @@ public class ActorSystem implements IActorSystem, IActorInternal<Void> {
         return done;
     }
 
+    public @Nullable IActorMetricsSink metrics() {
+        return metrics;
+    }
+
     @Override public boolean running() {
         synchronized(lock) {
             return state.equals(ActorSystemState.RUNNING);
@@ -168,7 +184,7 @@ public class ActorSystem implements IActorSystem, IActorInternal<Void> {
     }
 
     @SuppressWarnings("unchecked") @Override public void _return(@SuppressWarnings("unused") IActorInternal<?> sender,
-            @SuppressWarnings("unused") Method method, @SuppressWarnings("rawtypes") ICompletable result, Object value,
+            @SuppressWarnings("unused") String method, @SuppressWarnings("rawtypes") ICompletable result, Object value,
             Throwable ex) {
         result.complete(value, ex);
     }
@@ -213,6 +229,10 @@ public class ActorSystem implements IActorSystem, IActorInternal<Void> {
             return scheduler;
         }
 
+        @Override public @Nullable IActorMetricsSink metrics() {
+            return metrics;
+        }
+
     }
 
     @Override public String toString() {
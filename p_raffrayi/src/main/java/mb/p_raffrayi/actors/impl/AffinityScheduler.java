@@ -0,0 +1,333 @@
+package mb.p_raffrayi.actors.impl;
+
+import java.util.Comparator;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+/**
+ * Scheduler with a run queue per worker thread, that keeps actors on the worker that ran them last.
+ *
+ * An actor is queued on the worker it last ran on, so its state is likely still in that worker's cache. Actors that
+ * have not run yet, and other tasks, are queued on the worker that schedules them, which keeps actors that message each
+ * other together. Workers take the task with the highest priority from their own queue, and steal from the queues of
+ * other workers when their own queue is empty.
+ *
+ * An actor that processed a batch of messages is preempted if other tasks are queued on its worker, so that a busy actor
+ * cannot starve the actors queued behind it. Within a batch, an actor is only preempted for a task with a much higher
+ * priority.
+ */
+public class AffinityScheduler implements IActorScheduler {
+
+    private static final ILogger logger = LoggerUtils.logger(AffinityScheduler.class);
+
+    private static final int DEFAULT_BATCH_SIZE = 64;
+    private static final int PREEMPT_FACTOR = 3;
+    private static final int RESCHEDULE_FACTOR = 7;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final Comparator<Task> TASK_ORDER =
+            Comparator.<Task>comparingInt(t -> -t.priority).thenComparingLong(t -> t.sequence);
+
+    private final int parallelism;
+    private final int batchSize;
+    private final Worker[] workers;
+    private final AtomicInteger nextWorker = new AtomicInteger();
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final AtomicInteger busyWorkers = new AtomicInteger();
+    private volatile boolean shutdown = false;
+
+    private final LongAdder activations = new LongAdder();
+    private final LongAdder steals = new LongAdder();
+    private final LongAdder preemptions = new LongAdder();
+
+    public AffinityScheduler(int parallelism) {
+        this(parallelism, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param batchSize
+     *            Number of messages an actor may process before it gives way to other queued tasks.
+     */
+    public AffinityScheduler(int parallelism, int batchSize) {
+        this.parallelism = parallelism;
+        this.batchSize = batchSize;
+        this.workers = new Worker[parallelism];
+        for(int i = 0; i < parallelism; i++) {
+            workers[i] = new Worker(i);
+        }
+        for(Worker worker : workers) {
+            worker.start();
+        }
+    }
+
+    @Override public int parallelism() {
+        return parallelism;
+    }
+
+    @Override public void schedule(Runnable runnable, int priority, AtomicReference<Runnable> taskRef) {
+        if(shutdown) {
+            throw new RejectedExecutionException("Scheduler is shut down.");
+        }
+        final Task task = new Task(runnable, priority, nextSequence.getAndIncrement());
+        if(!taskRef.compareAndSet(null, task)) {
+            logger.error("Actor {} already scheduled", runnable);
+            throw new IllegalStateException("Actor " + runnable + " already scheduled.");
+        }
+        final Worker worker = workerFor(runnable);
+        worker.queue.add(task);
+        // let an idle worker steal the task if its own worker is busy
+        if(!worker.wake()) {
+            wakeIdleWorker();
+        }
+    }
+
+    @Override public void reschedule(Runnable oldTask, int newPriority, AtomicReference<Runnable> taskRef) {
+        final Task task = (Task) oldTask;
+        if(task.priority * RESCHEDULE_FACTOR < newPriority) {
+            if(task.active.compareAndSet(true, false)) {
+                schedule(task.runnable, newPriority, taskRef);
+            }
+        }
+    }
+
+    @Override public boolean preempt(int priority) {
+        final Worker worker = currentWorker();
+        if(worker == null) {
+            return false;
+        }
+        worker.batch += 1;
+        final Task next = worker.queue.peek();
+        if(next == null) {
+            return false;
+        }
+        if(worker.batch < batchSize && priority * PREEMPT_FACTOR >= next.priority) {
+            return false;
+        }
+        preemptions.increment();
+        return true;
+    }
+
+    @Override public boolean isActive() {
+        if(busyWorkers.get() != 0) {
+            return true;
+        }
+        for(Worker worker : workers) {
+            if(!worker.queue.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override public void shutdown() {
+        shutdown = true;
+        for(Worker worker : workers) {
+            LockSupport.unpark(worker);
+        }
+        logger.debug("Scheduler stopped after {} activations, {} steals, and {} preemptions.", activations(), steals(),
+                preemptions());
+    }
+
+    @Override public void shutdownNow() {
+        shutdown();
+        for(Worker worker : workers) {
+            worker.interrupt();
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Statistics
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * The number of tasks that were run.
+     */
+    public long activations() {
+        return activations.sum();
+    }
+
+    /**
+     * The number of tasks that were run by another worker than the one they were queued on.
+     */
+    public long steals() {
+        return steals.sum();
+    }
+
+    /**
+     * The number of times an actor was preempted to give way to other tasks.
+     */
+    public long preemptions() {
+        return preemptions.sum();
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Workers
+    ///////////////////////////////////////////////////////////////////////////
+
+    private Worker workerFor(Runnable runnable) {
+        if(runnable instanceof Actor) {
+            final int lastWorker = ((Actor<?>) runnable).lastWorker();
+            if(lastWorker >= 0) {
+                return workers[lastWorker];
+            }
+        }
+        final Worker current = currentWorker();
+        if(current != null) {
+            return current;
+        }
+        return workers[Math.floorMod(nextWorker.getAndIncrement(), parallelism)];
+    }
+
+    private Worker currentWorker() {
+        final Thread thread = Thread.currentThread();
+        if(thread instanceof Worker && ((Worker) thread).scheduler() == this) {
+            return (Worker) thread;
+        }
+        return null;
+    }
+
+    private void wakeIdleWorker() {
+        for(Worker worker : workers) {
+            if(worker.wake()) {
+                return;
+            }
+        }
+    }
+
+    private final class Worker extends Thread {
+
+        private final int index;
+        private final PriorityBlockingQueue<Task> queue;
+        private final AtomicBoolean parked;
+        private int batch;
+
+        private Worker(int index) {
+            super("PRaffrayiWorker-" + index);
+            this.index = index;
+            this.queue = new PriorityBlockingQueue<>(16, TASK_ORDER);
+            this.parked = new AtomicBoolean(false);
+            setDaemon(true);
+        }
+
+        private AffinityScheduler scheduler() {
+            return AffinityScheduler.this;
+        }
+
+        @Override public void run() {
+            while(!shutdown) {
+                busyWorkers.incrementAndGet();
+                try {
+                    Task task;
+                    if((task = queue.poll()) != null) {
+                        runTask(task, false);
+                        continue;
+                    }
+                    if((task = steal()) != null) {
+                        runTask(task, true);
+                        continue;
+                    }
+                } finally {
+                    busyWorkers.decrementAndGet();
+                }
+                idle();
+            }
+        }
+
+        private Task steal() {
+            final int start = ThreadLocalRandom.current().nextInt(parallelism);
+            for(int i = 0; i < parallelism; i++) {
+                final Worker victim = workers[(start + i) % parallelism];
+                final Task task;
+                if(victim != this && (task = victim.queue.poll()) != null) {
+                    return task;
+                }
+            }
+            return null;
+        }
+
+        private void runTask(Task task, boolean stolen) {
+            if(!task.active.compareAndSet(true, false)) {
+                return;
+            }
+            activations.increment();
+            if(stolen) {
+                steals.increment();
+            }
+            if(task.runnable instanceof Actor) {
+                ((Actor<?>) task.runnable).setLastWorker(index);
+            }
+            batch = 0;
+            try {
+                task.runnable.run();
+            } catch(Throwable ex) {
+                logger.error("Task {} failed.", ex, task.runnable);
+            }
+        }
+
+        /**
+         * Park until woken up by a newly scheduled task, or until the park timeout passes.
+         */
+        private void idle() {
+            parked.set(true);
+            // check again after announcing that we park, so that we cannot miss a task that was queued in between
+            if(!queue.isEmpty() || hasStealableTasks()) {
+                parked.set(false);
+                return;
+            }
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            parked.set(false);
+        }
+
+        private boolean hasStealableTasks() {
+            for(Worker worker : workers) {
+                if(!worker.queue.isEmpty()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean wake() {
+            if(parked.compareAndSet(true, false)) {
+                LockSupport.unpark(this);
+                return true;
+            }
+            return false;
+        }
+
+    }
+
+    private static class Task implements Runnable {
+
+        private final Runnable runnable;
+        private final int priority;
+        private final long sequence;
+        private final AtomicBoolean active;
+
+        Task(Runnable runnable, int priority, long sequence) {
+            this.runnable = runnable;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.active = new AtomicBoolean(true);
+        }
+
+        @Override public void run() {
+            if(active.compareAndSet(true, false)) {
+                runnable.run();
+            }
+        }
+
+    }
+
+}
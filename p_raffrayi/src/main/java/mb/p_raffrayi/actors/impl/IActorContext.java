@@ -1,5 +1,8 @@
 package mb.p_raffrayi.actors.impl;
 
+import javax.annotation.Nullable;
+
+import mb.p_raffrayi.actors.IActorMetricsSink;
 import mb.p_raffrayi.actors.IActorRef;
 import mb.p_raffrayi.actors.TypeTag;
 
@@ -11,4 +14,6 @@ interface IActorContext {
 
     IActorScheduler scheduler();
 
+    @Nullable IActorMetricsSink metrics();
+
 }
\ No newline at end of file
@@ -1,7 +1,5 @@
 package mb.p_raffrayi.actors.impl;
 
-import java.lang.reflect.Method;
-
 import org.metaborg.util.functions.Function1;
 import org.metaborg.util.future.ICompletable;
 
@@ -29,7 +27,7 @@ public interface IActorInternal<T> extends IActorRef<T> {
      */
     T _invokeStatic(IActorInternal<?> sender);
 
-    void _return(IActorInternal<?> sender, Method method, @SuppressWarnings("rawtypes") ICompletable result,
+    void _return(IActorInternal<?> sender, String method, @SuppressWarnings("rawtypes") ICompletable result,
             Object value, Throwable ex);
 
     /**
@@ -0,0 +1,24 @@
+package mb.p_raffrayi.actors.impl;
+
+import java.util.Optional;
+
+/**
+ * Scheduler that runs actor activations on virtual threads.
+ *
+ * Virtual threads require Java 21. This class is the fallback for older Java versions, and never creates a scheduler.
+ * The multi-release jar contains the actual implementation, which is used when running on Java 21 or later.
+ */
+public final class VirtualThreadScheduler {
+
+    private VirtualThreadScheduler() {
+    }
+
+    /**
+     * Create a virtual thread scheduler with the given parallelism, if virtual threads are available on this Java
+     * version.
+     */
+    public static Optional<IActorScheduler> create(@SuppressWarnings("unused") int parallelism) {
+        return Optional.empty();
+    }
+
+}
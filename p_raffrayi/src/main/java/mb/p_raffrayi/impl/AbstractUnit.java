@@ -8,7 +8,9 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -33,6 +35,7 @@ import org.metaborg.util.task.ICancel;
 import org.metaborg.util.tuple.Tuple2;
 import org.metaborg.util.unit.Unit;
 
+import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
@@ -41,6 +44,7 @@ import com.google.common.collect.Multimap;
 import com.google.common.collect.Streams;
 
 import io.usethesource.capsule.Set;
+import mb.p_raffrayi.APRaffrayiSettings.DeadlockDetection;
 import mb.p_raffrayi.DeadlockException;
 import mb.p_raffrayi.IRecordedQuery;
 import mb.p_raffrayi.ITypeCheckerContext;
@@ -55,6 +59,7 @@ import mb.p_raffrayi.actors.IActorStats;
 import mb.p_raffrayi.actors.TypeTag;
 import mb.p_raffrayi.actors.deadlock.ChandyMisraHaas;
 import mb.p_raffrayi.actors.deadlock.ChandyMisraHaas.Host;
+import mb.p_raffrayi.actors.deadlock.DeadlockProbe;
 import mb.p_raffrayi.impl.DeadlockUtils.GraphBuilder;
 import mb.p_raffrayi.impl.DeadlockUtils.IGraph;
 import mb.p_raffrayi.impl.diff.IDifferContext;
@@ -127,6 +132,9 @@ public abstract class AbstractUnit<S, L, D, R> implements IUnit<S, L, D, R>, IAc
 
     protected final java.util.Set<IRecordedQuery<S, L, D>> recordedQueries = new HashSet<>();
 
+    private final @Nullable Map<QueryKey<S, L, D>, CachedAnswer> queryAnswers;
+    private final Multimap<S, QueryKey<S, L, D>> queryAnswersByScope;
+
     protected TransitionTrace stateTransitionTrace = TransitionTrace.OTHER;
     protected final Stats stats;
 
@@ -139,6 +147,8 @@ public abstract class AbstractUnit<S, L, D, R> implements IUnit<S, L, D, R>, IAc
 
         this.cmh = new ChandyMisraHaas<>(this, this::handleDeadlock);
         this.process = new UnitProcess<>(self);
+        this.batchProbes = context.settings().deadlockDetection().equals(DeadlockDetection.BATCHED);
+        this.gracePeriodNanos = TimeUnit.MILLISECONDS.toNanos(context.settings().deadlockGracePeriodMillis());
 
         this.innerResult = false;
         this.analysis = new Ref<>();
@@ -155,6 +165,9 @@ public abstract class AbstractUnit<S, L, D, R> implements IUnit<S, L, D, R>, IAc
         this.scopeNameCounters = MultiSet.Transient.of();
         this.usedStableScopes = Set.Transient.of();
 
+        this.queryAnswers = context.settings().cacheQueryAnswers() ? new HashMap<>() : null;
+        this.queryAnswersByScope = HashMultimap.create();
+
         this.stats = new Stats(self.stats());
     }
 
@@ -198,7 +211,7 @@ public abstract class AbstractUnit<S, L, D, R> implements IUnit<S, L, D, R>, IAc
             DataLeq<S, L, D> dataEquiv) {
         // resume(); // FIXME necessary?
         stats.incomingQueries += 1;
-        return doQuery(self.sender(TYPE), origin, false, path, labelWF, labelOrder, dataWF, dataEquiv, null, null);
+        return doCachedQuery(self.sender(TYPE), origin, path, labelWF, labelOrder, dataWF, dataEquiv);
     }
 
     ///////////////////////////////////////////////////////////////////////////
@@ -442,6 +455,7 @@ public abstract class AbstractUnit<S, L, D, R> implements IUnit<S, L, D, R>, IAc
         assertLabelOpen(scope, edge);
 
         scopeGraph.set(scopeGraph.get().setDatum(scope, datum));
+        invalidateQueryAnswers(scope);
         doCloseLabel(self, scope, edge);
     }
 
@@ -481,6 +495,7 @@ public abstract class AbstractUnit<S, L, D, R> implements IUnit<S, L, D, R>, IAc
         assertLabelOpen(source, EdgeOrData.edge(label));
 
         scopeGraph.set(scopeGraph.get().addEdge(source, label, target));
+        invalidateQueryAnswers(source);
 
         if(!isOwner(source)) {
             self.async(parent)._addEdge(source, label, target);
@@ -491,6 +506,17 @@ public abstract class AbstractUnit<S, L, D, R> implements IUnit<S, L, D, R>, IAc
             IActorRef<? extends IUnit<S, L, D, ?>> origin, boolean record, ScopePath<S, L> path, LabelWf<L> labelWF,
             LabelOrder<L> labelOrder, DataWf<S, L, D> dataWF, DataLeq<S, L, D> dataEquiv,
             DataWf<S, L, D> dataWfInternal, DataLeq<S, L, D> dataEquivInternal) {
+        return doQuery(sender, origin, record, path, labelWF, labelOrder, dataWF, dataEquiv, dataWfInternal,
+                dataEquivInternal, null);
+    }
+
+    /**
+     * Resolve a query. If a cached answer is given, the scopes visited by the resolution are recorded in it.
+     */
+    private IFuture<IQueryAnswer<S, L, D>> doQuery(IActorRef<? extends IUnit<S, L, D, ?>> sender,
+            IActorRef<? extends IUnit<S, L, D, ?>> origin, boolean record, ScopePath<S, L> path, LabelWf<L> labelWF,
+            LabelOrder<L> labelOrder, DataWf<S, L, D> dataWF, DataLeq<S, L, D> dataEquiv,
+            DataWf<S, L, D> dataWfInternal, DataLeq<S, L, D> dataEquivInternal, @Nullable CachedAnswer trace) {
         final ILogger logger = LoggerUtils.logger(INameResolutionContext.class);
         logger.debug("got _query from {}", sender);
 
@@ -506,6 +532,9 @@ public abstract class AbstractUnit<S, L, D, R> implements IUnit<S, L, D, R>, IAc
                 final S scope = path.getTarget();
                 if(canAnswer(scope)) {
                     logger.debug("local env {}", scope);
+                    if(trace != null) {
+                        trace.visit(scope);
+                    }
                     return context.localEnv(path, re, cancel).thenApply(ans -> {
                         if(isQueryRecordingEnabled() && record && sharedScopes.contains(scope)) {
                             recordedQueries.add(RecordedQuery.of(path, datumScopes(ans), re, dataWF, ans));
@@ -514,6 +543,9 @@ public abstract class AbstractUnit<S, L, D, R> implements IUnit<S, L, D, R>, IAc
                         return ans;
                     });
                 } else {
+                    if(trace != null) {
+                        trace.local = false;
+                    }
                     return getOwner(scope).thenCompose(owner -> {
                         logger.debug("remote env {} at {}", scope, owner);
                         // this code mirrors query(...)
@@ -695,6 +727,175 @@ public abstract class AbstractUnit<S, L, D, R> implements IUnit<S, L, D, R>, IAc
         };
     }
 
+    ///////////////////////////////////////////////////////////////////////////
+    // Query answer cache
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Resolve a query from another unit. If query answers are cached, the answer to an earlier query for the same
+     * scope and parameters is reused.
+     *
+     * Cached answers are computed for a path that starts in the queried scope, and are extended with the path of each
+     * query that reuses them. This gives the same answer as resolving the query on its own path, if the resolution did
+     * not visit any of the scopes on that path, and never left this unit. Answers that include results from other units
+     * are not reused, since those may depend on scopes on the path this unit does not know about.
+     */
+    protected final IFuture<IQueryAnswer<S, L, D>> doCachedQuery(IActorRef<? extends IUnit<S, L, D, ?>> sender,
+            IActorRef<? extends IUnit<S, L, D, ?>> origin, ScopePath<S, L> path, LabelWf<L> labelWF,
+            LabelOrder<L> labelOrder, DataWf<S, L, D> dataWF, DataLeq<S, L, D> dataEquiv) {
+        if(queryAnswers == null) {
+            return doQuery(sender, origin, false, path, labelWF, labelOrder, dataWF, dataEquiv, null, null);
+        }
+
+        // recorded predicate queries depend on the origin, so answers are only shared between queries from the same
+        // origin when queries are recorded
+        final QueryKey<S, L, D> key = new QueryKey<>(path.getTarget(), labelWF, labelOrder, dataWF, dataEquiv,
+                isQueryRecordingEnabled() ? origin : null);
+        CachedAnswer cached = queryAnswers.get(key);
+        final boolean reused = cached != null;
+        if(cached == null) {
+            final CachedAnswer answer = new CachedAnswer(key);
+            queryAnswers.put(key, answer);
+            answer.answer = doQuery(sender, origin, false, new ScopePath<>(path.getTarget()), labelWF, labelOrder,
+                    dataWF, dataEquiv, null, null, answer);
+            answer.answer.whenComplete((ans, ex) -> {
+                if(ex != null) {
+                    removeCachedAnswer(answer);
+                }
+            });
+            cached = answer;
+        }
+
+        final CachedAnswer answer = cached;
+        return answer.answer.thenCompose(ans -> {
+            if(!answer.isReusableFor(path)) {
+                return doQuery(sender, origin, false, path, labelWF, labelOrder, dataWF, dataEquiv, null, null);
+            }
+            if(reused) {
+                stats.reusedQueryAnswers += 1;
+            }
+            return CompletableFuture.completedFuture(extendAnswer(path, ans));
+        });
+    }
+
+    private IQueryAnswer<S, L, D> extendAnswer(ScopePath<S, L> path, IQueryAnswer<S, L, D> answer) {
+        if(path.size() == 0) {
+            return answer;
+        }
+        final Env.Builder<S, L, D> env = Env.builder();
+        for(ResolutionPath<S, L, D> resPath : answer.env()) {
+            final ScopePath<S, L> fullPath = path.append(resPath.getPath()).orElseThrow(
+                    () -> new IllegalStateException("Cached answer " + resPath + " revisits a scope on " + path));
+            env.add(fullPath.resolve(resPath.getDatum()));
+        }
+        return QueryAnswer.of(env.build(), answer.transitiveQueries(), answer.predicateQueries());
+    }
+
+    /**
+     * Drop the cached answers that visited the given scope. Scopes are only visited after their edges and data are
+     * complete, so this only happens if the scope graph is patched.
+     */
+    private void invalidateQueryAnswers(S scope) {
+        if(queryAnswers == null) {
+            return;
+        }
+        for(QueryKey<S, L, D> key : queryAnswersByScope.removeAll(scope)) {
+            final CachedAnswer answer = queryAnswers.get(key);
+            if(answer != null && answer.scopes.contains(scope)) {
+                removeCachedAnswer(answer);
+            }
+        }
+    }
+
+    /**
+     * Drop all cached answers, for example after the scope graph was replaced.
+     */
+    protected final void clearQueryAnswers() {
+        if(queryAnswers == null) {
+            return;
+        }
+        queryAnswers.clear();
+        queryAnswersByScope.clear();
+    }
+
+    private void removeCachedAnswer(CachedAnswer answer) {
+        queryAnswers.remove(answer.key, answer);
+        for(S scope : answer.scopes) {
+            queryAnswersByScope.remove(scope, answer.key);
+        }
+    }
+
+    private final class CachedAnswer {
+
+        private final QueryKey<S, L, D> key;
+        private final java.util.Set<S> scopes = new HashSet<>();
+        private boolean local = true;
+        private IFuture<IQueryAnswer<S, L, D>> answer;
+
+        private CachedAnswer(QueryKey<S, L, D> key) {
+            this.key = key;
+        }
+
+        private void visit(S scope) {
+            if(scopes.add(scope)) {
+                queryAnswersByScope.put(scope, key);
+            }
+        }
+
+        private boolean isReusableFor(ScopePath<S, L> path) {
+            if(!local) {
+                return false;
+            }
+            for(S scope : path.scopeSet()) {
+                if(!scope.equals(path.getTarget()) && scopes.contains(scope)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
+    private static final class QueryKey<S, L, D> {
+
+        private final S scope;
+        private final LabelWf<L> labelWF;
+        private final LabelOrder<L> labelOrder;
+        private final DataWf<S, L, D> dataWF;
+        private final DataLeq<S, L, D> dataEquiv;
+        private final @Nullable IActorRef<? extends IUnit<S, L, D, ?>> origin;
+        private final int hashCode;
+
+        private QueryKey(S scope, LabelWf<L> labelWF, LabelOrder<L> labelOrder, DataWf<S, L, D> dataWF,
+                DataLeq<S, L, D> dataEquiv, @Nullable IActorRef<? extends IUnit<S, L, D, ?>> origin) {
+            this.scope = scope;
+            this.labelWF = labelWF;
+            this.labelOrder = labelOrder;
+            this.dataWF = dataWF;
+            this.dataEquiv = dataEquiv;
+            this.origin = origin;
+            this.hashCode = Objects.hash(scope, labelWF, labelOrder, dataWF, dataEquiv, origin);
+        }
+
+        @Override public boolean equals(Object obj) {
+            if(this == obj) {
+                return true;
+            }
+            if(obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            final QueryKey<?, ?, ?> other = (QueryKey<?, ?, ?>) obj;
+            return hashCode == other.hashCode && scope.equals(other.scope) && labelWF.equals(other.labelWF)
+                    && labelOrder.equals(other.labelOrder) && dataWF.equals(other.dataWF)
+                    && dataEquiv.equals(other.dataEquiv) && Objects.equals(origin, other.origin);
+        }
+
+        @Override public int hashCode() {
+            return hashCode;
+        }
+
+    }
+
     protected final IFuture<Env<S, L, D>> doQueryPrevious(IActorRef<? extends IUnit<S, L, D, ?>> sender,
             IScopeGraph.Immutable<S, L, D> scopeGraph, ScopePath<S, L> path, LabelWf<L> labelWF, DataWf<S, L, D> dataWF,
             LabelOrder<L> labelOrder, DataLeq<S, L, D> dataEquiv) {
@@ -731,6 +932,31 @@ public abstract class AbstractUnit<S, L, D, R> implements IUnit<S, L, D, R>, IAc
         return result;
     }
 
+    ///////////////////////////////////////////////////////////////////////////
+    // Parallel computations
+    ///////////////////////////////////////////////////////////////////////////
+
+    private int pendingComputations = 0;
+
+    /**
+     * Run a computation on the scheduler of the actor system, and deliver its result on the actor thread. The unit is
+     * not considered idle by the deadlock detection while computations are pending.
+     */
+    protected final <Q> IFuture<Q> doCompute(Callable<? extends Q> computation) {
+        pendingComputations += 1;
+        resume();
+        final ICompletableFuture<Q> result = new CompletableFuture<>();
+        self.schedule(context.compute(computation)).whenComplete((r, ex) -> {
+            self.assertOnActorThread();
+            pendingComputations -= 1;
+            result.complete(r, ex);
+            // scheduled completions do not suspend the actor, so the unit may become idle here
+            suspend();
+            tryFinish();
+        });
+        return result;
+    }
+
     protected boolean canAnswer(S scope) {
         return isOwner(scope);
     }
@@ -990,16 +1216,61 @@ public abstract class AbstractUnit<S, L, D, R> implements IUnit<S, L, D, R>, IAc
     // Deadlock handling
     ///////////////////////////////////////////////////////////////////////////
 
+    private final boolean batchProbes;
+    private final long gracePeriodNanos;
+    private final Map<IProcess<S, L, D>, List<DeadlockProbe<IProcess<S, L, D>>>> probes = new HashMap<>();
+    private long idleSinceNanos = -1;
+    private boolean wakeUpPending = false;
+
     protected void suspend() {
+        if(pendingComputations > 0) {
+            // the unit is still working, even if the actor has no messages
+            flushProbes();
+            return;
+        }
+        if(batchProbes && gracePeriodNanos > 0 && !cmh.isIdle()) {
+            // only start a detection round if the unit stays idle for the grace period
+            final long nowNanos = System.nanoTime();
+            if(idleSinceNanos < 0) {
+                idleSinceNanos = nowNanos;
+            }
+            final long remainingNanos = idleSinceNanos + gracePeriodNanos - nowNanos;
+            if(remainingNanos > 0) {
+                if(!wakeUpPending) {
+                    wakeUpPending = true;
+                    self.schedule(context.delay(TimeUnit.NANOSECONDS.toMillis(remainingNanos) + 1))
+                            .whenComplete((r, ex) -> {
+                                wakeUpPending = false;
+                                if(idleSinceNanos >= 0) {
+                                    suspend();
+                                }
+                            });
+                }
+                flushProbes();
+                return;
+            }
+        }
         if(cmh.idle()) {
         }
+        flushProbes();
     }
 
     protected void resume() {
+        idleSinceNanos = -1;
         if(cmh.exec()) {
         }
     }
 
+    private void flushProbes() {
+        if(probes.isEmpty()) {
+            return;
+        }
+        for(Map.Entry<IProcess<S, L, D>, List<DeadlockProbe<IProcess<S, L, D>>>> entry : probes.entrySet()) {
+            entry.getKey().from(self, context)._deadlockProbes(entry.getValue());
+        }
+        probes.clear();
+    }
+
     @Override public void _deadlockQuery(IProcess<S, L, D> i, int m, IProcess<S, L, D> k) {
         cmh.query(i, m, k);
     }
@@ -1008,6 +1279,12 @@ public abstract class AbstractUnit<S, L, D, R> implements IUnit<S, L, D, R>, IAc
         cmh.reply(i, m, R);
     }
 
+    @Override public void _deadlockProbes(List<DeadlockProbe<IProcess<S, L, D>>> probes) {
+        for(DeadlockProbe<IProcess<S, L, D>> probe : probes) {
+            probe.dispatch(cmh);
+        }
+    }
+
     @Override public void _deadlocked(java.util.Set<IProcess<S, L, D>> nodes) {
         self.assertOnActorThread();
         if(!nodes.contains(process)) {
@@ -1301,11 +1578,19 @@ public abstract class AbstractUnit<S, L, D, R> implements IUnit<S, L, D, R>, IAc
     }
 
     @Override public void query(IProcess<S, L, D> k, IProcess<S, L, D> i, int m) {
-        k.from(self, context)._deadlockQuery(i, m, process);
+        if(batchProbes) {
+            probes.computeIfAbsent(k, __ -> new ArrayList<>()).add(DeadlockProbe.query(i, m, process));
+        } else {
+            k.from(self, context)._deadlockQuery(i, m, process);
+        }
     }
 
     @Override public void reply(IProcess<S, L, D> k, IProcess<S, L, D> i, int m, java.util.Set<IProcess<S, L, D>> R) {
-        k.from(self, context)._deadlockReply(i, m, R);
+        if(batchProbes) {
+            probes.computeIfAbsent(k, __ -> new ArrayList<>()).add(DeadlockProbe.reply(i, m, R));
+        } else {
+            k.from(self, context)._deadlockReply(i, m, R);
+        }
     }
 
     ///////////////////////////////////////////////////////////////////////////
@@ -1448,6 +1733,7 @@ public abstract class AbstractUnit<S, L, D, R> implements IUnit<S, L, D, R>, IAc
         protected int incomingQueries;
         protected int outgoingQueries;
         protected int forwardedQueries;
+        protected int reusedQueryAnswers;
         protected int incomingConfirmations;
         protected long runtimeNanos;
         protected int dataWfChecks;
@@ -1467,6 +1753,7 @@ public abstract class AbstractUnit<S, L, D, R> implements IUnit<S, L, D, R>, IAc
                 "incomingQueries",
                 "outgoingQueries",
                 "forwardedQueries",
+                "reusedQueryAnswers",
                 "incomingConfirmations",
                 "dataWfChecks",
                 "dataLeqChecks"
@@ -1482,6 +1769,7 @@ public abstract class AbstractUnit<S, L, D, R> implements IUnit<S, L, D, R>, IAc
                 Integer.toString(incomingQueries),
                 Integer.toString(outgoingQueries),
                 Integer.toString(forwardedQueries),
+                Integer.toString(reusedQueryAnswers),
                 Integer.toString(incomingConfirmations),
                 Integer.toString(dataWfChecks),
                 Integer.toString(dataLeqChecks)
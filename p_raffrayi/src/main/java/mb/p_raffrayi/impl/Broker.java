@@ -6,7 +6,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Matcher;
@@ -26,6 +30,7 @@ import org.metaborg.util.task.ICancel;
 import org.metaborg.util.task.IProgress;
 import org.metaborg.util.task.NullProgress;
 import org.metaborg.util.tuple.Tuple2;
+import org.metaborg.util.unit.Unit;
 
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
@@ -39,11 +44,14 @@ import mb.p_raffrayi.ITypeChecker.IState;
 import mb.p_raffrayi.IUnitResult;
 import mb.p_raffrayi.PRaffrayiSettings;
 import mb.p_raffrayi.actors.IActor;
+import mb.p_raffrayi.actors.IActorMetricsSink;
 import mb.p_raffrayi.actors.IActorRef;
-import mb.p_raffrayi.actors.TypeTag;
 import mb.p_raffrayi.actors.deadlock.ChandyMisraHaas;
+import mb.p_raffrayi.actors.deadlock.DeadlockProbe;
 import mb.p_raffrayi.actors.impl.ActorSystem;
+import mb.p_raffrayi.actors.impl.AffinityScheduler;
 import mb.p_raffrayi.actors.impl.IActorScheduler;
+import mb.p_raffrayi.actors.impl.VirtualThreadScheduler;
 import mb.p_raffrayi.actors.impl.WonkyScheduler;
 import mb.p_raffrayi.actors.impl.WorkStealingScheduler;
 import mb.scopegraph.oopsla20.diff.BiMap;
@@ -67,6 +75,7 @@ public class Broker<S, L, D, R extends IOutput<S, L, D>, T extends IState<S, L,
 
     private final IActorScheduler scheduler;
     private final ActorSystem system;
+    private volatile @Nullable ScheduledExecutorService timer;
 
     private final Map<String, IActorRef<? extends IUnit<S, L, D, ?>>> units;
     private final AtomicInteger unfinishedUnits;
@@ -86,7 +95,7 @@ public class Broker<S, L, D, R extends IOutput<S, L, D>, T extends IState<S, L,
     private Broker(String id, PRaffrayiSettings settings, ITypeChecker<S, L, D, R, T> typeChecker,
             IScopeImpl<S, D> scopeImpl, Iterable<L> edgeLabels, boolean rootChanged,
             @Nullable IUnitResult<S, L, D, Result<S, L, D, R, T>> previousResult, ICancel cancel,
-            IProgress progress, IActorScheduler scheduler) {
+            IProgress progress, IActorScheduler scheduler, @Nullable IActorMetricsSink metrics) {
         this.id = id;
         this.settings = settings;
         this.typeChecker = typeChecker;
@@ -111,7 +120,7 @@ public class Broker<S, L, D, R extends IOutput<S, L, D>, T extends IState<S, L,
         this.progress = progress;
 
         this.scheduler = scheduler;
-        this.system = new ActorSystem(scheduler);
+        this.system = new ActorSystem(scheduler, metrics);
 
         this.units = new ConcurrentHashMap<>();
         this.unfinishedUnits = new AtomicInteger();
@@ -123,7 +132,7 @@ public class Broker<S, L, D, R extends IOutput<S, L, D>, T extends IState<S, L,
     }
 
     private IFuture<IUnitResult<S, L, D, Result<S, L, D, R, T>>> run() {
-        final IActor<IUnit<S, L, D, Result<S, L, D, R, T>>> unit = system.add(id, TypeTag.of(IUnit.class),
+        final IActor<IUnit<S, L, D, Result<S, L, D, R, T>>> unit = system.add(id, UnitStub.type(),
                 self -> new TypeCheckerUnit<S, L, D, R, T>(self, null, new UnitContext(self), typeChecker, edgeLabels,
                         previousResult == null || rootChanged, previousResult));
         addUnit(unit);
@@ -134,7 +143,10 @@ public class Broker<S, L, D, R extends IOutput<S, L, D>, T extends IState<S, L,
         final IFuture<IUnitResult<S, L, D, Result<S, L, D, R, T>>> runResult =
                 unitResult.compose((r, ex) -> {
                     finalizeUnit(unit, ex);
-                    return system.stop().compose((r2, ex2) -> CompletableFuture.completed(r, ex));
+                    return system.stop().compose((r2, ex2) -> {
+                        stopTimer();
+                        return CompletableFuture.completed(r, ex);
+                    });
                 });
 
         startWatcherThread();
@@ -192,6 +204,30 @@ public class Broker<S, L, D, R extends IOutput<S, L, D>, T extends IState<S, L,
         watcher.start();
     }
 
+    private ScheduledExecutorService timer() {
+        ScheduledExecutorService timer = this.timer;
+        if(timer == null) {
+            synchronized(lock) {
+                if((timer = this.timer) == null) {
+                    timer = Executors.newSingleThreadScheduledExecutor(r -> {
+                        final Thread thread = new Thread(r, "PRaffrayiTimer");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    this.timer = timer;
+                }
+            }
+        }
+        return timer;
+    }
+
+    private void stopTimer() {
+        final ScheduledExecutorService timer = this.timer;
+        if(timer != null) {
+            timer.shutdownNow();
+        }
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // Context
     ///////////////////////////////////////////////////////////////////////////
@@ -255,7 +291,7 @@ public class Broker<S, L, D, R extends IOutput<S, L, D>, T extends IState<S, L,
                 List<S> rootScopes) {
             synchronized(lock) {
                 cmh.exec();
-                final IActorRef<IUnit<S, L, D, U>> unit = self.add(id, TypeTag.of(IUnit.class),
+                final IActorRef<IUnit<S, L, D, U>> unit = self.add(id, UnitStub.type(),
                         (subself) -> unitProvider.apply(subself, new UnitContext(subself)));
                 addUnit(unit);
                 final IFuture<IUnitResult<S, L, D, U>> unitResult = self.async(unit)._start(rootScopes);
@@ -273,6 +309,31 @@ public class Broker<S, L, D, R extends IOutput<S, L, D>, T extends IState<S, L,
             return Broker.this;
         }
 
+        @Override public IFuture<Unit> delay(long delayMillis) {
+            final ICompletableFuture<Unit> result = new CompletableFuture<>();
+            timer().schedule(() -> {
+                if(system.running()) {
+                    result.complete(Unit.unit);
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+            return result;
+        }
+
+        @Override public <Q> IFuture<Q> compute(Callable<? extends Q> computation) {
+            final ICompletableFuture<Q> result = new CompletableFuture<>();
+            scheduler.schedule(() -> {
+                if(!system.running()) {
+                    return;
+                }
+                try {
+                    result.complete(computation.call());
+                } catch(Throwable ex) {
+                    result.completeExceptionally(ex);
+                }
+            }, 0, new AtomicReference<>());
+            return result;
+        }
+
     }
 
     ///////////////////////////////////////////////////////////////////////////
@@ -337,6 +398,12 @@ public class Broker<S, L, D, R extends IOutput<S, L, D>, T extends IState<S, L,
         cmh.reply(i, m, R);
     }
 
+    @Override public void _deadlockProbes(List<DeadlockProbe<IProcess<S, L, D>>> probes) {
+        for(DeadlockProbe<IProcess<S, L, D>> probe : probes) {
+            probe.dispatch(cmh);
+        }
+    }
+
     @Override public IFuture<StateSummary<S, L, D>> _state() {
         // When broker is involved in a deadlock, there is a unit waiting for
         // another unit to be added. Just releasing such a unit is not safe.
@@ -405,8 +472,33 @@ public class Broker<S, L, D, R extends IOutput<S, L, D>, T extends IState<S, L,
                     ITypeChecker<S, L, D, R, T> typeChecker, IScopeImpl<S, D> scopeImpl, Iterable<L> edgeLabels,
                     boolean changed, IUnitResult<S, L, D, Result<S, L, D, R, T>> previousResult,
                     ICancel cancel, IProgress progress, int parallelism) {
+        return run(id, settings, typeChecker, scopeImpl, edgeLabels, changed, previousResult, cancel, progress,
+                parallelism, null);
+    }
+
+    public static <S, L, D, R extends IOutput<S, L, D>, T extends IState<S, L, D>>
+            IFuture<IUnitResult<S, L, D, Result<S, L, D, R, T>>> run(String id, PRaffrayiSettings settings,
+                    ITypeChecker<S, L, D, R, T> typeChecker, IScopeImpl<S, D> scopeImpl, Iterable<L> edgeLabels,
+                    boolean changed, IUnitResult<S, L, D, Result<S, L, D, R, T>> previousResult,
+                    ICancel cancel, IProgress progress, int parallelism, @Nullable IActorMetricsSink metrics) {
         return new Broker<>(id, settings, typeChecker, scopeImpl, edgeLabels, changed, previousResult, cancel, progress,
-                new WorkStealingScheduler(parallelism)).run();
+                scheduler(settings, parallelism), metrics).run();
+    }
+
+    private static IActorScheduler scheduler(PRaffrayiSettings settings, int parallelism) {
+        switch(settings.scheduler()) {
+            case WORK_STEALING:
+                return new WorkStealingScheduler(parallelism);
+            case AFFINITY:
+                return new AffinityScheduler(parallelism);
+            case VIRTUAL_THREADS:
+                return VirtualThreadScheduler.create(parallelism).orElseGet(() -> {
+                    logger.warn("Virtual threads are not available, using work stealing scheduler instead.");
+                    return new WorkStealingScheduler(parallelism);
+                });
+            default:
+                throw new IllegalStateException("Unknown scheduler " + settings.scheduler() + ".");
+        }
     }
 
     public static <S, L, D, R extends IOutput<S, L, D>, T extends IState<S, L, D>>
@@ -432,7 +524,7 @@ public class Broker<S, L, D, R extends IOutput<S, L, D>, T extends IState<S, L,
                     boolean changed, IUnitResult<S, L, D, Result<S, L, D, R, T>> previousResult, ICancel cancel, int parallelism,
                     double preemptProbability, int scheduleDelayBoundMillis) {
         return new Broker<>(id, settings, typeChecker, scopeImpl, edgeLabels, changed, previousResult, cancel,
-                new NullProgress(), new WonkyScheduler(parallelism, preemptProbability, scheduleDelayBoundMillis))
+                new NullProgress(), new WonkyScheduler(parallelism, preemptProbability, scheduleDelayBoundMillis), null)
                         .run();
     }
 
@@ -1,9 +1,12 @@
 package mb.p_raffrayi.impl;
 
+import java.util.List;
 import java.util.Set;
 
 import org.metaborg.util.future.IFuture;
 
+import mb.p_raffrayi.actors.deadlock.DeadlockProbe;
+
 public interface IDeadlockProtocol<S, L, D> {
 
     // Deadlock detection
@@ -12,6 +15,8 @@ public interface IDeadlockProtocol<S, L, D> {
 
     void _deadlockReply(IProcess<S, L, D> i, int m, Set<IProcess<S, L, D>> r);
 
+    void _deadlockProbes(List<DeadlockProbe<IProcess<S, L, D>>> probes);
+
     void _deadlocked(Set<IProcess<S, L, D>> nodes);
 
     // Deadlock analysis
@@ -2,11 +2,13 @@ package mb.p_raffrayi.impl;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Callable;
 
 import org.metaborg.util.functions.Function2;
 import org.metaborg.util.future.IFuture;
 import org.metaborg.util.task.ICancel;
 import org.metaborg.util.tuple.Tuple2;
+import org.metaborg.util.unit.Unit;
 
 import io.usethesource.capsule.Set.Immutable;
 import mb.p_raffrayi.IUnitResult;
@@ -46,4 +48,15 @@ public interface IUnitContext<S, L, D> {
 
     IDeadlockProtocol<S, L, D> deadlock();
 
+    /**
+     * Returns a future that completes after the given delay. The future never completes if the system stops first.
+     */
+    IFuture<Unit> delay(long delayMillis);
+
+    /**
+     * Run the computation on the scheduler of the actor system. The returned future is completed on the thread that ran
+     * the computation. The future never completes if the system stops first.
+     */
+    <R> IFuture<R> compute(Callable<? extends R> computation);
+
 }
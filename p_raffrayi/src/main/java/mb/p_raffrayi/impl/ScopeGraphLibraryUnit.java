@@ -3,6 +3,7 @@ package mb.p_raffrayi.impl;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -153,8 +154,11 @@ class ScopeGraphLibraryUnit<S, L, D> extends AbstractUnit<S, L, D, Unit> {
             ScopePath<S, L> path, LabelWf<L> labelWF, DataWf<S, L, D> dataWF, LabelOrder<L> labelOrder,
             DataLeq<S, L, D> dataEquiv) {
         stats.incomingQueries += 1;
-        final IActorRef<? extends IUnit<S, L, D, Unit>> worker =
-                workers.get(stats.incomingQueries % workers.size());
+        // equal queries go to the same worker, so that it can reuse its cached answers
+        final int workerIndex = context.settings().cacheQueryAnswers()
+                ? Math.floorMod(Objects.hash(path.getTarget(), labelWF, dataWF), workers.size())
+                : stats.incomingQueries % workers.size();
+        final IActorRef<? extends IUnit<S, L, D, Unit>> worker = workers.get(workerIndex);
 
         final IFuture<IQueryAnswer<S, L, D>> result =
                 self.async(worker)._query(origin, path, labelWF, dataWF, labelOrder, dataEquiv);
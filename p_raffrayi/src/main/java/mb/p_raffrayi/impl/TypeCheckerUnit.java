@@ -11,6 +11,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
@@ -452,6 +453,12 @@ class TypeCheckerUnit<S, L, D, R extends IOutput<S, L, D>, T extends IState<S, L
         doCloseScope(self, scope);
     }
 
+    @Override public <Q> IFuture<Q> compute(Callable<? extends Q> computation) {
+        assertActive();
+
+        return ifActive(doCompute(computation));
+    }
+
     @Override public IFuture<Set<IResolutionPath<S, L, D>>> query(S scope, LabelWf<L> labelWF, LabelOrder<L> labelOrder,
             DataWf<S, L, D> dataWF, DataLeq<S, L, D> dataEquiv, @Nullable DataWf<S, L, D> dataWfInternal,
             @Nullable DataLeq<S, L, D> dataEquivInternal) {
@@ -638,6 +645,7 @@ class TypeCheckerUnit<S, L, D, R extends IOutput<S, L, D>, T extends IState<S, L
             );
 
             scopeGraph.set(scopeGraph.get().addAll(patchedLocalScopeGraph));
+            clearQueryAnswers();
             localScopeGraph.set(localScopeGraph.get().addAll(patchedLocalScopeGraph));
 
             // initialize all scopes that are pending, and close all open labels.
@@ -975,6 +983,7 @@ class TypeCheckerUnit<S, L, D, R extends IOutput<S, L, D>, T extends IState<S, L
         // TODO: assert empty?
         // TODO: patch root scopes?
         this.scopeGraph.set(snapshot.scopeGraph());
+        clearQueryAnswers();
 
         final BiMap.Transient<S> scopesToProcess = BiMap.Transient.of();
         stableScopes.forEach(name -> {
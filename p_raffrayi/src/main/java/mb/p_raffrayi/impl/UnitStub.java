@@ -0,0 +1,127 @@
+package mb.p_raffrayi.impl;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.metaborg.util.future.IFuture;
+
+import mb.p_raffrayi.IUnitResult;
+import mb.p_raffrayi.actors.IActorRef;
+import mb.p_raffrayi.actors.IAsyncInvoker;
+import mb.p_raffrayi.actors.TypeTag;
+import mb.p_raffrayi.actors.deadlock.DeadlockProbe;
+import mb.p_raffrayi.impl.confirm.ConfirmResult;
+import mb.p_raffrayi.nameresolution.DataLeq;
+import mb.p_raffrayi.nameresolution.DataWf;
+import mb.scopegraph.ecoop21.LabelOrder;
+import mb.scopegraph.ecoop21.LabelWf;
+import mb.scopegraph.oopsla20.reference.EdgeOrData;
+import mb.scopegraph.oopsla20.reference.Env;
+import mb.scopegraph.oopsla20.terms.newPath.ScopePath;
+
+/**
+ * Async stub for units, which sends messages without reflection.
+ */
+final class UnitStub<S, L, D, R> implements IUnit<S, L, D, R> {
+
+    private final IAsyncInvoker<IUnit<S, L, D, R>> invoker;
+
+    private UnitStub(IAsyncInvoker<IUnit<S, L, D, R>> invoker) {
+        this.invoker = invoker;
+    }
+
+    static <S, L, D, R> TypeTag<IUnit<S, L, D, R>> type() {
+        return TypeTag.of(IUnit.class, UnitStub::new);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // IUnit2UnitProtocol
+    ///////////////////////////////////////////////////////////////////////////
+
+    @Override public void _initShare(S scope, Iterable<EdgeOrData<L>> edges, boolean sharing) {
+        invoker.send("_initShare", unit -> unit._initShare(scope, edges, sharing));
+    }
+
+    @Override public void _addShare(S scope) {
+        invoker.send("_addShare", unit -> unit._addShare(scope));
+    }
+
+    @Override public void _doneSharing(S scope) {
+        invoker.send("_doneSharing", unit -> unit._doneSharing(scope));
+    }
+
+    @Override public void _addEdge(S source, L label, S target) {
+        invoker.send("_addEdge", unit -> unit._addEdge(source, label, target));
+    }
+
+    @Override public void _closeEdge(S scope, EdgeOrData<L> edge) {
+        invoker.send("_closeEdge", unit -> unit._closeEdge(scope, edge));
+    }
+
+    @Override public IFuture<IQueryAnswer<S, L, D>> _query(IActorRef<? extends IUnit<S, L, D, ?>> origin,
+            ScopePath<S, L> path, LabelWf<L> labelWF, DataWf<S, L, D> dataWF, LabelOrder<L> labelOrder,
+            DataLeq<S, L, D> dataEquiv) {
+        return invoker.ask("_query", unit -> unit._query(origin, path, labelWF, dataWF, labelOrder, dataEquiv));
+    }
+
+    @Override public IFuture<Env<S, L, D>> _queryPrevious(ScopePath<S, L> path, LabelWf<L> labelWF,
+            DataWf<S, L, D> dataWF, LabelOrder<L> labelOrder, DataLeq<S, L, D> dataEquiv) {
+        return invoker.ask("_queryPrevious",
+                unit -> unit._queryPrevious(path, labelWF, dataWF, labelOrder, dataEquiv));
+    }
+
+    @Override public IFuture<ConfirmResult<S>> _confirm(ScopePath<S, L> path, LabelWf<L> labelWF,
+            DataWf<S, L, D> dataWF, boolean prevEnvEmpty) {
+        return invoker.ask("_confirm", unit -> unit._confirm(path, labelWF, dataWF, prevEnvEmpty));
+    }
+
+    @Override public IFuture<Optional<S>> _match(S previousScope) {
+        return invoker.ask("_match", unit -> unit._match(previousScope));
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // IBroker2UnitProtocol
+    ///////////////////////////////////////////////////////////////////////////
+
+    @Override public IFuture<IUnitResult<S, L, D, R>> _start(List<S> rootScopes) {
+        return invoker.ask("_start", unit -> unit._start(rootScopes));
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // IDeadlockProtocol
+    ///////////////////////////////////////////////////////////////////////////
+
+    @Override public void _deadlockQuery(IProcess<S, L, D> i, int m, IProcess<S, L, D> k) {
+        invoker.send("_deadlockQuery", unit -> unit._deadlockQuery(i, m, k));
+    }
+
+    @Override public void _deadlockReply(IProcess<S, L, D> i, int m, Set<IProcess<S, L, D>> r) {
+        invoker.send("_deadlockReply", unit -> unit._deadlockReply(i, m, r));
+    }
+
+    @Override public void _deadlockProbes(List<DeadlockProbe<IProcess<S, L, D>>> probes) {
+        invoker.send("_deadlockProbes", unit -> unit._deadlockProbes(probes));
+    }
+
+    @Override public void _deadlocked(Set<IProcess<S, L, D>> nodes) {
+        invoker.send("_deadlocked", unit -> unit._deadlocked(nodes));
+    }
+
+    @Override public IFuture<StateSummary<S, L, D>> _state() {
+        return invoker.ask("_state", unit -> unit._state());
+    }
+
+    @Override public void _release() {
+        invoker.send("_release", unit -> unit._release());
+    }
+
+    @Override public void _restart() {
+        invoker.send("_restart", unit -> unit._restart());
+    }
+
+    @Override public String toString() {
+        return invoker.toString();
+    }
+
+}
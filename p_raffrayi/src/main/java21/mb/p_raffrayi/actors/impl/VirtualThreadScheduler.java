@@ -0,0 +1,114 @@
+package mb.p_raffrayi.actors.impl;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+/**
+ * Scheduler that runs every actor activation on a new virtual thread.
+ *
+ * At most parallelism activations run at the same time. Other activations wait for a permit, which does not occupy a
+ * carrier thread. Activations that block, for example on a Java future, keep their permit, but release their carrier
+ * thread to other activations. Priorities are ignored, as in {@link WorkStealingScheduler}.
+ */
+public class VirtualThreadScheduler implements IActorScheduler {
+
+    private static final ILogger logger = LoggerUtils.logger(VirtualThreadScheduler.class);
+
+    private final int parallelism;
+    private final Semaphore permits;
+    private final ExecutorService executor;
+    private final AtomicInteger pendingTasks;
+
+    private VirtualThreadScheduler(int parallelism) {
+        this.parallelism = parallelism;
+        this.permits = new Semaphore(parallelism);
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("PRaffrayiWorker-", 0).factory());
+        this.pendingTasks = new AtomicInteger();
+    }
+
+    /**
+     * Create a virtual thread scheduler with the given parallelism, if virtual threads are available on this Java
+     * version.
+     */
+    public static Optional<IActorScheduler> create(int parallelism) {
+        return Optional.of(new VirtualThreadScheduler(parallelism));
+    }
+
+    @Override public int parallelism() {
+        return parallelism;
+    }
+
+    @Override public void schedule(Runnable runnable, @SuppressWarnings("unused") int priority,
+            AtomicReference<Runnable> taskRef) {
+        final Task task = new Task(runnable);
+        if(!taskRef.compareAndSet(null, task)) {
+            logger.error("Actor {} already scheduled", runnable);
+            throw new IllegalStateException("Actor " + runnable + " already scheduled.");
+        }
+        pendingTasks.incrementAndGet();
+        try {
+            executor.execute(task);
+        } catch(RuntimeException ex) {
+            pendingTasks.decrementAndGet();
+            throw ex;
+        }
+    }
+
+    @SuppressWarnings("unused") @Override public void reschedule(Runnable oldTask, int newPriority,
+            AtomicReference<Runnable> taskRef) {
+    }
+
+    @SuppressWarnings("unused") @Override public boolean preempt(int priority) {
+        return false;
+    }
+
+    @Override public boolean isActive() {
+        return pendingTasks.get() != 0;
+    }
+
+    @Override public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override public void shutdownNow() {
+        executor.shutdownNow();
+    }
+
+    private class Task implements Runnable {
+
+        private final Runnable runnable;
+        private final AtomicBoolean active;
+
+        Task(Runnable runnable) {
+            this.runnable = runnable;
+            this.active = new AtomicBoolean(true);
+        }
+
+        @Override public void run() {
+            try {
+                if(active.compareAndSet(true, false)) {
+                    permits.acquire();
+                    try {
+                        runnable.run();
+                    } finally {
+                        permits.release();
+                    }
+                }
+            } catch(InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                pendingTasks.decrementAndGet();
+            }
+        }
+
+    }
+
+}
@@ -26,6 +26,8 @@ import com.google.common.collect.ImmutableList;
 
 import io.usethesource.capsule.Set;
 import io.usethesource.capsule.Set.Immutable;
+import mb.p_raffrayi.APRaffrayiSettings.DeadlockDetection;
+import mb.p_raffrayi.APRaffrayiSettings.Scheduler;
 import mb.p_raffrayi.impl.Result;
 import mb.p_raffrayi.nameresolution.DataLeq;
 import mb.p_raffrayi.nameresolution.DataWf;
@@ -44,7 +46,11 @@ public class PRaffrayiTest extends PRaffrayiTestBase {
 
     @Parameters
     public static Object[] solverModes() {
-        return new Object[] { PRaffrayiSettings.concurrent(), PRaffrayiSettings.incremental() };
+        return new Object[] { PRaffrayiSettings.concurrent(), PRaffrayiSettings.incremental(),
+                PRaffrayiSettings.concurrent().withDeadlockDetection(DeadlockDetection.BATCHED),
+                PRaffrayiSettings.concurrent().withCacheQueryAnswers(true),
+                PRaffrayiSettings.concurrent().withScheduler(Scheduler.AFFINITY),
+                PRaffrayiSettings.concurrent().withScheduler(Scheduler.VIRTUAL_THREADS) };
     }
 
     public PRaffrayiTest(PRaffrayiSettings settings) {
@@ -0,0 +1,230 @@
+package mb.p_raffrayi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Test;
+import org.metaborg.util.functions.Function2;
+import org.metaborg.util.future.AggregateFuture;
+import org.metaborg.util.future.IFuture;
+
+import com.google.common.collect.ImmutableSet;
+
+import mb.p_raffrayi.impl.Result;
+import mb.p_raffrayi.nameresolution.DataLeq;
+import mb.p_raffrayi.nameresolution.DataWf;
+import mb.scopegraph.ecoop21.LabelOrder;
+import mb.scopegraph.ecoop21.LabelWf;
+import mb.scopegraph.ecoop21.RegExpLabelWf;
+import mb.scopegraph.oopsla20.path.IResolutionPath;
+import mb.scopegraph.oopsla20.terms.newPath.ScopePath;
+import mb.scopegraph.regexp.RegExpMatcher;
+import mb.scopegraph.regexp.impl.RegExpBuilder;
+
+public class QueryAnswerCacheTest extends PRaffrayiTestBase {
+
+    private static final Integer DECL = 1;
+    private static final Integer LEX = 2;
+    private static final Integer IMP = 3;
+
+    private final LabelWf<Integer> labelWf;
+    private final LabelOrder<Integer> labelOrder = LabelOrder.none();
+    private final DataWf<Scope, Integer, IDatum> dataWf = DataWf.any();
+    private final DataLeq<Scope, Integer, IDatum> dataEquiv = DataLeq.none();
+
+    private final Map<String, Scope> scopes = new ConcurrentHashMap<>();
+    private final Map<String, Set<IResolutionPath<Scope, Integer, IDatum>>> envs = new ConcurrentHashMap<>();
+
+    public QueryAnswerCacheTest() {
+        super(PRaffrayiSettings.concurrent().withCacheQueryAnswers(true));
+        // LEX* IMP? DECL
+        final RegExpBuilder<Integer> reb = new RegExpBuilder<>();
+        this.labelWf = new RegExpLabelWf<>(RegExpMatcher.create(reb.concat(reb.closure(reb.symbol(LEX)),
+                reb.concat(reb.or(reb.emptyString(), reb.symbol(IMP)), reb.symbol(DECL)))));
+    }
+
+    @Test(timeout = 10000) public void testReuseForDifferentPaths() throws ExecutionException, InterruptedException {
+        final IUnitResult<Scope, Integer, IDatum, Result<Scope, Integer, IDatum, EmptyI, EmptyI>> result =
+                run(".", new Root(Arrays.asList("one", "two"), DirectUnit::new), Arrays.asList(DECL, LEX, IMP))
+                        .asJavaCompletion().get();
+        assertTrue(result.allFailures().isEmpty());
+        assertEquals(1, reusedQueryAnswers(result));
+
+        for(String id : Arrays.asList("one", "two")) {
+            final ScopePath<Scope, Integer> r =
+                    new ScopePath<Scope, Integer>(scopes.get(id + ".s")).step(LEX, scopes.get("r")).get();
+            // @formatter:off
+            assertEquals(ImmutableSet.of(
+                r.step(DECL, scopes.get("d")).get().resolve(scopes.get("d")),
+                r.step(IMP, scopes.get("q")).get().step(DECL, scopes.get("e")).get().resolve(scopes.get("e"))
+            ), envs.get(id));
+            // @formatter:on
+        }
+    }
+
+    @Test(timeout = 10000) public void testNoReuseThroughVisitedScope()
+            throws ExecutionException, InterruptedException {
+        final IUnitResult<Scope, Integer, IDatum, Result<Scope, Integer, IDatum, EmptyI, EmptyI>> result =
+                run(".", new Root(Arrays.asList("one", "two"), IndirectUnit::new), Arrays.asList(DECL, LEX, IMP))
+                        .asJavaCompletion().get();
+        assertTrue(result.allFailures().isEmpty());
+        assertEquals(0, reusedQueryAnswers(result));
+
+        for(String id : Arrays.asList("one", "two")) {
+            final ScopePath<Scope, Integer> q =
+                    new ScopePath<Scope, Integer>(scopes.get(id + ".s")).step(LEX, scopes.get("q")).get();
+            // the paths through q cannot follow the import edge of r back to q
+            // @formatter:off
+            assertEquals(ImmutableSet.of(
+                q.step(DECL, scopes.get("e")).get().resolve(scopes.get("e")),
+                q.step(LEX, scopes.get("one.t")).get().step(LEX, scopes.get("r")).get()
+                        .step(DECL, scopes.get("d")).get().resolve(scopes.get("d")),
+                q.step(LEX, scopes.get("two.t")).get().step(LEX, scopes.get("r")).get()
+                        .step(DECL, scopes.get("d")).get().resolve(scopes.get("d"))
+            ), envs.get(id));
+            // @formatter:on
+        }
+    }
+
+    private int reusedQueryAnswers(IUnitResult<?, ?, ?, ?> result) {
+        final Iterator<String> headers = result.stats().csvHeaders().iterator();
+        final Iterator<String> values = result.stats().csvRow().iterator();
+        while(headers.hasNext()) {
+            final String value = values.next();
+            if(headers.next().equals("reusedQueryAnswers")) {
+                return Integer.parseInt(value);
+            }
+        }
+        throw new IllegalStateException("No reusedQueryAnswers statistic.");
+    }
+
+    private Scope scope(String name, Scope scope) {
+        scopes.put(name, scope);
+        return scope;
+    }
+
+    private IFuture<EmptyI> query(String id,
+            IIncrementalTypeCheckerContext<Scope, Integer, IDatum, EmptyI, EmptyI> unit, Scope s) {
+        return unit.query(s, labelWf, labelOrder, dataWf, dataEquiv).thenApply(env -> {
+            envs.put(id, ImmutableSet.copyOf(env));
+            return EmptyI.of();
+        });
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+
+    private abstract class BaseTypeChecker implements ITypeChecker<Scope, Integer, IDatum, EmptyI, EmptyI> {
+
+        @Override public EmptyI snapshot() {
+            return EmptyI.of();
+        }
+
+    }
+
+    /**
+     * Root unit with scopes r -DECL-> d, r -IMP-> q, and q -DECL-> e. Sub units receive q as root scope.
+     */
+    private final class Root extends BaseTypeChecker {
+
+        private final List<String> ids;
+        private final Function2<String, Scope, BaseTypeChecker> subUnit;
+
+        private Root(List<String> ids, Function2<String, Scope, BaseTypeChecker> subUnit) {
+            this.ids = ids;
+            this.subUnit = subUnit;
+        }
+
+        @Override public IFuture<EmptyI> run(
+                IIncrementalTypeCheckerContext<Scope, Integer, IDatum, EmptyI, EmptyI> unit, List<Scope> roots) {
+            final Scope r = scope("r", unit.freshScope("r", Arrays.asList(DECL, IMP), false, false));
+            final Scope q = scope("q", unit.freshScope("q", Arrays.asList(DECL), false, true));
+            final Scope d = scope("d", unit.freshScope("d", Collections.emptySet(), true, false));
+            final Scope e = scope("e", unit.freshScope("e", Collections.emptySet(), true, false));
+            unit.setDatum(d, d);
+            unit.setDatum(e, e);
+
+            unit.addEdge(r, DECL, d);
+            unit.addEdge(r, IMP, q);
+            unit.addEdge(q, DECL, e);
+            unit.closeEdge(r, DECL);
+            unit.closeEdge(r, IMP);
+            unit.closeEdge(q, DECL);
+
+            final List<IFuture<?>> subResults = new ArrayList<>();
+            for(String id : ids) {
+                subResults.add(unit.add(id, subUnit.apply(id, r), Arrays.asList(q)));
+            }
+
+            unit.closeScope(q);
+
+            return AggregateFuture.of(subResults).thenApply(__ -> EmptyI.of());
+        }
+
+    }
+
+    /**
+     * Sub unit that queries from s, with s -LEX-> r.
+     */
+    private final class DirectUnit extends BaseTypeChecker {
+
+        private final String id;
+        private final Scope r;
+
+        private DirectUnit(String id, Scope r) {
+            this.id = id;
+            this.r = r;
+        }
+
+        @Override public IFuture<EmptyI> run(
+                IIncrementalTypeCheckerContext<Scope, Integer, IDatum, EmptyI, EmptyI> unit, List<Scope> roots) {
+            unit.initScope(roots.get(0), Collections.emptySet(), false);
+            final Scope s = scope(id + ".s", unit.freshScope("s", Arrays.asList(LEX), false, false));
+            unit.addEdge(s, LEX, r);
+            unit.closeEdge(s, LEX);
+            return query(id, unit, s);
+        }
+
+    }
+
+    /**
+     * Sub unit that queries from s, with s -LEX-> q -LEX-> t -LEX-> r. Paths to r run through q, which is visited when
+     * resolving from r.
+     */
+    private final class IndirectUnit extends BaseTypeChecker {
+
+        private final String id;
+        private final Scope r;
+
+        private IndirectUnit(String id, Scope r) {
+            this.id = id;
+            this.r = r;
+        }
+
+        @Override public IFuture<EmptyI> run(
+                IIncrementalTypeCheckerContext<Scope, Integer, IDatum, EmptyI, EmptyI> unit, List<Scope> roots) {
+            final Scope q = roots.get(0);
+            unit.initScope(q, Arrays.asList(LEX), false);
+            final Scope s = scope(id + ".s", unit.freshScope("s", Arrays.asList(LEX), false, false));
+            final Scope t = scope(id + ".t", unit.freshScope("t", Arrays.asList(LEX), false, false));
+            unit.addEdge(s, LEX, q);
+            unit.addEdge(q, LEX, t);
+            unit.addEdge(t, LEX, r);
+            unit.closeEdge(s, LEX);
+            unit.closeEdge(q, LEX);
+            unit.closeEdge(t, LEX);
+            return query(id, unit, s);
+        }
+
+    }
+
+}
@@ -1,23 +1,40 @@
 package mb.p_raffrayi.actors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
+import org.metaborg.util.future.AggregateFuture;
 import org.metaborg.util.future.CompletableFuture;
 import org.metaborg.util.future.ICompletableFuture;
 import org.metaborg.util.future.IFuture;
 import org.metaborg.util.unit.Unit;
 
+import mb.p_raffrayi.actors.impl.ActorMetrics;
+import mb.p_raffrayi.actors.impl.AffinityScheduler;
 import mb.p_raffrayi.actors.impl.ActorSystem;
+import mb.p_raffrayi.actors.impl.WorkStealingScheduler;
 
 public class ActorTest {
 
     private static final TypeTag<EmptyActor> EMPTY_ACTOR = TypeTag.of(EmptyActor.class);
     private static final TypeTag<PingActor> PING_ACTOR = TypeTag.of(PingActor.class);
+    private static final TypeTag<PingActor> PING_ACTOR_STUB =
+            TypeTag.of(PingActor.class, invoker -> new PingActor() {
+
+                @Override public IFuture<Unit> ping() {
+                    return invoker.ask("ping", PingActor::ping);
+                }
+
+            });
 
     @Test(timeout = 10_000) public void testNoActors() throws InterruptedException, ExecutionException {
         final IActorSystem system = new ActorSystem();
@@ -116,6 +133,64 @@ public class ActorTest {
         system.stop().asJavaCompletion().get();
     }
 
+    @Test(timeout = 10_000) public void testPingFromSystemWithStub() throws InterruptedException, ExecutionException {
+        final IActorSystem system = new ActorSystem();
+        final IActorRef<PingActor> one = system.add("one", PING_ACTOR_STUB, (self) -> new PingActor() {
+
+            @Override public IFuture<Unit> ping() {
+                return CompletableFuture.completedFuture(Unit.unit);
+            };
+
+        });
+        final IFuture<Unit> pong = system.async(one).ping();
+        pong.asJavaCompletion().get();
+        system.stop().asJavaCompletion().get();
+    }
+
+    @Test(timeout = 10_000) public void testPingMetrics() throws InterruptedException, ExecutionException {
+        final ActorMetrics metrics = new ActorMetrics();
+        final IActorSystem system = new ActorSystem(new WorkStealingScheduler(2), metrics);
+        final IActorRef<PingActor> one = system.add("one", PING_ACTOR, (self) -> new PingActor() {
+
+            @Override public IFuture<Unit> ping() {
+                return CompletableFuture.completedFuture(Unit.unit);
+            };
+
+        });
+        for(int i = 0; i < 10; i++) {
+            system.async(one).ping().asJavaCompletion().get();
+        }
+        system.stop().asJavaCompletion().get();
+
+        final ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        metrics.writeCsv(new PrintStream(csv));
+        assertTrue(csv.toString().contains("\n/one,ping,10,"));
+
+        final ByteArrayOutputStream json = new ByteArrayOutputStream();
+        metrics.writeJson(new PrintStream(json));
+        assertTrue(json.toString().contains("\"ping\":{\"messages\":10,"));
+    }
+
+    @Test(timeout = 10_000) public void testPingWithAffinityScheduler()
+            throws InterruptedException, ExecutionException {
+        final AffinityScheduler scheduler = new AffinityScheduler(2, 1);
+        final IActorSystem system = new ActorSystem(scheduler);
+        final IActorRef<PingActor> one = system.add("one", PING_ACTOR, (self) -> new PingActor() {
+
+            @Override public IFuture<Unit> ping() {
+                return CompletableFuture.completedFuture(Unit.unit);
+            };
+
+        });
+        final List<IFuture<Unit>> pongs = new ArrayList<>();
+        for(int i = 0; i < 100; i++) {
+            pongs.add(system.async(one).ping());
+        }
+        AggregateFuture.of(pongs).asJavaCompletion().get();
+        system.stop().asJavaCompletion().get();
+        assertTrue(scheduler.activations() > 0);
+    }
+
     @Test(timeout = 10_000) public void testPingFromParent() throws InterruptedException, ExecutionException {
         final ICompletableFuture<Unit> oneGotPong = new CompletableFuture<>();
         final IActorSystem system = new ActorSystem();
@@ -0,0 +1,63 @@
+package mb.p_raffrayi.actors;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Test;
+import org.metaborg.util.future.AggregateFuture;
+import org.metaborg.util.future.CompletableFuture;
+import org.metaborg.util.future.IFuture;
+import org.metaborg.util.unit.Unit;
+
+import mb.p_raffrayi.actors.impl.ActorSystem;
+import mb.p_raffrayi.actors.impl.IActorScheduler;
+import mb.p_raffrayi.actors.impl.VirtualThreadScheduler;
+
+public class VirtualThreadSchedulerTest {
+
+    /**
+     * Set when running against the Java 21 classes of the multi-release jar, where virtual threads must be available.
+     */
+    private static final boolean REQUIRE_VIRTUAL_THREADS = Boolean.getBoolean("p_raffrayi.requireVirtualThreads");
+
+    private static final TypeTag<PingActor> PING_ACTOR = TypeTag.of(PingActor.class);
+
+    @Test public void testAvailable() {
+        final Optional<IActorScheduler> scheduler = VirtualThreadScheduler.create(2);
+        if(REQUIRE_VIRTUAL_THREADS) {
+            assertTrue(scheduler.isPresent());
+        }
+        scheduler.ifPresent(IActorScheduler::shutdownNow);
+    }
+
+    @Test(timeout = 10_000) public void testPing() throws InterruptedException, ExecutionException {
+        final Optional<IActorScheduler> scheduler = VirtualThreadScheduler.create(2);
+        assumeTrue(scheduler.isPresent());
+        final IActorSystem system = new ActorSystem(scheduler.get());
+        final IActorRef<PingActor> one = system.add("one", PING_ACTOR, (self) -> new PingActor() {
+
+            @Override public IFuture<Unit> ping() {
+                return CompletableFuture.completedFuture(Unit.unit);
+            };
+
+        });
+        final List<IFuture<Unit>> pongs = new ArrayList<>();
+        for(int i = 0; i < 100; i++) {
+            pongs.add(system.async(one).ping());
+        }
+        AggregateFuture.of(pongs).asJavaCompletion().get();
+        system.stop().asJavaCompletion().get();
+    }
+
+    private interface PingActor extends IActorMonitor {
+
+        IFuture<Unit> ping();
+
+    }
+
+}
@@ -1,56 +1,135 @@
 package mb.renaming.namegraph;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
 import org.spoofax.interpreter.terms.IStrategoTerm;
 
+/**
+ * Clusters of names that are related by resolution pairs.
+ *
+ * Names are interned to integer ids, and clusters are kept in a union-find structure over those ids, with union by rank
+ * and path compression. The members of a cluster are kept in a circular list through the ids, so that a cluster can be
+ * enumerated without scanning other clusters. Resolution pairs can be added at any time, for example one file at a
+ * time.
+ */
 public final class NameGraph {
-	
-	private final Set<Set<NameIndex>> clusters;
-	
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final Map<NameIndex, Integer> ids;
+	private final List<NameIndex> names;
+	private int[] parent;
+	private int[] rank;
+	private int[] next;
+
 	public NameGraph() {
-		clusters = new HashSet<>();
+		ids = new HashMap<>();
+		names = new ArrayList<>();
+		parent = new int[INITIAL_CAPACITY];
+		rank = new int[INITIAL_CAPACITY];
+		next = new int[INITIAL_CAPACITY];
 	}
-	
+
 	public NameGraph(List<IStrategoTerm> resolutionRelation) {
-		clusters = new HashSet<>();
+		this();
+		addResolutionPairs(resolutionRelation);
+	}
+
+	public void addResolutionPairs(List<IStrategoTerm> resolutionRelation) {
 		for(IStrategoTerm pair: resolutionRelation) {
 			addResolutionPair(new ResolutionPair(pair));
 		}
 	}
-	
+
 	public void addResolutionPair(ResolutionPair pair) {
-		Optional<Set<NameIndex>> decCluster = find(pair.getDeclaration());
-		Optional<Set<NameIndex>> refCluster = find(pair.getReference());
-		
-		if(!(decCluster.isPresent() || refCluster.isPresent())) {
-			Set<NameIndex> cluster = new HashSet<>();
-			cluster.add(pair.getDeclaration());
-			cluster.add(pair.getReference());
-			clusters.add(cluster);
-		} else if (decCluster.isPresent() && !refCluster.isPresent()) {
-			decCluster.get().add(pair.getReference());
-		} else if (!decCluster.isPresent() && refCluster.isPresent()) {
-			refCluster.get().add(pair.getDeclaration());
-		} else if (decCluster.isPresent() && refCluster.isPresent()) {
-			union(decCluster.get(), refCluster.get());
-		}
+		int decId = intern(pair.getDeclaration());
+		int refId = intern(pair.getReference());
+		union(decId, refId);
 	}
 
+	/**
+	 * Find the cluster of the given name, or nothing if the name does not occur in any resolution pair.
+	 */
 	public Optional<Set<NameIndex>> find(NameIndex index) {
-		return clusters.stream()
-				.filter(cluster -> cluster.contains(index))
-				.findFirst();
+		Integer id = ids.get(index);
+		if(id == null) {
+			return Optional.empty();
+		}
+		Set<NameIndex> cluster = new HashSet<>();
+		int member = id;
+		do {
+			cluster.add(names.get(member));
+			member = next[member];
+		} while(member != id);
+		return Optional.of(Collections.unmodifiableSet(cluster));
+	}
+
+	/**
+	 * Number of distinct names in the graph.
+	 */
+	public int size() {
+		return names.size();
 	}
-	
-	public void union(Set<NameIndex> decCluster, Set<NameIndex> refCluster) {
-		if (decCluster != refCluster) {
-			decCluster.addAll(refCluster);
-			clusters.remove(refCluster);
+
+	private int intern(NameIndex index) {
+		Integer id = ids.get(index);
+		if(id != null) {
+			return id;
+		}
+		int newId = names.size();
+		if(newId == parent.length) {
+			int capacity = parent.length * 2;
+			parent = Arrays.copyOf(parent, capacity);
+			rank = Arrays.copyOf(rank, capacity);
+			next = Arrays.copyOf(next, capacity);
+		}
+		names.add(index);
+		ids.put(index, newId);
+		parent[newId] = newId;
+		rank[newId] = 0;
+		next[newId] = newId;
+		return newId;
+	}
+
+	private int root(int id) {
+		int root = id;
+		while(parent[root] != root) {
+			root = parent[root];
+		}
+		while(parent[id] != root) {
+			int up = parent[id];
+			parent[id] = root;
+			id = up;
+		}
+		return root;
+	}
+
+	private void union(int id1, int id2) {
+		int root1 = root(id1);
+		int root2 = root(id2);
+		if(root1 == root2) {
+			return;
+		}
+		if(rank[root1] < rank[root2]) {
+			parent[root1] = root2;
+		} else if(rank[root1] > rank[root2]) {
+			parent[root2] = root1;
+		} else {
+			parent[root2] = root1;
+			rank[root1] += 1;
 		}
+		// splice the member lists of both clusters together
+		int next1 = next[root1];
+		next[root1] = next[root2];
+		next[root2] = next1;
 	}
 
 }
@@ -2,6 +2,7 @@ package mb.renaming.namegraph;
 
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Set;
@@ -222,4 +223,46 @@ public class NameGraphTest {
 	}
 
 
+	@Test
+	public void testUnknownName() {
+		NameGraph graph = new NameGraph();
+		graph.addResolutionPair(new ResolutionPair("foo", 2, 1));
+
+		assertFalse(graph.find(new NameIndex(3, "foo")).isPresent());
+		assertFalse(graph.find(new NameIndex(1, "bar")).isPresent());
+	}
+
+	@Test
+	public void testMultipleFiles() {
+		NameGraph graph = new NameGraph();
+		graph.addResolutionPair(new ResolutionPair("a.mjv", 2, 1));
+		graph.addResolutionPair(new ResolutionPair("b.mjv", 2, 1));
+		assertEquals(2, graph.find(new NameIndex(1, "a.mjv")).get().size());
+
+		// a reference in b.mjv that resolves to a declaration in a.mjv joins both clusters
+		graph.addResolutionPair(new ResolutionPair(new NameIndex(1, "b.mjv"), new NameIndex(1, "a.mjv")));
+
+		Set<NameIndex> cluster = graph.find(new NameIndex(2, "b.mjv")).get();
+		assertEquals(4, cluster.size());
+		assertTrue(cluster.contains(new NameIndex(1, "a.mjv")));
+		assertTrue(cluster.contains(new NameIndex(2, "a.mjv")));
+		assertEquals(cluster, graph.find(new NameIndex(2, "a.mjv")).get());
+		assertEquals(4, graph.size());
+	}
+
+	@Test
+	public void testManyClusters() {
+		NameGraph graph = new NameGraph();
+		int clusters = 10000;
+		for(int i = 0; i < clusters; i++) {
+			graph.addResolutionPair(new ResolutionPair("foo", 2 * i + 1, 2 * i));
+		}
+		// chain all clusters together
+		for(int i = 1; i < clusters; i++) {
+			graph.addResolutionPair(new ResolutionPair("foo", 2 * i, 2 * i - 1));
+		}
+
+		assertEquals(2 * clusters, graph.find(new NameIndex(0, "foo")).get().size());
+	}
+
 }
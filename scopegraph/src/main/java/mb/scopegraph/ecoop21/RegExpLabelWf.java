@@ -1,36 +1,53 @@
 package mb.scopegraph.ecoop21;
 
 import java.io.Serializable;
-import java.util.Objects;
 import java.util.Optional;
 
 import mb.scopegraph.regexp.IRegExpMatcher;
+import mb.scopegraph.regexp.RegExpDfa;
+import mb.scopegraph.regexp.RegExpMatcher;
 
 public class RegExpLabelWf<L> implements LabelWf<L>, Serializable {
 
-    private static final long serialVersionUID = 42L;
+    private static final long serialVersionUID = 43L;
 
-    private final IRegExpMatcher<L> re;
+    private final RegExpDfa<L> dfa;
+    private final int state;
+    /**
+     * Step results per state, shared by all well-formedness objects stepped from the same initial one. Concurrent
+     * steps may both fill in an entry, but they fill in equal values.
+     */
+    private final transient Optional<LabelWf<L>>[] steps;
 
-    public RegExpLabelWf(IRegExpMatcher<L> re) {
-        this.re = re;
+    @SuppressWarnings("unchecked") public RegExpLabelWf(IRegExpMatcher<L> re) {
+        final RegExpMatcher<L> matcher = RegExpMatcher.of(re);
+        this.dfa = matcher.dfa();
+        this.state = matcher.state();
+        this.steps = (Optional<LabelWf<L>>[]) new Optional<?>[dfa.size()];
+    }
+
+    private RegExpLabelWf(RegExpDfa<L> dfa, int state, Optional<LabelWf<L>>[] steps) {
+        this.dfa = dfa;
+        this.state = state;
+        this.steps = steps;
     }
 
     @Override public Optional<LabelWf<L>> step(L l) {
-        final IRegExpMatcher<L> re = this.re.match(l);
-        if(re.isEmpty()) {
-            return Optional.empty();
-        } else {
-            return Optional.of(new RegExpLabelWf<>(re));
+        final int next = dfa.step(state, l);
+        Optional<LabelWf<L>> step;
+        if((step = steps[next]) == null) {
+            step = dfa.isEmpty(next) ? Optional.empty() : Optional.of(new RegExpLabelWf<>(dfa, next, steps));
+            steps[next] = step;
         }
+        return step;
     }
 
     @Override public boolean accepting() {
-        return re.isAccepting();
+        return dfa.isAccepting(state);
     }
 
     @Override public int hashCode() {
-        return Objects.hash(re);
+        return dfa.regexp(state).hashCode();
     }
 
     @Override public boolean equals(Object obj) {
@@ -41,15 +58,22 @@ public class RegExpLabelWf<L> implements LabelWf<L>, Serializable {
         if(getClass() != obj.getClass())
             return false;
         RegExpLabelWf<?> other = (RegExpLabelWf<?>) obj;
-        return Objects.equals(re, other.re);
+        if(dfa == other.dfa) {
+            return state == other.state;
+        }
+        return dfa.regexp(state).equals(other.dfa.regexp(other.state));
     }
 
     @Override public String toString() {
-        return re.toString();
+        return dfa.regexp(state).toString();
+    }
+
+    private Object readResolve() {
+        return new RegExpLabelWf<>(dfa.matcher(state));
     }
 
     public static <L> RegExpLabelWf<L> of(IRegExpMatcher<L> re) {
         return new RegExpLabelWf<>(re);
     }
 
-}
\ No newline at end of file
+}
@@ -19,6 +19,21 @@ public class RelationLabelOrder<L> implements LabelOrder<L>, Serializable {
         return labelOrd.contains(l1, l2);
     }
 
+    @Override public int hashCode() {
+        return labelOrd.hashCode();
+    }
+
+    @Override public boolean equals(Object obj) {
+        if(this == obj) {
+            return true;
+        }
+        if(obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        final RelationLabelOrder<?> other = (RelationLabelOrder<?>) obj;
+        return labelOrd.equals(other.labelOrd);
+    }
+
     @Override public String toString() {
         return labelOrd.toString();
     }
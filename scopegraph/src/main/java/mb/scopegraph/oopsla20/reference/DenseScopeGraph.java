@@ -0,0 +1,585 @@
+package mb.scopegraph.oopsla20.reference;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+import org.metaborg.util.collection.ConsList;
+import org.metaborg.util.tuple.Tuple2;
+
+import com.google.common.collect.Lists;
+
+import io.usethesource.capsule.Map;
+import io.usethesource.capsule.Set;
+import mb.scopegraph.oopsla20.IScopeGraph;
+
+/**
+ * Scope graph that interns scopes and labels to dense integers, and stores the targets of every scope-label pair in a
+ * primitive array. Scopes are indexed in a persistent trie, so that edges can be found without hashing or allocating
+ * tuple keys.
+ *
+ * Versions derived from the same empty scope graph share the interning tables. Appending to an array that is shared
+ * with other versions happens in place if no other version appended to it yet, and copies it otherwise. Targets are
+ * returned in reverse order of addition, as in {@link ScopeGraph}.
+ */
+public abstract class DenseScopeGraph<S, L, D> implements IScopeGraph<S, L, D> {
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    protected final Index<S> scopes;
+    protected final Index<L> labels;
+
+    protected DenseScopeGraph(Index<S> scopes, Index<L> labels) {
+        this.scopes = scopes;
+        this.labels = labels;
+    }
+
+    protected abstract @Nullable Node root();
+
+    protected abstract int shift();
+
+    @Override public Iterable<S> getEdges(S scope, L label) {
+        final int s;
+        final int l;
+        final ScopeNode node;
+        if((s = scopes.id(scope)) < 0 || (l = labels.id(label)) < 0 || (node = scopeNode(s)) == null) {
+            return ConsList.nil();
+        }
+        final Targets targets = node.targets(l);
+        if(targets == null) {
+            return ConsList.nil();
+        }
+        return new TargetScopes<>(scopes, targets.buffer.values, targets.size);
+    }
+
+    @Override public Optional<D> getData(S scope) {
+        final int s;
+        final ScopeNode node;
+        if((s = scopes.id(scope)) < 0 || (node = scopeNode(s)) == null) {
+            return Optional.empty();
+        }
+        @SuppressWarnings("unchecked") final D datum = (D) node.datum;
+        return Optional.ofNullable(datum);
+    }
+
+    protected @Nullable ScopeNode scopeNode(int id) {
+        Node node = root();
+        if(node == null || id >= (1 << (shift() + BITS))) {
+            return null;
+        }
+        for(int level = shift(); level > 0; level -= BITS) {
+            if((node = (Node) node.slots[(id >>> level) & MASK]) == null) {
+                return null;
+            }
+        }
+        return (ScopeNode) node.slots[id & MASK];
+    }
+
+    protected Map.Immutable<Tuple2<S, L>, ConsList<S>> edgeMap() {
+        final Map.Transient<Tuple2<S, L>, ConsList<S>> edges = Map.Transient.of();
+        final int scopeCount = scopes.size();
+        for(int s = 0; s < scopeCount; s++) {
+            final ScopeNode node = scopeNode(s);
+            if(node == null) {
+                continue;
+            }
+            for(int l = 0; l < node.edges.length; l++) {
+                final Targets targets = node.edges[l];
+                if(targets != null) {
+                    final Iterable<S> targetScopes = new TargetScopes<>(scopes, targets.buffer.values, targets.size);
+                    edges.__put(Tuple2.of(scopes.get(s), labels.get(l)), ConsList.of(targetScopes));
+                }
+            }
+        }
+        return edges.freeze();
+    }
+
+    @SuppressWarnings("unchecked") protected Map.Immutable<S, D> dataMap() {
+        final Map.Transient<S, D> data = Map.Transient.of();
+        final int scopeCount = scopes.size();
+        for(int s = 0; s < scopeCount; s++) {
+            final ScopeNode node = scopeNode(s);
+            if(node != null && node.datum != null) {
+                data.__put(scopes.get(s), (D) node.datum);
+            }
+        }
+        return data.freeze();
+    }
+
+    // ------------------------------------
+
+    public static class Immutable<S, L, D> extends DenseScopeGraph<S, L, D>
+            implements IScopeGraph.Immutable<S, L, D>, Serializable {
+        private static final long serialVersionUID = 42L;
+
+        private final Set.Immutable<L> labelSet;
+        private final @Nullable Node root;
+        private final int shift;
+
+        private transient volatile Map.Immutable<Tuple2<S, L>, ConsList<S>> edges;
+        private transient volatile Map.Immutable<S, D> data;
+
+        Immutable(Index<S> scopes, Index<L> labels, Set.Immutable<L> labelSet, @Nullable Node root, int shift) {
+            super(scopes, labels);
+            this.labelSet = labelSet;
+            this.root = root;
+            this.shift = shift;
+        }
+
+        @Override protected @Nullable Node root() {
+            return root;
+        }
+
+        @Override protected int shift() {
+            return shift;
+        }
+
+        @Override public Set.Immutable<L> getLabels() {
+            return labelSet;
+        }
+
+        // ------------------------------------------------------------
+
+        @Override public Map.Immutable<Tuple2<S, L>, ConsList<S>> getEdges() {
+            Map.Immutable<Tuple2<S, L>, ConsList<S>> result = edges;
+            if(result == null) {
+                edges = (result = edgeMap());
+            }
+            return result;
+        }
+
+        @Override public Map.Immutable<S, D> getData() {
+            Map.Immutable<S, D> result = data;
+            if(result == null) {
+                data = (result = dataMap());
+            }
+            return result;
+        }
+
+        // ------------------------------------------------------------
+
+        @Override public DenseScopeGraph.Immutable<S, L, D> addEdge(S sourceScope, L label, S targetScope) {
+            final DenseScopeGraph.Transient<S, L, D> scopeGraph = melt();
+            scopeGraph.addEdge(sourceScope, label, targetScope);
+            return scopeGraph.freeze();
+        }
+
+        @Override public DenseScopeGraph.Immutable<S, L, D> setDatum(S sourceScope, D datum) {
+            final DenseScopeGraph.Transient<S, L, D> scopeGraph = melt();
+            scopeGraph.setDatum(sourceScope, datum);
+            return scopeGraph.freeze();
+        }
+
+        @Override public DenseScopeGraph.Immutable<S, L, D> addAll(IScopeGraph<S, L, D> other) {
+            final DenseScopeGraph.Transient<S, L, D> scopeGraph = melt();
+            scopeGraph.addAll(other);
+            return scopeGraph.freeze();
+        }
+
+        // ------------------------------------------------------------
+
+        @Override public DenseScopeGraph.Transient<S, L, D> melt() {
+            return new DenseScopeGraph.Transient<>(scopes, labels, labelSet.asTransient(), root, shift);
+        }
+
+        @Override public int hashCode() {
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + getEdges().hashCode();
+            result = prime * result + getData().hashCode();
+            return result;
+        }
+
+        @Override public boolean equals(Object obj) {
+            if(this == obj)
+                return true;
+            if(obj == null)
+                return false;
+            if(getClass() != obj.getClass())
+                return false;
+            @SuppressWarnings("unchecked") DenseScopeGraph.Immutable<S, L, D> other =
+                    (DenseScopeGraph.Immutable<S, L, D>) obj;
+            if(!getEdges().equals(other.getEdges()))
+                return false;
+            if(!getData().equals(other.getData()))
+                return false;
+            return true;
+        }
+
+        public static <S, L, D> DenseScopeGraph.Immutable<S, L, D> of() {
+            return new DenseScopeGraph.Immutable<>(new Index<>(), new Index<>(), Set.Immutable.of(), null, 0);
+        }
+
+        // ------------------------------------------------------------
+
+        private Object writeReplace() throws ObjectStreamException {
+            return new SerialForm<>(new ScopeGraph.Immutable<>(labelSet, getEdges(), getData()));
+        }
+
+    }
+
+    public static class Transient<S, L, D> extends DenseScopeGraph<S, L, D>
+            implements IScopeGraph.Transient<S, L, D> {
+
+        private final Set.Transient<L> labelSet;
+        private @Nullable Node root;
+        private int shift;
+
+        // nodes created by this transient, which can be updated in place until the next freeze
+        private Object edit = new Object();
+
+        Transient(Index<S> scopes, Index<L> labels, Set.Transient<L> labelSet, @Nullable Node root, int shift) {
+            super(scopes, labels);
+            this.labelSet = labelSet;
+            this.root = root;
+            this.shift = shift;
+        }
+
+        @Override protected @Nullable Node root() {
+            return root;
+        }
+
+        @Override protected int shift() {
+            return shift;
+        }
+
+        @Override public Set.Transient<L> getLabels() {
+            return labelSet;
+        }
+
+        // ------------------------------------------------------------
+
+        @Override public Map.Immutable<Tuple2<S, L>, ConsList<S>> getEdges() {
+            return edgeMap();
+        }
+
+        @Override public Map.Immutable<S, D> getData() {
+            return dataMap();
+        }
+
+        // ------------------------------------------------------------
+
+        @Override public boolean addEdge(S sourceScope, L label, S targetScope) {
+            final int s = scopes.intern(sourceScope);
+            final int l = labels.intern(label);
+            final int t = scopes.intern(targetScope);
+            final ScopeNode node = editableScopeNode(s);
+            final Targets targets = node.targets(l);
+            node.setTargets(l, targets != null ? targets.append(t) : Targets.of(t));
+            labelSet.__insert(label);
+            return true;
+        }
+
+        @Override public boolean setDatum(S scope, D datum) {
+            final int s = scopes.intern(scope);
+            editableScopeNode(s).datum = datum;
+            return true;
+        }
+
+        @Override public boolean addAll(IScopeGraph<S, L, D> other) {
+            for(Entry<? extends Entry<S, L>, ? extends Iterable<S>> entry : other.getEdges().entrySet()) {
+                final S sourceScope = entry.getKey().getKey();
+                final L label = entry.getKey().getValue();
+                // other scopes must end up in front, in their original order
+                final List<S> otherScopes = Lists.newArrayList(entry.getValue());
+                for(int i = otherScopes.size() - 1; i >= 0; i--) {
+                    addEdge(sourceScope, label, otherScopes.get(i));
+                }
+            }
+            for(Entry<S, D> entry : other.getData().entrySet()) {
+                setDatum(entry.getKey(), entry.getValue());
+            }
+            for(L label : other.getLabels()) {
+                labelSet.__insert(label);
+            }
+            return true;
+        }
+
+        // ------------------------------------------------------------
+
+        private ScopeNode editableScopeNode(int id) {
+            while(root == null || id >= (1 << (shift + BITS))) {
+                if(root == null) {
+                    root = new Node(edit);
+                } else {
+                    final Node newRoot = new Node(edit);
+                    newRoot.slots[0] = root;
+                    root = newRoot;
+                    shift += BITS;
+                }
+            }
+            root = editable(root);
+            Node node = root;
+            for(int level = shift; level > 0; level -= BITS) {
+                final int i = (id >>> level) & MASK;
+                final Node child = (Node) node.slots[i];
+                node = (Node) (node.slots[i] = child != null ? editable(child) : new Node(edit));
+            }
+            final int i = id & MASK;
+            final ScopeNode scopeNode = (ScopeNode) node.slots[i];
+            final ScopeNode editableScopeNode;
+            if(scopeNode == null) {
+                editableScopeNode = new ScopeNode(edit, new Targets[0], null);
+            } else if(scopeNode.edit != edit) {
+                editableScopeNode = new ScopeNode(edit, scopeNode.edges.clone(), scopeNode.datum);
+            } else {
+                editableScopeNode = scopeNode;
+            }
+            node.slots[i] = editableScopeNode;
+            return editableScopeNode;
+        }
+
+        private Node editable(Node node) {
+            return node.edit == edit ? node : new Node(edit, node.slots.clone());
+        }
+
+        @Override public DenseScopeGraph.Immutable<S, L, D> freeze() {
+            // nodes owned by the current edit become part of the immutable graph, so stop updating them in place
+            edit = new Object();
+            return new DenseScopeGraph.Immutable<>(scopes, labels, labelSet.freeze(), root, shift);
+        }
+
+        public static <S, L, D> DenseScopeGraph.Transient<S, L, D> of() {
+            return new DenseScopeGraph.Transient<>(new Index<>(), new Index<>(), Set.Transient.of(), null, 0);
+        }
+
+    }
+
+    @Override public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("{");
+        final AtomicBoolean first = new AtomicBoolean(true);
+        edgeMap().forEach((key, targetScope) -> {
+            sb.append(first.getAndSet(false) ? " " : ", ");
+            sb.append(key._1());
+            sb.append(" -");
+            sb.append(key._2());
+            sb.append("-> ");
+            sb.append(targetScope);
+        });
+        dataMap().forEach((key, datum) -> {
+            sb.append(first.getAndSet(false) ? " " : ", ");
+            sb.append(key);
+            sb.append(" : ");
+            sb.append(datum);
+        });
+        sb.append(first.get() ? "}" : " }");
+        return sb.toString();
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // representation                                                        //
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Append-only table assigning dense ids to values. Shared by all versions of a scope graph, so an id is valid in
+     * every version, even if that version does not contain the value.
+     */
+    protected static final class Index<T> {
+
+        private final ConcurrentHashMap<T, Integer> ids = new ConcurrentHashMap<>();
+        private volatile Object[] values = new Object[WIDTH];
+        private volatile int size = 0;
+
+        int id(T value) {
+            final Integer id = ids.get(value);
+            return id != null ? id : -1;
+        }
+
+        int intern(T value) {
+            final Integer id = ids.get(value);
+            if(id != null) {
+                return id;
+            }
+            synchronized(this) {
+                final Integer existingId = ids.get(value);
+                if(existingId != null) {
+                    return existingId;
+                }
+                final int newId = size;
+                Object[] values = this.values;
+                if(newId == values.length) {
+                    values = Arrays.copyOf(values, 2 * values.length);
+                }
+                values[newId] = value;
+                this.values = values;
+                ids.put(value, newId);
+                size = newId + 1;
+                return newId;
+            }
+        }
+
+        @SuppressWarnings("unchecked") T get(int id) {
+            return (T) values[id];
+        }
+
+        int size() {
+            return size;
+        }
+
+    }
+
+    protected static final class Node {
+
+        private final Object edit;
+        private final Object[] slots;
+
+        private Node(Object edit) {
+            this(edit, new Object[WIDTH]);
+        }
+
+        private Node(Object edit, Object[] slots) {
+            this.edit = edit;
+            this.slots = slots;
+        }
+
+    }
+
+    protected static final class ScopeNode {
+
+        private final Object edit;
+        private Targets[] edges; // indexed by label id
+        private @Nullable Object datum;
+
+        private ScopeNode(Object edit, Targets[] edges, @Nullable Object datum) {
+            this.edit = edit;
+            this.edges = edges;
+            this.datum = datum;
+        }
+
+        private @Nullable Targets targets(int label) {
+            return label < edges.length ? edges[label] : null;
+        }
+
+        private void setTargets(int label, Targets targets) {
+            if(label >= edges.length) {
+                edges = Arrays.copyOf(edges, label + 1);
+            }
+            edges[label] = targets;
+        }
+
+    }
+
+    /**
+     * A prefix of a shared buffer of target scope ids.
+     */
+    private static final class Targets {
+
+        private final Buffer buffer;
+        private final int size;
+
+        private Targets(Buffer buffer, int size) {
+            this.buffer = buffer;
+            this.size = size;
+        }
+
+        private Targets append(int target) {
+            final Buffer buffer = this.buffer;
+            if(size < buffer.values.length && buffer.used.compareAndSet(size, size + 1)) {
+                // no other version appended to this buffer yet, so we can claim the next slot
+                buffer.values[size] = target;
+                return new Targets(buffer, size + 1);
+            }
+            final int[] values = Arrays.copyOf(buffer.values, Math.max(4, 2 * size));
+            values[size] = target;
+            return new Targets(new Buffer(values, size + 1), size + 1);
+        }
+
+        private static Targets of(int target) {
+            final int[] values = new int[2];
+            values[0] = target;
+            return new Targets(new Buffer(values, 1), 1);
+        }
+
+    }
+
+    private static final class Buffer {
+
+        private final int[] values;
+        private final AtomicInteger used;
+
+        private Buffer(int[] values, int used) {
+            this.values = values;
+            this.used = new AtomicInteger(used);
+        }
+
+    }
+
+    private static final class TargetScopes<S> implements Iterable<S> {
+
+        private final Index<S> scopes;
+        private final int[] targets;
+        private final int size;
+
+        private TargetScopes(Index<S> scopes, int[] targets, int size) {
+            this.scopes = scopes;
+            this.targets = targets;
+            this.size = size;
+        }
+
+        @Override public Iterator<S> iterator() {
+            return new Iterator<S>() {
+
+                private int index = size;
+
+                @Override public boolean hasNext() {
+                    return index > 0;
+                }
+
+                @Override public S next() {
+                    if(index <= 0) {
+                        throw new NoSuchElementException();
+                    }
+                    return scopes.get(targets[--index]);
+                }
+
+            };
+        }
+
+        @Override public String toString() {
+            final StringBuilder sb = new StringBuilder();
+            sb.append("[");
+            boolean first = true;
+            for(S scope : this) {
+                if(!first) {
+                    sb.append(",");
+                }
+                first = false;
+                sb.append(scope);
+            }
+            sb.append("]");
+            return sb.toString();
+        }
+
+    }
+
+    private static final class SerialForm<S, L, D> implements Serializable {
+        private static final long serialVersionUID = 42L;
+
+        private final ScopeGraph.Immutable<S, L, D> scopeGraph;
+
+        private SerialForm(ScopeGraph.Immutable<S, L, D> scopeGraph) {
+            this.scopeGraph = scopeGraph;
+        }
+
+        private Object readResolve() throws ObjectStreamException {
+            final DenseScopeGraph.Transient<S, L, D> scopeGraph = DenseScopeGraph.Transient.of();
+            scopeGraph.addAll(this.scopeGraph);
+            return scopeGraph.freeze();
+        }
+
+    }
+
+}
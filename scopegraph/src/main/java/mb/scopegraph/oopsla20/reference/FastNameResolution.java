@@ -1,8 +1,13 @@
 package mb.scopegraph.oopsla20.reference;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
+import javax.annotation.Nullable;
+
 import org.metaborg.util.collection.CapsuleUtil;
 import org.metaborg.util.functions.Predicate2;
 import org.metaborg.util.task.ICancel;
@@ -33,8 +38,17 @@ public class FastNameResolution<S, L, D> implements INameResolution<S, L, D> {
 
     private final Predicate2<S, EdgeOrData<L>> isComplete; // default: true
 
+    private final MemoTable<S, L, D> memoTable; // default: private to this resolution
+    private final Deque<Set.Transient<S>> visitedStack = new ArrayDeque<>();
+
     public FastNameResolution(IScopeGraph<S, L, D> scopeGraph, java.util.Set<L> edgeLabels, LabelWF<L> labelWF,
             LabelOrder<L> labelOrder, DataWF<D> dataWF, DataLeq<D> dataEquiv, Predicate2<S, EdgeOrData<L>> isComplete) {
+        this(scopeGraph, edgeLabels, labelWF, labelOrder, dataWF, dataEquiv, isComplete, null);
+    }
+
+    public FastNameResolution(IScopeGraph<S, L, D> scopeGraph, java.util.Set<L> edgeLabels, LabelWF<L> labelWF,
+            LabelOrder<L> labelOrder, DataWF<D> dataWF, DataLeq<D> dataEquiv, Predicate2<S, EdgeOrData<L>> isComplete,
+            @Nullable MemoTable<S, L, D> memoTable) {
         this.scopeGraph = scopeGraph;
         this.dataLabel = EdgeOrData.data();
         this.allLabels =
@@ -44,19 +58,108 @@ public class FastNameResolution<S, L, D> implements INameResolution<S, L, D> {
         this.dataWF = dataWF;
         this.dataEquiv = dataEquiv;
         this.isComplete = isComplete;
+        this.memoTable = memoTable != null ? memoTable : new MemoTable<>();
     }
 
     @Override public Env<S, L, D> resolve(S scope, ICancel cancel) throws ResolutionException, InterruptedException {
         return env(labelWF, new ScopePath<>(scope), Env.empty(), cancel);
     }
 
+    /**
+     * Compute the environment of the target scope of the path, reusing memoized environments for scopes that are
+     * reached more than once, which happens for every diamond in the graph.
+     *
+     * A memoized environment is computed with a path starting in the target scope, and rerooted at the actual path
+     * when it is used. This is exact if none of the scopes visited while computing it appear in the prefix, because
+     * then cycle detection made the same decisions for both paths. Shadowing only depends on the data of the specific
+     * paths, which is therefore part of the key.
+     */
     private Env<S, L, D> env(LabelWF<L> re, ScopePath<S, L> path, Iterable<ResolutionPath<S, L, D>> specifics,
             ICancel cancel) throws ResolutionException, InterruptedException {
-        return env_L(allLabels, re, path, specifics, cancel);
+        final S scope = path.getTarget();
+        final MemoKey<S, L, D> key = new MemoKey<>(scope, re, specificsData(specifics));
+        final MemoEntry<S, L, D> entry = memoTable.get(key);
+        if(entry == null) {
+            // first visit, remember the scope but do not memoize yet, to avoid rerooting in tree-shaped graphs
+            memoTable.put(key, MemoEntry.seen());
+            return env_L(allLabels, re, path, specifics, cancel);
+        } else if(entry == MemoEntry.inProgress()) {
+            // reached from its own memoized computation, which does not know the prefix, so rely on the full path
+            // for cycle detection
+            return env_L(allLabels, re, path, specifics, cancel);
+        } else if(entry.env != null) {
+            recordVisited(entry.visited);
+            if(isIndependentOfPrefix(path, entry.visited)) {
+                return reroot(path, entry.env);
+            } else {
+                return env_L(allLabels, re, path, specifics, cancel);
+            }
+        }
+
+        memoTable.put(key, MemoEntry.inProgress());
+        visitedStack.push(CapsuleUtil.transientSet());
+        Env<S, L, D> env = null;
+        final Set.Immutable<S> visited;
+        try {
+            env = env_L(allLabels, re, new ScopePath<>(scope), specifics, cancel);
+        } finally {
+            visited = visitedStack.pop().freeze();
+            memoTable.put(key, env != null ? MemoEntry.of(env, visited) : MemoEntry.seen());
+        }
+        recordVisited(visited);
+        if(isIndependentOfPrefix(path, visited)) {
+            return reroot(path, env);
+        } else {
+            return env_L(allLabels, re, path, specifics, cancel);
+        }
+    }
+
+    private Set.Immutable<D> specificsData(Iterable<ResolutionPath<S, L, D>> specifics) {
+        final Set.Transient<D> data = CapsuleUtil.transientSet();
+        for(ResolutionPath<S, L, D> p : specifics) {
+            data.__insert(p.getDatum());
+        }
+        return data.freeze();
+    }
+
+    private void recordVisited(S scope) {
+        final Set.Transient<S> visited = visitedStack.peek();
+        if(visited != null) {
+            visited.__insert(scope);
+        }
+    }
+
+    private void recordVisited(Set.Immutable<S> scopes) {
+        final Set.Transient<S> visited = visitedStack.peek();
+        if(visited != null) {
+            visited.__insertAll(scopes);
+        }
+    }
+
+    private boolean isIndependentOfPrefix(ScopePath<S, L> path, Set.Immutable<S> visited) {
+        final S target = path.getTarget();
+        for(S scope : path.scopeSet()) {
+            if(!scope.equals(target) && visited.contains(scope)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Env<S, L, D> reroot(ScopePath<S, L> prefix, Env<S, L, D> env) {
+        if(prefix.size() == 0) {
+            return env;
+        }
+        final Env.Builder<S, L, D> rerooted = Env.builder();
+        for(ResolutionPath<S, L, D> p : env) {
+            final Optional<ScopePath<S, L>> path = prefix.append(p.getPath());
+            if(path.isPresent()) {
+                rerooted.add(path.get().resolve(p.getDatum()));
+            }
+        }
+        return rerooted.build();
     }
 
-    // FIXME Use caching of single label environments to prevent recalculation in case of diamonds in
-    // the graph
     private Env<S, L, D> env_L(Set.Immutable<EdgeOrData<L>> L, LabelWF<L> re, ScopePath<S, L> path,
             Iterable<ResolutionPath<S, L, D>> specifics, ICancel cancel)
             throws ResolutionException, InterruptedException {
@@ -112,6 +215,7 @@ public class FastNameResolution<S, L, D> implements INameResolution<S, L, D> {
         }
         final Env.Builder<S, L, D> env = Env.builder();
         for(S nextScope : getEdges(re, path, l)) {
+            recordVisited(nextScope);
             final Optional<ScopePath<S, L>> p = path.step(l, nextScope);
             if(p.isPresent()) {
                 env.addAll(env(re, p.get(), specifics, cancel));
@@ -199,6 +303,94 @@ public class FastNameResolution<S, L, D> implements INameResolution<S, L, D> {
         return smaller.freeze();
     }
 
+    ///////////////////////////////////////////////////////////////////////////
+    // memoization                                                           //
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Memoized environments, keyed by scope, label well-formedness state, and the data of the specific paths that
+     * may shadow results. A table can be shared between resolutions if they use the same scope graph, label
+     * well-formedness, label order, data well-formedness, and data equivalence. This class is not thread-safe.
+     */
+    public static class MemoTable<S, L, D> {
+
+        private final Map<MemoKey<S, L, D>, MemoEntry<S, L, D>> entries = Maps.newHashMap();
+
+        public int size() {
+            return entries.size();
+        }
+
+        public void clear() {
+            entries.clear();
+        }
+
+        private @Nullable MemoEntry<S, L, D> get(MemoKey<S, L, D> key) {
+            return entries.get(key);
+        }
+
+        private void put(MemoKey<S, L, D> key, MemoEntry<S, L, D> entry) {
+            entries.put(key, entry);
+        }
+
+    }
+
+    private static class MemoKey<S, L, D> {
+
+        private final S scope;
+        private final LabelWF<L> re;
+        private final Set.Immutable<D> specifics;
+        private final int hashCode;
+
+        private MemoKey(S scope, LabelWF<L> re, Set.Immutable<D> specifics) {
+            this.scope = scope;
+            this.re = re;
+            this.specifics = specifics;
+            this.hashCode = Objects.hash(scope, re, specifics);
+        }
+
+        @Override public int hashCode() {
+            return hashCode;
+        }
+
+        @Override public boolean equals(Object obj) {
+            if(this == obj)
+                return true;
+            if(obj == null || getClass() != obj.getClass())
+                return false;
+            @SuppressWarnings("unchecked") MemoKey<S, L, D> other = (MemoKey<S, L, D>) obj;
+            return hashCode == other.hashCode && scope.equals(other.scope) && re.equals(other.re)
+                    && specifics.equals(other.specifics);
+        }
+
+    }
+
+    private static class MemoEntry<S, L, D> {
+
+        @SuppressWarnings("rawtypes") private static final MemoEntry SEEN = new MemoEntry<>(null, null);
+        @SuppressWarnings("rawtypes") private static final MemoEntry IN_PROGRESS = new MemoEntry<>(null, null);
+
+        private final @Nullable Env<S, L, D> env;
+        private final @Nullable Set.Immutable<S> visited;
+
+        private MemoEntry(@Nullable Env<S, L, D> env, @Nullable Set.Immutable<S> visited) {
+            this.env = env;
+            this.visited = visited;
+        }
+
+        @SuppressWarnings("unchecked") private static <S, L, D> MemoEntry<S, L, D> seen() {
+            return SEEN;
+        }
+
+        @SuppressWarnings("unchecked") private static <S, L, D> MemoEntry<S, L, D> inProgress() {
+            return IN_PROGRESS;
+        }
+
+        private static <S, L, D> MemoEntry<S, L, D> of(Env<S, L, D> env, Set.Immutable<S> visited) {
+            return new MemoEntry<>(env, visited);
+        }
+
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // builder                                                               //
     ///////////////////////////////////////////////////////////////////////////
@@ -217,6 +409,8 @@ public class FastNameResolution<S, L, D> implements INameResolution<S, L, D> {
 
         private Predicate2<S, EdgeOrData<L>> isComplete = (s, l) -> true;
 
+        private @Nullable MemoTable<S, L, D> memoTable = null;
+
         @Override public Builder<S, L, D> withLabelWF(LabelWF<L> labelWF) {
             this.labelWF = labelWF;
             return this;
@@ -242,9 +436,19 @@ public class FastNameResolution<S, L, D> implements INameResolution<S, L, D> {
             return this;
         }
 
+        /**
+         * Share the given memo table with other resolutions. The caller is responsible for only sharing tables
+         * between resolutions with the same scope graph and parameters.
+         */
+        public Builder<S, L, D> withMemoTable(MemoTable<S, L, D> memoTable) {
+            this.memoTable = memoTable;
+            return this;
+        }
+
         @Override public FastNameResolution<S, L, D> build(IScopeGraph<S, L, D> scopeGraph,
                 java.util.Set<L> edgeLabels) {
-            return new FastNameResolution<>(scopeGraph, edgeLabels, labelWF, labelOrder, dataWF, dataEquiv, isComplete);
+            return new FastNameResolution<>(scopeGraph, edgeLabels, labelWF, labelOrder, dataWF, dataEquiv, isComplete,
+                    memoTable);
         }
 
     }
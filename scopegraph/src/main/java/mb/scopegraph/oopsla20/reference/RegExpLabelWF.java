@@ -3,37 +3,62 @@ package mb.scopegraph.oopsla20.reference;
 import java.util.Optional;
 
 import mb.scopegraph.regexp.IRegExpMatcher;
+import mb.scopegraph.regexp.RegExpDfa;
+import mb.scopegraph.regexp.RegExpMatcher;
 
 public class RegExpLabelWF<L> implements LabelWF<L> {
 
-    private final IRegExpMatcher<L> re;
+    private final RegExpDfa<L> dfa;
+    private final int state;
+    /** Step results per state, shared by all well-formedness objects stepped from the same initial one. */
+    private final Optional<LabelWF<L>>[] steps;
 
-    private RegExpLabelWF(IRegExpMatcher<L> re) {
-        this.re = re;
+    private RegExpLabelWF(RegExpDfa<L> dfa, int state, Optional<LabelWF<L>>[] steps) {
+        this.dfa = dfa;
+        this.state = state;
+        this.steps = steps;
     }
 
     @Override public Optional<LabelWF<L>> step(L l) throws ResolutionException, InterruptedException {
         // Try to match the symbol on the regular expression
-        final IRegExpMatcher<L> re = this.re.match(l);
-        if(re.isEmpty()) {
-            // Match failed
-            return Optional.empty();
-        } else {
-            // Match succeeded, return the new regex wellformedness object
-            return Optional.of(new RegExpLabelWF<>(re));
+        final int next = dfa.step(state, l);
+        Optional<LabelWF<L>> step;
+        if((step = steps[next]) == null) {
+            // Match failed if the new state is empty, otherwise return the new regex wellformedness object
+            step = dfa.isEmpty(next) ? Optional.empty() : Optional.of(new RegExpLabelWF<>(dfa, next, steps));
+            steps[next] = step;
         }
+        return step;
     }
 
     @Override public boolean accepting() throws ResolutionException, InterruptedException {
-        return re.isAccepting();
+        return dfa.isAccepting(state);
+    }
+
+    @Override public int hashCode() {
+        return dfa.regexp(state).hashCode();
+    }
+
+    @Override public boolean equals(Object obj) {
+        if(this == obj)
+            return true;
+        if(obj == null || getClass() != obj.getClass())
+            return false;
+        final RegExpLabelWF<?> other = (RegExpLabelWF<?>) obj;
+        if(dfa == other.dfa) {
+            return state == other.state;
+        }
+        return dfa.regexp(state).equals(other.dfa.regexp(other.state));
     }
 
     @Override public String toString() {
-        return re.toString();
+        return dfa.regexp(state).toString();
     }
 
-    public static <L> RegExpLabelWF<L> of(IRegExpMatcher<L> re) {
-        return new RegExpLabelWF<>(re);
+    @SuppressWarnings("unchecked") public static <L> RegExpLabelWF<L> of(IRegExpMatcher<L> re) {
+        final RegExpMatcher<L> matcher = RegExpMatcher.of(re);
+        final RegExpDfa<L> dfa = matcher.dfa();
+        return new RegExpLabelWF<>(dfa, matcher.state(), (Optional<LabelWF<L>>[]) new Optional<?>[dfa.size()]);
     }
 
-}
\ No newline at end of file
+}
@@ -1,6 +1,16 @@
 package mb.scopegraph.oopsla20.reference;
 
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.ObjectStreamException;
 import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -8,6 +18,8 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import org.metaborg.util.collection.ConsList;
 import org.metaborg.util.tuple.Tuple2;
 
+import com.google.common.collect.Lists;
+
 import io.usethesource.capsule.Map;
 import io.usethesource.capsule.Set;
 import mb.scopegraph.oopsla20.IScopeGraph;
@@ -115,6 +127,144 @@ public abstract class ScopeGraph<S, L, D> implements IScopeGraph<S, L, D> {
 
         // ------------------------------------------------------------
 
+        private Object writeReplace() throws ObjectStreamException {
+            return new SerialForm<>(this);
+        }
+
+    }
+
+    /**
+     * Serialized form of an immutable scope graph. Scopes, labels, and data are written once, using Java
+     * serialization, and edges refer to them by index. This avoids serializing the internal structure of the maps and
+     * the edge keys.
+     */
+    static final class SerialForm<S, L, D> implements Externalizable {
+        private static final long serialVersionUID = 42L;
+
+        /**
+         * Increment when the format changes in an incompatible way.
+         */
+        private static final int VERSION = 1;
+
+        private ScopeGraph.Immutable<S, L, D> scopeGraph;
+
+        /**
+         * Used by Java serialization only.
+         */
+        public SerialForm() {
+        }
+
+        SerialForm(ScopeGraph.Immutable<S, L, D> scopeGraph) {
+            this.scopeGraph = scopeGraph;
+        }
+
+        @Override public void writeExternal(ObjectOutput out) throws IOException {
+            final java.util.Map<Object, Integer> objects = new HashMap<>();
+            writeVarInt(out, VERSION);
+            writeVarInt(out, scopeGraph.labels.size());
+            for(L label : scopeGraph.labels) {
+                writeRef(out, objects, label);
+            }
+            writeVarInt(out, scopeGraph.edges.size());
+            for(Entry<Tuple2<S, L>, ConsList<S>> entry : scopeGraph.edges.entrySet()) {
+                writeRef(out, objects, entry.getKey()._1());
+                writeRef(out, objects, entry.getKey()._2());
+                final List<S> targets = Lists.newArrayList(entry.getValue());
+                writeVarInt(out, targets.size());
+                for(S target : targets) {
+                    writeRef(out, objects, target);
+                }
+            }
+            writeVarInt(out, scopeGraph.data.size());
+            for(Entry<S, D> entry : scopeGraph.data.entrySet()) {
+                writeRef(out, objects, entry.getKey());
+                out.writeObject(entry.getValue());
+            }
+        }
+
+        @SuppressWarnings("unchecked") @Override public void readExternal(ObjectInput in)
+                throws IOException, ClassNotFoundException {
+            final List<Object> objects = new ArrayList<>();
+            final int version = readVarInt(in);
+            if(version != VERSION) {
+                throw new InvalidClassException(SerialForm.class.getName(),
+                        "Unsupported scope graph format version " + version + ", expected " + VERSION);
+            }
+            final Set.Transient<L> labels = Set.Transient.of();
+            for(int i = readVarInt(in); i > 0; i--) {
+                labels.__insert((L) readRef(in, objects));
+            }
+            final Map.Transient<Tuple2<S, L>, ConsList<S>> edges = Map.Transient.of();
+            for(int i = readVarInt(in); i > 0; i--) {
+                final S source = (S) readRef(in, objects);
+                final L label = (L) readRef(in, objects);
+                final int size = readVarInt(in);
+                final List<S> targets = new ArrayList<>(size);
+                for(int j = 0; j < size; j++) {
+                    targets.add((S) readRef(in, objects));
+                }
+                edges.__put(Tuple2.of(source, label), ConsList.of(targets));
+            }
+            final Map.Transient<S, D> data = Map.Transient.of();
+            for(int i = readVarInt(in); i > 0; i--) {
+                final S scope = (S) readRef(in, objects);
+                data.__put(scope, (D) in.readObject());
+            }
+            scopeGraph = new ScopeGraph.Immutable<>(labels.freeze(), edges.freeze(), data.freeze());
+        }
+
+        private Object readResolve() throws ObjectStreamException {
+            return scopeGraph;
+        }
+
+        private static void writeRef(ObjectOutput out, java.util.Map<Object, Integer> objects, Object object)
+                throws IOException {
+            final Integer ref = objects.get(object);
+            if(ref != null) {
+                writeVarInt(out, ref + 1);
+                return;
+            }
+            writeVarInt(out, 0);
+            out.writeObject(object);
+            objects.put(object, objects.size());
+        }
+
+        private static Object readRef(ObjectInput in, List<Object> objects) throws IOException, ClassNotFoundException {
+            final int ref = readVarInt(in);
+            if(ref == 0) {
+                final Object object = in.readObject();
+                objects.add(object);
+                return object;
+            }
+            if(ref > objects.size()) {
+                throw new StreamCorruptedException("Unknown reference " + (ref - 1));
+            }
+            return objects.get(ref - 1);
+        }
+
+        private static void writeVarInt(ObjectOutput out, int value) throws IOException {
+            while((value & ~0x7F) != 0) {
+                out.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+
+        private static int readVarInt(ObjectInput in) throws IOException {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if(shift > 28) {
+                    throw new StreamCorruptedException("Variable-length integer is too long");
+                }
+                b = in.readByte();
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while((b & 0x80) != 0);
+            return value;
+        }
+
     }
 
     public static class Transient<S, L, D> extends ScopeGraph<S, L, D> implements IScopeGraph.Transient<S, L, D> {
@@ -72,6 +72,27 @@ public class ScopePath<S, L> implements IScopePath<S, L>, Serializable {
         return Optional.of(new ScopePath<>(source, newPath, size + 1, scopeSet.__insert(target)));
     }
 
+    /**
+     * Extend this path with the steps of the given path, which must start in the target of this path. Returns nothing
+     * if the result would contain a cycle.
+     */
+    public Optional<ScopePath<S, L>> append(ScopePath<S, L> suffix) {
+        if(!getTarget().equals(suffix.getSource())) {
+            throw new IllegalArgumentException("Path " + suffix + " does not start in the target of " + this);
+        }
+        ScopePath<S, L> result = this;
+        Path<S, L> step = reverse(suffix.path);
+        while(step != null) {
+            final Optional<ScopePath<S, L>> next = result.step(step.label, step.target);
+            if(!next.isPresent()) {
+                return Optional.empty();
+            }
+            result = next.get();
+            step = step.prefix;
+        }
+        return Optional.of(result);
+    }
+
     public <D> ResolutionPath<S, L, D> resolve(D datum) {
         return new ResolutionPath<>(this, datum);
     }
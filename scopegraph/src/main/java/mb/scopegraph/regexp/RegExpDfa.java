@@ -0,0 +1,185 @@
+package mb.scopegraph.regexp;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import mb.scopegraph.regexp.impl.RegExpNormalizingBuilder;
+import mb.scopegraph.regexp.impl.RegExps;
+
+/**
+ * Deterministic automaton for a regular expression, with states and labels numbered by integers.
+ *
+ * Every symbol of the regular expression is assigned a label id once, when the automaton is compiled. All other
+ * symbols share the default transition. States are plain integers, and transitions are looked up in a table, so
+ * stepping through the automaton does not allocate.
+ *
+ * @param <S>
+ *            the type of symbols
+ */
+public final class RegExpDfa<S> implements Serializable {
+
+    private static final long serialVersionUID = 42L;
+
+    private final ImmutableMap<S, Integer> labels;
+    private final ImmutableList<IRegExp<S>> regexps;
+    /** Transitions per state and label id. The last column contains the default transition. */
+    private final int[][] transitions;
+    private final boolean[] accepting;
+    private final boolean[] isFinal;
+    private final int initial;
+    private final RegExpMatcher<S>[] matchers;
+
+    @SuppressWarnings("unchecked") private RegExpDfa(ImmutableMap<S, Integer> labels,
+            ImmutableList<IRegExp<S>> regexps, int[][] transitions, boolean[] accepting, boolean[] isFinal,
+            int initial) {
+        this.labels = labels;
+        this.regexps = regexps;
+        this.transitions = transitions;
+        this.accepting = accepting;
+        this.isFinal = isFinal;
+        this.initial = initial;
+        this.matchers = (RegExpMatcher<S>[]) new RegExpMatcher<?>[regexps.size()];
+        for(int state = 0; state < matchers.length; state++) {
+            matchers[state] = new RegExpMatcher<>(this, state);
+        }
+    }
+
+    /**
+     * The number of states.
+     */
+    public int size() {
+        return regexps.size();
+    }
+
+    public int initial() {
+        return initial;
+    }
+
+    /**
+     * Returns the id of the given label, or -1 if the label does not occur in the regular expression.
+     */
+    public int labelId(S label) {
+        final Integer id = labels.get(label);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Returns the state reached from the given state by the label with the given id. Negative ids take the default
+     * transition.
+     */
+    public int step(int state, int labelId) {
+        final int[] row = transitions[state];
+        return row[labelId < 0 ? row.length - 1 : labelId];
+    }
+
+    public int step(int state, S label) {
+        return step(state, labelId(label));
+    }
+
+    public boolean isAccepting(int state) {
+        return accepting[state];
+    }
+
+    public boolean isFinal(int state) {
+        return isFinal[state];
+    }
+
+    /**
+     * Whether the given state is final but not accepting, which means no sequence of labels is accepted from it.
+     */
+    public boolean isEmpty(int state) {
+        return isFinal[state] && !accepting[state];
+    }
+
+    public IRegExp<S> regexp(int state) {
+        return regexps.get(state);
+    }
+
+    /**
+     * Returns the matcher for the given state. Matchers are created once per state.
+     */
+    public RegExpMatcher<S> matcher(int state) {
+        return matchers[state];
+    }
+
+    @Override public String toString() {
+        return regexps.get(initial).toString();
+    }
+
+    public static <S> RegExpDfa<S> of(IRegExp<S> initial) {
+        final IAlphabet<S> alphabet = RegExps.alphabet(initial);
+        final RegExpNormalizingBuilder<S> builder = new RegExpNormalizingBuilder<>(alphabet);
+
+        final ImmutableMap.Builder<S, Integer> labels = ImmutableMap.builder();
+        final List<Deriver<S>> derivers = new ArrayList<>();
+        for(S symbol : alphabet) {
+            labels.put(symbol, derivers.size());
+            derivers.add(new Deriver<>(symbol, builder));
+        }
+        derivers.add(new Deriver<>(null, builder));
+
+        // number states in the order they are discovered
+        final Map<IRegExp<S>, Integer> ids = new HashMap<>();
+        final List<IRegExp<S>> states = new ArrayList<>();
+        final int initialState = state(initial, ids, states);
+        state(builder.emptySet(), ids, states);
+        final List<int[]> rows = new ArrayList<>();
+        for(int state = 0; state < states.size(); state++) {
+            final IRegExp<S> regexp = states.get(state);
+            final int[] row = new int[derivers.size()];
+            for(int label = 0; label < row.length; label++) {
+                row[label] = state(builder.apply(derivers.get(label).apply(regexp)), ids, states);
+            }
+            rows.add(row);
+        }
+        final int[][] transitions = rows.toArray(new int[rows.size()][]);
+
+        final boolean[] accepting = new boolean[states.size()];
+        for(int state = 0; state < accepting.length; state++) {
+            accepting[state] = RegExps.isNullable(states.get(state));
+        }
+
+        // a state is non-final if an accepting state can be reached from it in at least one step
+        final boolean[] nonFinal = new boolean[states.size()];
+        boolean changed = true;
+        while(changed) {
+            changed = false;
+            for(int state = 0; state < nonFinal.length; state++) {
+                if(nonFinal[state]) {
+                    continue;
+                }
+                for(int next : transitions[state]) {
+                    if(accepting[next] || nonFinal[next]) {
+                        nonFinal[state] = true;
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+        }
+        final boolean[] isFinal = new boolean[states.size()];
+        for(int state = 0; state < isFinal.length; state++) {
+            isFinal[state] = !nonFinal[state];
+        }
+
+        return new RegExpDfa<>(labels.build(), ImmutableList.copyOf(states), transitions, accepting, isFinal,
+                initialState);
+    }
+
+    private static <S> int state(IRegExp<S> regexp, Map<IRegExp<S>, Integer> ids, List<IRegExp<S>> states) {
+        final Integer id = ids.get(regexp);
+        if(id != null) {
+            return id;
+        }
+        ids.put(regexp, states.size());
+        states.add(regexp);
+        return states.size() - 1;
+    }
+
+}
@@ -1,180 +1,76 @@
 package mb.scopegraph.regexp;
 
 import java.io.Serializable;
-import java.util.Deque;
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
-import java.util.Set;
-import java.util.stream.Collectors;
-
-import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
-import com.google.common.collect.Queues;
-import com.google.common.collect.Sets;
-
-import mb.scopegraph.regexp.impl.RegExpNormalizingBuilder;
-import mb.scopegraph.regexp.impl.RegExps;
 
+/**
+ * Matcher for a state of a {@link RegExpDfa}. Matching does not allocate, because the automaton keeps a single matcher
+ * per state.
+ */
 public class RegExpMatcher<S> implements IRegExpMatcher<S>, Serializable {
 
-    private static final long serialVersionUID = 42L;
+    private static final long serialVersionUID = 43L;
 
-    private final State<S> state;
+    private final RegExpDfa<S> dfa;
+    private final int state;
 
-    private RegExpMatcher(State<S> state) {
+    RegExpMatcher(RegExpDfa<S> dfa, int state) {
+        this.dfa = dfa;
         this.state = state;
     }
 
+    public RegExpDfa<S> dfa() {
+        return dfa;
+    }
+
+    public int state() {
+        return state;
+    }
+
     @Override public IRegExp<S> regexp() {
-        return state.regexp;
+        return dfa.regexp(state);
     }
 
     @Override public RegExpMatcher<S> match(S symbol) {
-        return new RegExpMatcher<>(state.symbolTransitions.getOrDefault(symbol, state.defaultTransition));
+        return dfa.matcher(dfa.step(state, symbol));
     }
 
-    @Override public IRegExpMatcher<S> match(Iterable<S> symbols) {
-        RegExpMatcher<S> matcher = this;
+    @Override public RegExpMatcher<S> match(Iterable<S> symbols) {
+        int state = this.state;
         for(S symbol : symbols) {
-            matcher = matcher.match(symbol);
+            state = dfa.step(state, symbol);
         }
-        return matcher;
+        return dfa.matcher(state);
     }
 
     @Override public boolean isAccepting() {
-        return state.isNullable;
+        return dfa.isAccepting(state);
     }
 
     @Override public boolean isFinal() {
-        return !state.nonFinal;
+        return dfa.isFinal(state);
     }
 
-    @Override public String toString() {
-        return state.regexp.toString();
+    @Override public boolean isEmpty() {
+        return dfa.isEmpty(state);
     }
 
-    public static <S> IRegExpMatcher<S> create(final IRegExp<S> initial) {
-        final IAlphabet<S> alphabet = RegExps.alphabet(initial);
-        final RegExpNormalizingBuilder<S> builder = new RegExpNormalizingBuilder<>(alphabet);
-        final IRegExp<S> empty = builder.emptySet();
-
-        final List<Deriver<S>> derivers = Lists.newArrayList();
-        for(S symbol : alphabet) {
-            derivers.add(new Deriver<>(symbol, builder));
-        }
-        final Deriver<S> defaultDeriver = new Deriver<>(null, builder);
-
-        final Map<IRegExp<S>, Map<S, IRegExp<S>>> stateTransitions = Maps.newHashMap();
-        final Map<IRegExp<S>, IRegExp<S>> defaultTransitions = Maps.newHashMap();
-        final Map<IRegExp<S>, Set<IRegExp<S>>> reverseTransitions = Maps.newHashMap();
-        final Deque<IRegExp<S>> worklist = Queues.newArrayDeque();
-        worklist.push(initial);
-        worklist.push(empty);
-        while(!worklist.isEmpty()) {
-            final IRegExp<S> state = worklist.pop();
-            final Map<S, IRegExp<S>> transitions = Maps.newHashMapWithExpectedSize(derivers.size());
-            if(!stateTransitions.containsKey(state)) {
-                for(Deriver<S> deriver : derivers) {
-                    final IRegExp<S> nextState = builder.apply(deriver.apply(state));
-                    Set<IRegExp<S>> reverseStates;
-                    if((reverseStates = reverseTransitions.get(nextState)) == null) {
-                        reverseTransitions.put(nextState, (reverseStates = Sets.newHashSet()));
-                    }
-                    reverseStates.add(state);
-                    transitions.put(deriver.getSymbol(), nextState);
-                    worklist.push(nextState);
-                }
-                {
-                    final IRegExp<S> defaultState = builder.apply(defaultDeriver.apply(state));
-                    Set<IRegExp<S>> reverseStates;
-                    if((reverseStates = reverseTransitions.get(defaultState)) == null) {
-                        reverseTransitions.put(defaultState, (reverseStates = Sets.newHashSet()));
-                    }
-                    reverseStates.add(state);
-                    defaultTransitions.put(state, defaultState);
-                    worklist.push(defaultState);
-                }
-
-                stateTransitions.put(state, transitions);
-            }
-        }
-
-        for(IRegExp<S> state : stateTransitions.keySet()) {
-            if(RegExps.isNullable(state)) {
-                worklist.push(state);
-            }
-        }
-        final Set<IRegExp<S>> visited = Sets.newHashSet();
-        final Set<IRegExp<S>> nonFinal = Sets.newHashSet();
-        while(!worklist.isEmpty()) {
-            final IRegExp<S> state = worklist.pop();
-            if(!visited.contains(state)) {
-                visited.add(state);
-                if(reverseTransitions.containsKey(state)) {
-                    for(IRegExp<S> nextState : reverseTransitions.get(state)) {
-                        nonFinal.add(nextState);
-                        worklist.push(nextState);
-                    }
-                }
-            }
-        }
-        final Set<IRegExp<S>> isNullable =
-                stateTransitions.keySet().stream().filter(RegExps::isNullable).collect(ImmutableSet.toImmutableSet());
-
-        // convert maps to object graph
-        Map<IRegExp<S>, State<S>> states = Maps.newHashMapWithExpectedSize(stateTransitions.size());
-        for(IRegExp<S> state : stateTransitions.keySet()) {
-            final State<S> _state;
-            states.put(state, _state = new State<>(state));
-            _state.isNullable = isNullable.contains(state);
-            _state.nonFinal = nonFinal.contains(state);
-        }
-        for(IRegExp<S> state : stateTransitions.keySet()) {
-            final State<S> _state = states.get(state);
-            _state.defaultTransition = states.get(defaultTransitions.get(state));
-            _state.symbolTransitions = stateTransitions.get(state).entrySet().stream()
-                    .collect(Collectors.toMap(e -> e.getKey(), e -> states.get(e.getValue())));
-        }
-
-        return new RegExpMatcher<>(states.get(initial));
+    @Override public String toString() {
+        return regexp().toString();
     }
 
-    private static class State<S> implements Serializable {
-
-        private static final long serialVersionUID = 1L;
-
-        private final IRegExp<S> regexp;
-
-        private Map<S, State<S>> symbolTransitions;
-        private State<S> defaultTransition;
-        private boolean nonFinal;
-        private boolean isNullable;
-
-        private State(IRegExp<S> regexp) {
-            this.regexp = regexp;
-        }
-
-        @Override public int hashCode() {
-            return Objects.hash(regexp);
-        }
-
-        @Override public boolean equals(Object obj) {
-            if(this == obj)
-                return true;
-            if(obj == null)
-                return false;
-            if(getClass() != obj.getClass())
-                return false;
-            State<?> other = (State<?>) obj;
-            return Objects.equals(regexp, other.regexp);
-        }
+    public static <S> RegExpMatcher<S> create(final IRegExp<S> initial) {
+        final RegExpDfa<S> dfa = RegExpDfa.of(initial);
+        return dfa.matcher(dfa.initial());
+    }
 
-        @Override public String toString() {
-            return regexp.toString();
+    /**
+     * Returns the given matcher if it is backed by an automaton, or compiles one for its regular expression otherwise.
+     */
+    public static <S> RegExpMatcher<S> of(IRegExpMatcher<S> matcher) {
+        if(matcher instanceof RegExpMatcher) {
+            return (RegExpMatcher<S>) matcher;
         }
-
+        return create(matcher.regexp());
     }
 
     @Override public boolean equals(Object o) {
@@ -183,11 +79,14 @@ public class RegExpMatcher<S> implements IRegExpMatcher<S>, Serializable {
         if(o == null || getClass() != o.getClass())
             return false;
         RegExpMatcher<?> that = (RegExpMatcher<?>) o;
-        return Objects.equals(state, that.state);
+        if(dfa == that.dfa) {
+            return state == that.state;
+        }
+        return regexp().equals(that.regexp());
     }
 
     @Override public int hashCode() {
-        return Objects.hash(state);
+        return regexp().hashCode();
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,113 @@
+package mb.scopegraph.oopsla20.reference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Optional;
+
+import org.junit.Test;
+import org.metaborg.util.task.NullCancel;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+public class DenseScopeGraphTest {
+
+    private static final String I = "I";
+    private static final String P = "P";
+
+    @Test public void testEdgeOrderMatchesScopeGraph() {
+        final DenseScopeGraph.Transient<String, String, String> dense = DenseScopeGraph.Transient.of();
+        final ScopeGraph.Transient<String, String, String> reference = ScopeGraph.Transient.of();
+        for(String target : ImmutableList.of("a", "b", "c", "b")) {
+            dense.addEdge("r", I, target);
+            reference.addEdge("r", I, target);
+        }
+        assertEquals(Lists.newArrayList(reference.getEdges("r", I)), Lists.newArrayList(dense.getEdges("r", I)));
+        assertEquals(reference.getEdges(), dense.getEdges());
+        assertEquals(ImmutableSet.of(I), dense.getLabels());
+    }
+
+    @Test public void testVersionsAreIndependent() {
+        final DenseScopeGraph.Immutable<String, String, String> g0 =
+                DenseScopeGraph.Immutable.<String, String, String>of().addEdge("r", I, "a");
+        final DenseScopeGraph.Immutable<String, String, String> g1 = g0.addEdge("r", I, "b");
+        final DenseScopeGraph.Immutable<String, String, String> g2 = g0.addEdge("r", I, "c").setDatum("r", "x");
+        assertEquals(ImmutableList.of("a"), Lists.newArrayList(g0.getEdges("r", I)));
+        assertEquals(ImmutableList.of("b", "a"), Lists.newArrayList(g1.getEdges("r", I)));
+        assertEquals(ImmutableList.of("c", "a"), Lists.newArrayList(g2.getEdges("r", I)));
+        assertEquals(Optional.empty(), g1.getData("r"));
+        assertEquals(Optional.of("x"), g2.getData("r"));
+        assertFalse(g1.getEdges("c", I).iterator().hasNext());
+        assertFalse(g1.getEdges("r", P).iterator().hasNext());
+    }
+
+    @Test public void testAddAll() {
+        final ScopeGraph.Transient<String, String, String> other = ScopeGraph.Transient.of();
+        other.addEdge("r", I, "a");
+        other.addEdge("r", I, "b");
+        other.addEdge("s", P, "r");
+        other.setDatum("a", "x");
+        final DenseScopeGraph.Immutable<String, String, String> dense =
+                DenseScopeGraph.Immutable.<String, String, String>of().addEdge("r", I, "c").addAll(other);
+        final ScopeGraph.Immutable<String, String, String> reference =
+                ScopeGraph.Immutable.<String, String, String>of().addEdge("r", I, "c").addAll(other);
+        assertEquals(Lists.newArrayList(reference.getEdges("r", I)), Lists.newArrayList(dense.getEdges("r", I)));
+        assertEquals(reference.getEdges(), dense.getEdges());
+        assertEquals(reference.getData(), dense.getData());
+        assertEquals(reference.getLabels(), dense.getLabels());
+    }
+
+    @Test public void testManyScopes() {
+        final int size = 5000;
+        final DenseScopeGraph.Transient<Integer, String, Integer> graph = DenseScopeGraph.Transient.of();
+        for(int i = 0; i < size; i++) {
+            graph.addEdge(i, I, i + 1);
+            graph.setDatum(i, i);
+        }
+        final DenseScopeGraph.Immutable<Integer, String, Integer> frozen = graph.freeze();
+        for(int i = 0; i < size; i++) {
+            assertEquals(ImmutableList.of(i + 1), Lists.newArrayList(frozen.getEdges(i, I)));
+            assertEquals(Optional.of(i), frozen.getData(i));
+        }
+        assertEquals(size, frozen.getEdges().size());
+        assertEquals(size, frozen.getData().size());
+    }
+
+    @Test public void testSerialization() throws Exception {
+        final DenseScopeGraph.Immutable<String, String, String> graph = DenseScopeGraph.Immutable
+                .<String, String, String>of().addEdge("r", I, "a").addEdge("r", I, "b").setDatum("b", "x");
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try(ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+            oos.writeObject(graph);
+        }
+        final Object copy;
+        try(ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+            copy = ois.readObject();
+        }
+        assertEquals(graph, copy);
+        @SuppressWarnings("unchecked") final DenseScopeGraph.Immutable<String, String, String> copyGraph =
+                (DenseScopeGraph.Immutable<String, String, String>) copy;
+        assertEquals(ImmutableList.of("b", "a"), Lists.newArrayList(copyGraph.getEdges("r", I)));
+    }
+
+    @Test public void testResolution() throws Exception {
+        final DenseScopeGraph.Transient<String, String, String> graph = DenseScopeGraph.Transient.of();
+        graph.addEdge("r", I, "a");
+        graph.addEdge("r", I, "b");
+        graph.addEdge("a", I, "c");
+        graph.addEdge("b", I, "c");
+        graph.setDatum("c", "c");
+        final FastNameResolution<String, String, String> nameResolution =
+                FastNameResolution.<String, String, String>builder().withDataEquiv(DataLeq.NONE())
+                        .build(graph.freeze(), ImmutableSet.of(I));
+        final Env<String, String, String> env = nameResolution.resolve("r", new NullCancel());
+        assertEquals(2, env.size());
+    }
+
+}
@@ -0,0 +1,79 @@
+package mb.scopegraph.oopsla20.reference;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.metaborg.util.task.NullCancel;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+import mb.scopegraph.oopsla20.terms.newPath.ResolutionPath;
+
+public class FastNameResolutionTest {
+
+    private static final String I = "I";
+
+    @Test public void testDiamondChain() throws Exception {
+        final int depth = 8;
+        final ScopeGraph.Transient<String, String, String> graph = ScopeGraph.Transient.of();
+        for(int i = 0; i < depth; i++) {
+            graph.addEdge("s" + i, I, "a" + i);
+            graph.addEdge("s" + i, I, "b" + i);
+            graph.addEdge("a" + i, I, "s" + (i + 1));
+            graph.addEdge("b" + i, I, "s" + (i + 1));
+        }
+        graph.setDatum("s" + depth, "x");
+        final Env<String, String, String> env = resolve(graph.freeze(), "s0");
+        assertEquals(1 << depth, env.size());
+    }
+
+    @Test public void testDiamondWithCycle() throws Exception {
+        final ScopeGraph.Transient<String, String, String> graph = ScopeGraph.Transient.of();
+        graph.addEdge("r", I, "a");
+        graph.addEdge("r", I, "b");
+        graph.addEdge("a", I, "c");
+        graph.addEdge("b", I, "c");
+        graph.addEdge("c", I, "a");
+        graph.setDatum("a", "a");
+        graph.setDatum("c", "c");
+        final Env<String, String, String> env = resolve(graph.freeze(), "r");
+        final List<String> paths =
+                Lists.newArrayList(env).stream().map(p -> p.getPath().toString()).collect(Collectors.toList());
+        assertEquals(ImmutableSet.of("r I a", "r I a I c", "r I b I c", "r I b I c I a"), ImmutableSet.copyOf(paths));
+        assertEquals(ImmutableSet.of("a", "c"),
+                Lists.newArrayList(env).stream().map(ResolutionPath::getDatum).collect(Collectors.toSet()));
+    }
+
+    @Test public void testSharedMemoTable() throws Exception {
+        final ScopeGraph.Transient<String, String, String> graph = ScopeGraph.Transient.of();
+        graph.addEdge("r", I, "a");
+        graph.addEdge("r", I, "b");
+        graph.addEdge("a", I, "c");
+        graph.addEdge("b", I, "c");
+        graph.setDatum("c", "c");
+        final FastNameResolution.MemoTable<String, String, String> memoTable = new FastNameResolution.MemoTable<>();
+        final Env<String, String, String> env1 = resolve(graph.freeze(), "r", memoTable);
+        final Env<String, String, String> env2 = resolve(graph.freeze(), "b", memoTable);
+        assertEquals(2, env1.size());
+        assertEquals(1, env2.size());
+        assertEquals("b I c", env2.iterator().next().getPath().toString());
+    }
+
+    private static Env<String, String, String> resolve(ScopeGraph.Immutable<String, String, String> graph,
+            String scope) throws Exception {
+        return resolve(graph, scope, new FastNameResolution.MemoTable<>());
+    }
+
+    private static Env<String, String, String> resolve(ScopeGraph.Immutable<String, String, String> graph,
+            String scope, FastNameResolution.MemoTable<String, String, String> memoTable) throws Exception {
+        final FastNameResolution<String, String, String> nameResolution =
+                FastNameResolution.<String, String, String>builder().withDataEquiv(DataLeq.NONE())
+                        .withMemoTable(memoTable).build(graph, ImmutableSet.of(I));
+        return nameResolution.resolve(scope, new NullCancel());
+    }
+
+}
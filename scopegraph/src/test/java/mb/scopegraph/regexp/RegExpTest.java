@@ -1,6 +1,8 @@
 package mb.scopegraph.regexp;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.BeforeClass;
@@ -121,4 +123,25 @@ public class RegExpTest {
         assertFalse(m.isAccepting());
     }
 
-}
\ No newline at end of file
+    @Test public void testDfaTables() {
+        IRegExp<Integer> re = b.concat(b.closure(b.symbol(1)), b.symbol(3));
+        RegExpDfa<Integer> dfa = RegExpDfa.of(re);
+        assertEquals(-1, dfa.labelId(7));
+        int s = dfa.initial();
+        s = dfa.step(s, dfa.labelId(1));
+        assertFalse(dfa.isAccepting(s));
+        assertEquals(s, dfa.step(s, 1));
+        int t = dfa.step(s, 3);
+        assertTrue(dfa.isAccepting(t));
+        assertTrue(dfa.isFinal(t));
+        assertTrue(dfa.isEmpty(dfa.step(s, -1)));
+        assertTrue(dfa.isEmpty(dfa.step(t, 1)));
+    }
+
+    @Test public void testMatcherPerState() {
+        IRegExpMatcher<Integer> m = RegExpMatcher.create(b.closure(b.symbol(1)));
+        assertSame(m.match(1), m.match(1).match(1));
+        assertSame(m.match(3), m.match(5));
+    }
+
+}
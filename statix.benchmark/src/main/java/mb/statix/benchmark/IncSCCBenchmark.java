@@ -0,0 +1,78 @@
+package mb.statix.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mb.nabl2.util.graph.alg.incscc.IncSCCAlg;
+import mb.nabl2.util.graph.graphimpl.Graph;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime) @OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1) @Measurement(iterations = 5, time = 1) @Fork(1)
+public class IncSCCBenchmark {
+
+    @Param({ "42" }) public long seed;
+    @Param({ "100", "1000" }) public int nodes;
+    @Param({ "2" }) public int edgesPerNode;
+
+    private int[] sources;
+    private int[] targets;
+
+    @Setup public void setup() {
+        final Random rnd = new Random(seed);
+        final int edges = nodes * edgesPerNode;
+        sources = new int[edges];
+        targets = new int[edges];
+        for(int i = 0; i < edges; i++) {
+            sources[i] = rnd.nextInt(nodes);
+            targets[i] = rnd.nextInt(nodes);
+        }
+    }
+
+    /**
+     * Build the graph one edge at a time, updating the strongly connected components after every insertion.
+     */
+    @Benchmark public IncSCCAlg<Integer> insert() {
+        final Graph<Integer> graph = new Graph<>();
+        final IncSCCAlg<Integer> scc = new IncSCCAlg<>(graph);
+        for(int n = 0; n < nodes; n++) {
+            graph.insertNode(n);
+        }
+        for(int i = 0; i < sources.length; i++) {
+            graph.insertEdge(sources[i], targets[i]);
+        }
+        return scc;
+    }
+
+    /**
+     * Build the graph, and then remove all edges again, updating the strongly connected components after every
+     * deletion.
+     */
+    @Benchmark public IncSCCAlg<Integer> insertAndDelete() {
+        final Graph<Integer> graph = new Graph<>();
+        final IncSCCAlg<Integer> scc = new IncSCCAlg<>(graph);
+        for(int n = 0; n < nodes; n++) {
+            graph.insertNode(n);
+        }
+        for(int i = 0; i < sources.length; i++) {
+            graph.insertEdge(sources[i], targets[i]);
+        }
+        for(int i = sources.length - 1; i >= 0; i--) {
+            graph.deleteEdgeIfExists(sources[i], targets[i]);
+        }
+        return scc;
+    }
+
+}
@@ -0,0 +1,68 @@
+package mb.statix.benchmark;
+
+import static mb.statix.benchmark.ScopeGraphGenerator.I;
+import static mb.statix.benchmark.ScopeGraphGenerator.P;
+
+import java.util.concurrent.TimeUnit;
+
+import org.metaborg.util.task.NullCancel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableSet;
+
+import mb.scopegraph.oopsla20.reference.DataLeq;
+import mb.scopegraph.oopsla20.reference.Env;
+import mb.scopegraph.oopsla20.reference.FastNameResolution;
+import mb.scopegraph.oopsla20.reference.RegExpLabelWF;
+import mb.scopegraph.oopsla20.reference.ResolutionException;
+import mb.scopegraph.oopsla20.reference.ScopeGraph;
+import mb.scopegraph.regexp.IRegExpBuilder;
+import mb.scopegraph.regexp.RegExpMatcher;
+import mb.scopegraph.regexp.impl.RegExpBuilder;
+import mb.statix.benchmark.ScopeGraphGenerator.Shape;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime) @OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1) @Measurement(iterations = 5, time = 1) @Fork(1)
+public class NameResolutionBenchmark {
+
+    // the number of paths through a chain of diamonds is exponential in its length
+    private static final int MAX_DIAMONDS = 12;
+
+    @Param({ "42" }) public long seed;
+    @Param({ "CHAIN", "DIAMOND", "FANOUT", "RANDOM" }) public Shape shape;
+    @Param({ "10", "100", "1000" }) public int size;
+    @Param({ "false", "true" }) public boolean shadowing;
+
+    private ScopeGraph.Immutable<Integer, String, String> scopeGraph;
+    private int start;
+    private FastNameResolution.Builder<Integer, String, String> builder;
+
+    @Setup public void setup() {
+        final int scopes = shape.equals(Shape.DIAMOND) ? Math.min(size, MAX_DIAMONDS) : size;
+        scopeGraph = new ScopeGraphGenerator(seed).generate(shape, scopes);
+        start = ScopeGraphGenerator.start(shape, scopes);
+
+        // P* I*
+        final IRegExpBuilder<String> re = new RegExpBuilder<>();
+        builder = FastNameResolution.<Integer, String, String>builder()
+                .withLabelWF(RegExpLabelWF.of(
+                        RegExpMatcher.create(re.concat(re.closure(re.symbol(P)), re.closure(re.symbol(I))))))
+                .withDataEquiv(shadowing ? DataLeq.ALL() : DataLeq.NONE());
+    }
+
+    @Benchmark public Env<Integer, String, String> resolve() throws ResolutionException, InterruptedException {
+        return builder.build(scopeGraph, ImmutableSet.of(P, I)).resolve(start, new NullCancel());
+    }
+
+}
@@ -0,0 +1,58 @@
+package mb.statix.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mb.scopegraph.regexp.IRegExp;
+import mb.scopegraph.regexp.IRegExpBuilder;
+import mb.scopegraph.regexp.IRegExpMatcher;
+import mb.scopegraph.regexp.RegExpMatcher;
+import mb.scopegraph.regexp.impl.RegExpBuilder;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime) @OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1) @Measurement(iterations = 5, time = 1) @Fork(1)
+public class RegExpBenchmark {
+
+    private static final String[] LABELS = { "P", "I" };
+
+    @Param({ "42" }) public long seed;
+    @Param({ "10", "100" }) public int length;
+
+    private IRegExpMatcher<String> matcher;
+    private String[] word;
+
+    @Setup public void setup() {
+        // (P | I)* R? S*, where the generated words only contain P and I, so matching never gets stuck
+        final IRegExpBuilder<String> re = new RegExpBuilder<>();
+        final IRegExp<String> regexp = re.concat(re.closure(re.or(re.symbol("P"), re.symbol("I"))),
+                re.concat(re.or(re.emptyString(), re.symbol("R")), re.closure(re.symbol("S"))));
+        matcher = RegExpMatcher.create(regexp);
+        final Random rnd = new Random(seed);
+        word = new String[length];
+        for(int i = 0; i < length; i++) {
+            word[i] = LABELS[rnd.nextInt(LABELS.length)];
+        }
+    }
+
+    @Benchmark public boolean step() {
+        IRegExpMatcher<String> m = matcher;
+        for(String label : word) {
+            m = m.match(label);
+        }
+        return m.isAccepting();
+    }
+
+}
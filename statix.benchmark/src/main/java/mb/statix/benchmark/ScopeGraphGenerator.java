@@ -0,0 +1,88 @@
+package mb.statix.benchmark;
+
+import java.util.Random;
+
+import mb.scopegraph.oopsla20.reference.ScopeGraph;
+
+/**
+ * Generator for synthetic scope graphs. Scopes are integers, and edges are labeled with {@link #P} or {@link #I}. Every
+ * shape has a root scope {@code 0}, from which all other scopes are reachable.
+ */
+public class ScopeGraphGenerator {
+
+    public static final String P = "P";
+    public static final String I = "I";
+    public static final String DATUM = "x";
+
+    public enum Shape {
+        /** A linear chain of {@code size} scopes, each of which has a declaration. */
+        CHAIN,
+        /** A chain of {@code size} diamonds, with a declaration at the bottom. */
+        DIAMOND,
+        /** A root scope importing {@code size} scopes, each of which has a declaration. */
+        FANOUT,
+        /** A tree of {@code size} scopes with random parents, and random extra imports. */
+        RANDOM
+    }
+
+    private final Random rnd;
+
+    public ScopeGraphGenerator(long seed) {
+        this.rnd = new Random(seed);
+    }
+
+    public ScopeGraph.Immutable<Integer, String, String> generate(Shape shape, int size) {
+        final ScopeGraph.Transient<Integer, String, String> graph = ScopeGraph.Transient.of();
+        switch(shape) {
+            case CHAIN:
+                for(int s = 0; s < size; s++) {
+                    graph.addEdge(s, P, s + 1);
+                    graph.setDatum(s + 1, DATUM);
+                }
+                break;
+            case DIAMOND:
+                for(int d = 0; d < size; d++) {
+                    final int top = 3 * d;
+                    graph.addEdge(top, I, top + 1);
+                    graph.addEdge(top, I, top + 2);
+                    graph.addEdge(top + 1, I, top + 3);
+                    graph.addEdge(top + 2, I, top + 3);
+                }
+                graph.setDatum(3 * size, DATUM);
+                break;
+            case FANOUT:
+                for(int s = 1; s <= size; s++) {
+                    graph.addEdge(0, I, s);
+                    graph.setDatum(s, DATUM);
+                }
+                break;
+            case RANDOM:
+                for(int s = 1; s <= size; s++) {
+                    graph.addEdge(s, P, rnd.nextInt(s));
+                    if(rnd.nextInt(4) == 0) {
+                        graph.addEdge(s, I, rnd.nextInt(size + 1));
+                    }
+                    if(rnd.nextInt(8) == 0) {
+                        graph.setDatum(s, DATUM);
+                    }
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown shape " + shape);
+        }
+        return graph.freeze();
+    }
+
+    /**
+     * The scope from which queries start in the given shape.
+     */
+    public static int start(Shape shape, int size) {
+        switch(shape) {
+            case RANDOM:
+                return size;
+            default:
+                return 0;
+        }
+    }
+
+}
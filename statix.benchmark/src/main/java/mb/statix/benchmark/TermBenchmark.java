@@ -0,0 +1,88 @@
+package mb.statix.benchmark;
+
+import static mb.nabl2.terms.build.TermBuild.B;
+import static mb.nabl2.terms.matching.TermMatch.M;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.Lists;
+
+import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.Terms;
+import mb.nabl2.terms.matching.TermMatch.IMatcher;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime) @OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1) @Measurement(iterations = 5, time = 1) @Fork(1)
+public class TermBenchmark {
+
+    private static final String PAIR = "Pair";
+
+    @Param({ "42" }) public long seed;
+    @Param({ "4", "8" }) public int depth;
+    @Param({ "2", "4" }) public int arity;
+
+    private ITerm term;
+    private ITerm pairs;
+    private IMatcher<List<Integer>> pairsMatcher;
+
+    @Setup public void setup() {
+        final TermGenerator generator = new TermGenerator(seed, 0);
+        term = generator.ground(depth, arity);
+        final List<ITerm> elems = Lists.newArrayList();
+        for(int i = 0; i < (1 << depth); i++) {
+            elems.add(B.newAppl(PAIR, B.newString("s" + i), B.newInt(i)));
+        }
+        pairs = B.newList(elems);
+        pairsMatcher = M.listElems(M.appl2(PAIR, M.stringValue(), M.integerValue(), (t, s, i) -> i));
+    }
+
+    @Benchmark public ITerm build() {
+        return copy(term);
+    }
+
+    @Benchmark public boolean equalsCopy() {
+        return term.equals(copy(term));
+    }
+
+    @Benchmark public Optional<List<Integer>> match() {
+        return pairsMatcher.match(pairs);
+    }
+
+    /**
+     * Rebuild the given term bottom-up. Lists, blobs, and variables are shared.
+     */
+    private static ITerm copy(ITerm term) {
+        // @formatter:off
+        return term.match(Terms.cases(
+            appl -> {
+                final List<ITerm> args = Lists.newArrayListWithCapacity(appl.getArity());
+                for(ITerm arg : appl.getArgs()) {
+                    args.add(copy(arg));
+                }
+                return B.newAppl(appl.getOp(), args);
+            },
+            list -> list,
+            string -> B.newString(string.getValue()),
+            integer -> B.newInt(integer.getValue()),
+            blob -> blob,
+            var -> var
+        ));
+        // @formatter:on
+    }
+
+}
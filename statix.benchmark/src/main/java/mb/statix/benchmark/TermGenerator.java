@@ -0,0 +1,74 @@
+package mb.statix.benchmark;
+
+import static mb.nabl2.terms.build.TermBuild.B;
+
+import java.util.List;
+import java.util.Random;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.ITermVar;
+
+/**
+ * Generator for synthetic terms. Generated terms only depend on the seed and the parameters, so that benchmark results
+ * are reproducible.
+ */
+public class TermGenerator {
+
+    public static final String CTOR = "C";
+
+    private final Random rnd;
+    private final List<ITermVar> vars;
+
+    public TermGenerator(long seed, int varCount) {
+        this.rnd = new Random(seed);
+        final ImmutableList.Builder<ITermVar> vars = ImmutableList.builder();
+        for(int i = 0; i < varCount; i++) {
+            vars.add(B.newVar("", "v" + i));
+        }
+        this.vars = vars.build();
+    }
+
+    public List<ITermVar> vars() {
+        return vars;
+    }
+
+    /**
+     * Generate a ground term of the given depth, where every constructor application has the given arity.
+     */
+    public ITerm ground(int depth, int arity) {
+        return term(depth, arity, 0d);
+    }
+
+    /**
+     * Generate a term of the given depth, where every constructor application has the given arity. Each subterm is
+     * replaced by a variable with the given probability.
+     */
+    public ITerm term(int depth, int arity, double varRatio) {
+        if(!vars.isEmpty() && rnd.nextDouble() < varRatio) {
+            return vars.get(rnd.nextInt(vars.size()));
+        }
+        if(depth <= 0) {
+            return rnd.nextBoolean() ? B.newString("s" + rnd.nextInt(16)) : B.newInt(rnd.nextInt(16));
+        }
+        final List<ITerm> args = Lists.newArrayListWithCapacity(arity);
+        for(int i = 0; i < arity; i++) {
+            args.add(term(depth - 1, arity, varRatio));
+        }
+        return B.newAppl(CTOR + rnd.nextInt(4), args);
+    }
+
+    /**
+     * Generate a list of the given length, with elements of the given depth and arity.
+     */
+    public ITerm list(int length, int depth, int arity) {
+        final List<ITerm> elems = Lists.newArrayListWithCapacity(length);
+        for(int i = 0; i < length; i++) {
+            elems.add(ground(depth, arity));
+        }
+        return B.newList(elems);
+    }
+
+}
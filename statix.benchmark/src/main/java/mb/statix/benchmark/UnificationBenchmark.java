@@ -0,0 +1,137 @@
+package mb.statix.benchmark;
+
+import static mb.nabl2.terms.build.TermBuild.B;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.ITermVar;
+import mb.nabl2.terms.Terms;
+import mb.nabl2.terms.unification.OccursException;
+import mb.nabl2.terms.unification.u.IUnifier;
+import mb.nabl2.terms.unification.u.PersistentUnifier;
+import mb.nabl2.terms.unification.ud.PersistentUniDisunifier;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime) @OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1) @Measurement(iterations = 5, time = 1) @Fork(1)
+public class UnificationBenchmark {
+
+    public enum Kind {
+        UNIFIER, UNIDISUNIFIER
+    }
+
+    @Param({ "42" }) public long seed;
+    @Param({ "UNIFIER", "UNIDISUNIFIER" }) public Kind kind;
+    @Param({ "10", "100", "1000" }) public int size;
+
+    private IUnifier.Immutable empty;
+    private ITerm left;
+    private ITerm right;
+    private List<ITermVar> chainVars;
+    private IUnifier.Immutable chain;
+
+    @Setup public void setup() throws OccursException {
+        switch(kind) {
+            case UNIFIER:
+                empty = PersistentUnifier.Immutable.of();
+                break;
+            case UNIDISUNIFIER:
+                empty = PersistentUniDisunifier.Immutable.of();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown kind " + kind);
+        }
+
+        // two terms with variables at different positions, that unify
+        final int depth = depth(size);
+        final TermGenerator generator = new TermGenerator(seed, 1 << depth);
+        final ITerm shape = generator.ground(depth, 2);
+        left = replaceLeaves(shape, generator.vars(), 0);
+        right = replaceLeaves(shape, generator.vars(), 1);
+
+        // a chain of variables, v_i == v_i+1
+        chainVars = generator.vars().subList(0, size);
+        IUnifier.Immutable unifier = empty;
+        for(int i = 0; i + 1 < chainVars.size(); i++) {
+            unifier = unifier.unify(chainVars.get(i), chainVars.get(i + 1)).get().unifier();
+        }
+        chain = unifier;
+    }
+
+    @Benchmark public Optional<? extends IUnifier.Result<? extends IUnifier.Immutable>> unify()
+            throws OccursException {
+        return empty.unify(left, right);
+    }
+
+    @Benchmark public void findRep(Blackhole blackhole) {
+        for(ITermVar var : chainVars) {
+            blackhole.consume(chain.findRep(var));
+        }
+    }
+
+    @Benchmark public void findTerm(Blackhole blackhole) {
+        for(ITermVar var : chainVars) {
+            blackhole.consume(chain.findTerm(var));
+        }
+    }
+
+    private static int depth(int leaves) {
+        int depth = 0;
+        while((1 << depth) < leaves) {
+            depth++;
+        }
+        return depth;
+    }
+
+    private int leaf = 0;
+
+    /**
+     * Replace every other leaf of the term by a variable, starting at the given offset. Every leaf has its own
+     * variable, so that replacing with different offsets results in unifiable terms.
+     */
+    private ITerm replaceLeaves(ITerm term, List<ITermVar> vars, int offset) {
+        leaf = 0;
+        return doReplaceLeaves(term, vars, offset);
+    }
+
+    private ITerm doReplaceLeaves(ITerm term, List<ITermVar> vars, int offset) {
+        // @formatter:off
+        return term.match(Terms.cases(
+            appl -> {
+                final ITerm[] args = new ITerm[appl.getArity()];
+                for(int i = 0; i < args.length; i++) {
+                    args[i] = doReplaceLeaves(appl.getArgs().get(i), vars, offset);
+                }
+                return B.newAppl(appl.getOp(), args);
+            },
+            list -> list,
+            string -> replaceLeaf(string, vars, offset),
+            integer -> replaceLeaf(integer, vars, offset),
+            blob -> blob,
+            var -> var
+        ));
+        // @formatter:on
+    }
+
+    private ITerm replaceLeaf(ITerm term, List<ITermVar> vars, int offset) {
+        final int i = leaf++;
+        return (i + offset) % 2 == 0 ? vars.get(i) : term;
+    }
+
+}
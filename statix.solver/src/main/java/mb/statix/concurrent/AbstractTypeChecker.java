@@ -43,6 +43,7 @@ import mb.statix.solver.IState.Immutable;
 import mb.statix.solver.ITermProperty;
 import mb.statix.solver.completeness.Completeness;
 import mb.statix.solver.log.IDebugContext;
+import mb.statix.solver.persistent.Solver;
 import mb.statix.solver.persistent.SolverResult;
 import mb.statix.solver.persistent.State;
 import mb.statix.spec.ApplyMode;
@@ -57,12 +58,25 @@ public abstract class AbstractTypeChecker<R extends ITypeChecker.IOutput<Scope,
 
     private static final ILogger logger = LoggerUtils.logger(AbstractTypeChecker.class);
 
+    /**
+     * Default flags for the unit solvers. Solving independent term constraints of a unit in parallel is enabled with
+     * the {@code statix.parallelComponents} system property.
+     */
+    protected static final int DEFAULT_SOLVER_FLAGS =
+            Boolean.getBoolean("statix.parallelComponents") ? Solver.PARALLEL_COMPONENTS : 0;
+
     protected final Spec spec;
     protected final IDebugContext debug;
+    protected final int flags;
 
     protected AbstractTypeChecker(Spec spec, IDebugContext debug) {
+        this(spec, debug, DEFAULT_SOLVER_FLAGS);
+    }
+
+    protected AbstractTypeChecker(Spec spec, IDebugContext debug, int flags) {
         this.spec = spec;
         this.debug = debug;
+        this.flags = flags;
     }
 
     private StatixSolver solver;
@@ -91,7 +105,7 @@ public abstract class AbstractTypeChecker<R extends ITypeChecker.IOutput<Scope,
         for(Map.Entry<String, IStatixGroup> entry : groups.entrySet()) {
             final String key = entry.getKey();
             final IFuture<IUnitResult<Scope, ITerm, ITerm, Result<Scope, ITerm, ITerm, GroupResult, SolverState>>> result =
-                    context.add(key, new GroupTypeChecker(entry.getValue(), spec, debug), parentScopes,
+                    context.add(key, new GroupTypeChecker(entry.getValue(), spec, debug, flags), parentScopes,
                             entry.getValue().changed());
             results.add(result.thenApply(r -> Tuple2.of(key, r)).whenComplete((r, ex) -> {
                 logger.debug("checker {}: group {} returned.", context.id(), key);
@@ -117,7 +131,7 @@ public abstract class AbstractTypeChecker<R extends ITypeChecker.IOutput<Scope,
         for(Map.Entry<String, IStatixUnit> entry : units.entrySet()) {
             final String key = entry.getKey();
             final IFuture<IUnitResult<Scope, ITerm, ITerm, Result<Scope, ITerm, ITerm, UnitResult, SolverState>>> result =
-                    context.add(key, new UnitTypeChecker(entry.getValue(), spec, debug), parentScopes,
+                    context.add(key, new UnitTypeChecker(entry.getValue(), spec, debug, flags), parentScopes,
                             entry.getValue().changed());
             results.add(result.thenApply(r -> Tuple2.of(key, r)).whenComplete((r, ex) -> {
                 logger.debug("checker {}: unit {} returned.", context.id(), key);
@@ -187,7 +201,7 @@ public abstract class AbstractTypeChecker<R extends ITypeChecker.IOutput<Scope,
         }
 
         solver = new StatixSolver(applyResult.body(), spec, unitState, applyResult.criticalEdges(), debug,
-                new NullProgress(), new NullCancel(), context, 0);
+                new NullProgress(), new NullCancel(), context, flags);
         solveResult = solver.solve(scopes);
 
         return finish(solveResult, context.id());
@@ -195,7 +209,7 @@ public abstract class AbstractTypeChecker<R extends ITypeChecker.IOutput<Scope,
 
     protected IFuture<SolverResult> runSolver(ITypeCheckerContext<Scope, ITerm, ITerm> context,
             SolverState initialState) {
-        solver = new StatixSolver(initialState, spec, debug, new NullProgress(), new NullCancel(), context, 0);
+        solver = new StatixSolver(initialState, spec, debug, new NullProgress(), new NullCancel(), context, flags);
         solveResult = solver.continueSolve();
         pendingData.forEach((d, future) -> solver.getExternalRepresentation(d).whenComplete(future::complete));
         pendingData.clear();
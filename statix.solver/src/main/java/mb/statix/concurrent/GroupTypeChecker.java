@@ -27,7 +27,11 @@ public class GroupTypeChecker extends AbstractTypeChecker<GroupResult> {
     private final IStatixGroup group;
 
     public GroupTypeChecker(IStatixGroup group, Spec spec, IDebugContext debug) {
-        super(spec, debug);
+        this(group, spec, debug, DEFAULT_SOLVER_FLAGS);
+    }
+
+    public GroupTypeChecker(IStatixGroup group, Spec spec, IDebugContext debug, int flags) {
+        super(spec, debug, flags);
         this.group = group;
     }
 
@@ -2,6 +2,9 @@ package mb.statix.concurrent;
 
 import static mb.nabl2.terms.matching.TermMatch.M;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
 import java.util.Optional;
 
 import org.metaborg.util.iterators.Iterables2;
@@ -41,10 +44,21 @@ public class InputMatchers {
     }
 
     public static IMatcher<IStatixLibrary> library() {
-        return M.req("Expected Library", M.appl3("Library", M.listElems(Scope.matcher()), M.listElems(Scope.matcher()),
-                StatixTerms.scopeGraph(), (t, rootScopes, ownScopes, scopeGraph) -> {
-                    return new StatixLibrary(rootScopes, ownScopes, scopeGraph);
-                }));
+        // @formatter:off
+        return M.req("Expected Library", M.<IStatixLibrary>cases(
+            M.appl3("Library", M.listElems(Scope.matcher()), M.listElems(Scope.matcher()),
+                    StatixTerms.scopeGraph(), (t, rootScopes, ownScopes, scopeGraph) -> {
+                return new StatixLibrary(rootScopes, ownScopes, scopeGraph);
+            }),
+            M.appl1("LibrarySnapshot", M.stringValue(), (t, file) -> {
+                try {
+                    return StatixLibrarySnapshot.read(Paths.get(file));
+                } catch(IOException ex) {
+                    throw new UncheckedIOException("Cannot read library snapshot " + file, ex);
+                }
+            })
+        ));
+        // @formatter:on
     }
 
     public static IMatcher<Boolean> changed() {
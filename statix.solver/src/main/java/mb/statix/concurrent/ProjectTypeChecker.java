@@ -25,7 +25,11 @@ public class ProjectTypeChecker extends AbstractTypeChecker<ProjectResult> {
     private final IStatixProject project;
 
     public ProjectTypeChecker(IStatixProject project, Spec spec, IDebugContext debug) {
-        super(spec, debug);
+        this(project, spec, debug, DEFAULT_SOLVER_FLAGS);
+    }
+
+    public ProjectTypeChecker(IStatixProject project, Spec spec, IDebugContext debug, int flags) {
+        super(spec, debug, flags);
         this.project = project;
     }
 
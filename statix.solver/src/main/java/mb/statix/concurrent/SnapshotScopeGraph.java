@@ -0,0 +1,225 @@
+package mb.statix.concurrent;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.Iterables;
+
+import io.usethesource.capsule.Set;
+import mb.nabl2.terms.ITerm;
+import mb.scopegraph.oopsla20.IScopeGraph;
+import mb.scopegraph.oopsla20.reference.ScopeGraph;
+import mb.statix.scopegraph.Scope;
+
+/**
+ * Scope graph that reads edges and data from a {@link StatixLibrarySnapshot}. Edges and data that are added after the
+ * snapshot was loaded are kept in a regular scope graph on top of the snapshot.
+ *
+ * Data is decoded on first access, and cached for all versions of the scope graph. The scope graph is safe to read
+ * from multiple threads. It is serialized as a regular {@link ScopeGraph}.
+ */
+final class SnapshotScopeGraph implements IScopeGraph.Immutable<Scope, ITerm, ITerm>, Serializable {
+
+    private static final long serialVersionUID = 42L;
+
+    private final transient Base base;
+    private final transient ScopeGraph.Immutable<Scope, ITerm, ITerm> overlay;
+    private final transient Set.Immutable<ITerm> labels;
+
+    private SnapshotScopeGraph(Base base, ScopeGraph.Immutable<Scope, ITerm, ITerm> overlay) {
+        this.base = base;
+        this.overlay = overlay;
+        this.labels = base.labels.__insertAll(overlay.getLabels());
+    }
+
+    @Override public Set.Immutable<ITerm> getLabels() {
+        return labels;
+    }
+
+    @Override public Map<? extends Entry<Scope, ITerm>, ? extends Iterable<Scope>> getEdges() {
+        return materialize().getEdges();
+    }
+
+    @Override public Iterable<Scope> getEdges(Scope scope, ITerm label) {
+        final List<Scope> edges = base.edges(scope, label);
+        final Iterable<Scope> overlayEdges = overlay.getEdges(scope, label);
+        if(Iterables.isEmpty(overlayEdges)) {
+            return edges;
+        }
+        return Iterables.concat(overlayEdges, edges);
+    }
+
+    @Override public Map<Scope, ITerm> getData() {
+        return materialize().getData();
+    }
+
+    @Override public Optional<ITerm> getData(Scope scope) {
+        final Optional<ITerm> datum = overlay.getData(scope);
+        if(datum.isPresent()) {
+            return datum;
+        }
+        return Optional.ofNullable(base.datum(scope));
+    }
+
+    @Override public IScopeGraph.Immutable<Scope, ITerm, ITerm> addEdge(Scope sourceScope, ITerm label,
+            Scope targetScope) {
+        if(base.edges(sourceScope, label).contains(targetScope)) {
+            return this;
+        }
+        return new SnapshotScopeGraph(base, overlay.addEdge(sourceScope, label, targetScope));
+    }
+
+    @Override public IScopeGraph.Immutable<Scope, ITerm, ITerm> setDatum(Scope scope, ITerm datum) {
+        return new SnapshotScopeGraph(base, overlay.setDatum(scope, datum));
+    }
+
+    @Override public IScopeGraph.Immutable<Scope, ITerm, ITerm> addAll(IScopeGraph<Scope, ITerm, ITerm> other) {
+        return new SnapshotScopeGraph(base, (ScopeGraph.Immutable<Scope, ITerm, ITerm>) overlay.addAll(other));
+    }
+
+    @Override public IScopeGraph.Transient<Scope, ITerm, ITerm> melt() {
+        return materialize().melt();
+    }
+
+    /**
+     * Copy the snapshot and the added edges and data into a regular scope graph.
+     */
+    private ScopeGraph.Immutable<Scope, ITerm, ITerm> materialize() {
+        final ScopeGraph.Transient<Scope, ITerm, ITerm> scopeGraph = base.materialize().melt();
+        scopeGraph.addAll(overlay);
+        return scopeGraph.freeze();
+    }
+
+    private Object writeReplace() throws ObjectStreamException {
+        return materialize();
+    }
+
+    @Override public String toString() {
+        return materialize().toString();
+    }
+
+    static SnapshotScopeGraph of(StatixLibrarySnapshot snapshot, Scope[] scopes) {
+        return new SnapshotScopeGraph(new Base(snapshot, scopes), ScopeGraph.Immutable.of());
+    }
+
+    /**
+     * The snapshot, together with the scopes it is instantiated with. Shared by all versions of a scope graph.
+     */
+    private static final class Base {
+
+        private static final Object NO_DATUM = new Object();
+
+        private final StatixLibrarySnapshot snapshot;
+        private final Scope[] scopes;
+        private final Map<Scope, Integer> scopeIds;
+        private final Map<ITerm, Integer> labelIds;
+        private final Set.Immutable<ITerm> labels;
+        private final AtomicReferenceArray<Object> data;
+        private volatile @Nullable ScopeGraph.Immutable<Scope, ITerm, ITerm> materialized;
+
+        private Base(StatixLibrarySnapshot snapshot, Scope[] scopes) {
+            this.snapshot = snapshot;
+            this.scopes = scopes;
+            this.scopeIds = new HashMap<>(scopes.length * 2);
+            for(int s = 0; s < scopes.length; s++) {
+                scopeIds.putIfAbsent(scopes[s], s);
+            }
+            this.labelIds = new HashMap<>();
+            final Set.Transient<ITerm> labels = Set.Transient.of();
+            final List<ITerm> labelList = snapshot.labels();
+            for(int l = 0; l < labelList.size(); l++) {
+                labelIds.put(labelList.get(l), l);
+                labels.__insert(labelList.get(l));
+            }
+            this.labels = labels.freeze();
+            this.data = new AtomicReferenceArray<>(scopes.length);
+        }
+
+        private List<Scope> edges(Scope scope, ITerm label) {
+            final Integer s;
+            final Integer l;
+            if((s = scopeIds.get(scope)) == null || (l = labelIds.get(label)) == null) {
+                return Collections.emptyList();
+            }
+            final int start = snapshot.edgeStart(l, s);
+            final int end = snapshot.edgeEnd(l, s);
+            if(start == end) {
+                return Collections.emptyList();
+            }
+            return new Targets(l, start, end);
+        }
+
+        private @Nullable ITerm datum(Scope scope) {
+            final Integer s;
+            if((s = scopeIds.get(scope)) == null) {
+                return null;
+            }
+            Object datum = data.get(s);
+            if(datum == null) {
+                // decoding is deterministic, so concurrent decoders may both store their result
+                final ITerm decoded = snapshot.datum(s, scopes);
+                datum = decoded != null ? decoded : NO_DATUM;
+                data.set(s, datum);
+            }
+            return datum != NO_DATUM ? (ITerm) datum : null;
+        }
+
+        private ScopeGraph.Immutable<Scope, ITerm, ITerm> materialize() {
+            ScopeGraph.Immutable<Scope, ITerm, ITerm> result = materialized;
+            if(result == null) {
+                final ScopeGraph.Transient<Scope, ITerm, ITerm> scopeGraph = ScopeGraph.Transient.of();
+                for(Scope scope : scopes) {
+                    for(ITerm label : labels) {
+                        for(Scope target : edges(scope, label)) {
+                            scopeGraph.addEdge(scope, label, target);
+                        }
+                    }
+                    final ITerm datum = datum(scope);
+                    if(datum != null) {
+                        scopeGraph.setDatum(scope, datum);
+                    }
+                }
+                materialized = result = scopeGraph.freeze();
+            }
+            return result;
+        }
+
+        private final class Targets extends AbstractList<Scope> implements RandomAccess {
+
+            private final int label;
+            private final int start;
+            private final int end;
+
+            private Targets(int label, int start, int end) {
+                this.label = label;
+                this.start = start;
+                this.end = end;
+            }
+
+            @Override public Scope get(int index) {
+                if(index < 0 || index >= end - start) {
+                    throw new IndexOutOfBoundsException(Integer.toString(index));
+                }
+                return scopes[snapshot.edgeTarget(label, start + index)];
+            }
+
+            @Override public int size() {
+                return end - start;
+            }
+
+        }
+
+    }
+
+}
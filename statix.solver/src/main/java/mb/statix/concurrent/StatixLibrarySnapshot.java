@@ -0,0 +1,400 @@
+package mb.statix.concurrent;
+
+import static mb.nabl2.terms.build.TermBuild.B;
+import static mb.nabl2.terms.matching.TermMatch.M;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.annotation.Nullable;
+
+import org.metaborg.util.collection.CapsuleUtil;
+import org.metaborg.util.functions.Function1;
+import org.metaborg.util.tuple.Tuple2;
+
+import com.google.common.collect.ImmutableList;
+
+import io.usethesource.capsule.Set;
+import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.matching.Transform.T;
+import mb.nabl2.terms.serialization.TermReader;
+import mb.nabl2.terms.serialization.TermWriter;
+import mb.scopegraph.oopsla20.IScopeGraph;
+import mb.statix.scopegraph.Scope;
+
+/**
+ * Library backed by a read-only, memory-mapped snapshot file.
+ *
+ * The snapshot numbers the scopes of the library, root scopes first, and stores the edges of every label as adjacency
+ * arrays over these numbers. Edges are read from the mapped file directly. Data is decoded on first access. Scopes
+ * in data are stored by number, so that they can be replaced by the actual scopes without traversing every datum when
+ * the library is initialized.
+ *
+ * Snapshots are written by {@link #write(IStatixLibrary, Path)}, and read by {@link #read(Path)}.
+ */
+public final class StatixLibrarySnapshot implements IStatixLibrary {
+
+    private static final int MAGIC = 0x5354584C; // "STXL"
+    private static final int VERSION = 1;
+
+    /**
+     * Constructor used for scopes in data. The dot makes sure it cannot clash with a constructor from a language
+     * definition.
+     */
+    private static final String SCOPE_REF = "Statix.LibraryScope";
+
+    private final ByteBuffer buffer;
+    private final int scopeCount;
+    private final int rootScopeCount;
+    private final IntBuffer roots;
+    private final String[] resources;
+    private final IntBuffer scopeResources;
+    private final IntBuffer nameOffsets;
+    private final int namesStart;
+    private final ImmutableList<ITerm> labels;
+    private final IntBuffer[] edgeOffsets;
+    private final IntBuffer[] edgeTargets;
+    private final IntBuffer dataOffsets;
+    private final int dataStart;
+
+    private StatixLibrarySnapshot(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        int position = 0;
+        if(buffer.getInt(position) != MAGIC) {
+            throw new StreamCorruptedException("Not a library snapshot.");
+        }
+        position += 4;
+        final int version = buffer.getInt(position);
+        if(version != VERSION) {
+            throw new StreamCorruptedException(
+                    "Unsupported library snapshot version " + version + ", expected " + VERSION);
+        }
+        position += 4;
+        this.scopeCount = buffer.getInt(position);
+        position += 4;
+        this.rootScopeCount = buffer.getInt(position);
+        position += 4;
+
+        final int rootCount = buffer.getInt(position);
+        position += 4;
+        this.roots = ints(position, rootCount);
+        position += rootCount * 4;
+
+        this.resources = new String[buffer.getInt(position)];
+        position += 4;
+        for(int i = 0; i < resources.length; i++) {
+            final int length = buffer.getInt(position);
+            position += 4;
+            resources[i] = new String(bytes(position, length), StandardCharsets.UTF_8);
+            position += length;
+        }
+        this.scopeResources = ints(position, scopeCount);
+        position += scopeCount * 4;
+        this.nameOffsets = ints(position, scopeCount + 1);
+        position += (scopeCount + 1) * 4;
+        this.namesStart = position;
+        position += nameOffsets.get(scopeCount);
+
+        final int labelCount = buffer.getInt(position);
+        position += 4;
+        final ImmutableList.Builder<ITerm> labels = ImmutableList.builder();
+        for(int l = 0; l < labelCount; l++) {
+            final int length = buffer.getInt(position);
+            position += 4;
+            labels.add(readTerm(bytes(position, length)));
+            position += length;
+        }
+        this.labels = labels.build();
+        this.edgeOffsets = new IntBuffer[labelCount];
+        this.edgeTargets = new IntBuffer[labelCount];
+        for(int l = 0; l < labelCount; l++) {
+            edgeOffsets[l] = ints(position, scopeCount + 1);
+            position += (scopeCount + 1) * 4;
+            final int edgeCount = edgeOffsets[l].get(scopeCount);
+            edgeTargets[l] = ints(position, edgeCount);
+            position += edgeCount * 4;
+        }
+
+        this.dataOffsets = ints(position, scopeCount + 1);
+        position += (scopeCount + 1) * 4;
+        this.dataStart = position;
+    }
+
+    private IntBuffer ints(int position, int count) {
+        final ByteBuffer slice = buffer.duplicate();
+        slice.position(position);
+        slice.limit(position + count * 4);
+        return slice.slice().asIntBuffer();
+    }
+
+    private byte[] bytes(int position, int length) {
+        final ByteBuffer slice = buffer.duplicate();
+        slice.position(position);
+        final byte[] bytes = new byte[length];
+        slice.get(bytes);
+        return bytes;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Snapshot contents
+    ///////////////////////////////////////////////////////////////////////////
+
+    int scopeCount() {
+        return scopeCount;
+    }
+
+    String scopeName(int scope) {
+        final int start = nameOffsets.get(scope);
+        return new String(bytes(namesStart + start, nameOffsets.get(scope + 1) - start), StandardCharsets.UTF_8);
+    }
+
+    Scope scope(int scope) {
+        return Scope.of(resources[scopeResources.get(scope)], scopeName(scope));
+    }
+
+    List<ITerm> labels() {
+        return labels;
+    }
+
+    int edgeStart(int label, int scope) {
+        return edgeOffsets[label].get(scope);
+    }
+
+    int edgeEnd(int label, int scope) {
+        return edgeOffsets[label].get(scope + 1);
+    }
+
+    int edgeTarget(int label, int index) {
+        return edgeTargets[label].get(index);
+    }
+
+    /**
+     * Decode the datum of the given scope, and replace scopes in it by the given scopes.
+     */
+    @Nullable ITerm datum(int scope, Scope[] scopes) {
+        final int start = dataOffsets.get(scope);
+        final int length = dataOffsets.get(scope + 1) - start;
+        if(length == 0) {
+            return null;
+        }
+        final ITerm datum;
+        try {
+            datum = readTerm(bytes(dataStart + start, length));
+        } catch(IOException ex) {
+            throw new IllegalStateException("Corrupt datum in library snapshot.", ex);
+        }
+        return T.sometd(M.appl1(SCOPE_REF, M.integerValue(), (t, s) -> (ITerm) scopes[s])::match).apply(datum);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // IStatixLibrary
+    ///////////////////////////////////////////////////////////////////////////
+
+    @Override public List<Scope> rootScopes() {
+        final ImmutableList.Builder<Scope> rootScopes = ImmutableList.builder();
+        for(int i = 0; i < roots.limit(); i++) {
+            rootScopes.add(scope(roots.get(i)));
+        }
+        return rootScopes.build();
+    }
+
+    @Override public java.util.Set<Scope> ownScopes() {
+        final Set.Transient<Scope> ownScopes = CapsuleUtil.transientSet();
+        for(int s = rootScopeCount; s < scopeCount; s++) {
+            ownScopes.__insert(scope(s));
+        }
+        return ownScopes.freeze();
+    }
+
+    @Override public IScopeGraph.Immutable<Scope, ITerm, ITerm> scopeGraph() {
+        final Scope[] scopes = new Scope[scopeCount];
+        for(int s = 0; s < scopeCount; s++) {
+            scopes[s] = scope(s);
+        }
+        return SnapshotScopeGraph.of(this, scopes);
+    }
+
+    @Override public Tuple2<Set.Immutable<Scope>, IScopeGraph.Immutable<Scope, ITerm, ITerm>>
+            initialize(List<Scope> rootScopes, Function1<String, Scope> freshScope) {
+        if(roots.limit() != rootScopes.size()) {
+            throw new IllegalArgumentException("Number of root scopes does not match.");
+        }
+        final Scope[] scopes = new Scope[scopeCount];
+        for(int i = 0; i < rootScopes.size(); i++) {
+            final int root = roots.get(i);
+            if(scopes[root] == null) {
+                scopes[root] = rootScopes.get(i);
+            }
+        }
+        final Set.Transient<Scope> ownScopes = CapsuleUtil.transientSet();
+        for(int s = rootScopeCount; s < scopeCount; s++) {
+            final Scope scope = freshScope.apply(scopeName(s));
+            ownScopes.__insert(scope);
+            scopes[s] = scope;
+        }
+        return Tuple2.of(ownScopes.freeze(), SnapshotScopeGraph.of(this, scopes));
+    }
+
+    @Override public String toString() {
+        return "StatixLibrarySnapshot{" + scopeCount + " scopes}";
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Reading and writing
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Map the given snapshot file into memory. The file must not be changed while the library is in use.
+     */
+    public static StatixLibrarySnapshot read(Path file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new StatixLibrarySnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Write a snapshot of the given library to the given file.
+     */
+    public static void write(IStatixLibrary library, Path file) throws IOException {
+        final IScopeGraph.Immutable<Scope, ITerm, ITerm> scopeGraph = library.scopeGraph();
+
+        // number scopes, distinct root scopes first
+        final Map<Scope, Integer> ids = new LinkedHashMap<>();
+        final List<Scope> rootScopes = library.rootScopes();
+        for(Scope rootScope : rootScopes) {
+            ids.putIfAbsent(rootScope, ids.size());
+        }
+        final int rootScopeCount = ids.size();
+        for(Scope ownScope : library.ownScopes()) {
+            if(ids.putIfAbsent(ownScope, ids.size()) != null) {
+                throw new IllegalArgumentException("Own scope " + ownScope + " is also a root scope.");
+            }
+        }
+        final List<Scope> scopes = new ArrayList<>(ids.keySet());
+        final Map<String, Integer> resources = new LinkedHashMap<>();
+        for(Scope scope : scopes) {
+            resources.putIfAbsent(scope.getResource(), resources.size());
+        }
+
+        try(DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(scopes.size());
+            out.writeInt(rootScopeCount);
+
+            out.writeInt(rootScopes.size());
+            for(Scope rootScope : rootScopes) {
+                out.writeInt(ids.get(rootScope));
+            }
+
+            out.writeInt(resources.size());
+            for(String resource : resources.keySet()) {
+                writeBytes(out, resource.getBytes(StandardCharsets.UTF_8));
+            }
+            for(Scope scope : scopes) {
+                out.writeInt(resources.get(scope.getResource()));
+            }
+            final List<byte[]> names = new ArrayList<>(scopes.size());
+            for(Scope scope : scopes) {
+                names.add(scope.getName().getBytes(StandardCharsets.UTF_8));
+            }
+            writeOffsets(out, names);
+            for(byte[] name : names) {
+                out.write(name);
+            }
+
+            final List<ITerm> labels = ImmutableList.copyOf(scopeGraph.getLabels());
+            out.writeInt(labels.size());
+            for(ITerm label : labels) {
+                writeBytes(out, writeTerm(label));
+            }
+            for(ITerm label : labels) {
+                final List<Integer> targets = new ArrayList<>();
+                out.writeInt(0);
+                for(Scope scope : scopes) {
+                    for(Scope target : scopeGraph.getEdges(scope, label)) {
+                        final Integer id;
+                        if((id = ids.get(target)) == null) {
+                            throw new IllegalArgumentException(
+                                    "Edge target " + target + " is not a root scope or own scope.");
+                        }
+                        targets.add(id);
+                    }
+                    out.writeInt(targets.size());
+                }
+                for(int target : targets) {
+                    out.writeInt(target);
+                }
+            }
+
+            // only own scopes have data, as in StatixLibrary
+            final Function1<ITerm, ITerm> scopesToRefs = T.sometd(Scope.matcher().flatMap(s -> {
+                final Integer id = ids.get(s);
+                return id != null ? Optional.<ITerm>of(B.newAppl(SCOPE_REF, B.newInt(id))) : Optional.<ITerm>empty();
+            })::match);
+            final List<byte[]> data = new ArrayList<>(scopes.size());
+            for(int s = 0; s < scopes.size(); s++) {
+                final @Nullable ITerm datum = s < rootScopeCount ? null : scopeGraph.getData(scopes.get(s)).orElse(null);
+                data.add(datum != null ? writeTerm(scopesToRefs.apply(datum)) : new byte[0]);
+            }
+            writeOffsets(out, data);
+            for(byte[] datum : data) {
+                out.write(datum);
+            }
+        }
+    }
+
+    private static void writeOffsets(DataOutputStream out, List<byte[]> values) throws IOException {
+        int offset = 0;
+        out.writeInt(offset);
+        for(byte[] value : values) {
+            offset += value.length;
+            out.writeInt(offset);
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] writeTerm(ITerm term) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            final TermWriter writer = new TermWriter(out);
+            writer.writeHeader();
+            writer.writeTerm(term);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static ITerm readTerm(byte[] bytes) throws IOException {
+        try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            final TermReader reader = new TermReader(in);
+            reader.readHeader();
+            return reader.readTerm();
+        } catch(ClassNotFoundException ex) {
+            throw new IOException(ex);
+        }
+    }
+
+}
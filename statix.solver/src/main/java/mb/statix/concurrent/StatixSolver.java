@@ -6,11 +6,15 @@ import static mb.nabl2.terms.matching.TermMatch.M;
 import static mb.nabl2.terms.matching.Transform.T;
 import static mb.statix.constraints.Constraints.disjoin;
 import static mb.statix.solver.persistent.Solver.INCREMENTAL_CRITICAL_EDGES;
+import static mb.statix.solver.persistent.Solver.PARALLEL_COMPONENTS;
 import static mb.statix.solver.persistent.Solver.RETURN_ON_FIRST_ERROR;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -23,6 +27,7 @@ import javax.annotation.Nullable;
 import org.metaborg.util.collection.CapsuleUtil;
 import org.metaborg.util.functions.CheckedAction0;
 import org.metaborg.util.functions.Function0;
+import org.metaborg.util.future.AggregateFuture;
 import org.metaborg.util.future.CompletableFuture;
 import org.metaborg.util.future.IFuture;
 import org.metaborg.util.log.Level;
@@ -91,13 +96,13 @@ import mb.statix.scopegraph.Scope;
 import mb.statix.solver.CriticalEdge;
 import mb.statix.solver.Delay;
 import mb.statix.solver.IConstraint;
-import mb.statix.solver.IConstraintStore;
 import mb.statix.solver.IState;
 import mb.statix.solver.ITermProperty;
 import mb.statix.solver.ITermProperty.Multiplicity;
 import mb.statix.solver.completeness.Completeness;
 import mb.statix.solver.completeness.CompletenessUtil;
 import mb.statix.solver.completeness.ICompleteness;
+import mb.statix.solver.completeness.IsComplete;
 import mb.statix.solver.log.IDebugContext;
 import mb.statix.solver.log.LazyDebugContext;
 import mb.statix.solver.log.NullDebugContext;
@@ -137,8 +142,13 @@ public class StatixSolver {
 
     private static final int MAX_DEPTH = 32;
 
+    /**
+     * Term constraints are only solved in parallel if they form at least this many components.
+     */
+    private static final int MIN_PARALLEL_COMPONENTS = 2;
+
     private final Spec spec;
-    private final IConstraintStore constraints;
+    private final BaseConstraintStore constraints;
     private final IDebugContext debug;
     private final IProgress progress;
     private final ICancel cancel;
@@ -155,6 +165,10 @@ public class StatixSolver {
     private final Set.Transient<IConstraint> pendingConstraints = CapsuleUtil.transientSet();
     private final CompletableFuture<SolverResult> result;
 
+    private final List<CUser> components = new ArrayList<>();
+    private final java.util.Set<IConstraint> sequential = new HashSet<>();
+    private int componentBatches = 0;
+
     public StatixSolver(IConstraint constraint, Spec spec, IState.Immutable state, ICompleteness.Immutable completeness,
             IDebugContext debug, IProgress progress, ICancel cancel,
             ITypeCheckerContext<Scope, ITerm, ITerm> scopeGraph, int flags) {
@@ -275,13 +289,15 @@ public class StatixSolver {
         debug.debug("Solving constraints");
 
         IConstraint constraint;
-        while((constraint = constraints.remove()) != null) {
-            if(!k(constraint, MAX_DEPTH)) {
-                debug.debug("Finished fast.");
-                result.complete(finishSolve());
-                return;
+        do {
+            while((constraint = constraints.remove()) != null) {
+                if(!k(constraint, MAX_DEPTH)) {
+                    debug.debug("Finished fast.");
+                    result.complete(finishSolve());
+                    return;
+                }
             }
-        }
+        } while(solveComponents());
 
         // invariant: there should be no remaining active constraints
         if(constraints.activeSize() > 0) {
@@ -307,6 +323,8 @@ public class StatixSolver {
         final Map<IConstraint, Delay> delayed = constraints.delayed();
         debug.debug("Solved constraints with {} failed and {} remaining constraint(s).", failed.size(),
                 constraints.delayedSize());
+        debug.debug("Constraint store activated {} constraint(s) from {} variable(s) or edge(s), stale entry ratio {}.",
+                constraints.activatedCount(), constraints.activationCount(), constraints.staleEntryRatio());
         if(debug.isEnabled(Level.Debug)) {
             for(Map.Entry<IConstraint, Delay> entry : delayed.entrySet()) {
                 debug.debug(" * {} on {}", entry.getKey().toString(state.unifier()::toString), entry.getValue());
@@ -823,9 +841,15 @@ public class StatixSolver {
                 final String name = c.name();
                 final List<ITerm> args = c.args();
 
+                if((flags & PARALLEL_COMPONENTS) != 0 && spec.termPredicates().contains(name)
+                        && !sequential.remove(c)) {
+                    components.add(c);
+                    return true;
+                }
+
                 final LazyDebugContext proxyDebug = new LazyDebugContext(debug);
 
-                final List<Rule> rules = spec.rules().getRules(name);
+                final List<Rule> rules = spec.rules().getRules(name, args, state.unifier());
                 // UNSAFE : we assume the resource of spec variables is empty and of state variables non-empty
                 final Tuple3<Rule, ApplyResult, Boolean> result;
                 if((result = RuleUtil.applyOrderedOne(state.unifier(), rules, args, c, ApplyMode.RELAXED, Safety.UNSAFE)
@@ -1115,6 +1139,22 @@ public class StatixSolver {
             return new ConstraintDataWF(spec, Patching.patch(constraint, patches));
         }
 
+        @Override public int hashCode() {
+            return constraint.hashCode();
+        }
+
+        @Override public boolean equals(Object obj) {
+            if(this == obj) {
+                return true;
+            }
+            if(obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            final ConstraintDataWF other = (ConstraintDataWF) obj;
+            // the state is always empty, and specs are only equal if they are the same
+            return spec == other.spec && constraint.equals(other.constraint);
+        }
+
         @Override public String toString() {
             return constraint.toString();
         }
@@ -1237,6 +1277,22 @@ public class StatixSolver {
             return alwaysTrue;
         }
 
+        @Override public int hashCode() {
+            return constraint.hashCode();
+        }
+
+        @Override public boolean equals(Object obj) {
+            if(this == obj) {
+                return true;
+            }
+            if(obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            final ConstraintDataEquiv other = (ConstraintDataEquiv) obj;
+            // the state is always empty, and specs are only equal if they are the same
+            return spec == other.spec && constraint.equals(other.constraint);
+        }
+
         @Override public String toString() {
             return constraint.toString(state.unifier()::toString);
         }
@@ -1336,6 +1392,7 @@ public class StatixSolver {
         builder.completeness(completeness);
         builder.addAllConstraints(constraints.active());
         builder.addAllConstraints(pendingConstraints);
+        builder.addAllConstraints(components);
         builder.addAllConstraints(constraints.delayed().keySet());
         builder.existentials(existentials);
         builder.updatedVars(updatedVars);
@@ -1347,6 +1404,226 @@ public class StatixSolver {
         return builder.build();
     }
 
+    ///////////////////////////////////////////////////////////////////////////
+    // parallel components
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Solve the collected term constraints in parallel. The constraints are split into components that do not share
+     * variables, and the components are solved in groups by the persistent solver, using the scheduler of the type
+     * checker. The groups are merged in order when all of them are solved.
+     *
+     * Returns whether there are active constraints again.
+     */
+    private boolean solveComponents() throws InterruptedException {
+        if(components.isEmpty()) {
+            return false;
+        }
+        final List<List<IConstraint>> groups =
+                groupComponents(components, Runtime.getRuntime().availableProcessors());
+        components.clear();
+        if(groups.size() < MIN_PARALLEL_COMPONENTS) {
+            for(List<IConstraint> group : groups) {
+                solveSequentially(group);
+            }
+            return constraints.activeSize() > 0;
+        }
+
+        debug.debug("Solving {} component group(s) in parallel", groups.size());
+        final IState.Immutable initialState = state;
+        final String resource = state.resource() + "#" + (componentBatches++);
+        final List<IFuture<SolverResult>> groupResults = new ArrayList<>(groups.size());
+        for(int i = 0; i < groups.size(); i++) {
+            final List<IConstraint> group = groups.get(i);
+            final IState.Immutable groupState = initialState.withResource(resource + "-" + i);
+            // debug contexts are not shared with other threads
+            groupResults.add(scopeGraph.compute(() -> Solver.solve(spec, groupState, group, Collections.emptyMap(),
+                    Completeness.Immutable.of(), IsComplete.ALWAYS, new NullDebugContext(), new NullProgress(),
+                    cancel, 0)));
+            group.forEach(pendingConstraints::__insert);
+        }
+        final K<List<SolverResult>> k = (rs, ex, fuel) -> mergeComponents(initialState, groups, rs, ex);
+        AggregateFuture.of(groupResults).handle((rs, ex) -> {
+            groups.forEach(group -> group.forEach(pendingConstraints::__remove));
+            if(!result.isDone()) {
+                solveK(k, rs, ex);
+            }
+            return Unit.unit;
+        });
+        return constraints.activeSize() > 0;
+    }
+
+    private boolean mergeComponents(IState.Immutable initialState, List<List<IConstraint>> groups,
+            List<SolverResult> groupResults, Throwable ex) throws InterruptedException {
+        if(ex != null) {
+            debug.warn("Solving components in parallel failed, solving them sequentially.", ex);
+            for(List<IConstraint> group : groups) {
+                solveSequentially(group);
+            }
+            return true;
+        }
+        for(int i = 0; i < groups.size(); i++) {
+            final List<IConstraint> group = groups.get(i);
+            final SolverResult groupResult = groupResults.get(i);
+
+            final Set.Immutable<ITermVar> updatedVars;
+            try {
+                final Tuple2<IState.Immutable, Set.Immutable<ITermVar>> merged =
+                        mergeComponentState(state, initialState, groupResult);
+                state = merged._1();
+                updatedVars = merged._2();
+            } catch(IllegalArgumentException | OccursException e) {
+                debug.debug("Cannot merge component group, solving it sequentially.");
+                solveSequentially(group);
+                continue;
+            }
+
+            failed.putAll(groupResult.messages());
+            if(!updatedVars.isEmpty()) {
+                final ICompleteness.Transient _completeness = completeness.melt();
+                _completeness.updateAll(updatedVars, state.unifier());
+                this.completeness = _completeness.freeze();
+                constraints.activateFromVars(updatedVars, debug);
+                this.updatedVars.addAll(updatedVars);
+            }
+            for(IConstraint constraint : group) {
+                removeCompleteness(constraint);
+            }
+            for(Map.Entry<IConstraint, Delay> entry : groupResult.delays().entrySet()) {
+                delayComponent(entry.getKey(), entry.getValue());
+            }
+            if(!updatedVars.isEmpty()) {
+                releaseDelayedActions(updatedVars);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Merge the changes that a component group made to the initial state into the given state, and return the merged
+     * state and the variables that are bound by the merge.
+     *
+     * Term constraints only extend the unifier and introduce variables. Therefore only the bindings of the variables
+     * that the group updated, its new disequalities, and its new variables are merged. The scope graph and the term
+     * properties of the given state are kept as they are, even if they changed while the group was solved.
+     *
+     * @throws IllegalArgumentException
+     *             if the changes of the group are inconsistent with the given state.
+     */
+    static Tuple2<IState.Immutable, Set.Immutable<ITermVar>> mergeComponentState(IState.Immutable state,
+            IState.Immutable initialState, SolverResult groupResult) throws OccursException {
+        final IState.Immutable groupState = groupResult.state();
+        final IUniDisunifier.Immutable groupUnifier = groupState.unifier();
+        final IUniDisunifier.Transient _unifier = state.unifier().melt();
+        final Set.Transient<ITermVar> _updatedVars = CapsuleUtil.transientSet();
+        for(ITermVar var : groupResult.updatedVars()) {
+            final ITerm term = groupUnifier.findTerm(var);
+            if(!term.equals(var)) {
+                final IUnifier.Immutable diff = _unifier.unify(var, term)
+                        .orElseThrow(() -> new IllegalArgumentException("Cannot merge unifiers."));
+                _updatedVars.__insertAll(diff.domainSet());
+            }
+        }
+        final Set.Immutable<Diseq> initialDiseqs = initialState.unifier().disequalities();
+        for(Diseq diseq : groupUnifier.disequalities()) {
+            if(!initialDiseqs.contains(diseq)) {
+                final Optional<Diseq> reduced = _unifier.disunify(diseq.universals(), diseq.disequalities())
+                        .orElseThrow(() -> new IllegalArgumentException("Cannot merge disequalities."));
+                reduced.ifPresent(d -> _updatedVars.__insertAll(d.domainSet()));
+            }
+        }
+        // fresh variables of the group are created in the resource of the group state
+        final List<ITermVar> newVars = new ArrayList<>();
+        for(ITermVar var : groupState.vars()) {
+            if(var.getResource().equals(groupState.resource())) {
+                newVars.add(var);
+            }
+        }
+        final IState.Immutable newState = state.addVars(newVars).withUnifier(_unifier.freeze());
+        return Tuple2.of(newState, _updatedVars.freeze());
+    }
+
+    private boolean delayComponent(IConstraint constraint, Delay delay) throws InterruptedException {
+        // the variables may have been bound in the current state while the group was solved
+        final IUniDisunifier.Immutable unifier = state.unifier();
+        if(delay.criticalEdges().isEmpty() && delay.vars().stream().allMatch(v -> unifier.getVars(v).contains(v))) {
+            return delay(constraint, delay);
+        }
+        return queue(constraint);
+    }
+
+    private void solveSequentially(List<IConstraint> group) {
+        for(IConstraint constraint : group) {
+            sequential.add(constraint);
+            queue(constraint);
+        }
+    }
+
+    /**
+     * Split the constraints into components that do not share variables, and distribute the components over at most
+     * the given number of groups. The grouping only depends on the order of the constraints.
+     */
+    private List<List<IConstraint>> groupComponents(List<CUser> constraints, int maxGroups) {
+        final IUniDisunifier.Immutable unifier = state.unifier();
+        final int[] parent = new int[constraints.size()];
+        final Map<ITermVar, Integer> owners = new HashMap<>();
+        for(int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+            for(ITerm arg : constraints.get(i).args()) {
+                for(ITermVar var : unifier.getVars(arg)) {
+                    final Integer owner;
+                    if((owner = owners.putIfAbsent(var, i)) != null) {
+                        union(parent, owner, i);
+                    }
+                }
+            }
+        }
+
+        final Map<Integer, List<IConstraint>> roots = new HashMap<>();
+        final List<List<IConstraint>> componentList = new ArrayList<>();
+        for(int i = 0; i < parent.length; i++) {
+            final List<IConstraint> component = roots.computeIfAbsent(find(parent, i), root -> {
+                final List<IConstraint> newComponent = new ArrayList<>();
+                componentList.add(newComponent);
+                return newComponent;
+            });
+            component.add(constraints.get(i));
+        }
+
+        // assign each component to the smallest group
+        final int groupCount = Math.min(maxGroups, componentList.size());
+        final List<List<IConstraint>> groups = new ArrayList<>(groupCount);
+        for(int g = 0; g < groupCount; g++) {
+            groups.add(new ArrayList<>());
+        }
+        for(List<IConstraint> component : componentList) {
+            List<IConstraint> smallest = groups.get(0);
+            for(List<IConstraint> group : groups) {
+                if(group.size() < smallest.size()) {
+                    smallest = group;
+                }
+            }
+            smallest.addAll(component);
+        }
+        return groups;
+    }
+
+    private static int find(int[] parent, int i) {
+        while(parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parent, int i, int j) {
+        final int ri = find(parent, i);
+        final int rj = find(parent, j);
+        if(ri != rj) {
+            parent[Math.max(ri, rj)] = Math.min(ri, rj);
+        }
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // rigidness
     ///////////////////////////////////////////////////////////////////////////
@@ -20,7 +20,11 @@ public class UnitTypeChecker extends AbstractTypeChecker<UnitResult> {
     private final IStatixUnit unit;
 
     public UnitTypeChecker(IStatixUnit unit, Spec spec, IDebugContext debug) {
-        super(spec, debug);
+        this(unit, spec, debug, DEFAULT_SOLVER_FLAGS);
+    }
+
+    public UnitTypeChecker(IStatixUnit unit, Spec spec, IDebugContext debug, int flags) {
+        super(spec, debug, flags);
         this.unit = unit;
     }
 
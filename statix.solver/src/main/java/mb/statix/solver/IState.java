@@ -39,6 +39,11 @@ public interface IState {
 
         IState.Immutable add(IState.Immutable other);
 
+        /**
+         * Return a state that also contains the given variables.
+         */
+        IState.Immutable addVars(Iterable<ITermVar> vars);
+
         @Override Set.Immutable<ITermVar> vars();
 
         @Override Set.Immutable<Scope> scopes();
@@ -1,10 +1,17 @@
 package mb.statix.solver.completeness;
 
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.ObjectStreamException;
 import java.io.Serializable;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
+import javax.annotation.Nullable;
+
 import org.metaborg.util.collection.CapsuleUtil;
 import org.metaborg.util.collection.MultiSet;
 import org.metaborg.util.collection.MultiSetMap;
@@ -15,6 +22,8 @@ import io.usethesource.capsule.Set;
 import mb.nabl2.terms.ITerm;
 import mb.nabl2.terms.ITermVar;
 import mb.nabl2.terms.substitution.IRenaming;
+import mb.nabl2.terms.serialization.TermReader;
+import mb.nabl2.terms.serialization.TermWriter;
 import mb.nabl2.terms.substitution.ISubstitution;
 import mb.nabl2.terms.unification.u.IUnifier;
 import mb.nabl2.terms.unification.u.PersistentUnifier;
@@ -129,6 +138,76 @@ public abstract class Completeness implements ICompleteness {
             return incomplete.hashCode();
         }
 
+        private Object writeReplace() throws ObjectStreamException {
+            return new SerialForm(this);
+        }
+
+    }
+
+    /**
+     * Serialized form of immutable completeness. Scopes, variables, and labels are written with a {@link TermWriter},
+     * so that terms that occur for several scopes are only written once.
+     */
+    static final class SerialForm implements Externalizable {
+
+        private static final long serialVersionUID = 1L;
+
+        private Completeness.Immutable completeness;
+
+        /**
+         * Used by Java serialization only.
+         */
+        public SerialForm() {
+        }
+
+        SerialForm(Completeness.Immutable completeness) {
+            this.completeness = completeness;
+        }
+
+        @Override public void writeExternal(ObjectOutput out) throws IOException {
+            final TermWriter writer = new TermWriter(out);
+            writer.writeHeader();
+            final java.util.Set<Entry<ITerm, MultiSet.Immutable<EdgeOrData<ITerm>>>> entries =
+                    completeness.incomplete.entrySet();
+            writer.writeVarInt(entries.size());
+            for(Entry<ITerm, MultiSet.Immutable<EdgeOrData<ITerm>>> entry : entries) {
+                writer.writeTerm(entry.getKey());
+                final java.util.Set<Entry<EdgeOrData<ITerm>, Integer>> labels = entry.getValue().entrySet();
+                writer.writeVarInt(labels.size());
+                for(Entry<EdgeOrData<ITerm>, Integer> labelCount : labels) {
+                    final @Nullable ITerm label = labelCount.getKey().match(() -> null, l -> l);
+                    if(label == null) {
+                        writer.writeVarInt(0);
+                    } else {
+                        writer.writeVarInt(1);
+                        writer.writeTerm(label);
+                    }
+                    writer.writeVarInt(labelCount.getValue());
+                }
+            }
+        }
+
+        @Override public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+            final TermReader reader = new TermReader(in);
+            reader.readHeader();
+            final MultiSetMap.Transient<ITerm, EdgeOrData<ITerm>> incomplete = MultiSetMap.Transient.of();
+            for(int i = reader.readVarInt(); i > 0; i--) {
+                final ITerm scopeOrVar = reader.readTerm();
+                for(int j = reader.readVarInt(); j > 0; j--) {
+                    final EdgeOrData<ITerm> label =
+                            reader.readVarInt() == 0 ? EdgeOrData.data() : EdgeOrData.edge(reader.readTerm());
+                    for(int n = reader.readVarInt(); n > 0; n--) {
+                        incomplete.put(scopeOrVar, label);
+                    }
+                }
+            }
+            completeness = new Completeness.Immutable(incomplete.freeze());
+        }
+
+        private Object readResolve() throws ObjectStreamException {
+            return completeness.isEmpty() ? EMPTY : completeness;
+        }
+
     }
 
     public static class Transient extends Completeness implements ICompleteness.Transient {
@@ -56,6 +56,12 @@ public abstract class AState implements IState.Immutable {
         // @formatter:on
     }
 
+    @Override public IState.Immutable addVars(Iterable<ITermVar> vars) {
+        final Set.Transient<ITermVar> _vars = __vars().asTransient();
+        vars.forEach(_vars::__insert);
+        return State.builder().from(this).__vars(_vars.freeze()).build();
+    }
+
     @Override public Immutable subState() {
         State self = (State) this;
         return self.with__scopes(CapsuleUtil.immutableSet()).with__vars(CapsuleUtil.immutableSet());
@@ -5,6 +5,7 @@ import static mb.nabl2.terms.matching.TermMatch.M;
 import static mb.statix.constraints.Constraints.disjoin;
 import static mb.statix.solver.persistent.Solver.INCREMENTAL_CRITICAL_EDGES;
 import static mb.statix.solver.persistent.Solver.RETURN_ON_FIRST_ERROR;
+import static mb.statix.solver.persistent.Solver.SHARE_QUERY_MEMO;
 
 import java.util.Collection;
 import java.util.Collections;
@@ -41,9 +42,13 @@ import mb.nabl2.terms.unification.ud.Diseq;
 import mb.nabl2.terms.unification.ud.IUniDisunifier;
 import mb.scopegraph.oopsla20.INameResolution;
 import mb.scopegraph.oopsla20.IScopeGraph;
+import mb.scopegraph.oopsla20.reference.EdgeOrData;
 import mb.scopegraph.oopsla20.reference.Env;
+import mb.scopegraph.oopsla20.reference.FastNameResolution;
 import mb.scopegraph.oopsla20.reference.IncompleteException;
 import mb.scopegraph.oopsla20.reference.ResolutionException;
+import mb.scopegraph.regexp.IRegExpMatcher;
+import mb.scopegraph.relations.IRelation;
 import mb.statix.constraints.CArith;
 import mb.statix.constraints.CAstId;
 import mb.statix.constraints.CAstProperty;
@@ -67,7 +72,6 @@ import mb.statix.solver.ConstraintContext;
 import mb.statix.solver.CriticalEdge;
 import mb.statix.solver.Delay;
 import mb.statix.solver.IConstraint;
-import mb.statix.solver.IConstraintStore;
 import mb.statix.solver.IState;
 import mb.statix.solver.ITermProperty;
 import mb.statix.solver.ITermProperty.Multiplicity;
@@ -79,6 +83,7 @@ import mb.statix.solver.log.IDebugContext;
 import mb.statix.solver.log.LazyDebugContext;
 import mb.statix.solver.log.NullDebugContext;
 import mb.statix.solver.persistent.query.ConstraintQueries;
+import mb.statix.solver.persistent.query.QueryPredicateCache;
 import mb.statix.solver.query.QueryFilter;
 import mb.statix.solver.query.QueryMin;
 import mb.statix.solver.query.ResolutionDelayException;
@@ -105,7 +110,7 @@ class GreedySolver {
     // set-up
     private final Spec spec;
     private final IDebugContext debug;
-    private final IConstraintStore constraints;
+    private final BaseConstraintStore constraints;
     private final ConstraintContext params;
 
     private final IProgress progress;
@@ -122,6 +127,14 @@ class GreedySolver {
     private int solved = 0;
     private int criticalEdges = 0;
 
+    // compiled query predicates and their verdicts, valid for all extensions of the initial state
+    private final QueryPredicateCache queryPredicateCache = new QueryPredicateCache();
+
+    // memo tables shared between queries, only valid for memoScopeGraph
+    private IScopeGraph.Immutable<Scope, ITerm, ITerm> memoScopeGraph = null;
+    private final Map<Tuple2<QueryFilter, QueryMin>, FastNameResolution.MemoTable<Scope, ITerm, ITerm>> memoTables =
+            Maps.newHashMap();
+
     public GreedySolver(Spec spec, IState.Immutable state, IConstraint initialConstraint, IsComplete _isComplete,
             IDebugContext debug, IProgress progress, ICancel cancel, int flags) {
         if(INCREMENTAL_CRITICAL_EDGES && !spec.hasPrecomputedCriticalEdges()) {
@@ -196,6 +209,8 @@ class GreedySolver {
         final Map<IConstraint, Delay> delayed = constraints.delayed();
         debug.debug("Solved constraints with {} failed and {} remaining constraint(s).", failed.size(),
                 constraints.delayedSize());
+        debug.debug("Constraint store activated {} constraint(s) from {} variable(s) or edge(s), stale entry ratio {}.",
+                constraints.activatedCount(), constraints.activationCount(), constraints.staleEntryRatio());
         if(debug.isEnabled(Level.Debug)) {
             for(Map.Entry<IConstraint, Delay> entry : delayed.entrySet()) {
                 debug.debug(" * {} on {}", entry.getKey().toString(state.unifier()::toString), entry.getValue());
@@ -297,6 +312,17 @@ class GreedySolver {
         this.removedEdges.addAll(removedEdges);
     }
 
+    private FastNameResolution.MemoTable<Scope, ITerm, ITerm> memoTable(IRegExpMatcher<ITerm> labelWF, Rule dataWfRule,
+            IRelation.Immutable<EdgeOrData<ITerm>> labelOrder, Rule dataLeqRule) {
+        if(memoScopeGraph != state.scopeGraph()) {
+            memoTables.clear();
+            memoScopeGraph = state.scopeGraph();
+        }
+        final Tuple2<QueryFilter, QueryMin> key =
+                Tuple2.of(new QueryFilter(labelWF, dataWfRule), new QueryMin(labelOrder, dataLeqRule));
+        return memoTables.computeIfAbsent(key, k -> new FastNameResolution.MemoTable<>());
+    }
+
     private boolean queue(IConstraint constraint) {
         constraints.add(constraint);
         return true;
@@ -482,10 +508,8 @@ class GreedySolver {
                 if(!freeVars.isEmpty()) {
                     return delay(c, Delay.ofVars(freeVars));
                 }
-                final Rule dataWfRule = RuleUtil.instantiateHeadPatterns(
-                        RuleUtil.closeInUnifier(filter.getDataWF(), state.unifier(), Safety.UNSAFE));
-                final Rule dataLeqRule = RuleUtil.instantiateHeadPatterns(
-                        RuleUtil.closeInUnifier(min.getDataEquiv(), state.unifier(), Safety.UNSAFE));
+                final Rule dataWfRule = queryPredicateCache.compile(filter.getDataWF(), state.unifier());
+                final Rule dataLeqRule = queryPredicateCache.compile(min.getDataEquiv(), state.unifier());
 
                 if((scope = AScope.matcher().match(scopeTerm, unifier).orElse(null)) == null) {
                     debug.error("Expected scope, got {}", unifier.toString(scopeTerm));
@@ -493,16 +517,22 @@ class GreedySolver {
                 }
 
                 try {
-                    final ConstraintQueries cq = new ConstraintQueries(spec, state, params::isComplete);
+                    final ConstraintQueries cq = new ConstraintQueries(spec, state, params::isComplete, queryPredicateCache);
                     // @formatter:off
-                    final INameResolution<Scope, ITerm, ITerm> nameResolution = Solver.nameResolutionBuilder()
+                    final FastNameResolution.Builder<Scope, ITerm, ITerm> nameResolutionBuilder =
+                            Solver.nameResolutionBuilder()
                                 .withLabelWF(cq.getLabelWF(filter.getLabelWF()))
                                 .withDataWF(cq.getDataWF(dataWfRule))
                                 .withLabelOrder(cq.getLabelOrder(min.getLabelOrder()))
                                 .withDataEquiv(cq.getDataEquiv(dataLeqRule))
-                                .withIsComplete((s, l) -> params.isComplete(s, l, state))
-                                .build(state.scopeGraph(), spec.allLabels());
+                                .withIsComplete((s, l) -> params.isComplete(s, l, state));
                     // @formatter:on
+                    if((flags & SHARE_QUERY_MEMO) != 0) {
+                        nameResolutionBuilder.withMemoTable(memoTable(filter.getLabelWF(), dataWfRule,
+                                min.getLabelOrder(), dataLeqRule));
+                    }
+                    final INameResolution<Scope, ITerm, ITerm> nameResolution =
+                            nameResolutionBuilder.build(state.scopeGraph(), spec.allLabels());
                     final Env<Scope, ITerm, ITerm> paths = nameResolution.resolve(scope, cancel);
                     final List<ITerm> pathTerms =
                             Streams.stream(paths).map(p -> StatixTerms.pathToTerm(p, spec.dataLabels()))
@@ -658,7 +688,7 @@ class GreedySolver {
                 final LazyDebugContext proxyDebug = new LazyDebugContext(debug);
                 final IDebugContext debug = params.debug();
 
-                final List<Rule> rules = spec.rules().getRules(name);
+                final List<Rule> rules = spec.rules().getRules(name, args, state.unifier());
                 // UNSAFE : we assume the resource of spec variables is empty and of state variables non-empty
                 final Tuple3<Rule, ApplyResult, Boolean> result;
                 if((result = RuleUtil.applyOrderedOne(state.unifier(), rules, args, c, ApplyMode.RELAXED, Safety.UNSAFE)
@@ -25,7 +25,6 @@ import mb.nabl2.terms.unification.UnifierFormatter;
 import mb.nabl2.terms.unification.ud.IUniDisunifier;
 import mb.nabl2.util.TermFormatter;
 import mb.p_raffrayi.ITypeCheckerContext;
-import mb.scopegraph.oopsla20.INameResolution;
 import mb.scopegraph.oopsla20.reference.FastNameResolution;
 import mb.statix.concurrent.StatixSolver;
 import mb.statix.constraints.Constraints;
@@ -45,6 +44,18 @@ public class Solver {
 
     public static final int RETURN_ON_FIRST_ERROR = 1;
 
+    /**
+     * Share name resolution memo tables between queries with the same parameters, as long as the scope graph does not
+     * change.
+     */
+    public static final int SHARE_QUERY_MEMO = 2;
+
+    /**
+     * Let the concurrent solver solve constraints that do not use the scope graph in parallel, when they do not share
+     * variables.
+     */
+    public static final int PARALLEL_COMPONENTS = 4;
+
     public static final int TERM_FORMAT_DEPTH = 4;
 
     public static final boolean INCREMENTAL_CRITICAL_EDGES = true;
@@ -218,7 +229,7 @@ public class Solver {
         return sb.toString();
     }
 
-    public static INameResolution.Builder<Scope, ITerm, ITerm> nameResolutionBuilder() {
+    public static FastNameResolution.Builder<Scope, ITerm, ITerm> nameResolutionBuilder() {
         return FastNameResolution.builder();
 
     }
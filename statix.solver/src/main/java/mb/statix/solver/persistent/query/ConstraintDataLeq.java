@@ -2,6 +2,8 @@ package mb.statix.solver.persistent.query;
 
 import java.util.Collections;
 
+import javax.annotation.Nullable;
+
 import org.metaborg.util.task.NullCancel;
 import org.metaborg.util.task.NullProgress;
 
@@ -31,15 +33,37 @@ class ConstraintDataLeq implements DataLeq<ITerm> {
 
     private final IState.Immutable state;
     private final IsComplete isComplete;
+    private final @Nullable QueryPredicateCache cache;
 
     public ConstraintDataLeq(Spec spec, IState.Immutable state, IsComplete isComplete, Rule constraint) {
+        this(spec, state, isComplete, constraint, null);
+    }
+
+    public ConstraintDataLeq(Spec spec, IState.Immutable state, IsComplete isComplete, Rule constraint,
+            @Nullable QueryPredicateCache cache) {
         this.spec = spec;
         this.state = state;
         this.isComplete = isComplete;
         this.constraint = constraint;
+        this.cache = cache;
     }
 
     @Override public boolean leq(ITerm datum1, ITerm datum2) throws ResolutionException, InterruptedException {
+        if(cache == null) {
+            return doLeq(datum1, datum2);
+        }
+        final ITerm instantiatedDatum1 = state.unifier().findRecursive(datum1);
+        final ITerm instantiatedDatum2 = state.unifier().findRecursive(datum2);
+        final Boolean cachedVerdict = cache.getLeq(constraint, instantiatedDatum1, instantiatedDatum2);
+        if(cachedVerdict != null) {
+            return cachedVerdict;
+        }
+        final boolean verdict = doLeq(datum1, datum2);
+        cache.putLeq(constraint, instantiatedDatum1, instantiatedDatum2, verdict);
+        return verdict;
+    }
+
+    private boolean doLeq(ITerm datum1, ITerm datum2) throws ResolutionException, InterruptedException {
         try {
             final ApplyResult applyResult;
             // UNSAFE : we assume the resource of spec variables is empty and of state variables non-empty
@@ -2,6 +2,8 @@ package mb.statix.solver.persistent.query;
 
 import java.util.Collections;
 
+import javax.annotation.Nullable;
+
 import org.metaborg.util.task.NullCancel;
 import org.metaborg.util.task.NullProgress;
 
@@ -31,15 +33,36 @@ class ConstraintDataWF implements DataWF<ITerm> {
 
     private final IState.Immutable state;
     private final IsComplete isComplete;
+    private final @Nullable QueryPredicateCache cache;
 
     public ConstraintDataWF(Spec spec, IState.Immutable state, IsComplete isComplete, Rule constraint) {
+        this(spec, state, isComplete, constraint, null);
+    }
+
+    public ConstraintDataWF(Spec spec, IState.Immutable state, IsComplete isComplete, Rule constraint,
+            @Nullable QueryPredicateCache cache) {
         this.spec = spec;
         this.state = state;
         this.isComplete = isComplete;
         this.constraint = constraint;
+        this.cache = cache;
     }
 
     @Override public boolean wf(ITerm datum) throws ResolutionException, InterruptedException {
+        if(cache == null) {
+            return doWf(datum);
+        }
+        final ITerm instantiatedDatum = state.unifier().findRecursive(datum);
+        final Boolean cachedVerdict = cache.getWf(constraint, instantiatedDatum);
+        if(cachedVerdict != null) {
+            return cachedVerdict;
+        }
+        final boolean verdict = doWf(datum);
+        cache.putWf(constraint, instantiatedDatum, verdict);
+        return verdict;
+    }
+
+    private boolean doWf(ITerm datum) throws ResolutionException, InterruptedException {
         try {
             final ApplyResult applyResult;
             // UNSAFE : we assume the resource of spec variables is empty and of state variables non-empty
@@ -1,5 +1,7 @@
 package mb.statix.solver.persistent.query;
 
+import javax.annotation.Nullable;
+
 import mb.nabl2.terms.ITerm;
 import mb.scopegraph.oopsla20.reference.DataLeq;
 import mb.scopegraph.oopsla20.reference.DataWF;
@@ -21,11 +23,18 @@ public class ConstraintQueries implements IConstraintQueries {
     private final Spec spec;
     private final IState.Immutable state;
     private final IsComplete isComplete;
+    private final @Nullable QueryPredicateCache cache; // only shared between queries on extensions of state
 
     public ConstraintQueries(Spec spec, IState.Immutable state, IsComplete isComplete) {
+        this(spec, state, isComplete, null);
+    }
+
+    public ConstraintQueries(Spec spec, IState.Immutable state, IsComplete isComplete,
+            @Nullable QueryPredicateCache cache) {
         this.spec = spec;
         this.state = state;
         this.isComplete = isComplete;
+        this.cache = cache;
     }
 
     @Override public LabelWF<ITerm> getLabelWF(IRegExpMatcher<ITerm> pathWf) throws InterruptedException {
@@ -33,7 +42,7 @@ public class ConstraintQueries implements IConstraintQueries {
     }
 
     @Override public DataWF<ITerm> getDataWF(Rule dataWf) {
-        return new ConstraintDataWF(spec, state, isComplete, dataWf);
+        return new ConstraintDataWF(spec, state, isComplete, dataWf, cache);
     }
 
     @Override public LabelOrder<ITerm> getLabelOrder(IRelation<EdgeOrData<ITerm>> labelOrd)
@@ -42,7 +51,7 @@ public class ConstraintQueries implements IConstraintQueries {
     }
 
     @Override public DataLeq<ITerm> getDataEquiv(Rule dataLeq) {
-        return new ConstraintDataLeq(spec, state, isComplete, dataLeq);
+        return new ConstraintDataLeq(spec, state, isComplete, dataLeq, cache);
     }
 
 }
@@ -0,0 +1,76 @@
+package mb.statix.solver.persistent.query;
+
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import org.metaborg.util.collection.CapsuleUtil;
+import org.metaborg.util.tuple.Tuple2;
+import org.metaborg.util.tuple.Tuple3;
+
+import com.google.common.collect.Maps;
+
+import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.ITermVar;
+import mb.nabl2.terms.unification.ud.IUniDisunifier;
+import mb.statix.spec.ApplyMode.Safety;
+import mb.statix.spec.Rule;
+import mb.statix.spec.RuleUtil;
+
+/**
+ * Cache for the data well-formedness and data order predicates of queries.
+ *
+ * Compiled predicates are keyed on the predicate and the instantiation of its free variables, and verdicts are keyed
+ * on the compiled predicate and the instantiated data. Binding a variable thus changes the key of the predicates and
+ * data it appears in, and leaves the others untouched. Only definite verdicts are cached. These remain valid as long
+ * as the solver state is only extended, which is the case during a single solver run.
+ *
+ * This class is not thread-safe.
+ */
+public class QueryPredicateCache {
+
+    private final Map<Tuple2<Rule, io.usethesource.capsule.Map.Immutable<ITermVar, ITerm>>, Rule> rules =
+            Maps.newHashMap();
+    private final Map<Tuple2<Rule, ITerm>, Boolean> wfVerdicts = Maps.newHashMap();
+    private final Map<Tuple3<Rule, ITerm, ITerm>, Boolean> leqVerdicts = Maps.newHashMap();
+
+    /**
+     * Close the rule in the unifier, and instantiate its head patterns. Equivalent to
+     * {@code RuleUtil.instantiateHeadPatterns(RuleUtil.closeInUnifier(rule, unifier, Safety.UNSAFE))}.
+     */
+    public Rule compile(Rule rule, IUniDisunifier.Immutable unifier) {
+        final io.usethesource.capsule.Map.Transient<ITermVar, ITerm> instantiation = CapsuleUtil.transientMap();
+        for(ITermVar var : rule.freeVars()) {
+            instantiation.__put(var, unifier.findRecursive(var));
+        }
+        return rules.computeIfAbsent(Tuple2.of(rule, instantiation.freeze()),
+                k -> RuleUtil.instantiateHeadPatterns(RuleUtil.closeInUnifier(rule, unifier, Safety.UNSAFE)));
+    }
+
+    @Nullable Boolean getWf(Rule rule, ITerm datum) {
+        return wfVerdicts.get(Tuple2.of(rule, datum));
+    }
+
+    void putWf(Rule rule, ITerm datum, boolean verdict) {
+        wfVerdicts.put(Tuple2.of(rule, datum), verdict);
+    }
+
+    @Nullable Boolean getLeq(Rule rule, ITerm datum1, ITerm datum2) {
+        return leqVerdicts.get(Tuple3.of(rule, datum1, datum2));
+    }
+
+    void putLeq(Rule rule, ITerm datum1, ITerm datum2, boolean verdict) {
+        leqVerdicts.put(Tuple3.of(rule, datum1, datum2), verdict);
+    }
+
+    public int size() {
+        return rules.size() + wfVerdicts.size() + leqVerdicts.size();
+    }
+
+    public void clear() {
+        rules.clear();
+        wfVerdicts.clear();
+        leqVerdicts.clear();
+    }
+
+}
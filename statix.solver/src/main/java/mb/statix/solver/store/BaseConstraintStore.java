@@ -1,20 +1,17 @@
 package mb.statix.solver.store;
 
-import java.util.Collection;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Deque;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.Set;
-import java.util.concurrent.ConcurrentLinkedDeque;
+
+import javax.annotation.Nullable;
 
 import org.metaborg.util.log.Level;
 
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableMap.Builder;
-import com.google.common.collect.Multimap;
+import com.google.common.collect.ImmutableList;
 
 import mb.nabl2.terms.ITermVar;
 import mb.statix.solver.CriticalEdge;
@@ -23,18 +20,36 @@ import mb.statix.solver.IConstraint;
 import mb.statix.solver.IConstraintStore;
 import mb.statix.solver.log.IDebugContext;
 
+/**
+ * Constraint store that indexes delayed constraints by the variables or critical edges they are waiting on.
+ *
+ * When a delayed constraint is activated, it is removed from the index entries of all its other variables or edges as
+ * well, so the index only contains constraints that are still delayed. The delayed constraints are also kept in an
+ * array, so that they can be reported without going through the indexes.
+ *
+ * The store is not thread-safe.
+ */
 public class BaseConstraintStore implements IConstraintStore {
 
     final IDebugContext debug;
-    private final Deque<IConstraint> active;
-    private final Multimap<ITermVar, Delayed> stuckOnVar;
-    private final Multimap<CriticalEdge, Delayed> stuckOnEdge;
+    private final ArrayDeque<IConstraint> active;
+    private final Index<ITermVar> stuckOnVar;
+    private final Index<CriticalEdge> stuckOnEdge;
+
+    private Delayed[] delayed;
+    private int delayedSize;
+
+    private long activations = 0;
+    private long activated = 0;
+    private long removedEntries = 0;
 
     public BaseConstraintStore(IDebugContext debug) {
         this.debug = debug;
-        this.active = new ConcurrentLinkedDeque<>();
-        this.stuckOnVar = HashMultimap.create();
-        this.stuckOnEdge = HashMultimap.create();
+        this.active = new ArrayDeque<>();
+        this.stuckOnVar = new Index<>();
+        this.stuckOnEdge = new Index<>();
+        this.delayed = new Delayed[16];
+        this.delayedSize = 0;
     }
 
     @Override public int activeSize() {
@@ -42,7 +57,7 @@ public class BaseConstraintStore implements IConstraintStore {
     }
 
     @Override public int delayedSize() {
-        return stuckOnVar.size() + stuckOnEdge.size();
+        return delayedSize;
     }
 
     @Override public void add(IConstraint constraint) {
@@ -54,11 +69,13 @@ public class BaseConstraintStore implements IConstraintStore {
     }
 
     @Override public void delay(IConstraint constraint, Delay delay) {
-        final Delayed delayed = new Delayed(constraint);
+        final Delayed delayed;
         if(!delay.vars().isEmpty()) {
             if(debug.isEnabled(Level.Debug)) {
                 debug.debug("delayed {} on vars {}", constraint, delay.vars());
             }
+            delayed = new Delayed(constraint, delay.criticalEdges().isEmpty() ? delay : Delay.ofVars(delay.vars()),
+                    delay.vars().toArray());
             for(ITermVar var : delay.vars()) {
                 stuckOnVar.put(var, delayed);
             }
@@ -66,89 +83,279 @@ public class BaseConstraintStore implements IConstraintStore {
             if(debug.isEnabled(Level.Debug)) {
                 debug.debug("delayed {} on critical edges {}", constraint, delay.criticalEdges());
             }
+            delayed = new Delayed(constraint, delay, delay.criticalEdges().toArray());
             for(CriticalEdge edge : delay.criticalEdges()) {
                 stuckOnEdge.put(edge, delayed);
             }
         } else {
             throw new IllegalArgumentException("delayed for no apparent reason");
         }
+        if(delayedSize == this.delayed.length) {
+            this.delayed = Arrays.copyOf(this.delayed, delayedSize * 2);
+        }
+        delayed.position = delayedSize;
+        this.delayed[delayedSize++] = delayed;
     }
 
     @Override public void activateFromVars(Iterable<? extends ITermVar> vars, IDebugContext debug) {
         for(ITermVar var : vars) {
-            final Collection<Delayed> activated = stuckOnVar.removeAll(var);
-            for(Delayed delayed : activated) {
-                if(delayed.activate()) {
-                    final IConstraint constraint = delayed.constraint;
-                    if(debug.isEnabled(Level.Debug)) {
-                        debug.debug("activating {}", constraint);
-                    }
-                    add(constraint);
-                }
-            }
+            activate(stuckOnVar, var, debug);
         }
     }
 
     @Override public void activateFromEdges(Iterable<? extends CriticalEdge> edges, IDebugContext debug) {
         for(CriticalEdge edge : edges) {
-            final Collection<Delayed> activated = stuckOnEdge.removeAll(edge);
-            for(Delayed delayed : activated) {
-                if(delayed.activate()) {
-                    final IConstraint constraint = delayed.constraint;
-                    if(debug.isEnabled(Level.Debug)) {
-                        debug.debug("activating {}", constraint);
-                    }
-                    add(constraint);
+            activate(stuckOnEdge, edge, debug);
+        }
+    }
+
+    private <K> void activate(Index<K> index, K key, IDebugContext debug) {
+        final Bucket bucket;
+        if((bucket = index.remove(key)) == null) {
+            return;
+        }
+        activations += 1;
+        for(int i = 0; i < bucket.size; i++) {
+            final Delayed delayed = bucket.items[i];
+            for(Object otherKey : delayed.keys) {
+                if(index.remove(otherKey, delayed)) {
+                    removedEntries += 1;
                 }
             }
+            removeDelayed(delayed);
+            activated += 1;
+            final IConstraint constraint = delayed.constraint;
+            if(debug.isEnabled(Level.Debug)) {
+                debug.debug("activating {}", constraint);
+            }
+            add(constraint);
         }
     }
 
+    private void removeDelayed(Delayed delayed) {
+        final Delayed last = this.delayed[--delayedSize];
+        this.delayed[delayed.position] = last;
+        last.position = delayed.position;
+        this.delayed[delayedSize] = null;
+    }
+
     @Override public Map<IConstraint, Delay> delayed() {
-        final Multimap<IConstraint, ITermVar> varStuck = HashMultimap.create();
-        stuckOnVar.entries().stream().filter(e -> !e.getValue().activated)
-                .forEach(e -> varStuck.put(e.getValue().constraint, e.getKey()));
+        final Map<IConstraint, Delay> result = new HashMap<>(delayedSize * 2);
+        for(int i = 0; i < delayedSize; i++) {
+            final Delayed delayed = this.delayed[i];
+            final Delay previous;
+            if((previous = result.put(delayed.constraint, delayed.delay)) != null) {
+                // the same constraint was delayed more than once
+                result.put(delayed.constraint, Delay.of(ImmutableList.of(previous, delayed.delay)));
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
 
-        final Multimap<IConstraint, CriticalEdge> edgeStuck = HashMultimap.create();
-        stuckOnEdge.entries().stream().filter(e -> !e.getValue().activated)
-                .forEach(e -> edgeStuck.put(e.getValue().constraint, e.getKey()));
+    @Override public Iterable<IConstraint> active() {
+        return Collections.unmodifiableCollection(active);
+    }
 
-        final Set<IConstraint> stuck = new HashSet<>();
-        stuck.addAll(varStuck.keys());
-        stuck.addAll(edgeStuck.keys());
+    ///////////////////////////////////////////////////////////////////////////
+    // Statistics
+    ///////////////////////////////////////////////////////////////////////////
 
-        final Builder<IConstraint, Delay> delayed = ImmutableMap.builder();
-        stuck.stream().forEach(c -> delayed.put(c, new Delay(varStuck.get(c), edgeStuck.get(c))));
-        return delayed.build();
+    /**
+     * The number of variables or edges for which delayed constraints were activated.
+     */
+    public long activationCount() {
+        return activations;
     }
 
-    @Override public Iterable<IConstraint> active() {
-        return Collections.unmodifiableCollection(active);
+    /**
+     * The number of delayed constraints that were activated.
+     */
+    public long activatedCount() {
+        return activated;
     }
 
+    /**
+     * The average number of constraints activated by a variable or edge.
+     */
+    public double activationFanOut() {
+        return activations == 0 ? 0d : (double) activated / activations;
+    }
+
+    /**
+     * The fraction of index entries that belonged to constraints activated through another variable or edge. These
+     * entries are removed eagerly, instead of staying behind in the index.
+     */
+    public double staleEntryRatio() {
+        final long entries = activated + removedEntries;
+        return entries == 0 ? 0d : (double) removedEntries / entries;
+    }
+
+    /**
+     * The number of entries currently in the variable and edge indexes.
+     */
+    public int indexSize() {
+        return stuckOnVar.entries + stuckOnEdge.entries;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Delayed constraints and indexes
+    ///////////////////////////////////////////////////////////////////////////
+
     private static class Delayed {
 
         public final IConstraint constraint;
+        public final Delay delay;
+        public final Object[] keys;
 
-        private boolean activated = false;
+        private int position;
 
-        public Delayed(IConstraint constraint) {
+        public Delayed(IConstraint constraint, Delay delay, Object[] keys) {
             this.constraint = constraint;
+            this.delay = delay;
+            this.keys = keys;
+        }
+
+        @Override public String toString() {
+            return constraint.toString();
+        }
+
+    }
+
+    private static class Bucket {
+
+        private Delayed[] items = new Delayed[2];
+        private int size = 0;
+
+        private void add(Delayed delayed) {
+            if(size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = delayed;
+        }
+
+        private boolean remove(Delayed delayed) {
+            for(int i = 0; i < size; i++) {
+                if(items[i] == delayed) {
+                    items[i] = items[--size];
+                    items[size] = null;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+    }
+
+    /**
+     * Hash map from keys to buckets, using open addressing with linear probing.
+     */
+    private static class Index<K> {
+
+        private Object[] keys = new Object[16];
+        private Bucket[] buckets = new Bucket[16];
+        private int size = 0;
+        private int entries = 0;
+
+        private int slot(Object key) {
+            final int hash = key.hashCode();
+            return (hash ^ (hash >>> 16)) & (keys.length - 1);
         }
 
-        public boolean activate() {
-            if(activated) {
+        private int find(Object key) {
+            final int mask = keys.length - 1;
+            int slot = slot(key);
+            Object slotKey;
+            while((slotKey = keys[slot]) != null && !slotKey.equals(key)) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void put(K key, Delayed delayed) {
+            int slot = find(key);
+            if(keys[slot] == null) {
+                if((size + 1) * 4 > keys.length * 3) {
+                    grow();
+                    slot = find(key);
+                }
+                keys[slot] = key;
+                buckets[slot] = new Bucket();
+                size += 1;
+            }
+            buckets[slot].add(delayed);
+            entries += 1;
+        }
+
+        private @Nullable Bucket remove(Object key) {
+            final int slot = find(key);
+            if(keys[slot] == null) {
+                return null;
+            }
+            final Bucket bucket = buckets[slot];
+            entries -= bucket.size;
+            delete(slot);
+            return bucket;
+        }
+
+        private boolean remove(Object key, Delayed delayed) {
+            final int slot = find(key);
+            if(keys[slot] == null) {
+                return false;
+            }
+            final Bucket bucket = buckets[slot];
+            if(!bucket.remove(delayed)) {
                 return false;
-            } else {
-                activated = true;
-                return true;
             }
+            entries -= 1;
+            if(bucket.size == 0) {
+                delete(slot);
+            }
+            return true;
         }
 
-        @Override public String toString() {
-            return activated ? "*" : constraint.toString();
+        /**
+         * Delete the entry in the given slot, and shift back later entries in the same probe sequence, so that lookups
+         * never need tombstones.
+         */
+        private void delete(int slot) {
+            final int mask = keys.length - 1;
+            keys[slot] = null;
+            buckets[slot] = null;
+            size -= 1;
+            int next = slot;
+            while(true) {
+                next = (next + 1) & mask;
+                final Object key;
+                if((key = keys[next]) == null) {
+                    return;
+                }
+                final int home = slot(key);
+                // the entry can stay if its home slot lies cyclically in (slot, next]
+                if(slot < next ? (slot < home && home <= next) : (slot < home || home <= next)) {
+                    continue;
+                }
+                keys[slot] = key;
+                buckets[slot] = buckets[next];
+                keys[next] = null;
+                buckets[next] = null;
+                slot = next;
+            }
+        }
+
+        private void grow() {
+            final Object[] oldKeys = keys;
+            final Bucket[] oldBuckets = buckets;
+            keys = new Object[oldKeys.length * 2];
+            buckets = new Bucket[oldBuckets.length * 2];
+            for(int i = 0; i < oldKeys.length; i++) {
+                if(oldKeys[i] != null) {
+                    final int slot = find(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    buckets[slot] = oldBuckets[i];
+                }
+            }
         }
 
     }
 
-}
\ No newline at end of file
+}
@@ -30,6 +30,15 @@ public abstract class ASpec {
 
     @Value.Parameter public abstract SetMultimap<String, Tuple2<Integer, ITerm>> scopeExtensions();
 
+    /**
+     * The predicates that can be solved without a scope graph.
+     *
+     * @see RuleUtil#termPredicates(RuleSet)
+     */
+    @Value.Lazy public Set<String> termPredicates() {
+        return RuleUtil.termPredicates(rules());
+    }
+
     @Value.Default public boolean hasPrecomputedCriticalEdges() {
         return false;
     }
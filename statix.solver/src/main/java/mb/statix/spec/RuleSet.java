@@ -2,19 +2,23 @@ package mb.statix.spec;
 
 import java.io.Serializable;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.metaborg.util.tuple.Tuple2;
 
 import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.SetMultimap;
 
 import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.matching.DiscriminationTree;
+import mb.nabl2.terms.unification.u.IUnifier;
 import mb.statix.solver.completeness.CompletenessUtil;
 
 
@@ -29,9 +33,11 @@ public final class RuleSet implements Serializable {
     private final ImmutableListMultimap<String, Rule> rules;
     /**
      * The independent rules. If a rule name is not in this map, an independent version of its rules has not yet been
-     * created.
+     * created. Concurrent, because rule sets of cached specifications are shared between solvers.
      */
-    private final Map<String, ImmutableSet<Rule>> independentRules = new HashMap<>();
+    private final Map<String, ImmutableSet<Rule>> independentRules = new ConcurrentHashMap<>();
+    /** Index of the rules by their parameter patterns, built when the rule set is created or deserialized. */
+    private final transient ImmutableMap<String, DiscriminationTree<Rule>> ruleIndex;
 
     /**
      * Makes a new ruleset from the specified collection of rules.
@@ -57,6 +63,15 @@ public final class RuleSet implements Serializable {
      */
     public RuleSet(ListMultimap<String, Rule> rules) {
         this.rules = ImmutableListMultimap.copyOf(rules);
+        final ImmutableMap.Builder<String, DiscriminationTree<Rule>> ruleIndex = ImmutableMap.builder();
+        this.rules.asMap().forEach((name, namedRules) -> {
+            ruleIndex.put(name, DiscriminationTree.of(namedRules, Rule::params));
+        });
+        this.ruleIndex = ruleIndex.build();
+    }
+
+    private Object readResolve() {
+        return new RuleSet(rules);
     }
 
     /**
@@ -103,6 +118,26 @@ public final class RuleSet implements Serializable {
         return this.rules.get(name);
     }
 
+    /**
+     * Gets the rules with the specified name whose parameter patterns may match the given arguments. Rules that are
+     * left out are guaranteed not to match, so the result can be used instead of {@link #getRules(String)} to apply
+     * rules in order.
+     *
+     * The rules are returned in order from most specific to least specific guard.
+     *
+     * @param name
+     *            the name of the rules to find
+     * @param args
+     *            the arguments the rules are applied to
+     * @param unifier
+     *            the unifier used to look up bound variables in the arguments
+     * @return the rules with the specified name that may match the arguments
+     */
+    public List<Rule> getRules(String name, List<? extends ITerm> args, IUnifier.Immutable unifier) {
+        final DiscriminationTree<Rule> index = ruleIndex.get(name);
+        return index != null ? index.get(args, unifier) : ImmutableList.of();
+    }
+
     /**
      * Gets a map of lists of rules, where the match order is reflected in (dis)equality constraints in the rule bodies.
      * The resulting rules can be applied independent of the other rules in the set.
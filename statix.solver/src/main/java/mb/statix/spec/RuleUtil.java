@@ -4,8 +4,11 @@ import static mb.nabl2.terms.build.TermBuild.B;
 import static mb.nabl2.terms.matching.TermPattern.P;
 import static mb.statix.solver.persistent.Solver.INCREMENTAL_CRITICAL_EDGES;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -46,9 +49,13 @@ import mb.nabl2.terms.unification.u.IUnifier;
 import mb.nabl2.terms.unification.ud.Diseq;
 import mb.nabl2.terms.unification.ud.IUniDisunifier;
 import mb.nabl2.terms.unification.ud.PersistentUniDisunifier;
+import mb.statix.constraints.CArith;
 import mb.statix.constraints.CConj;
 import mb.statix.constraints.CEqual;
 import mb.statix.constraints.CExists;
+import mb.statix.constraints.CFalse;
+import mb.statix.constraints.CInequal;
+import mb.statix.constraints.CTrue;
 import mb.statix.constraints.CUser;
 import mb.statix.constraints.Constraints;
 import mb.statix.solver.IConstraint;
@@ -440,6 +447,34 @@ public class RuleUtil {
     }
 
 
+    /**
+     * Find the predicates whose rules only contain term constraints, or constraints on other such predicates. Solving
+     * these predicates does not read or extend the scope graph, and does not create scopes.
+     */
+    public static ImmutableSet<String> termPredicates(RuleSet rules) {
+        final java.util.Set<String> termPredicates = new HashSet<>(rules.getRuleNames());
+        final SetMultimap<String, String> callers = HashMultimap.create();
+        final Deque<String> worklist = new ArrayDeque<>();
+        for(Rule rule : rules.getAllRules()) {
+            for(IConstraint c : Constraints.<IConstraint>collectBase(Optional::of, true).apply(rule.body())) {
+                if(c instanceof CUser) {
+                    callers.put(((CUser) c).name(), rule.name());
+                } else if(!(c instanceof CTrue || c instanceof CFalse || c instanceof CEqual || c instanceof CInequal
+                        || c instanceof CArith)) {
+                    worklist.push(rule.name());
+                }
+            }
+        }
+        String name;
+        while((name = worklist.poll()) != null) {
+            if(termPredicates.remove(name)) {
+                worklist.addAll(callers.get(name));
+            }
+        }
+        return ImmutableSet.copyOf(termPredicates);
+    }
+
+
     public static Set.Immutable<ITermVar> vars(Rule rule) {
         final Set.Transient<ITermVar> vars = CapsuleUtil.transientSet();
         vars(rule, vars::__insert);
@@ -1,5 +1,6 @@
 package mb.statix.spoofax;
 
+import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 
 import org.metaborg.util.task.ICancel;
@@ -16,13 +17,30 @@ import mb.statix.spec.Spec;
 
 public class STX_solve_constraint extends StatixConstraintPrimitive {
 
+    /**
+     * The number of results kept to answer repeated constraints, such as the analysis of unchanged files, without
+     * solving them again. Edited files are always solved from scratch, see {@link SolverResultMemo}. Set with the
+     * {@code statix.solveConstraintMemo} system property. Disabled by default, because every result keeps its solver
+     * state alive.
+     */
+    private static final int MEMO_SIZE = Integer.getInteger("statix.solveConstraintMemo", 0);
+
+    private final SolverResultMemo memo = new SolverResultMemo(MEMO_SIZE);
+
     @Inject public STX_solve_constraint() {
         super(STX_solve_constraint.class.getSimpleName());
     }
 
     @Override protected SolverResult solve(Spec spec, IConstraint constraint, IDebugContext debug,
             IProgress progress, ICancel cancel) throws InterruptedException, ExecutionException {
-        return Solver.solve(spec, State.of(), constraint, debug, cancel, progress, 0);
+        final Optional<SolverResult> memoized = memo.get(spec, constraint);
+        if(memoized.isPresent()) {
+            debug.debug("Reusing result for unchanged constraint {}", constraint);
+            return memoized.get();
+        }
+        final SolverResult result = Solver.solve(spec, State.of(), constraint, debug, cancel, progress, SOLVER_FLAGS);
+        memo.put(spec, constraint, result);
+        return result;
     }
 
 }
@@ -3,6 +3,9 @@ package mb.statix.spoofax;
 import static mb.nabl2.terms.build.TermBuild.B;
 import static mb.nabl2.terms.matching.TermMatch.M;
 
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -12,6 +15,8 @@ import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
+import javax.annotation.Nullable;
+
 import org.metaborg.util.future.IFuture;
 import org.metaborg.util.log.ILogger;
 import org.metaborg.util.log.LoggerUtils;
@@ -31,6 +36,7 @@ import mb.p_raffrayi.IScopeImpl;
 import mb.p_raffrayi.IUnitResult;
 import mb.p_raffrayi.IUnitResult.TransitionTrace;
 import mb.p_raffrayi.PRaffrayiSettings;
+import mb.p_raffrayi.actors.impl.ActorMetrics;
 import mb.p_raffrayi.impl.Broker;
 import mb.p_raffrayi.impl.Result;
 import mb.statix.concurrent.GroupResult;
@@ -56,15 +62,23 @@ import mb.statix.spec.Spec;
 public class STX_solve_multi extends StatixPrimitive {
     private static final ILogger logger = LoggerUtils.logger(STX_solve_multi.class);
 
+    /**
+     * File to write actor metrics to. Metrics are only collected if this property is set. Files ending in
+     * {@code .json} are written as JSON, all other files as CSV.
+     */
+    private static final @Nullable String ACTOR_METRICS_FILE = System.getProperty("statix.actorMetrics");
+
     @Inject public STX_solve_multi() {
         super(STX_solve_multi.class.getSimpleName(), 5);
     }
 
+    @Override protected int specArgument() {
+        return 1;
+    }
+
     @Override protected Optional<? extends ITerm> call(IContext env, ITerm term, List<ITerm> terms)
             throws InterpreterException {
-        final Spec spec =
-                StatixTerms.spec().match(terms.get(1)).orElseThrow(() -> new InterpreterException("Expected spec."));
-        reportOverlappingRules(spec);
+        final Spec spec = getSpec(terms.get(1));
 
         final IDebugContext debug = getDebugContext(terms.get(2));
         final IProgress progress = getProgress(terms.get(3));
@@ -85,11 +99,14 @@ public class STX_solve_multi extends StatixPrimitive {
             int size = project.size(Runtime.getRuntime().availableProcessors());
             progress.setWorkRemaining(size + 1);
 
+            final @Nullable ActorMetrics metrics = ACTOR_METRICS_FILE != null ? new ActorMetrics() : null;
+
             final double t0 = System.currentTimeMillis();
 
             final IFuture<IUnitResult<Scope, ITerm, ITerm, Result<Scope, ITerm, ITerm, ProjectResult, SolverState>>> futureResult =
                     Broker.run(project.resource(), settings, new ProjectTypeChecker(project, spec, debug), scopeImpl,
-                            spec.allLabels(), project.changed(), project.previousResult(), cancel, progress);
+                            spec.allLabels(), project.changed(), project.previousResult(), cancel, progress,
+                            Runtime.getRuntime().availableProcessors(), metrics);
 
             final IUnitResult<Scope, ITerm, ITerm, Result<Scope, ITerm, ITerm, ProjectResult, SolverState>> result =
                     futureResult.asJavaCompletion().get();
@@ -99,6 +116,9 @@ public class STX_solve_multi extends StatixPrimitive {
                     new ArrayList<>();
             final Map<String, ITerm> resultMap = flattenResult(spec, result, unitResults);
             // PRaffrayiUtil.writeStatsCsvFromResult(result, System.out);
+            if(metrics != null) {
+                writeActorMetrics(metrics, ACTOR_METRICS_FILE);
+            }
 
             logger.info("Files analyzed in {} s", (dt / 1_000d));
             if(settings.isIncremental()) {
@@ -231,6 +251,19 @@ public class STX_solve_multi extends StatixPrimitive {
                 .collect(Collectors.joining(", "));
     }
 
+    private void writeActorMetrics(ActorMetrics metrics, String file) {
+        try(final PrintStream out = new PrintStream(new FileOutputStream(file), false, "UTF-8")) {
+            if(file.endsWith(".json")) {
+                metrics.writeJson(out);
+            } else {
+                metrics.writeCsv(out);
+            }
+            logger.info("Actor metrics written to {}", file);
+        } catch(IOException e) {
+            logger.warn("Failed to write actor metrics to {}", e, file);
+        }
+    }
+
     private SolverMode getSolverMode(ITerm term) throws InterpreterException {
         return M.blobValue(SolverMode.class).match(term)
                 .orElseThrow(() -> new InterpreterException("Expected project condiguration, got " + term));
@@ -35,12 +35,14 @@ public class STX_solve_multi_file extends StatixPrimitive {
         super(STX_solve_multi_file.class.getSimpleName(), 5);
     }
 
+    @Override protected int specArgument() {
+        return 0;
+    }
+
     @Override protected Optional<? extends ITerm> call(IContext env, ITerm term, List<ITerm> terms)
             throws InterpreterException {
 
-        final Spec spec =
-                StatixTerms.spec().match(terms.get(0)).orElseThrow(() -> new InterpreterException("Expected spec."));
-        reportOverlappingRules(spec);
+        final Spec spec = getSpec(terms.get(0));
 
         final SolverResult initial = M.blobValue(SolverResult.class).match(terms.get(1))
                 .orElseThrow(() -> new InterpreterException("Expected solver result."));
@@ -72,7 +74,7 @@ public class STX_solve_multi_file extends StatixPrimitive {
         };
         final SolverResult resultConfig;
         try {
-            resultConfig = Solver.solve(spec, state, constraint, isComplete, debug, cancel, progress, 0);
+            resultConfig = Solver.solve(spec, state, constraint, isComplete, debug, cancel, progress, SOLVER_FLAGS);
         } catch(InterruptedException e) {
             throw new RuntimeException(e);
         }
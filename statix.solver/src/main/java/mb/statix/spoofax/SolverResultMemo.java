@@ -0,0 +1,172 @@
+package mb.statix.spoofax;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import com.google.common.collect.MapMaker;
+
+import mb.nabl2.terms.IApplTerm;
+import mb.nabl2.terms.IConsTerm;
+import mb.nabl2.terms.ITerm;
+import mb.statix.constraints.CExists;
+import mb.statix.constraints.CUser;
+import mb.statix.solver.IConstraint;
+import mb.statix.solver.persistent.SolverResult;
+import mb.statix.spec.Spec;
+
+/**
+ * Memo of solver results for closed constraints that apply a rule to terms, such as the constraints that start a
+ * single-file analysis.
+ *
+ * A result is only reused if the spec has the same content, and the constraint is equal to the memoized one, including
+ * the attachments of its arguments. The attachments carry the term indices, which end up in the result. This makes the
+ * memo useful for constraints that are solved again without changes, such as the analysis of a file that was not
+ * edited, or that was edited back to an earlier state. It does not make solving incremental: the constraint of an
+ * edited file is never equal to a memoized one, and is solved from scratch. The memo keeps a bounded number of
+ * results, and evicts the least recently used result first. The memo can be used concurrently.
+ */
+final class SolverResultMemo {
+
+    private final int capacity;
+    private final Map<Key, SolverResult> results;
+    private final Map<Spec, Integer> specHashes = new MapMaker().weakKeys().makeMap();
+
+    SolverResultMemo(int capacity) {
+        this.capacity = capacity;
+        this.results = new LinkedHashMap<Key, SolverResult>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 42L;
+
+            @Override protected boolean removeEldestEntry(Map.Entry<Key, SolverResult> eldest) {
+                return size() > SolverResultMemo.this.capacity;
+            }
+
+        };
+    }
+
+    Optional<SolverResult> get(Spec spec, IConstraint constraint) {
+        if(!isMemoizable(constraint)) {
+            return Optional.empty();
+        }
+        synchronized(results) {
+            return Optional.ofNullable(results.get(new Key(spec, specHash(spec), constraint)));
+        }
+    }
+
+    void put(Spec spec, IConstraint constraint, SolverResult result) {
+        if(!isMemoizable(constraint)) {
+            return;
+        }
+        synchronized(results) {
+            results.put(new Key(spec, specHash(spec), constraint), result);
+        }
+    }
+
+    int size() {
+        synchronized(results) {
+            return results.size();
+        }
+    }
+
+    /**
+     * Hash of the content of the spec. The hash is computed once per spec instance, because the spec cache in
+     * {@link StatixPrimitive} usually returns the same instance for the same spec.
+     */
+    private int specHash(Spec spec) {
+        return specHashes.computeIfAbsent(spec, s -> Objects.hash(s.rules().getRuleMap(), s.edgeLabels(),
+                s.dataLabels(), s.scopeExtensions(), s.hasPrecomputedCriticalEdges()));
+    }
+
+    private static boolean sameSpec(Spec spec1, Spec spec2) {
+        if(spec1 == spec2) {
+            return true;
+        }
+        // @formatter:off
+        return spec1.hasPrecomputedCriticalEdges() == spec2.hasPrecomputedCriticalEdges()
+            && spec1.edgeLabels().equals(spec2.edgeLabels())
+            && spec1.dataLabels().equals(spec2.dataLabels())
+            && spec1.scopeExtensions().equals(spec2.scopeExtensions())
+            && spec1.rules().getRuleMap().equals(spec2.rules().getRuleMap());
+        // @formatter:on
+    }
+
+    private boolean isMemoizable(IConstraint constraint) {
+        return capacity > 0 && rule(constraint).isPresent() && constraint.freeVars().isEmpty();
+    }
+
+    /**
+     * The rule application of the constraint, possibly under existentials.
+     */
+    private static Optional<CUser> rule(IConstraint constraint) {
+        while(constraint instanceof CExists) {
+            constraint = ((CExists) constraint).constraint();
+        }
+        return constraint instanceof CUser ? Optional.of((CUser) constraint) : Optional.empty();
+    }
+
+    private static boolean sameAttachments(List<? extends ITerm> terms1, List<? extends ITerm> terms2) {
+        for(int i = 0; i < terms1.size(); i++) {
+            if(!sameAttachments(terms1.get(i), terms2.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compare the attachments of two equal terms.
+     */
+    private static boolean sameAttachments(ITerm term1, ITerm term2) {
+        while(true) {
+            if(!term1.getAttachments().equals(term2.getAttachments())) {
+                return false;
+            }
+            if(term1 instanceof IApplTerm) {
+                return sameAttachments(((IApplTerm) term1).getArgs(), ((IApplTerm) term2).getArgs());
+            } else if(term1 instanceof IConsTerm) {
+                if(!sameAttachments(((IConsTerm) term1).getHead(), ((IConsTerm) term2).getHead())) {
+                    return false;
+                }
+                term1 = ((IConsTerm) term1).getTail();
+                term2 = ((IConsTerm) term2).getTail();
+            } else {
+                return true;
+            }
+        }
+    }
+
+    private static final class Key {
+
+        private final Spec spec;
+        private final IConstraint constraint;
+        private final int hashCode;
+
+        private Key(Spec spec, int specHash, IConstraint constraint) {
+            this.spec = spec;
+            this.constraint = constraint;
+            this.hashCode = Objects.hash(specHash, constraint);
+        }
+
+        @Override public boolean equals(Object obj) {
+            if(this == obj) {
+                return true;
+            }
+            if(obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return hashCode == other.hashCode && constraint.equals(other.constraint)
+                    && sameAttachments(rule(constraint).get().args(), rule(other.constraint).get().args())
+                    && sameSpec(spec, other.spec);
+        }
+
+        @Override public int hashCode() {
+            return hashCode;
+        }
+
+    }
+
+}
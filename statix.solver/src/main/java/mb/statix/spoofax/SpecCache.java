@@ -0,0 +1,88 @@
+package mb.statix.spoofax;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.spoofax.interpreter.terms.IStrategoTerm;
+
+import mb.statix.spec.Spec;
+
+/**
+ * Cache of specifications decoded from Stratego terms.
+ *
+ * A specification is found by the identity of the Stratego term it was decoded from, or otherwise by the hash and
+ * structural equality of that term. Reusing the specification object also reuses the indices that are computed lazily
+ * on it, such as the order-independent rules. The cache keeps a bounded number of specifications, and evicts the least
+ * recently used specification first. The cache can be used concurrently.
+ */
+final class SpecCache {
+
+    private final int capacity;
+    private final Map<Key, Spec> specs;
+
+    SpecCache(int capacity) {
+        this.capacity = capacity;
+        this.specs = new LinkedHashMap<Key, Spec>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 42L;
+
+            @Override protected boolean removeEldestEntry(Map.Entry<Key, Spec> eldest) {
+                return size() > SpecCache.this.capacity;
+            }
+
+        };
+    }
+
+    Optional<Spec> get(IStrategoTerm specTerm) {
+        if(capacity <= 0) {
+            return Optional.empty();
+        }
+        synchronized(specs) {
+            return Optional.ofNullable(specs.get(new Key(specTerm)));
+        }
+    }
+
+    void put(IStrategoTerm specTerm, Spec spec) {
+        if(capacity <= 0) {
+            return;
+        }
+        synchronized(specs) {
+            specs.put(new Key(specTerm), spec);
+        }
+    }
+
+    int size() {
+        synchronized(specs) {
+            return specs.size();
+        }
+    }
+
+    private static final class Key {
+
+        private final IStrategoTerm term;
+        private final int hashCode;
+
+        private Key(IStrategoTerm term) {
+            this.term = term;
+            this.hashCode = term.hashCode();
+        }
+
+        @Override public boolean equals(Object obj) {
+            if(this == obj) {
+                return true;
+            }
+            if(obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return term == other.term || (hashCode == other.hashCode && term.equals(other.term));
+        }
+
+        @Override public int hashCode() {
+            return hashCode;
+        }
+
+    }
+
+}
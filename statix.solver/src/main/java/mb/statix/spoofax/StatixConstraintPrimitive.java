@@ -35,13 +35,14 @@ public abstract class StatixConstraintPrimitive extends StatixPrimitive {
         super(name, 4);
     }
 
+    @Override protected int specArgument() {
+        return 0;
+    }
+
     @Override protected Optional<? extends ITerm> call(IContext env, ITerm term, List<ITerm> terms)
             throws InterpreterException {
 
-        final ITerm specTerm = terms.get(0);
-        final Spec spec = StatixTerms.spec().match(specTerm)
-                .orElseThrow(() -> new InterpreterException("Expected spec, got " + specTerm));
-        reportOverlappingRules(spec);
+        final Spec spec = getSpec(terms.get(0));
 
         final IDebugContext debug = getDebugContext(terms.get(1));
         final IProgress progress = getProgress(terms.get(2));
@@ -59,6 +59,25 @@ public abstract class StatixPrimitive extends AbstractPrimitive {
     protected static final ILogger logger = LoggerUtils.logger(StatixPrimitive.class);
     protected static final String WITH_CONFIG_OP = "WithConfig";
 
+    /**
+     * Number of decoded specifications that are kept between invocations.
+     */
+    private static final int SPEC_CACHE_SIZE = Integer.getInteger("statix.specCache", 4);
+    private static final SpecCache specCache = new SpecCache(SPEC_CACHE_SIZE);
+
+    /**
+     * Pass terms to primitives as views of the Stratego terms, which are converted when they are accessed, instead of
+     * converting them up front.
+     */
+    private static final boolean LAZY_TERMS = Boolean.getBoolean("statix.lazyTerms");
+
+    /**
+     * Flags for the persistent solver. Sharing name resolution memo tables between queries is enabled with the
+     * {@code statix.shareQueryMemo} system property.
+     */
+    protected static final int SOLVER_FLAGS =
+            Boolean.getBoolean("statix.shareQueryMemo") ? Solver.SHARE_QUERY_MEMO : 0;
+
     final protected int tvars;
 
     public StatixPrimitive(String name) {
@@ -85,16 +104,53 @@ public abstract class StatixPrimitive extends AbstractPrimitive {
             throw new InterpreterException("Expected " + tvars + " term arguments, but got " + sterms.size());
         }
         final StrategoTerms strategoTerms = new StrategoTerms(factory);
-        final ITerm term = strategoTerms.fromStratego(sterm);
-        final List<ITerm> terms =
-                sterms.stream().map(strategoTerms::fromStratego).collect(ImmutableList.toImmutableList());
-        final Optional<? extends ITerm> result = call(env, term, terms);
+        final ITerm term = fromStratego(strategoTerms, sterm);
+        final int specArgument = specArgument();
+        final ImmutableList.Builder<ITerm> terms = ImmutableList.builder();
+        for(int i = 0; i < sterms.size(); i++) {
+            if(i == specArgument) {
+                terms.add(B.newBlob(decodeSpec(strategoTerms, sterms.get(i))));
+            } else {
+                terms.add(fromStratego(strategoTerms, sterms.get(i)));
+            }
+        }
+        final Optional<? extends ITerm> result = call(env, term, terms.build());
         return result.map(strategoTerms::toStratego);
     }
 
+    private static ITerm fromStratego(StrategoTerms strategoTerms, IStrategoTerm sterm) {
+        return LAZY_TERMS ? StrategoTerms.fromStrategoLazy(sterm) : strategoTerms.fromStratego(sterm);
+    }
+
     protected abstract Optional<? extends ITerm> call(IContext env, ITerm term, List<ITerm> terms)
             throws InterpreterException;
 
+    /**
+     * Index of the term argument that contains the specification, or -1 if the primitive has no specification argument.
+     * The specification argument is passed to {@link #call(IContext, ITerm, List)} as a blob with the decoded
+     * specification, which can be retrieved with {@link #getSpec(ITerm)}.
+     */
+    protected int specArgument() {
+        return -1;
+    }
+
+    private Spec decodeSpec(StrategoTerms strategoTerms, IStrategoTerm specTerm) throws InterpreterException {
+        final Optional<Spec> cachedSpec = specCache.get(specTerm);
+        if(cachedSpec.isPresent()) {
+            return cachedSpec.get();
+        }
+        final ITerm term = strategoTerms.fromStratego(specTerm);
+        final Spec spec =
+                StatixTerms.spec().match(term).orElseThrow(() -> new InterpreterException("Expected spec, got " + term));
+        reportOverlappingRules(spec);
+        specCache.put(specTerm, spec);
+        return spec;
+    }
+
+    protected static Spec getSpec(ITerm specTerm) throws InterpreterException {
+        return M.blobValue(Spec.class).match(specTerm).orElseThrow(() -> new InterpreterException("Expected spec."));
+    }
+
     ///////////////////////////////////////
     // Helper methods for checking specs //
     ///////////////////////////////////////
@@ -0,0 +1,79 @@
+package mb.statix.concurrent;
+
+import static mb.nabl2.terms.build.TermBuild.B;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+import org.metaborg.util.tuple.Tuple2;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+import io.usethesource.capsule.Set;
+import mb.nabl2.terms.ITerm;
+import mb.scopegraph.oopsla20.IScopeGraph;
+import mb.scopegraph.oopsla20.reference.ScopeGraph;
+import mb.statix.scopegraph.Scope;
+
+public class StatixLibrarySnapshotTest {
+
+    private final ITerm P = B.newAppl("Label", B.newString("P"));
+    private final ITerm Q = B.newAppl("Label", B.newString("Q"));
+
+    private final Scope r = Scope.of("lib", "r");
+    private final Scope a = Scope.of("lib", "a");
+    private final Scope b = Scope.of("lib", "b");
+
+    @Test public void testInitialize() throws IOException {
+        final IScopeGraph.Transient<Scope, ITerm, ITerm> scopeGraph = ScopeGraph.Transient.of();
+        scopeGraph.addEdge(r, P, a);
+        scopeGraph.addEdge(a, P, b);
+        scopeGraph.addEdge(a, Q, r);
+        scopeGraph.setDatum(a, B.newTuple(B.newString("x"), b, Scope.of("other", "c")));
+        final StatixLibrary library =
+                new StatixLibrary(ImmutableList.of(r), ImmutableList.of(a, b), scopeGraph.freeze());
+
+        final Path file = Files.createTempFile("library", ".snapshot");
+        try {
+            StatixLibrarySnapshot.write(library, file);
+            final StatixLibrarySnapshot snapshot = StatixLibrarySnapshot.read(file);
+
+            assertEquals(ImmutableList.of(r), snapshot.rootScopes());
+            assertEquals(ImmutableSet.of(a, b), snapshot.ownScopes());
+
+            final Scope root = Scope.of("unit", "root");
+            final Tuple2<Set.Immutable<Scope>, IScopeGraph.Immutable<Scope, ITerm, ITerm>> result =
+                    snapshot.initialize(Collections.singletonList(root), name -> Scope.of("unit", name));
+            final Scope a2 = Scope.of("unit", "a");
+            final Scope b2 = Scope.of("unit", "b");
+            assertEquals(ImmutableSet.of(a2, b2), result._1());
+
+            final IScopeGraph.Immutable<Scope, ITerm, ITerm> graph = result._2();
+            assertEquals(ImmutableSet.of(P, Q), graph.getLabels());
+            assertEquals(Arrays.asList(a2), Lists.newArrayList(graph.getEdges(root, P)));
+            assertEquals(Arrays.asList(b2), Lists.newArrayList(graph.getEdges(a2, P)));
+            assertEquals(Arrays.asList(root), Lists.newArrayList(graph.getEdges(a2, Q)));
+            assertFalse(graph.getEdges(b2, P).iterator().hasNext());
+            assertEquals(B.newTuple(B.newString("x"), b2, Scope.of("other", "c")), graph.getData(a2).get());
+            assertFalse(graph.getData(b2).isPresent());
+            assertFalse(graph.getData(root).isPresent());
+
+            assertSame(graph, graph.addEdge(root, P, a2));
+            final IScopeGraph.Immutable<Scope, ITerm, ITerm> graph2 = graph.addEdge(root, P, b2);
+            assertEquals(ImmutableSet.of(a2, b2), ImmutableSet.copyOf(graph2.getEdges(root, P)));
+            assertEquals(3, graph2.getEdges().size());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
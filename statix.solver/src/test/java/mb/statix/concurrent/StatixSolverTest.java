@@ -0,0 +1,190 @@
+package mb.statix.concurrent;
+
+import static mb.nabl2.terms.build.TermBuild.B;
+import static mb.nabl2.terms.matching.TermPattern.P;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.metaborg.util.task.NullCancel;
+import org.metaborg.util.task.NullProgress;
+import org.metaborg.util.tuple.Tuple2;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableSet;
+
+import io.usethesource.capsule.Set;
+import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.ITermVar;
+import mb.nabl2.terms.stratego.TermIndex;
+import mb.p_raffrayi.IUnitResult;
+import mb.p_raffrayi.PRaffrayiSettings;
+import mb.p_raffrayi.impl.Broker;
+import mb.p_raffrayi.impl.Result;
+import mb.statix.concurrent.nameresolution.ScopeImpl;
+import mb.statix.constraints.CEqual;
+import mb.statix.constraints.CExists;
+import mb.statix.constraints.CInequal;
+import mb.statix.constraints.CUser;
+import mb.statix.constraints.Constraints;
+import mb.statix.scopegraph.Scope;
+import mb.statix.solver.IConstraint;
+import mb.statix.solver.IState;
+import mb.statix.solver.ITermProperty;
+import mb.statix.solver.completeness.Completeness;
+import mb.statix.solver.completeness.CompletenessUtil;
+import mb.statix.solver.completeness.IsComplete;
+import mb.statix.solver.log.NullDebugContext;
+import mb.statix.solver.persistent.BagTermProperty;
+import mb.statix.solver.persistent.Solver;
+import mb.statix.solver.persistent.SolverResult;
+import mb.statix.solver.persistent.State;
+import mb.statix.spec.Rule;
+import mb.statix.spec.RuleSet;
+import mb.statix.spec.Spec;
+
+public class StatixSolverTest {
+
+    private static final ITermVar x = B.newVar("", "x");
+    private static final ITermVar y = B.newVar("", "y");
+
+    private static final ITerm foo = B.newString("foo");
+    private static final ITerm bar = B.newString("bar");
+
+    // @formatter:off
+    private final Spec spec = Spec.of(RuleSet.of(Arrays.asList(
+        Rule.of("eq", Arrays.asList(P.newVar(x), P.newVar(y)), new CEqual(x, y)),
+        Rule.of("neq", Arrays.asList(P.newVar(x), P.newVar(y)), new CInequal(ImmutableSet.of(), x, y))
+    )), ImmutableSet.of(), ImmutableSet.of(), HashMultimap.create());
+    // @formatter:on
+
+    ///////////////////////////////////////////////////////////////////////////
+    // merging component groups
+    ///////////////////////////////////////////////////////////////////////////
+
+    @Test public void testMergeIntoUnchangedState() throws Exception {
+        final Tuple2<ITermVar, IState.Immutable> a = State.of().withResource("unit").freshVar(B.newVar("", "a"));
+        final IState.Immutable initialState = a._2();
+        final IConstraint group = bindToTuple(a._1());
+
+        final SolverResult groupResult = solveGroup(initialState, group);
+        final Tuple2<IState.Immutable, Set.Immutable<ITermVar>> merged =
+                StatixSolver.mergeComponentState(initialState, initialState, groupResult);
+        final SolverResult sequentialResult = solveGroup(initialState.withResource("unit"), group);
+
+        assertEquals(sequentialResult.state().unifier().findRecursive(a._1()),
+                merged._1().unifier().findRecursive(a._1()));
+        assertTrue(merged._2().contains(a._1()));
+        assertTrue(merged._1().vars().containsAll(groupResult.state().vars()));
+    }
+
+    @Test public void testMergeIntoChangedState() throws Exception {
+        final Tuple2<ITermVar, IState.Immutable> a = State.of().withResource("unit").freshVar(B.newVar("", "a"));
+        final Tuple2<ITermVar, IState.Immutable> b = a._2().freshVar(B.newVar("", "b"));
+        final IState.Immutable initialState = b._2();
+        final SolverResult groupResult = solveGroup(initialState, bindToTuple(a._1()));
+
+        // the unit binds b and sets a property while the group is solved
+        final Tuple2<TermIndex, ITerm> key = Tuple2.of(TermIndex.of("a.src", 1), B.newString("ref"));
+        final ITermProperty property = BagTermProperty.of(foo);
+        final IState.Immutable state = initialState
+                .withUnifier(initialState.unifier().unify(b._1(), bar).get().unifier())
+                .withTermProperties(initialState.termProperties().__put(key, property));
+
+        final IState.Immutable merged = StatixSolver.mergeComponentState(state, initialState, groupResult)._1();
+        assertEquals(B.newTuple(foo, foo), merged.unifier().findRecursive(a._1()));
+        assertEquals(bar, merged.unifier().findRecursive(b._1()));
+        assertEquals(property, merged.termProperties().get(key));
+        assertTrue(merged.vars().containsAll(groupResult.state().vars()));
+    }
+
+    @Test public void testMergeDisequalities() throws Exception {
+        final Tuple2<ITermVar, IState.Immutable> a = State.of().withResource("unit").freshVar(B.newVar("", "a"));
+        final IState.Immutable initialState = a._2();
+        final SolverResult groupResult = solveGroup(initialState, new CInequal(ImmutableSet.of(), a._1(), foo));
+
+        final IState.Immutable merged = StatixSolver.mergeComponentState(initialState, initialState, groupResult)._1();
+        assertFalse(merged.unifier().unify(a._1(), foo).isPresent());
+        assertTrue(merged.unifier().unify(a._1(), bar).isPresent());
+    }
+
+    @Test(expected = IllegalArgumentException.class) public void testMergeConflict() throws Exception {
+        final Tuple2<ITermVar, IState.Immutable> a = State.of().withResource("unit").freshVar(B.newVar("", "a"));
+        final IState.Immutable initialState = a._2();
+        final SolverResult groupResult = solveGroup(initialState, bindToTuple(a._1()));
+
+        final IState.Immutable state =
+                initialState.withUnifier(initialState.unifier().unify(a._1(), bar).get().unifier());
+        StatixSolver.mergeComponentState(state, initialState, groupResult);
+    }
+
+    private IConstraint bindToTuple(ITermVar var) {
+        final ITermVar z = B.newVar("", "z");
+        return new CExists(Arrays.asList(z),
+                Constraints.conjoin(Arrays.asList(new CEqual(var, B.newTuple(z, z)), new CEqual(z, foo))));
+    }
+
+    private SolverResult solveGroup(IState.Immutable initialState, IConstraint constraint) throws InterruptedException {
+        final IConstraint group = CompletenessUtil.precomputeCriticalEdges(constraint, spec.scopeExtensions())._1();
+        return Solver.solve(spec, initialState.withResource("unit#0-0"), Collections.singletonList(group),
+                Collections.emptyMap(), Completeness.Immutable.of(), IsComplete.ALWAYS, new NullDebugContext(),
+                new NullProgress(), new NullCancel(), 0);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // solving units
+    ///////////////////////////////////////////////////////////////////////////
+
+    @Test(timeout = 10000) public void testParallelComponents() throws Exception {
+        final List<ITermVar> vs = Arrays.asList(B.newVar("", "v1"), B.newVar("", "v2"), B.newVar("", "v3"),
+                B.newVar("", "v4"), B.newVar("", "v5"), B.newVar("", "v6"));
+        // @formatter:off
+        final IConstraint body = new CExists(vs, Constraints.conjoin(Arrays.asList(
+            new CUser("eq", Arrays.asList(vs.get(0), foo)),
+            new CUser("eq", Arrays.asList(vs.get(1), B.newTuple(vs.get(0), vs.get(0)))),
+            new CUser("eq", Arrays.asList(vs.get(2), bar)),
+            new CUser("eq", Arrays.asList(vs.get(3), foo)),
+            new CUser("eq", Arrays.asList(vs.get(3), bar)),
+            new CUser("neq", Arrays.asList(vs.get(4), foo)),
+            new CUser("eq", Arrays.asList(vs.get(5), B.newList(vs.get(4))))
+        )));
+        // @formatter:on
+        final Rule rule = Rule.of("resolve", Arrays.asList(P.newWld()), body);
+
+        final SolverResult sequential = solveProject(rule, 0);
+        final SolverResult parallel = solveProject(rule, Solver.PARALLEL_COMPONENTS);
+
+        assertEquals(1, sequential.messages().size());
+        assertEquals(sequential.messages().size(), parallel.messages().size());
+        for(ITermVar v : vs.subList(0, 3)) {
+            assertEquals(value(sequential, v), value(parallel, v));
+        }
+        for(SolverResult result : Arrays.asList(sequential, parallel)) {
+            final ITermVar v5 = result.existentials().get(vs.get(4));
+            assertFalse(result.state().unifier().unify(v5, foo).isPresent());
+            assertEquals(B.newList(result.state().unifier().findRecursive(v5)), value(result, vs.get(5)));
+        }
+    }
+
+    private SolverResult solveProject(Rule rule, int flags) throws Exception {
+        final IStatixProject project = StatixProject.builder().resource("").changed(true).rule(rule).build();
+        final IUnitResult<Scope, ITerm, ITerm, Result<Scope, ITerm, ITerm, ProjectResult, SolverState>> result =
+                Broker.run("", PRaffrayiSettings.of(false, false, false, false),
+                        new ProjectTypeChecker(project, spec, new NullDebugContext(), flags), new ScopeImpl(),
+                        spec.allLabels(), new NullCancel(), new NullProgress()).asJavaCompletion().get();
+        assertTrue(result.allFailures().isEmpty());
+        assertNull(result.result().analysis().exception());
+        return result.result().analysis().solveResult();
+    }
+
+    private static ITerm value(SolverResult result, ITermVar var) {
+        return result.state().unifier().findRecursive(result.existentials().get(var));
+    }
+
+}
@@ -0,0 +1,111 @@
+package mb.statix.solver.persistent;
+
+import static mb.nabl2.terms.build.TermBuild.B;
+import static mb.nabl2.terms.matching.TermMatch.M;
+import static mb.nabl2.terms.matching.TermPattern.P;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.metaborg.util.task.NullCancel;
+import org.metaborg.util.task.NullProgress;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableSet;
+
+import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.ITermVar;
+import mb.scopegraph.oopsla20.reference.EdgeOrData;
+import mb.scopegraph.regexp.IRegExp;
+import mb.scopegraph.regexp.impl.RegExpBuilder;
+import mb.scopegraph.relations.RelationDescription;
+import mb.scopegraph.relations.impl.Relation;
+import mb.statix.constraints.CEqual;
+import mb.statix.constraints.CExists;
+import mb.statix.constraints.CNew;
+import mb.statix.constraints.CResolveQuery;
+import mb.statix.constraints.CTellEdge;
+import mb.statix.constraints.CTrue;
+import mb.statix.constraints.Constraints;
+import mb.statix.solver.IConstraint;
+import mb.statix.solver.log.NullDebugContext;
+import mb.statix.solver.query.QueryFilter;
+import mb.statix.solver.query.QueryMin;
+import mb.statix.spec.Rule;
+import mb.statix.spec.RuleSet;
+import mb.statix.spec.Spec;
+
+public class GreedySolverTest {
+
+    private static final ITerm LBL_P = B.newAppl("Label", B.newString("P"));
+    private static final ITerm LBL_R = B.newAppl("Label", B.newString("R"));
+
+    private final Spec spec =
+            Spec.of(RuleSet.of(Collections.emptyList()), ImmutableSet.of(LBL_P), ImmutableSet.of(LBL_R),
+                    HashMultimap.create());
+
+    @Test public void testSharedQueryMemo() throws InterruptedException {
+        final ITermVar s0 = B.newVar("", "s0");
+        final ITermVar s1 = B.newVar("", "s1");
+        final ITermVar s2 = B.newVar("", "s2");
+        final ITermVar d = B.newVar("", "d");
+        final ITermVar r1 = B.newVar("", "r1");
+        final ITermVar r2 = B.newVar("", "r2");
+        final ITermVar r3 = B.newVar("", "r3");
+        // @formatter:off
+        final IConstraint body = Constraints.conjoin(Arrays.asList(
+            new CNew(s0, s0),
+            new CNew(s1, s1),
+            new CNew(s2, s2),
+            new CNew(d, B.newTuple(B.newString("x"), B.newAppl("INT"))),
+            new CTellEdge(s1, LBL_P, s0),
+            new CTellEdge(s2, LBL_P, s0),
+            new CTellEdge(s0, LBL_R, d),
+            query(s1, r1),
+            query(s2, r2),
+            query(s1, r3)
+        ));
+        // @formatter:on
+        final List<ITermVar> results = Arrays.asList(r1, r2, r3);
+        final IConstraint constraint = new CExists(Arrays.asList(s0, s1, s2, d, r1, r2, r3), body);
+
+        final SolverResult unshared = solve(constraint, 0);
+        final SolverResult shared = solve(constraint, Solver.SHARE_QUERY_MEMO);
+        assertFalse(unshared.hasErrors());
+        assertFalse(shared.hasErrors());
+        assertTrue(shared.delays().isEmpty());
+        for(ITermVar result : results) {
+            final ITerm expected = resultTerm(unshared, result);
+            assertEquals(1, M.listElems().match(expected).get().size());
+            assertEquals(expected, resultTerm(shared, result));
+        }
+    }
+
+    private SolverResult solve(IConstraint constraint, int flags) throws InterruptedException {
+        return Solver.solve(spec, State.of(), constraint, new NullDebugContext(), new NullCancel(), new NullProgress(),
+                flags);
+    }
+
+    private static ITerm resultTerm(SolverResult result, ITermVar var) {
+        return result.state().unifier().findRecursive(result.existentials().get(var));
+    }
+
+    private static IConstraint query(ITerm scope, ITerm result) {
+        final RegExpBuilder<ITerm> reb = new RegExpBuilder<>();
+        final IRegExp<ITerm> wf = reb.concat(reb.closure(reb.symbol(LBL_P)), reb.symbol(LBL_R));
+        final ITermVar x = B.newVar("", "x");
+        final Rule dataWf = Rule.of("", Arrays.asList(P.newTuple(P.newVar(x), P.newWld())),
+                new CEqual(x, B.newString("x")));
+        final Rule dataLeq = Rule.of("", Arrays.asList(P.newWld(), P.newWld()), new CTrue());
+        final QueryFilter filter = new QueryFilter(wf, dataWf);
+        final QueryMin min = new QueryMin(
+                Relation.Immutable.<EdgeOrData<ITerm>>of(RelationDescription.STRICT_PARTIAL_ORDER), dataLeq);
+        return new CResolveQuery(filter, min, scope, result);
+    }
+
+}
@@ -0,0 +1,135 @@
+package mb.statix.solver.persistent.query;
+
+import static mb.nabl2.terms.build.TermBuild.B;
+import static mb.nabl2.terms.matching.TermPattern.P;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.metaborg.util.tuple.Tuple2;
+
+import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.ITermVar;
+import mb.nabl2.terms.unification.OccursException;
+import mb.statix.constraints.CEqual;
+import mb.statix.solver.IState;
+import mb.statix.solver.completeness.IsComplete;
+import mb.statix.solver.persistent.State;
+import mb.statix.solver.query.ResolutionDelayException;
+import mb.statix.spec.Rule;
+import mb.statix.spec.Spec;
+
+public class QueryPredicateCacheTest {
+
+    private static final ITermVar x = B.newVar("", "x");
+    private static final ITermVar x1 = B.newVar("", "x1");
+    private static final ITermVar x2 = B.newVar("", "x2");
+
+    private static final ITerm foo = B.newString("foo");
+    private static final ITerm bar = B.newString("bar");
+
+    private final Spec spec = Spec.of();
+
+    @Test public void testCompileHitOnUnchangedInstantiation() throws Exception {
+        final Tuple2<ITermVar, IState.Immutable> y = State.of().freshVar(B.newVar("", "y"));
+        final Rule rule = Rule.of("", Arrays.asList(P.newVar(x)), new CEqual(x, y._1()));
+        final QueryPredicateCache cache = new QueryPredicateCache();
+        final Rule compiled = cache.compile(rule, y._2().unifier());
+        assertSame(compiled, cache.compile(rule, y._2().unifier()));
+        assertEquals(1, cache.size());
+    }
+
+    @Test public void testCompileMissAfterBinding() throws Exception {
+        final Tuple2<ITermVar, IState.Immutable> y = State.of().freshVar(B.newVar("", "y"));
+        final Rule rule = Rule.of("", Arrays.asList(P.newVar(x)), new CEqual(x, y._1()));
+        final QueryPredicateCache cache = new QueryPredicateCache();
+        final Rule open = cache.compile(rule, y._2().unifier());
+        final Rule closed = cache.compile(rule, bind(y._2(), y._1(), foo).unifier());
+        assertNotSame(open, closed);
+        assertFalse(open.freeVars().isEmpty());
+        assertTrue(closed.freeVars().isEmpty());
+        assertEquals(2, cache.size());
+    }
+
+    @Test public void testDelayedWfNotCached() throws Exception {
+        final Tuple2<ITermVar, IState.Immutable> y = State.of().freshVar(B.newVar("", "y"));
+        final IState.Immutable state = y._2();
+        final Rule rule = Rule.of("", Arrays.asList(P.newVar(x)), new CEqual(x, y._1()));
+        final QueryPredicateCache cache = new QueryPredicateCache();
+        final Rule compiled = cache.compile(rule, state.unifier());
+        final int size = cache.size();
+        final ConstraintDataWF dataWf = new ConstraintDataWF(spec, state, IsComplete.ALWAYS, compiled, cache);
+        for(int i = 0; i < 2; i++) {
+            try {
+                dataWf.wf(foo);
+                fail("Expected data well-formedness to be delayed.");
+            } catch(ResolutionDelayException e) {
+                // expected
+            }
+            assertEquals(size, cache.size());
+        }
+    }
+
+    @Test public void testWfVerdictsCached() throws Exception {
+        final Tuple2<ITermVar, IState.Immutable> y = State.of().freshVar(B.newVar("", "y"));
+        final IState.Immutable state = bind(y._2(), y._1(), foo);
+        final Rule rule = Rule.of("", Arrays.asList(P.newVar(x)), new CEqual(x, y._1()));
+        final QueryPredicateCache cache = new QueryPredicateCache();
+        final Rule compiled = cache.compile(rule, state.unifier());
+        final int size = cache.size();
+        final ConstraintDataWF cached = new ConstraintDataWF(spec, state, IsComplete.ALWAYS, compiled, cache);
+        final ConstraintDataWF uncached = new ConstraintDataWF(spec, state, IsComplete.ALWAYS, compiled);
+        for(int i = 0; i < 2; i++) {
+            assertTrue(uncached.wf(foo));
+            assertTrue(cached.wf(foo));
+            assertFalse(uncached.wf(bar));
+            assertFalse(cached.wf(bar));
+            assertEquals(size + 2, cache.size());
+        }
+    }
+
+    @Test public void testDelayedLeqNotCached() throws Exception {
+        final Tuple2<ITermVar, IState.Immutable> y = State.of().freshVar(B.newVar("", "y"));
+        final IState.Immutable state = y._2();
+        final Rule rule = Rule.of("", Arrays.asList(P.newVar(x1), P.newVar(x2)), new CEqual(x1, y._1()));
+        final QueryPredicateCache cache = new QueryPredicateCache();
+        final Rule compiled = cache.compile(rule, state.unifier());
+        final int size = cache.size();
+        final ConstraintDataLeq dataLeq = new ConstraintDataLeq(spec, state, IsComplete.ALWAYS, compiled, cache);
+        try {
+            dataLeq.leq(foo, bar);
+            fail("Expected data order to be delayed.");
+        } catch(ResolutionDelayException e) {
+            // expected
+        }
+        assertEquals(size, cache.size());
+    }
+
+    @Test public void testLeqVerdictsCached() throws Exception {
+        final IState.Immutable state = State.of();
+        final Rule rule = Rule.of("", Arrays.asList(P.newVar(x1), P.newVar(x2)), new CEqual(x1, x2));
+        final QueryPredicateCache cache = new QueryPredicateCache();
+        final Rule compiled = cache.compile(rule, state.unifier());
+        final int size = cache.size();
+        final ConstraintDataLeq cached = new ConstraintDataLeq(spec, state, IsComplete.ALWAYS, compiled, cache);
+        final ConstraintDataLeq uncached = new ConstraintDataLeq(spec, state, IsComplete.ALWAYS, compiled);
+        for(int i = 0; i < 2; i++) {
+            assertTrue(uncached.leq(foo, foo));
+            assertTrue(cached.leq(foo, foo));
+            assertFalse(uncached.leq(foo, bar));
+            assertFalse(cached.leq(foo, bar));
+            assertEquals(size + 2, cache.size());
+        }
+    }
+
+    private static IState.Immutable bind(IState.Immutable state, ITermVar var, ITerm term) throws OccursException {
+        return state.withUnifier(state.unifier().unify(var, term).get().unifier());
+    }
+
+}
@@ -0,0 +1,84 @@
+package mb.statix.solver.store;
+
+import static mb.nabl2.terms.build.TermBuild.B;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import mb.nabl2.terms.ITermVar;
+import mb.statix.constraints.CEqual;
+import mb.statix.solver.Delay;
+import mb.statix.solver.IConstraint;
+import mb.statix.solver.log.NullDebugContext;
+
+public class BaseConstraintStoreTest {
+
+    private final ITermVar x = B.newVar("", "x");
+    private final ITermVar y = B.newVar("", "y");
+    private final ITermVar z = B.newVar("", "z");
+
+    @Test public void testActivateRemovesOtherEntries() {
+        final BaseConstraintStore store = new BaseConstraintStore(new NullDebugContext());
+        final IConstraint c1 = new CEqual(x, y);
+        final IConstraint c2 = new CEqual(y, B.newInt(1));
+        store.delay(c1, Delay.ofVars(Arrays.asList(x, y)));
+        store.delay(c2, Delay.ofVar(y));
+        assertEquals(2, store.delayedSize());
+        assertEquals(3, store.indexSize());
+
+        store.activateFromVars(Collections.singletonList(x), new NullDebugContext());
+        assertEquals(1, store.delayedSize());
+        assertEquals(1, store.indexSize());
+        assertSame(c1, store.remove());
+        assertNull(store.remove());
+
+        store.activateFromVars(Collections.singletonList(y), new NullDebugContext());
+        assertSame(c2, store.remove());
+        assertEquals(0, store.delayedSize());
+        assertEquals(0, store.indexSize());
+        assertEquals(1.0 / 3, store.staleEntryRatio(), 0.0001);
+    }
+
+    @Test public void testDelayed() {
+        final BaseConstraintStore store = new BaseConstraintStore(new NullDebugContext());
+        final IConstraint c1 = new CEqual(x, y);
+        final IConstraint c2 = new CEqual(z, B.newInt(1));
+        store.delay(c1, Delay.ofVars(Arrays.asList(x, y)));
+        store.delay(c2, Delay.ofVar(z));
+        store.activateFromVars(Collections.singletonList(z), new NullDebugContext());
+        final Map<IConstraint, Delay> delayed = store.delayed();
+        assertEquals(1, delayed.size());
+        assertEquals(Delay.ofVars(Arrays.asList(x, y)).vars(), delayed.get(c1).vars());
+    }
+
+    @Test public void testManyVars() {
+        final BaseConstraintStore store = new BaseConstraintStore(new NullDebugContext());
+        final List<ITermVar> vars = new ArrayList<>();
+        for(int i = 0; i < 1000; i++) {
+            final ITermVar var = B.newVar("", "v" + i);
+            vars.add(var);
+            store.delay(new CEqual(var, B.newInt(i)), Delay.ofVar(var));
+        }
+        for(int i = 0; i < vars.size(); i += 2) {
+            store.activateFromVars(Collections.singletonList(vars.get(i)), new NullDebugContext());
+        }
+        assertEquals(500, store.activeSize());
+        assertEquals(500, store.delayedSize());
+        for(int i = 1; i < vars.size(); i += 2) {
+            store.activateFromVars(Collections.singletonList(vars.get(i)), new NullDebugContext());
+        }
+        assertEquals(1000, store.activeSize());
+        assertEquals(0, store.delayedSize());
+        assertEquals(0, store.indexSize());
+        assertEquals(1.0, store.activationFanOut(), 0.0001);
+    }
+
+}
@@ -11,6 +11,7 @@ import org.metaborg.util.log.ILogger;
 import org.metaborg.util.log.LoggerUtils;
 
 import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableSet;
 
 import io.usethesource.capsule.Map;
 import io.usethesource.capsule.Set;
@@ -23,6 +24,7 @@ import mb.scopegraph.oopsla20.reference.EdgeOrData;
 import mb.statix.constraints.CConj;
 import mb.statix.constraints.CEqual;
 import mb.statix.constraints.CExists;
+import mb.statix.constraints.CNew;
 import mb.statix.constraints.CTrue;
 import mb.statix.constraints.CUser;
 import mb.statix.constraints.Constraints;
@@ -47,6 +49,7 @@ public class RuleUtilTest {
         testTransforms();
         testClose1();
         testClose2();
+        testTermPredicates();
     }
 
     private static void testUnorderedRules0() {
@@ -267,4 +270,23 @@ public class RuleUtilTest {
         logger.info("  to {}", s);
     }
 
+    private static void testTermPredicates() {
+        final ITermVar x = B.newVar("", "x");
+        final ITermVar s = B.newVar("", "s");
+        // @formatter:off
+        final RuleSet rules = RuleSet.of(Arrays.asList(
+          Rule.of("eq", Arrays.asList(P.newVar(x)), new CEqual(x, B.newInt(1)))
+        , Rule.of("calls-eq", Arrays.asList(P.newVar(x)), new CConj(new CUser("eq", Arrays.asList(x)), new CTrue()))
+        , Rule.of("new", Arrays.asList(P.newVar(s)), new CNew(s, s))
+        , Rule.of("calls-new", Arrays.asList(P.newVar(s)), new CUser("new", Arrays.asList(s)))
+        ));
+        // @formatter:on
+        final ImmutableSet<String> expected = ImmutableSet.of("eq", "calls-eq");
+        final java.util.Set<String> actual = RuleUtil.termPredicates(rules);
+        logger.info("Term predicates {}", actual);
+        if(!expected.equals(actual)) {
+            logger.error("Expected term predicates {}, got {}", expected, actual);
+        }
+    }
+
 }
@@ -0,0 +1,85 @@
+package mb.statix.spoofax;
+
+import static mb.nabl2.terms.build.TermBuild.B;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+import mb.nabl2.terms.ITerm;
+import mb.nabl2.terms.ITermVar;
+import mb.nabl2.terms.stratego.TermIndex;
+import mb.statix.constraints.CExists;
+import mb.statix.constraints.CUser;
+import mb.statix.solver.IConstraint;
+import mb.statix.solver.persistent.SolverResult;
+import mb.statix.spec.Spec;
+
+public class SolverResultMemoTest {
+
+    private final Spec spec = Spec.of();
+
+    private static ITerm ast(int firstIndex) {
+        final ITerm x = TermIndex.of("a.src", firstIndex + 1).put(B.newString("x"));
+        return TermIndex.of("a.src", firstIndex).put(B.newAppl("Var", x));
+    }
+
+    @Test public void testReuseEqualConstraint() {
+        final SolverResultMemo memo = new SolverResultMemo(4);
+        final SolverResult result = SolverResult.of(spec);
+        memo.put(spec, new CUser("programOk", Arrays.asList(ast(1))), result);
+        assertSame(result, memo.get(spec, new CUser("programOk", Arrays.asList(ast(1)))).get());
+    }
+
+    @Test public void testMissOnDifferentTermIndices() {
+        final SolverResultMemo memo = new SolverResultMemo(4);
+        memo.put(spec, new CUser("programOk", Arrays.asList(ast(1))), SolverResult.of(spec));
+        assertFalse(memo.get(spec, new CUser("programOk", Arrays.asList(ast(2)))).isPresent());
+    }
+
+    @Test public void testReuseWithEqualSpec() {
+        final SolverResultMemo memo = new SolverResultMemo(4);
+        final SolverResult result = SolverResult.of(spec);
+        memo.put(spec, new CUser("programOk", Arrays.asList(ast(1))), result);
+        // a spec that is decoded again has the same content, but is a different instance
+        assertSame(result, memo.get(Spec.of(), new CUser("programOk", Arrays.asList(ast(1)))).get());
+    }
+
+    @Test public void testMissOnDifferentSpec() {
+        final SolverResultMemo memo = new SolverResultMemo(4);
+        memo.put(spec, new CUser("programOk", Arrays.asList(ast(1))), SolverResult.of(spec));
+        final Spec otherSpec = Spec.of().withEdgeLabels(ImmutableSet.of(B.newAppl("Label", B.newString("P"))));
+        assertFalse(memo.get(otherSpec, new CUser("programOk", Arrays.asList(ast(1)))).isPresent());
+    }
+
+    @Test public void testIgnoreOpenConstraints() {
+        final SolverResultMemo memo = new SolverResultMemo(4);
+        final ITermVar v = B.newVar("", "out");
+        final IConstraint open = new CUser("elaborate", Arrays.asList(ast(1), v));
+        memo.put(spec, open, SolverResult.of(spec));
+        assertEquals(0, memo.size());
+
+        final IConstraint closed = new CExists(Arrays.asList(v), open);
+        memo.put(spec, closed, SolverResult.of(spec));
+        assertEquals(1, memo.size());
+    }
+
+    @Test public void testEvictLeastRecentlyUsed() {
+        final SolverResultMemo memo = new SolverResultMemo(2);
+        final IConstraint c1 = new CUser("programOk", Arrays.asList(ast(1)));
+        final IConstraint c2 = new CUser("programOk", Arrays.asList(ast(10)));
+        final IConstraint c3 = new CUser("programOk", Arrays.asList(ast(20)));
+        memo.put(spec, c1, SolverResult.of(spec));
+        memo.put(spec, c2, SolverResult.of(spec));
+        memo.get(spec, c1);
+        memo.put(spec, c3, SolverResult.of(spec));
+        assertEquals(2, memo.size());
+        assertFalse(memo.get(spec, c2).isPresent());
+    }
+
+}
@@ -0,0 +1,59 @@
+package mb.statix.spoofax;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.spoofax.interpreter.terms.IStrategoTerm;
+import org.spoofax.interpreter.terms.ITermFactory;
+import org.spoofax.terms.TermFactory;
+
+import mb.statix.spec.Spec;
+
+public class SpecCacheTest {
+
+    private final ITermFactory factory = new TermFactory();
+
+    private IStrategoTerm specTerm(String name) {
+        return factory.makeAppl(factory.makeConstructor("Spec", 1), factory.makeString(name));
+    }
+
+    @Test public void testReuseSameTerm() {
+        final SpecCache cache = new SpecCache(4);
+        final IStrategoTerm term = specTerm("a");
+        final Spec spec = Spec.of();
+        cache.put(term, spec);
+        assertSame(spec, cache.get(term).get());
+    }
+
+    @Test public void testReuseEqualTerm() {
+        final SpecCache cache = new SpecCache(4);
+        final Spec spec = Spec.of();
+        cache.put(specTerm("a"), spec);
+        assertSame(spec, cache.get(specTerm("a")).get());
+    }
+
+    @Test public void testMissOnDifferentTerm() {
+        final SpecCache cache = new SpecCache(4);
+        cache.put(specTerm("a"), Spec.of());
+        assertFalse(cache.get(specTerm("b")).isPresent());
+    }
+
+    @Test public void testEvictLeastRecentlyUsed() {
+        final SpecCache cache = new SpecCache(2);
+        cache.put(specTerm("a"), Spec.of());
+        cache.put(specTerm("b"), Spec.of());
+        cache.get(specTerm("a"));
+        cache.put(specTerm("c"), Spec.of());
+        assertEquals(2, cache.size());
+        assertFalse(cache.get(specTerm("b")).isPresent());
+    }
+
+    @Test public void testDisabled() {
+        final SpecCache cache = new SpecCache(0);
+        cache.put(specTerm("a"), Spec.of());
+        assertFalse(cache.get(specTerm("a")).isPresent());
+    }
+
+}